@@ -101,7 +101,7 @@ public abstract class TableFactory {
         if (useProfile) {
             exTable.setProfile(EnumPxfDefaultProfiles.HiveORC.toString());
         } else {
-            exTable.setFragmenter("org.greenplum.pxf.plugins.hive.HiveInputFormatFragmenter");
+            exTable.setFragmenter("org.greenplum.pxf.plugins.hive.HiveORCFragmenter");
             exTable.setAccessor("org.greenplum.pxf.plugins.hive.HiveORCFileAccessor");
             exTable.setResolver("org.greenplum.pxf.plugins.hive.HiveORCSerdeResolver");
         }
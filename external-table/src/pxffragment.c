@@ -158,6 +158,11 @@ rest_request(GPHDUri *hadoop_uri, ClientContext *client_context, char *rest_msg)
  *
  * Response (left as a single line purposefully):
  * {"PXFFragments":[{"index":0,"userData":null,"sourceName":"demo/text2.csv","metadata":"rO0ABXcQAAAAAAAAAAAAAAAAAAAABXVyABNbTGphdmEubGFuZy5TdHJpbmc7rdJW5+kde0cCAAB4cAAAAAN0ABxhZXZjZWZlcm5hczdtYnAuY29ycC5lbWMuY29tdAAcYWV2Y2VmZXJuYXM3bWJwLmNvcnAuZW1jLmNvbXQAHGFldmNlZmVybmFzN21icC5jb3JwLmVtYy5jb20=","replicas":["10.207.4.23","10.207.4.23","10.207.4.23"]},{"index":0,"userData":null,"sourceName":"demo/text_csv.csv","metadata":"rO0ABXcQAAAAAAAAAAAAAAAAAAAABnVyABNbTGphdmEubGFuZy5TdHJpbmc7rdJW5+kde0cCAAB4cAAAAAN0ABxhZXZjZWZlcm5hczdtYnAuY29ycC5lbWMuY29tdAAcYWV2Y2VmZXJuYXM3bWJwLmNvcnAuZW1jLmNvbXQAHGFldmNlZmVybmFzN21icC5jb3JwLmVtYy5jb20=","replicas":["10.207.4.23","10.207.4.23","10.207.4.23"]}]}
+ *
+ * With the REST_HEADER_USER_DATA_DICTIONARY header, each distinct user data is
+ * sent once in the PXFFragmentsUserData array and fragments refer to it by its
+ * position, which is resolved back to the user data while parsing:
+ * {"PXFFragmentsUserData":["<base64 user data>"],"PXFFragments":[{"index":0,"userDataId":0,"sourceName":"demo/text2.csv","metadata":"<base64 metadata>","replicas":["10.207.4.23"]}]}
  */
 
 typedef enum pxf_fragment_object
@@ -168,7 +173,9 @@ typedef enum pxf_fragment_object
 	PXF_PARSE_PROFILE,
 	PXF_PARSE_SOURCENAME,
 	PXF_PARSE_METADATA,
-	PXF_PARSE_REPLICAS
+	PXF_PARSE_REPLICAS,
+	PXF_PARSE_USERDATA_ID,
+	PXF_PARSE_USERDATA_DICTIONARY
 } pxf_fragment_object;
 
 typedef struct FragmentState
@@ -176,6 +183,7 @@ typedef struct FragmentState
 	JsonLexContext		   *lex;
 	pxf_fragment_object		object;
 	List				   *fragments;
+	List				   *user_data;
 	bool					has_replicas;
 	int						arraydepth;
 } FragmentState;
@@ -189,6 +197,8 @@ pxf_fragment_object_start(void *state, char *name, bool isnull)
 	{
 		if (pg_strcasecmp(name, "index") == 0)
 			s->object = PXF_PARSE_INDEX;
+		else if (pg_strcasecmp(name, "userDataId") == 0)
+			s->object = PXF_PARSE_USERDATA_ID;
 	}
 	else if (s->lex->token_type == JSON_TOKEN_STRING || s->lex->token_type == JSON_TOKEN_NULL)
 	{
@@ -210,10 +220,20 @@ pxf_fragment_object_start(void *state, char *name, bool isnull)
 	{
 		if (pg_strcasecmp(name, "PXFFragments") == 0)
 		{
-			if (s->object != PXF_PARSE_START)
+			if (s->object != PXF_PARSE_START &&
+				s->object != PXF_PARSE_USERDATA_DICTIONARY)
+				ereport(ERROR,
+						(errcode(ERRCODE_SYNTAX_ERROR),
+						 errmsg("malformed PXF fragment")));
+			s->object = PXF_PARSE_START;
+		}
+		else if (pg_strcasecmp(name, "PXFFragmentsUserData") == 0)
+		{
+			if (s->object != PXF_PARSE_START || s->arraydepth != 0)
 				ereport(ERROR,
 						(errcode(ERRCODE_SYNTAX_ERROR),
 						 errmsg("malformed PXF fragment")));
+			s->object = PXF_PARSE_USERDATA_DICTIONARY;
 		}
 		else if (pg_strcasecmp(name, "replicas") == 0)
 		{
@@ -247,7 +267,21 @@ static void
 pxf_fragment_scalar(void *state, char *token, JsonTokenType type)
 {
 	FragmentState  *s = (FragmentState *) state;
-	FragmentData   *d = (FragmentData *) llast(s->fragments);
+	FragmentData   *d;
+	int				user_data_id;
+
+	/* The user data dictionary precedes the fragments */
+	if (s->object == PXF_PARSE_USERDATA_DICTIONARY)
+	{
+		if (type != JSON_TOKEN_STRING)
+			ereport(ERROR,
+					(errcode(ERRCODE_SYNTAX_ERROR),
+					 errmsg("unexpected value \"%s\" for attribute", token)));
+		s->user_data = lappend(s->user_data, pstrdup(token));
+		return;
+	}
+
+	d = (FragmentData *) llast(s->fragments);
 
 	/* Populate the fragment depending on the type of the scalar and the current object */
 	switch(s->object)
@@ -267,6 +301,15 @@ pxf_fragment_scalar(void *state, char *token, JsonTokenType type)
 		case PXF_PARSE_INDEX:
 			check_and_assign(&(d->index), type, token, JSON_TOKEN_NUMBER, true);
 			break;
+		case PXF_PARSE_USERDATA_ID:
+			/* resolve the id to the user data it refers to in the dictionary */
+			user_data_id = pg_atoi(token, sizeof(int32), 0);
+			if (user_data_id < 0 || user_data_id >= list_length(s->user_data))
+				ereport(ERROR,
+						(errcode(ERRCODE_SYNTAX_ERROR),
+						 errmsg("unexpected value \"%s\" for attribute", token)));
+			d->user_data = pstrdup((char *) list_nth(s->user_data, user_data_id));
+			break;
 		case PXF_PARSE_REPLICAS:
 			if (type == JSON_TOKEN_STRING)
 				s->has_replicas = true;
@@ -293,6 +336,10 @@ pxf_array_element_start(void *state, bool isnull)
 	if (++s->arraydepth > 1)
 		return;
 
+	/* the elements of the user data dictionary are not fragments */
+	if (s->object == PXF_PARSE_USERDATA_DICTIONARY)
+		return;
+
 	/*
 	 * Reaching here means we are entering a new fragment in the PXFFragments
 	 * array, allocate a new fragment on the list to populate during parsing.
@@ -308,7 +355,7 @@ pxf_array_element_end(void *state, bool isnull)
 {
 	FragmentState  *s = (FragmentState *) state;
 
-	if (--s->arraydepth == 0)
+	if (--s->arraydepth == 0 && s->object != PXF_PARSE_USERDATA_DICTIONARY)
 	{
 		if (!s->has_replicas)
 			s->fragments = list_truncate(s->fragments,
@@ -326,6 +373,7 @@ parse_get_fragments_response(List *fragments, StringInfo rest_buf)
 	state = palloc0(sizeof(FragmentState));
 
 	state->fragments = NIL;
+	state->user_data = NIL;
 	state->lex = makeJsonLexContext(cstring_to_text(rest_buf->data), true);
 	state->object = PXF_PARSE_START;
 	state->arraydepth = 0;
@@ -340,6 +388,7 @@ parse_get_fragments_response(List *fragments, StringInfo rest_buf)
 	pg_parse_json(state->lex, sem);
 
 	pfree(state->lex);
+	list_free_deep(state->user_data);
 
 	return state->fragments;
 }
@@ -422,6 +471,9 @@ init(GPHDUri *uri, ClientContext *cl_context)
 	/* set HTTP header that guarantees response in JSON format */
 	churl_headers_append(cl_context->http_headers, REST_HEADER_JSON_RESPONSE, NULL);
 
+	/* ask for the user data shared by fragments to be sent only once */
+	churl_headers_append(cl_context->http_headers, REST_HEADER_USER_DATA_DICTIONARY, "true");
+
 	return;
 }
 
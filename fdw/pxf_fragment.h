@@ -61,6 +61,11 @@ typedef struct FragmentData
 	int			fragment_idx;
 } FragmentData;
 
+/*
+ * Header asking the fragmenter to send each distinct user data once
+ */
+#define REST_HEADER_USER_DATA_DICTIONARY "X-GP-FRAGMENT-USER-DATA-DICTIONARY"
+
 /*
  * One debug level for all log messages from the data allocation algorithm
  */
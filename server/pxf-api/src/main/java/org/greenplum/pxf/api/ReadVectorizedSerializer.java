@@ -0,0 +1,41 @@
+package org.greenplum.pxf.api;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.io.BatchWritable;
+
+/**
+ *
+ * Interface that defines serialization of a batch of records straight into
+ * the output format, without resolving the records into {@link OneField}s.
+ *
+ */
+public interface ReadVectorizedSerializer extends ReadVectorizedResolver {
+
+    /**
+     * Writes the records of the batch into the output
+     *
+     * @param batch  unresolved batch
+     * @param output the serialized batch to add the records to
+     * @throws BadRecordException if the batch does not match the schema
+     */
+    void serializeBatch(OneRow batch, BatchWritable output) throws BadRecordException;
+
+}
@@ -0,0 +1,201 @@
+package org.greenplum.pxf.api.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.BadRecordException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A batch of records serialized in the output format, the values are written
+ * straight into a byte buffer without creating an object per value.
+ * <p>
+ * Each record is written by calling {@link #startRecord()}, one setter per
+ * column of the schema in the column order and {@link #endRecord()}. The
+ * buffer is reused by the next batch after {@link #reset()}.
+ */
+public abstract class BatchWritable implements Writable {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    protected final int[] schema;
+    protected byte[] buffer = new byte[INITIAL_CAPACITY];
+    protected int length;
+    private int recordCount;
+
+    /**
+     * Constructs a BatchWritable for the given schema.
+     *
+     * @param schema the type codes of the columns
+     */
+    protected BatchWritable(int[] schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Checks that values of the given type can be written into the column.
+     *
+     * @param colIdx the column index
+     * @param type   the type of the values
+     * @throws BadRecordException if the type does not match the schema
+     */
+    public void checkType(int colIdx, DataType type) throws BadRecordException {
+    }
+
+    /**
+     * Starts a new record.
+     */
+    public abstract void startRecord();
+
+    /**
+     * Completes the current record.
+     */
+    public void endRecord() {
+        recordCount++;
+    }
+
+    /**
+     * Sets the column of the current record to null.
+     *
+     * @param colIdx the column index
+     */
+    public abstract void setNull(int colIdx);
+
+    public abstract void setBoolean(int colIdx, boolean val);
+
+    public abstract void setShort(int colIdx, short val);
+
+    public abstract void setInt(int colIdx, int val);
+
+    public abstract void setLong(int colIdx, long val);
+
+    public abstract void setFloat(int colIdx, float val);
+
+    public abstract void setDouble(int colIdx, double val);
+
+    /**
+     * Sets a bytea column of the current record.
+     *
+     * @param colIdx the column index
+     * @param bytes  the array holding the value
+     * @param start  the offset of the value in the array
+     * @param len    the length of the value
+     */
+    public abstract void setBytes(int colIdx, byte[] bytes, int start, int len);
+
+    /**
+     * Sets a character column of the current record from its UTF-8 bytes.
+     *
+     * @param colIdx the column index
+     * @param bytes  the array holding the value
+     * @param start  the offset of the value in the array
+     * @param len    the length of the value
+     */
+    public abstract void setText(int colIdx, byte[] bytes, int start, int len);
+
+    /**
+     * Sets a column of the current record from the text form of a value that
+     * is not a character string, like a numeric or a date. The value is
+     * written as it is, it is never quoted.
+     *
+     * @param colIdx the column index
+     * @param val    the text form of the value
+     */
+    public abstract void setString(int colIdx, String val);
+
+    /**
+     * @return the number of records in the batch
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return true when the batch has no records
+     */
+    public boolean isEmpty() {
+        return recordCount == 0;
+    }
+
+    /**
+     * Clears the batch, keeping the buffer for the next one.
+     */
+    public void reset() {
+        length = 0;
+        recordCount = 0;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.write(buffer, 0, length);
+    }
+
+    /**
+     * BatchWritable is only used to send records.
+     *
+     * @param in <code>DataInput</code> to deserialize this object from
+     * @throws UnsupportedOperationException this function is not supported
+     */
+    @Override
+    public void readFields(DataInput in) {
+        throw new UnsupportedOperationException(
+                "BatchWritable.readFields() is not implemented");
+    }
+
+    protected void ensureCapacity(int extra) {
+        int required = length + extra;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+
+    protected void putByte(int v) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) v;
+    }
+
+    protected void putShort(int v) {
+        ensureCapacity(2);
+        buffer[length++] = (byte) (v >>> 8);
+        buffer[length++] = (byte) v;
+    }
+
+    protected void putInt(int v) {
+        ensureCapacity(4);
+        buffer[length++] = (byte) (v >>> 24);
+        buffer[length++] = (byte) (v >>> 16);
+        buffer[length++] = (byte) (v >>> 8);
+        buffer[length++] = (byte) v;
+    }
+
+    protected void putLong(long v) {
+        putInt((int) (v >>> 32));
+        putInt((int) v);
+    }
+
+    protected void putBytes(byte[] bytes, int start, int len) {
+        ensureCapacity(len);
+        System.arraycopy(bytes, start, buffer, length, len);
+        length += len;
+    }
+}
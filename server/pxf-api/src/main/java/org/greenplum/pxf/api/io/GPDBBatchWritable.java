@@ -0,0 +1,173 @@
+package org.greenplum.pxf.api.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.BadRecordException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A batch of records serialized in the {@link GPDBWritable} form. Each record
+ * is byte for byte what {@link GPDBWritable#write} produces for the same
+ * values: the header is written when the record starts, the null bits are set
+ * as the columns are written and the total length is filled in when the
+ * record ends.
+ */
+public class GPDBBatchWritable extends BatchWritable {
+
+    /* total length (4 byte), version (2 byte), error flag (1 byte), # of columns (2 byte) */
+    private static final int FIXED_HEADER_LENGTH = 4 + 2 + 1 + 2;
+
+    private final GPDBWritable.DBType[] dbTypes;
+    private final byte[] header;
+    private final int eightByteAlignment;
+    private int recordStart;
+
+    /**
+     * Constructs a GPDBBatchWritable for the given schema.
+     *
+     * @param schema the type codes of the columns
+     */
+    public GPDBBatchWritable(int[] schema) {
+        super(schema);
+        int numCol = schema.length;
+        dbTypes = new GPDBWritable.DBType[numCol];
+        header = new byte[FIXED_HEADER_LENGTH + numCol + GPDBWritable.getNullByteArraySize(numCol)];
+        header[4] = (byte) (GPDBWritable.VERSION >>> 8);
+        header[5] = (byte) GPDBWritable.VERSION;
+        header[7] = (byte) (numCol >>> 8);
+        header[8] = (byte) numCol;
+        for (int i = 0; i < numCol; i++) {
+            dbTypes[i] = GPDBWritable.getDBType(schema[i]);
+            header[FIXED_HEADER_LENGTH + i] = (byte) dbTypes[i].ordinal();
+        }
+        eightByteAlignment = GPDBWritable.getEightByteAlignment();
+    }
+
+    @Override
+    public void checkType(int colIdx, DataType type) throws BadRecordException {
+        if (GPDBWritable.getDBType(type.getOID()) != dbTypes[colIdx]) {
+            throw new BadRecordException(
+                    String.format("For column %d schema requires type %s but input record has type %s",
+                            colIdx, DataType.get(schema[colIdx]), type));
+        }
+    }
+
+    @Override
+    public void startRecord() {
+        recordStart = length;
+        putBytes(header, 0, header.length);
+    }
+
+    @Override
+    public void endRecord() {
+        pad(eightByteAlignment);
+        int recordLength = length - recordStart;
+        buffer[recordStart] = (byte) (recordLength >>> 24);
+        buffer[recordStart + 1] = (byte) (recordLength >>> 16);
+        buffer[recordStart + 2] = (byte) (recordLength >>> 8);
+        buffer[recordStart + 3] = (byte) recordLength;
+        super.endRecord();
+    }
+
+    @Override
+    public void setNull(int colIdx) {
+        buffer[recordStart + FIXED_HEADER_LENGTH + schema.length + colIdx / 8] |= (byte) (1 << (7 - colIdx % 8));
+    }
+
+    @Override
+    public void setBoolean(int colIdx, boolean val) {
+        putByte(val ? 1 : 0);
+    }
+
+    @Override
+    public void setShort(int colIdx, short val) {
+        align(colIdx);
+        putShort(val);
+    }
+
+    @Override
+    public void setInt(int colIdx, int val) {
+        align(colIdx);
+        putInt(val);
+    }
+
+    @Override
+    public void setLong(int colIdx, long val) {
+        align(colIdx);
+        putLong(val);
+    }
+
+    @Override
+    public void setFloat(int colIdx, float val) {
+        align(colIdx);
+        putInt(Float.floatToIntBits(val));
+    }
+
+    @Override
+    public void setDouble(int colIdx, double val) {
+        align(colIdx);
+        putLong(Double.doubleToLongBits(val));
+    }
+
+    @Override
+    public void setBytes(int colIdx, byte[] bytes, int start, int len) {
+        align(colIdx);
+        putInt(len);
+        putBytes(bytes, start, len);
+    }
+
+    /**
+     * Text values have a 4 byte length header and are '\0' terminated.
+     */
+    @Override
+    public void setText(int colIdx, byte[] bytes, int start, int len) {
+        align(colIdx);
+        putInt(len + 1);
+        putBytes(bytes, start, len);
+        putByte(0);
+    }
+
+    @Override
+    public void setString(int colIdx, String val) {
+        byte[] bytes = val.getBytes(StandardCharsets.UTF_8);
+        setText(colIdx, bytes, 0, bytes.length);
+    }
+
+    private void align(int colIdx) {
+        int alignment = dbTypes[colIdx].getAlignment();
+        pad(alignment == 8 ? eightByteAlignment : alignment);
+    }
+
+    /*
+     * Pads the record with zeros up to the alignment, relative to the start
+     * of the record.
+     */
+    private void pad(int alignment) {
+        int offset = length - recordStart;
+        int padding = ((offset + alignment - 1) & ~(alignment - 1)) - offset;
+        if (padding > 0) {
+            ensureCapacity(padding);
+            Arrays.fill(buffer, length, length + padding, (byte) 0);
+            length += padding;
+        }
+    }
+}
@@ -53,7 +53,7 @@ public class GPDBWritable implements Writable {
     /*
      * Enum of the Database type
      */
-    private enum DBType {
+    enum DBType {
         BIGINT(8, 8),
         BOOLEAN(1, 1),
         FLOAT8(8, 8),
@@ -89,7 +89,7 @@ public class GPDBWritable implements Writable {
      * Constants
      */
     private static final int PREV_VERSION = 1;
-    private static final int VERSION = 2; /* for backward compatibility */
+    static final int VERSION = 2; /* for backward compatibility */
     private static final String CHARSET = "UTF-8";
 
     /*
@@ -348,32 +348,7 @@ public class GPDBWritable implements Writable {
 
         for (int i = 0; i < numCol; i++) {
             /* Get the enum type */
-            DBType coldbtype;
-            switch (DataType.get(colType[i])) {
-                case BIGINT:
-                    coldbtype = DBType.BIGINT;
-                    break;
-                case BOOLEAN:
-                    coldbtype = DBType.BOOLEAN;
-                    break;
-                case FLOAT8:
-                    coldbtype = DBType.FLOAT8;
-                    break;
-                case INTEGER:
-                    coldbtype = DBType.INTEGER;
-                    break;
-                case REAL:
-                    coldbtype = DBType.REAL;
-                    break;
-                case SMALLINT:
-                    coldbtype = DBType.SMALLINT;
-                    break;
-                case BYTEA:
-                    coldbtype = DBType.BYTEA;
-                    break;
-                default:
-                    coldbtype = DBType.TEXT;
-            }
+            DBType coldbtype = getDBType(colType[i]);
             enumType[i] = (byte) (coldbtype.ordinal());
 
 			/* Get the actual value, and set the null bit */
@@ -479,6 +454,34 @@ public class GPDBWritable implements Writable {
         out.write(padbytes, 0, endpadding);
     }
 
+    /**
+     * Returns the serialization type of the given column type. The types
+     * that are not fixed length are serialized as text.
+     *
+     * @param type the column type code
+     * @return the serialization type
+     */
+    static DBType getDBType(int type) {
+        switch (DataType.get(type)) {
+            case BIGINT:
+                return DBType.BIGINT;
+            case BOOLEAN:
+                return DBType.BOOLEAN;
+            case FLOAT8:
+                return DBType.FLOAT8;
+            case INTEGER:
+                return DBType.INTEGER;
+            case REAL:
+                return DBType.REAL;
+            case SMALLINT:
+                return DBType.SMALLINT;
+            case BYTEA:
+                return DBType.BYTEA;
+            default:
+                return DBType.TEXT;
+        }
+    }
+
     /**
      * Private helper to convert boolean array to byte array
      */
@@ -497,9 +500,9 @@ public class GPDBWritable implements Writable {
     }
 
     /**
-     * Private helper to determine the size of the null byte array
+     * Helper to determine the size of the null byte array
      */
-    private static int getNullByteArraySize(int colCnt) {
+    static int getNullByteArraySize(int colCnt) {
         return (colCnt / 8) + (colCnt % 8 != 0 ? 1 : 0);
     }
 
@@ -856,11 +859,18 @@ public class GPDBWritable implements Writable {
      * the C code uses (see gphdfs/src/protocol_formatter/common.c).
      */
     private void initializeEightByteAlignment() {
+        alignmentOfEightBytes = getEightByteAlignment();
+    }
+
+    /**
+     * Returns the alignment of the 8 byte types, set by the greenplum.alignment
+     * system property.
+     *
+     * @return the alignment of the 8 byte types
+     */
+    static int getEightByteAlignment() {
         String alignment = System.getProperty("greenplum.alignment");
-        if (alignment == null) {
-            return;
-        }
-        alignmentOfEightBytes = Integer.parseInt(alignment);
+        return alignment == null ? 8 : Integer.parseInt(alignment);
     }
 
     /**
@@ -0,0 +1,217 @@
+package org.greenplum.pxf.api.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.model.GreenplumCSV;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A batch of records serialized as delimited text lines, in the same form
+ * the BridgeOutputBuilder gives to records of {@link org.greenplum.pxf.api.OneField}s.
+ * Character values are quoted only when they contain the quote, the
+ * delimiter or the newline.
+ */
+public class TextBatchWritable extends BatchWritable {
+
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEX_PREFIX = "\\x".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+    private final GreenplumCSV greenplumCSV;
+    private final byte[] delimiter;
+    private final byte[] newline;
+    private final byte[] valueOfNull;
+    /* the ASCII bytes that may require quoting, null when one of them is not ASCII */
+    private final boolean[] specialBytes;
+    private int fieldCount;
+
+    /**
+     * Constructs a TextBatchWritable for the given schema.
+     *
+     * @param schema       the type codes of the columns
+     * @param greenplumCSV the delimiter, quote and escape of the output
+     */
+    public TextBatchWritable(int[] schema, GreenplumCSV greenplumCSV) {
+        super(schema);
+        this.greenplumCSV = greenplumCSV;
+        delimiter = String.valueOf(greenplumCSV.getDelimiter()).getBytes(StandardCharsets.UTF_8);
+        newline = greenplumCSV.getNewline().getBytes(StandardCharsets.UTF_8);
+        valueOfNull = String.valueOf(greenplumCSV.getValueOfNull()).getBytes(StandardCharsets.UTF_8);
+        specialBytes = getSpecialBytes(greenplumCSV);
+    }
+
+    @Override
+    public void startRecord() {
+        fieldCount = 0;
+    }
+
+    @Override
+    public void endRecord() {
+        putBytes(newline, 0, newline.length);
+        super.endRecord();
+    }
+
+    @Override
+    public void setNull(int colIdx) {
+        startField();
+        putBytes(valueOfNull, 0, valueOfNull.length);
+    }
+
+    @Override
+    public void setBoolean(int colIdx, boolean val) {
+        startField();
+        byte[] bytes = val ? TRUE : FALSE;
+        putBytes(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void setShort(int colIdx, short val) {
+        startField();
+        putDecimal(val);
+    }
+
+    @Override
+    public void setInt(int colIdx, int val) {
+        startField();
+        putDecimal(val);
+    }
+
+    @Override
+    public void setLong(int colIdx, long val) {
+        startField();
+        putDecimal(val);
+    }
+
+    @Override
+    public void setFloat(int colIdx, float val) {
+        setString(colIdx, Float.toString(val));
+    }
+
+    @Override
+    public void setDouble(int colIdx, double val) {
+        setString(colIdx, Double.toString(val));
+    }
+
+    @Override
+    public void setBytes(int colIdx, byte[] bytes, int start, int len) {
+        startField();
+        putBytes(HEX_PREFIX, 0, HEX_PREFIX.length);
+        ensureCapacity(2 * len);
+        for (int i = start; i < start + len; i++) {
+            buffer[length++] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+            buffer[length++] = HEX_DIGITS[bytes[i] & 0x0F];
+        }
+    }
+
+    @Override
+    public void setText(int colIdx, byte[] bytes, int start, int len) {
+        startField();
+        if (specialBytes != null && !hasSpecialByte(bytes, start, len)) {
+            putBytes(bytes, start, len);
+        } else {
+            String quoted = greenplumCSV.toCsvField(
+                    new String(bytes, start, len, StandardCharsets.UTF_8), true, true, true);
+            byte[] quotedBytes = quoted.getBytes(StandardCharsets.UTF_8);
+            putBytes(quotedBytes, 0, quotedBytes.length);
+        }
+    }
+
+    @Override
+    public void setString(int colIdx, String val) {
+        startField();
+        byte[] bytes = val.getBytes(StandardCharsets.UTF_8);
+        putBytes(bytes, 0, bytes.length);
+    }
+
+    private void startField() {
+        if (fieldCount++ > 0) {
+            putBytes(delimiter, 0, delimiter.length);
+        }
+    }
+
+    private boolean hasSpecialByte(byte[] bytes, int start, int len) {
+        for (int i = start; i < start + len; i++) {
+            int b = bytes[i];
+            if (b >= 0 && specialBytes[b]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Writes the decimal digits of the value without creating a String.
+     */
+    private void putDecimal(long val) {
+        if (val == Long.MIN_VALUE) {
+            setDigits(Long.toString(val));
+            return;
+        }
+        ensureCapacity(20);
+        if (val < 0) {
+            buffer[length++] = '-';
+            val = -val;
+        }
+        int first = length;
+        do {
+            buffer[length++] = (byte) ('0' + val % 10);
+            val /= 10;
+        } while (val != 0);
+        for (int i = first, j = length - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+    }
+
+    private void setDigits(String digits) {
+        byte[] bytes = digits.getBytes(StandardCharsets.UTF_8);
+        putBytes(bytes, 0, bytes.length);
+    }
+
+    /*
+     * The characters that make GreenplumCSV#toCsvField quote a value: the
+     * quote when there is an escape character, the delimiter and the first
+     * character of the newline.
+     */
+    private static boolean[] getSpecialBytes(GreenplumCSV greenplumCSV) {
+        boolean[] special = new boolean[128];
+        StringBuilder chars = new StringBuilder();
+        if (greenplumCSV.getEscape() != null) {
+            chars.append(greenplumCSV.getQuote());
+        }
+        if (greenplumCSV.getDelimiter() != null) {
+            chars.append(greenplumCSV.getDelimiter());
+        }
+        if (!greenplumCSV.getNewline().isEmpty()) {
+            chars.append(greenplumCSV.getNewline().charAt(0));
+        }
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c >= special.length) {
+                return null;
+            }
+            special[c] = true;
+        }
+        return special;
+    }
+}
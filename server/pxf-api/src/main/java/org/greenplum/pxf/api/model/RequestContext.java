@@ -135,6 +135,7 @@ public class RequestContext {
     private List<ColumnDescriptor> tupleDescription = new ArrayList<>();
     private String user;
     private byte[] userData;
+    private boolean userDataDictionary;
 
     // ----- Additional Configuration Properties to be added to configuration for the request
     private Map<String, String> additionalConfigProps;
@@ -284,6 +285,20 @@ public class RequestContext {
         this.userData = userData;
     }
 
+    /**
+     * Returns whether the client accepts the user data of the fragments in a
+     * dictionary, where each distinct user data is sent once.
+     *
+     * @return whether the client accepts a user data dictionary
+     */
+    public boolean isUserDataDictionary() {
+        return userDataDictionary;
+    }
+
+    public void setUserDataDictionary(boolean userDataDictionary) {
+        this.userDataDictionary = userDataDictionary;
+    }
+
     /**
      * Returns the number of segments in GPDB.
      *
@@ -20,6 +20,7 @@ package org.greenplum.pxf.api.utilities;
  */
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.greenplum.pxf.api.model.Fragment;
@@ -29,7 +30,11 @@ import javax.ws.rs.core.StreamingOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class for serializing fragments metadata in JSON format. The class implements
@@ -42,6 +47,7 @@ public class FragmentsResponse implements StreamingOutput {
     private static final Log Log = LogFactory.getLog(FragmentsResponse.class);
 
     private List<Fragment> fragments;
+    private boolean userDataDictionary;
 
     /**
      * Constructs fragments response out of a list of fragments
@@ -49,7 +55,19 @@ public class FragmentsResponse implements StreamingOutput {
      * @param fragments fragment list
      */
     public FragmentsResponse(List<Fragment> fragments) {
+        this(fragments, false);
+    }
+
+    /**
+     * Constructs fragments response out of a list of fragments, with the
+     * user data of the fragments in a dictionary when the client supports it.
+     *
+     * @param fragments          fragment list
+     * @param userDataDictionary true to send each distinct user data once
+     */
+    public FragmentsResponse(List<Fragment> fragments, boolean userDataDictionary) {
         this.fragments = fragments;
+        this.userDataDictionary = userDataDictionary;
     }
 
     /**
@@ -71,6 +89,11 @@ public class FragmentsResponse implements StreamingOutput {
         DataOutputStream dos = new DataOutputStream(output);
         ObjectMapper mapper = new ObjectMapper();
 
+        if (userDataDictionary) {
+            writeWithUserDataDictionary(dos, mapper);
+            return;
+        }
+
         dos.write("{\"PXFFragments\":[".getBytes());
 
         String prefix = "";
@@ -85,10 +108,63 @@ public class FragmentsResponse implements StreamingOutput {
         dos.write("]}".getBytes());
     }
 
+    /*
+     * Serializes the fragments with each distinct user data written once, in
+     * the PXFFragmentsUserData array that precedes the fragments. A fragment
+     * refers to its user data by the position in that array:
+     * <code>{"PXFFragmentsUserData":["&lt;base64 user data&gt;"],
+     * "PXFFragments":[{"replicas":["sdw1"],"sourceName":"a.orc","index":0,
+     * "metadata":"&lt;base64 metadata for fragment&gt;","userDataId":0}]}</code>
+     */
+    private void writeWithUserDataDictionary(DataOutputStream dos, ObjectMapper mapper) throws IOException {
+        Map<String, Integer> userDataIds = new HashMap<>();
+        int[] fragmentUserDataIds = new int[fragments.size()];
+        Base64.Encoder encoder = Base64.getEncoder();
+
+        dos.write("{\"PXFFragmentsUserData\":[".getBytes());
+        int i = 0;
+        for (Fragment fragment : fragments) {
+            byte[] userData = fragment.getUserData();
+            int id = -1;
+            if (userData != null) {
+                String encodedUserData = encoder.encodeToString(userData);
+                Integer existingId = userDataIds.get(encodedUserData);
+                if (existingId != null) {
+                    id = existingId;
+                } else {
+                    id = userDataIds.size();
+                    userDataIds.put(encodedUserData, id);
+                    dos.write(((id > 0 ? "," : "") + mapper.writeValueAsString(encodedUserData)).getBytes());
+                }
+            }
+            fragmentUserDataIds[i++] = id;
+        }
+
+        dos.write("],\"PXFFragments\":[".getBytes());
+        Iterator<Fragment> iterator = fragments.iterator();
+        for (i = 0; iterator.hasNext(); i++) {
+            ObjectNode node = mapper.valueToTree(iterator.next());
+            if (fragmentUserDataIds[i] >= 0) {
+                node.remove("userData");
+                node.put("userDataId", fragmentUserDataIds[i]);
+            }
+            dos.write(((i > 0 ? "," : "") + mapper.writeValueAsString(node)).getBytes());
+        }
+
+        dos.write("]}".getBytes());
+    }
+
     /**
      * @return the list of fragments for the response
      */
     public List<Fragment> getFragments() {
         return fragments;
     }
+
+    /**
+     * @return whether the user data of the fragments is sent in a dictionary
+     */
+    public boolean isUserDataDictionary() {
+        return userDataDictionary;
+    }
 }
@@ -48,6 +48,23 @@ public class FragmentsResponseFormatter {
     public static FragmentsResponse formatResponse(List<Fragment> fragments,
                                                    String data)
             throws UnknownHostException {
+        return formatResponse(fragments, data, false);
+    }
+
+    /**
+     * Converts Fragments list to FragmentsResponse after replacing host name by
+     * their respective IPs.
+     *
+     * @param fragments          list of fragments
+     * @param data               data (e.g. path) related to the fragments
+     * @param userDataDictionary true to send each distinct user data once
+     * @return FragmentsResponse with given fragments
+     * @throws UnknownHostException if converting host names to IP fails
+     */
+    public static FragmentsResponse formatResponse(List<Fragment> fragments,
+                                                   String data,
+                                                   boolean userDataDictionary)
+            throws UnknownHostException {
         /* print the raw fragment list to log when in debug level */
         if (LOG.isDebugEnabled()) {
             LOG.debug("Fragments before conversion to IP list:");
@@ -64,7 +81,7 @@ public class FragmentsResponseFormatter {
             FragmentsResponseFormatter.printList(fragments, data);
         }
 
-        return new FragmentsResponse(fragments);
+        return new FragmentsResponse(fragments, userDataDictionary);
     }
 
     /**
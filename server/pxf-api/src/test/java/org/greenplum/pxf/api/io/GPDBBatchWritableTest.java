@@ -0,0 +1,127 @@
+package org.greenplum.pxf.api.io;
+
+import org.greenplum.pxf.api.BadRecordException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GPDBBatchWritableTest {
+
+    private static final int[] SCHEMA = {
+            DataType.BOOLEAN.getOID(),
+            DataType.SMALLINT.getOID(),
+            DataType.INTEGER.getOID(),
+            DataType.BIGINT.getOID(),
+            DataType.REAL.getOID(),
+            DataType.FLOAT8.getOID(),
+            DataType.TEXT.getOID(),
+            DataType.BYTEA.getOID(),
+            DataType.NUMERIC.getOID(),
+            DataType.VARCHAR.getOID()
+    };
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void testSameBytesAsGPDBWritable() throws Exception {
+        GPDBBatchWritable batch = new GPDBBatchWritable(SCHEMA);
+        byte[] text = "xxשלוםxx".getBytes(StandardCharsets.UTF_8);
+
+        batch.startRecord();
+        batch.setBoolean(0, true);
+        batch.setShort(1, (short) -3);
+        batch.setInt(2, 42);
+        batch.setLong(3, Long.MIN_VALUE);
+        batch.setFloat(4, 1.5f);
+        batch.setDouble(5, -2.25);
+        batch.setText(6, text, 2, text.length - 4);
+        batch.setBytes(7, new byte[]{9, 1, 2, 9}, 1, 2);
+        batch.setString(8, "123.45");
+        batch.setNull(9);
+        batch.endRecord();
+
+        // a record of nulls only
+        batch.startRecord();
+        for (int i = 0; i < SCHEMA.length; i++) {
+            batch.setNull(i);
+        }
+        batch.endRecord();
+
+        GPDBWritable first = new GPDBWritable(SCHEMA);
+        first.setBoolean(0, true);
+        first.setShort(1, (short) -3);
+        first.setInt(2, 42);
+        first.setLong(3, Long.MIN_VALUE);
+        first.setFloat(4, 1.5f);
+        first.setDouble(5, -2.25);
+        first.setString(6, "שלום");
+        first.setBytes(7, new byte[]{1, 2});
+        first.setString(8, "123.45");
+        first.setString(9, null);
+        GPDBWritable second = new GPDBWritable(SCHEMA);
+
+        assertEquals(2, batch.getRecordCount());
+        assertArrayEquals(concat(serialize(first), serialize(second)), serialize(batch));
+    }
+
+    @Test
+    public void testBufferIsReused() throws Exception {
+        int[] schema = {DataType.TEXT.getOID(), DataType.BIGINT.getOID()};
+        GPDBBatchWritable batch = new GPDBBatchWritable(schema);
+        byte[] longText = new byte[100 * 1024];
+        batch.startRecord();
+        batch.setText(0, longText, 0, longText.length);
+        batch.setLong(1, -1L);
+        batch.endRecord();
+
+        batch.reset();
+        assertTrue(batch.isEmpty());
+
+        // the padding must be zeros, not what the previous batch left in the buffer
+        batch.startRecord();
+        batch.setText(0, new byte[]{'a'}, 0, 1);
+        batch.setLong(1, 7L);
+        batch.endRecord();
+
+        GPDBWritable record = new GPDBWritable(schema);
+        record.setString(0, "a");
+        record.setLong(1, 7L);
+        assertArrayEquals(serialize(record), serialize(batch));
+    }
+
+    @Test
+    public void testCheckType() throws Exception {
+        GPDBBatchWritable batch = new GPDBBatchWritable(SCHEMA);
+        batch.checkType(2, DataType.INTEGER);
+        // character and numeric types are all sent as text
+        batch.checkType(6, DataType.BPCHAR);
+        batch.checkType(8, DataType.NUMERIC);
+
+        thrown.expect(BadRecordException.class);
+        thrown.expectMessage("For column 2 schema requires type INTEGER but input record has type BIGINT");
+        batch.checkType(2, DataType.BIGINT);
+    }
+
+    private byte[] serialize(Writable writable) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writable.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
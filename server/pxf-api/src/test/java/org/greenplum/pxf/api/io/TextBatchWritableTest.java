@@ -0,0 +1,92 @@
+package org.greenplum.pxf.api.io;
+
+import org.greenplum.pxf.api.model.GreenplumCSV;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class TextBatchWritableTest {
+
+    private static final int[] SCHEMA = {
+            DataType.BOOLEAN.getOID(),
+            DataType.INTEGER.getOID(),
+            DataType.BIGINT.getOID(),
+            DataType.FLOAT8.getOID(),
+            DataType.BYTEA.getOID(),
+            DataType.TEXT.getOID(),
+            DataType.NUMERIC.getOID(),
+            DataType.VARCHAR.getOID()
+    };
+
+    @Test
+    public void testCsv() throws Exception {
+        TextBatchWritable batch = new TextBatchWritable(SCHEMA, new GreenplumCSV());
+
+        writeRecord(batch, "plain");
+        writeRecord(batch, "va\"lue");
+        writeRecord(batch, "a,b");
+
+        assertEquals(3, batch.getRecordCount());
+        assertEquals("true,-12,-9223372036854775808,0.5,\\x00ff,plain,1.10,\n" +
+                "true,-12,-9223372036854775808,0.5,\\x00ff,\"va\"\"lue\",1.10,\n" +
+                "true,-12,-9223372036854775808,0.5,\\x00ff,\"a,b\",1.10,\n", serialize(batch));
+    }
+
+    @Test
+    public void testDelimiterAndNull() throws Exception {
+        GreenplumCSV greenplumCSV = new GreenplumCSV()
+                .withDelimiter("|")
+                .withValueOfNull("\\N");
+        TextBatchWritable batch = new TextBatchWritable(new int[]{
+                DataType.TEXT.getOID(), DataType.INTEGER.getOID(), DataType.TEXT.getOID()}, greenplumCSV);
+
+        batch.startRecord();
+        byte[] text = "a,b|c".getBytes(StandardCharsets.UTF_8);
+        batch.setText(0, text, 0, 3);
+        batch.setNull(1);
+        batch.setText(2, text, 0, text.length);
+        batch.endRecord();
+
+        assertEquals("a,b|\\N|\"a,b|c\"\n", serialize(batch));
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        TextBatchWritable batch = new TextBatchWritable(new int[]{DataType.INTEGER.getOID()}, new GreenplumCSV());
+        batch.startRecord();
+        batch.setInt(0, 123456);
+        batch.endRecord();
+        batch.reset();
+
+        batch.startRecord();
+        batch.setInt(0, 0);
+        batch.endRecord();
+
+        assertEquals("0\n", serialize(batch));
+    }
+
+    private void writeRecord(TextBatchWritable batch, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        batch.startRecord();
+        batch.setBoolean(0, true);
+        batch.setInt(1, -12);
+        batch.setLong(2, Long.MIN_VALUE);
+        batch.setDouble(3, 0.5);
+        batch.setBytes(4, new byte[]{0, (byte) 0xFF}, 0, 2);
+        batch.setText(5, bytes, 0, bytes.length);
+        batch.setString(6, "1.10");
+        batch.setNull(7);
+        batch.endRecord();
+    }
+
+    private String serialize(Writable writable) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writable.write(new DataOutputStream(bytes));
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,104 @@
+package org.greenplum.pxf.api.utilities;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.greenplum.pxf.api.model.Fragment;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FragmentsResponseTest {
+
+    private static final String[] HOSTS = new String[]{"sdw1"};
+
+    @Test
+    public void userDataInEachFragment() throws Exception {
+        List<Fragment> fragments = new ArrayList<>();
+        fragments.add(new Fragment("a.orc", HOSTS, null, "part=1".getBytes()));
+        fragments.add(new Fragment("b.orc", HOSTS, null, "part=1".getBytes()));
+
+        JsonNode response = write(new FragmentsResponse(fragments));
+
+        assertFalse(response.has("PXFFragmentsUserData"));
+        assertEquals(2, response.get("PXFFragments").size());
+        for (JsonNode fragment : response.get("PXFFragments")) {
+            assertEquals("part=1", decode(fragment.get("userData")));
+            assertFalse(fragment.has("userDataId"));
+        }
+    }
+
+    @Test
+    public void userDataInDictionary() throws Exception {
+        byte[] first = "part=1".getBytes();
+        List<Fragment> fragments = new ArrayList<>();
+        fragments.add(new Fragment("a.orc", HOSTS, null, first));
+        fragments.add(new Fragment("b.orc", HOSTS, null, first));
+        fragments.add(new Fragment("c.orc", HOSTS, null, "part=2".getBytes()));
+        fragments.add(new Fragment("d.orc", HOSTS, null, "part=1".getBytes()));
+        fragments.add(new Fragment("e.orc", HOSTS, null, null));
+
+        JsonNode response = write(new FragmentsResponse(fragments, true));
+
+        JsonNode dictionary = response.get("PXFFragmentsUserData");
+        assertEquals(2, dictionary.size());
+        assertEquals("part=1", decode(dictionary.get(0)));
+        assertEquals("part=2", decode(dictionary.get(1)));
+
+        JsonNode fragmentNodes = response.get("PXFFragments");
+        assertEquals(5, fragmentNodes.size());
+        int[] expectedIds = new int[]{0, 0, 1, 0};
+        for (int i = 0; i < expectedIds.length; i++) {
+            JsonNode fragment = fragmentNodes.get(i);
+            assertFalse(fragment.has("userData"));
+            assertEquals(expectedIds[i], fragment.get("userDataId").asInt());
+            assertEquals("sdw1", fragment.get("replicas").get(0).asText());
+        }
+        assertEquals("e.orc", fragmentNodes.get(4).get("sourceName").asText());
+        assertFalse(fragmentNodes.get(4).has("userDataId"));
+    }
+
+    @Test
+    public void emptyDictionary() throws Exception {
+        JsonNode response = write(new FragmentsResponse(new ArrayList<>(), true));
+
+        assertTrue(response.get("PXFFragmentsUserData").isArray());
+        assertEquals(0, response.get("PXFFragmentsUserData").size());
+        assertEquals(0, response.get("PXFFragments").size());
+    }
+
+    private static JsonNode write(FragmentsResponse fragmentsResponse) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        fragmentsResponse.write(output);
+        return new ObjectMapper().readTree(output.toByteArray());
+    }
+
+    private static String decode(JsonNode node) {
+        return new String(Base64.getDecoder().decode(node.asText()));
+    }
+}
@@ -22,13 +22,18 @@ package org.greenplum.pxf.plugins.hdfs;
 
 import org.apache.avro.Schema;
 import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.file.SeekableInput;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumReader;
 import org.apache.avro.mapred.AvroInputFormat;
 import org.apache.avro.mapred.AvroJob;
 import org.apache.avro.mapred.AvroRecordReader;
 import org.apache.avro.mapred.AvroWrapper;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -38,9 +43,13 @@ import org.apache.hadoop.mapred.InputSplit;
 import org.apache.hadoop.mapred.JobConf;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.plugins.hdfs.avro.AvroUtilities;
+import org.greenplum.pxf.plugins.hdfs.utilities.PartitionUtilities;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A PXF Accessor for Avro File records
@@ -56,8 +65,11 @@ public class AvroFileAccessor extends HdfsSplittableDataAccessor {
     private static final String BZIP2_CODEC = "bzip2";
     private static final String XZ_CODEC = "xz";
     private AvroWrapper<GenericRecord> avroWrapper;
-    private DataFileWriter<GenericRecord> writer;
-    private long rowsWritten, rowsRead;
+    private CodecFactory avroCodec;
+    private RollingFileWriter<GenericRecord> fileWriter;
+    private PartitionedFileWriter<GenericRecord> partitionedWriter;
+    private List<ColumnDescriptor> partitionColumns;
+    private long rowsRead;
     private Schema schema;
     private final AvroUtilities avroUtilities;
 
@@ -105,6 +117,9 @@ public class AvroFileAccessor extends HdfsSplittableDataAccessor {
 
     @Override
     protected Object getReader(JobConf jobConf, InputSplit split) throws IOException {
+        if (ReadAheadInputStream.isEnabled(jobConf)) {
+            return new ReadAheadAvroRecordReader<>(jobConf, (FileSplit) split);
+        }
         return new AvroRecordReader<>(jobConf, (FileSplit) split);
     }
 
@@ -120,20 +135,16 @@ public class AvroFileAccessor extends HdfsSplittableDataAccessor {
     public OneRow readNextObject() throws IOException {
         /** Resetting datum to null, to avoid stale bytes to be padded from the previous row's datum */
         avroWrapper.datum(null);
-        if (reader.next(avroWrapper, NullWritable.get())) { // There is one more record in the current split.
-            rowsRead++;
-            return new OneRow(null, avroWrapper.datum());
-        } else if (getNextSplit()) { // The current split is exhausted. try to move to the next split.
-            rowsRead++;
-            return reader.next(avroWrapper, NullWritable.get())
-                    ? new OneRow(null, avroWrapper.datum())
-                    : null;
-        }
-
-        // if neither condition was met, it means we already read all the records in all the splits, and
-        // in this call record variable was not set, so we return null and thus we are signaling end of
-        // records sequence - in this case avroWrapper.datum() will be null
-        return null;
+        while (!reader.next(avroWrapper, NullWritable.get())) {
+            // The current split is exhausted. try to move to the next split.
+            if (!getNextSplit()) {
+                // we already read all the records in all the splits, so we return null and thus we
+                // are signaling end of records sequence - in this case avroWrapper.datum() will be null
+                return null;
+            }
+        }
+        rowsRead++;
+        return new OneRow(null, avroWrapper.datum());
     }
 
     /**
@@ -144,44 +155,47 @@ public class AvroFileAccessor extends HdfsSplittableDataAccessor {
      */
     @Override
     public boolean openForWrite() throws Exception {
-        // make writer
-        writer = new DataFileWriter<>(new GenericDatumWriter<>(schema));
         String codec = context.getOption(COMPRESSION_CODEC_OPTION, DEFLATE_CODEC).toLowerCase();
         int codecCompressionLevel = context.getOption(CODEC_COMPRESSION_LEVEL_OPTION, DEFAULT_CODEC_COMPRESSION_LEVEL);
         switch (codec) {
             case DEFLATE_CODEC:
-                writer.setCodec(CodecFactory.deflateCodec(codecCompressionLevel));
+                avroCodec = CodecFactory.deflateCodec(codecCompressionLevel);
                 break;
             case SNAPPY_CODEC:
-                writer.setCodec(CodecFactory.snappyCodec());
+                avroCodec = CodecFactory.snappyCodec();
                 break;
             case  BZIP2_CODEC:
-                writer.setCodec(CodecFactory.bzip2Codec());
+                avroCodec = CodecFactory.bzip2Codec();
                 break;
             case XZ_CODEC:
-                writer.setCodec(CodecFactory.xzCodec(codecCompressionLevel));
+                avroCodec = CodecFactory.xzCodec(codecCompressionLevel);
                 break;
             case NO_CODEC:
-                writer.setCodec(CodecFactory.nullCodec());
+                avroCodec = CodecFactory.nullCodec();
                 break;
             default:
                 throw new RuntimeException(String.format("Avro Compression codec %s not supported", codec));
         }
 
-        Path file = new Path(hcfsType.getUriForWrite(configuration, context, true) + ".avro");
-        FileSystem fs = file.getFileSystem(jobConf);
-        FSDataOutputStream avroOut = null;
-        try {
-            avroOut = fs.create(file, false);
-            writer.create(schema, avroOut);
-        } catch (IOException e) {
-            if (avroOut != null) {
-                avroOut.close();
-            }
-            if (writer != null) {
-                writer.close();
+        String filePrefix = hcfsType.getUriForWrite(configuration, context, true);
+        long targetFileSize = RollingFileWriter.getTargetFileSize(context);
+        partitionColumns = PartitionUtilities.getPartitionColumns(context);
+        if (partitionColumns.isEmpty()) {
+            fileWriter = new AvroRollingFileWriter(filePrefix, targetFileSize);
+            // create the first file eagerly, even if no rows are written
+            fileWriter.openNextFile();
+        } else {
+            for (ColumnDescriptor column : partitionColumns) {
+                if (schema.getField(column.columnName()) == null) {
+                    throw new IllegalArgumentException(String.format(
+                            "Column %s in %s is not a field of the Avro schema",
+                            column.columnName(), PartitionUtilities.PARTITION_BY_OPTION));
+                }
             }
-            throw e;
+            // the files of a partition are only created once it has rows
+            partitionedWriter = new PartitionedFileWriter<>(filePrefix,
+                    PartitionedFileWriter.getMaxOpenPartitions(context),
+                    prefix -> new AvroRollingFileWriter(prefix, targetFileSize));
         }
         return true;
     }
@@ -196,11 +210,29 @@ public class AvroFileAccessor extends HdfsSplittableDataAccessor {
      */
     @Override
     public boolean writeNextObject(OneRow onerow) throws Exception {
-        writer.append((GenericRecord) onerow.getData());
-        rowsWritten++;
+        GenericRecord record = (GenericRecord) onerow.getData();
+        if (partitionedWriter != null) {
+            partitionedWriter.write(getPartitionPath(record), record);
+        } else {
+            fileWriter.write(record);
+        }
         return true;
     }
 
+    /*
+     * Returns the relative path of the partition directory of the record.
+     * The partition columns are also kept in the files, as the readers do
+     * not get their values from the directory names.
+     */
+    private String getPartitionPath(GenericRecord record) {
+        List<String> values = new ArrayList<>(partitionColumns.size());
+        for (ColumnDescriptor column : partitionColumns) {
+            Object value = record.get(column.columnName());
+            values.add(value == null ? null : value.toString());
+        }
+        return PartitionUtilities.getPartitionPath(partitionColumns, values);
+    }
+
     /**
      * Closes the resource for write.
      *
@@ -208,14 +240,23 @@ public class AvroFileAccessor extends HdfsSplittableDataAccessor {
      */
     @Override
     public void closeForWrite() throws Exception {
-        if (writer != null) {
-            writer.close();
+        long recordsWritten = 0;
+        int fileCount = 0;
+        if (fileWriter != null) {
+            fileWriter.close();
+            recordsWritten = fileWriter.getRecordsWritten();
+            fileCount = fileWriter.getFileCount();
+        } else if (partitionedWriter != null) {
+            partitionedWriter.close();
+            recordsWritten = partitionedWriter.getRecordsWritten();
+            fileCount = partitionedWriter.getFileCount();
         }
-        LOG.debug("TXID [{}] Segment {}: writer closed for user {}, wrote a TOTAL of {} rows to {} on server {}",
+        LOG.debug("TXID [{}] Segment {}: writer closed for user {}, wrote a TOTAL of {} rows in {} file(s) to {} on server {}",
                 context.getTransactionId(),
                 context.getSegmentId(),
                 context.getUser(),
-                rowsWritten,
+                recordsWritten,
+                fileCount,
                 context.getDataSource(),
                 context.getServerName());
     }
@@ -236,4 +277,114 @@ public class AvroFileAccessor extends HdfsSplittableDataAccessor {
                 context.getDataSource(),
                 context.getServerName());
     }
+
+    /**
+     * Writes Avro records into a sequence of Avro container files sharing
+     * the same schema and codec. Each writer has its own DataFileWriter, so
+     * that the writers of several partitions can be open at the same time.
+     */
+    private class AvroRollingFileWriter extends RollingFileWriter<GenericRecord> {
+        private final DataFileWriter<GenericRecord> writer;
+        private FSDataOutputStream avroOut;
+
+        AvroRollingFileWriter(String filePrefix, long targetFileSize) {
+            super(filePrefix, ".avro", targetFileSize);
+            writer = new DataFileWriter<GenericRecord>(new GenericDatumWriter<>(schema)).setCodec(avroCodec);
+        }
+
+        @Override
+        protected void open(Path file) throws IOException {
+            FileSystem fs = file.getFileSystem(jobConf);
+            avroOut = null;
+            try {
+                avroOut = fs.create(file, false);
+                writer.create(schema, avroOut);
+            } catch (IOException e) {
+                if (avroOut != null) {
+                    avroOut.close();
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        protected void append(GenericRecord record) throws IOException {
+            writer.append(record);
+        }
+
+        /*
+         * Records are buffered by the DataFileWriter until a block is
+         * complete, so the size lags behind by at most one block.
+         */
+        @Override
+        protected long getFileSize() throws IOException {
+            return avroOut.getPos();
+        }
+
+        @Override
+        protected void closeFile() throws IOException {
+            // closes the underlying output stream as well
+            writer.close();
+        }
+    }
+
+    /**
+     * An {@link AvroRecordReader} that reads the file through a
+     * {@link ReadAheadInputStream}.
+     *
+     * @param <T> the type of the records
+     */
+    private static class ReadAheadAvroRecordReader<T> extends AvroRecordReader<T> {
+
+        ReadAheadAvroRecordReader(JobConf job, FileSplit split) throws IOException {
+            super(DataFileReader.openReader(new ReadAheadInput(split.getPath(), job),
+                    ReadAheadAvroRecordReader.<T>createDatumReader(job)), split);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> DatumReader<T> createDatumReader(JobConf job) {
+            return (DatumReader<T>) AvroJob.createInputDataModel(job)
+                    .createDatumReader(AvroJob.getInputSchema(job));
+        }
+    }
+
+    /**
+     * A {@link SeekableInput} over a {@link ReadAheadInputStream}, the
+     * counterpart of Avro's FsInput.
+     */
+    private static class ReadAheadInput implements SeekableInput {
+        private final FSDataInputStream stream;
+        private final long length;
+
+        ReadAheadInput(Path path, Configuration configuration) throws IOException {
+            FileSystem fs = path.getFileSystem(configuration);
+            this.length = fs.getFileStatus(path).getLen();
+            this.stream = ReadAheadInputStream.open(fs, path, configuration);
+        }
+
+        @Override
+        public void seek(long p) throws IOException {
+            stream.seek(p);
+        }
+
+        @Override
+        public long tell() throws IOException {
+            return stream.getPos();
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return stream.read(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
 }
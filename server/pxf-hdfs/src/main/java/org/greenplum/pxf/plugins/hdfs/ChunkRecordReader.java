@@ -117,25 +117,30 @@ public class ChunkRecordReader implements
         final FileSystem fs = file.getFileSystem(job);
         fileIn = fs.open(file, ChunkReader.DEFAULT_BUFFER_SIZE);
         fileLength = getInputStream().getFileLength();
+        if (!isCompressedInput()) {
+            // seek before wrapping the stream, so that reading ahead starts at the split
+            fileIn.seek(start);
+        }
+        // fileIn is kept unwrapped for the read statistics
+        final FSDataInputStream dataIn = ReadAheadInputStream.wrap(fileIn, job);
         if (isCompressedInput()) {
             decompressor = CodecPool.getDecompressor(codec);
             if (codec instanceof SplittableCompressionCodec) {
                 final SplitCompressionInputStream cIn = ((SplittableCompressionCodec) codec).createInputStream(
-                        fileIn, decompressor, start, end,
+                        dataIn, decompressor, start, end,
                         SplittableCompressionCodec.READ_MODE.BYBLOCK);
                 in = new ChunkReader(cIn);
                 start = cIn.getAdjustedStart();
                 end = cIn.getAdjustedEnd();
                 filePosition = cIn; // take pos from compressed stream
             } else {
-                in = new ChunkReader(codec.createInputStream(fileIn,
+                in = new ChunkReader(codec.createInputStream(dataIn,
                         decompressor));
-                filePosition = fileIn;
+                filePosition = dataIn;
             }
         } else {
-            fileIn.seek(start);
-            in = new ChunkReader(fileIn);
-            filePosition = fileIn;
+            in = new ChunkReader(dataIn);
+            filePosition = dataIn;
         }
         /*
          * If this is not the first split, we always throw away first record
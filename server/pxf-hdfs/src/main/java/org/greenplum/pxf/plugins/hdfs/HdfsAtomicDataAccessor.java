@@ -31,7 +31,9 @@ import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 
 /**
  * Base class for enforcing the complete access of a file in one accessor.
@@ -46,10 +48,14 @@ import java.net.URI;
  * mode since we are not making use of segment parallelism. HDFS accessors for
  * a specific file type should inherit from this class only if the file they are
  * reading does not support splitting: a protocol-buffer file, regular file, ...
+ * <p>
+ * When the fragmenter combines several small files into one fragment, the
+ * files are read one after the other, see {@link #openNextFile()}.
  */
 public abstract class HdfsAtomicDataAccessor extends HcfsBaseAccessor {
     InputStream inputStream;
     private FileSplit fileSplit;
+    private Iterator<Path> files;
 
     @Override
     public void initialize(RequestContext requestContext) {
@@ -70,11 +76,38 @@ public abstract class HdfsAtomicDataAccessor extends HcfsBaseAccessor {
             return false;
         }
 
-        URI uri = URI.create(context.getDataSource());
+        List<Path> paths = new LinkedList<>();
+        paths.add(new Path(context.getDataSource()));
+        for (FileSplit split : HdfsUtilities.parseCombinedSplits(context)) {
+            paths.add(split.getPath());
+        }
+        files = paths.iterator();
+
+        return openNextFile();
+    }
+
+    /**
+     * Closes the file currently open, and opens the next file of the
+     * fragment, if any.
+     *
+     * @return true if the next file was opened, false if there are no more
+     * files to read
+     * @throws IOException if the file could not be opened
+     */
+    protected boolean openNextFile() throws IOException {
+        if (inputStream != null) {
+            inputStream.close();
+            inputStream = null;
+        }
+        if (!files.hasNext()) {
+            return false;
+        }
+
+        Path path = files.next();
         // input data stream, FileSystem.get actually
         // returns an FSDataInputStream
-        FileSystem fs = FileSystem.get(uri, configuration);
-        inputStream = fs.open(new Path(context.getDataSource()));
+        FileSystem fs = FileSystem.get(path.toUri(), configuration);
+        inputStream = ReadAheadInputStream.open(fs, path, configuration);
 
         return (inputStream != null);
     }
@@ -30,8 +30,10 @@ import org.greenplum.pxf.api.model.BaseFragmenter;
 import org.greenplum.pxf.api.model.Fragment;
 import org.greenplum.pxf.api.model.FragmentStats;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.Utilities;
 import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 import org.greenplum.pxf.plugins.hdfs.utilities.PxfInputFormat;
+import org.greenplum.pxf.plugins.hdfs.utilities.SplitCombiner;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -43,13 +45,26 @@ import java.util.List;
  * Given an HDFS data source (a file, directory, or wild card pattern) divide
  * the data into fragments and return a list of them along with a list of
  * host:port locations for each.
+ * <p>
+ * When the COMBINE_FILES option is set, splits smaller than the
+ * COMBINE_TARGET_SIZE are packed together into fragments of up to that size,
+ * so that directories with many small files do not produce a fragment (and a
+ * request) per file. The accessor then reads all the splits of a fragment.
+ * <p>
+ * When the PARTITION_BY option is set, the files are listed recursively and
+ * the {@code col=value} directories that cannot match the filter of the
+ * query are skipped, see {@link HdfsPartitionFilter}.
  */
 public class HdfsDataFragmenter extends BaseFragmenter {
 
     protected static final String IGNORE_MISSING_PATH_OPTION = "IGNORE_MISSING_PATH";
+    protected static final String COMBINE_FILES_OPTION = "COMBINE_FILES";
+    protected static final String COMBINE_TARGET_SIZE_OPTION = "COMBINE_TARGET_SIZE";
+    protected static final int DEFAULT_COMBINE_TARGET_SIZE = 128 * 1024 * 1024;
 
     protected JobConf jobConf;
     protected HcfsType hcfsType;
+    protected HdfsPartitionFilter partitionFilter;
 
     @Override
     public void initialize(RequestContext context) {
@@ -58,6 +73,12 @@ public class HdfsDataFragmenter extends BaseFragmenter {
         // Check if the underlying configuration is for HDFS
         hcfsType = HcfsType.getHcfsType(configuration, context);
         jobConf = new JobConf(configuration, this.getClass());
+
+        partitionFilter = HdfsPartitionFilter.forContext(context);
+        if (partitionFilter != null) {
+            // the files are in the partition directories below the path
+            jobConf.setBoolean(PxfInputFormat.INPUT_DIR_RECURSIVE, true);
+        }
     }
 
     /**
@@ -79,6 +100,15 @@ public class HdfsDataFragmenter extends BaseFragmenter {
             throw e;
         }
 
+        if (isCombineFiles(HdfsSplittableDataAccessor.class)) {
+            List<FileSplit> fileSplits = new ArrayList<>();
+            for (InputSplit split : splits) {
+                fileSplits.add((FileSplit) split);
+            }
+            addCombinedFragments(fileSplits);
+            return fragments;
+        }
+
         LOG.debug("Total number of fragments = {}", splits.size());
         for (InputSplit split : splits) {
             FileSplit fsp = (FileSplit) split;
@@ -113,8 +143,49 @@ public class HdfsDataFragmenter extends BaseFragmenter {
         return new FragmentStats(splits.size(), firstSplit.getLength(), totalSize);
     }
 
+    /**
+     * Returns whether the COMBINE_FILES option is set, and the accessor can
+     * read fragments made of several splits.
+     *
+     * @param accessorClass the base class of accessors that can read
+     *                      combined fragments
+     * @return true if splits should be combined into fragments
+     */
+    protected boolean isCombineFiles(Class<?> accessorClass) {
+        if (!StringUtils.equalsIgnoreCase("true", context.getOption(COMBINE_FILES_OPTION))) {
+            return false;
+        }
+        String accessor = context.getAccessor();
+        if (accessor != null && !Utilities.implementsInterface(accessor, accessorClass)) {
+            LOG.warn("Ignoring option {}, accessor {} reads a single split per fragment",
+                    COMBINE_FILES_OPTION, accessor);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Combines the splits into groups of up to COMBINE_TARGET_SIZE bytes, and
+     * adds a fragment for each group.
+     *
+     * @param splits the splits to combine
+     * @throws IOException if the split locations cannot be retrieved
+     */
+    protected void addCombinedFragments(List<FileSplit> splits) throws IOException {
+        long targetSize = context.getOption(COMBINE_TARGET_SIZE_OPTION, DEFAULT_COMBINE_TARGET_SIZE, true);
+        List<SplitCombiner.CombinedSplit> combinedSplits = new SplitCombiner(targetSize).combine(splits);
+
+        LOG.debug("Combined {} splits into {} fragments", splits.size(), combinedSplits.size());
+        for (SplitCombiner.CombinedSplit combinedSplit : combinedSplits) {
+            List<FileSplit> groupSplits = combinedSplit.getSplits();
+            String filepath = groupSplits.get(0).getPath().toString();
+            byte[] fragmentMetadata = HdfsUtilities.prepareFragmentMetadata(groupSplits, combinedSplit.getHosts());
+            fragments.add(new Fragment(filepath, combinedSplit.getHosts(), fragmentMetadata));
+        }
+    }
+
     protected List<InputSplit> getSplits(Path path) throws IOException {
-        PxfInputFormat pxfInputFormat = new PxfInputFormat();
+        PxfInputFormat pxfInputFormat = new PxfInputFormat(partitionFilter);
         PxfInputFormat.setInputPaths(jobConf, path);
         InputSplit[] splits = pxfInputFormat.getSplits(jobConf, 1);
         List<InputSplit> result = new ArrayList<>();
@@ -1,12 +1,17 @@
 package org.greenplum.pxf.plugins.hdfs;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.fs.BlockLocation;
 import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.FileSplit;
 import org.apache.hadoop.mapred.InvalidInputException;
 import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 import org.greenplum.pxf.plugins.hdfs.utilities.PxfInputFormat;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -15,7 +20,8 @@ import java.util.stream.Collectors;
  * Fragmenter class for file resources. This fragmenter
  * adds support for profiles that require files without
  * splits. The list of fragments will be the list of files
- * at the storage layer.
+ * at the storage layer, or groups of small files when
+ * the COMBINE_FILES option is set.
  */
 public class HdfsFileFragmenter extends HdfsDataFragmenter {
 
@@ -29,7 +35,7 @@ public class HdfsFileFragmenter extends HdfsDataFragmenter {
         String fileName = hcfsType.getDataUri(jobConf, context);
         Path path = new Path(fileName);
 
-        PxfInputFormat pxfInputFormat = new PxfInputFormat();
+        PxfInputFormat pxfInputFormat = new PxfInputFormat(partitionFilter);
         PxfInputFormat.setInputPaths(jobConf, path);
 
         FileStatus[] fileStatusArray;
@@ -44,6 +50,18 @@ public class HdfsFileFragmenter extends HdfsDataFragmenter {
             throw e;
         }
 
+        if (isCombineFiles(HdfsAtomicDataAccessor.class)) {
+            FileSystem fs = path.getFileSystem(jobConf);
+            List<FileSplit> splits = new ArrayList<>();
+            for (FileStatus fileStatus : fileStatusArray) {
+                BlockLocation[] locations = HdfsUtilities.getBlockLocations(fs, fileStatus);
+                String[] hosts = HdfsUtilities.getHosts(locations, 0, fileStatus.getLen());
+                splits.add(new FileSplit(fileStatus.getPath(), 0, fileStatus.getLen(), hosts));
+            }
+            addCombinedFragments(splits);
+            return fragments;
+        }
+
         fragments = Arrays.stream(fileStatusArray)
                 .map(fileStatus -> new Fragment(fileStatus.getPath().toUri().toString()))
                 .collect(Collectors.toList());
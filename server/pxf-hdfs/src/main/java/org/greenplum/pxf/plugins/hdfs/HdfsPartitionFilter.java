@@ -0,0 +1,216 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.greenplum.pxf.api.filter.CollectionOperandNode;
+import org.greenplum.pxf.api.filter.FilterParser;
+import org.greenplum.pxf.api.filter.Node;
+import org.greenplum.pxf.api.filter.OperandNode;
+import org.greenplum.pxf.api.filter.Operator;
+import org.greenplum.pxf.api.filter.OperatorNode;
+import org.greenplum.pxf.api.filter.ScalarOperandNode;
+import org.greenplum.pxf.api.filter.TreeTraverser;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.utilities.PartitionUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accepts the files whose {@code col=value} partition directories can hold
+ * rows that match the filter of the query. The filter is pruned down to the
+ * predicates on the columns of the PARTITION_BY option by the
+ * {@link HdfsPartitionPruner}, the other predicates cannot be evaluated from
+ * the directory names.
+ * <p>
+ * Files that are not in a directory for a partition column are always
+ * accepted.
+ */
+public class HdfsPartitionFilter implements PathFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HdfsPartitionFilter.class);
+
+    private static final TreeTraverser TRAVERSER = new TreeTraverser();
+
+    private final Node filter;
+    private final List<ColumnDescriptor> columnDescriptors;
+
+    HdfsPartitionFilter(Node filter, List<ColumnDescriptor> columnDescriptors) {
+        this.filter = filter;
+        this.columnDescriptors = columnDescriptors;
+    }
+
+    /**
+     * Returns the filter of the partition directories for the query, or null
+     * when the table has no PARTITION_BY option.
+     *
+     * @param context the request context
+     * @return the partition filter, or null
+     */
+    public static HdfsPartitionFilter forContext(RequestContext context) {
+        List<ColumnDescriptor> partitionColumns = PartitionUtilities.getPartitionColumns(context);
+        if (partitionColumns.isEmpty()) {
+            return null;
+        }
+
+        Node filter = null;
+        if (context.hasFilter()) {
+            try {
+                Node root = new FilterParser().parse(context.getFilterString());
+                filter = TRAVERSER.traverse(root,
+                        new HdfsPartitionPruner(partitionColumns, context.getTupleDescription()));
+            } catch (Exception e) {
+                LOG.debug("Unable to parse the filter {}, the partition directories are not pruned",
+                        context.getFilterString(), e);
+            }
+        }
+        LOG.debug("Partition columns {}, partition filter {}", partitionColumns, filter);
+        return new HdfsPartitionFilter(filter, context.getTupleDescription());
+    }
+
+    /**
+     * @return true when the filter can prune partition directories
+     */
+    public boolean hasFilter() {
+        return filter != null;
+    }
+
+    @Override
+    public boolean accept(Path path) {
+        if (filter == null) {
+            return true;
+        }
+        Map<String, String> values = PartitionUtilities.parsePartitionValues(path.toUri().getPath());
+        boolean accept = values.isEmpty() || evaluate(filter, values);
+        if (!accept) {
+            LOG.trace("File {} is pruned by the partition filter", path);
+        }
+        return accept;
+    }
+
+    /*
+     * Returns false only when no row of the partition can match the node.
+     * Comparisons with the null partition are never true, as in SQL.
+     */
+    private boolean evaluate(Node node, Map<String, String> values) {
+        OperatorNode operatorNode = (OperatorNode) node;
+        Operator operator = operatorNode.getOperator();
+        switch (operator) {
+            case AND:
+                return evaluate(node.getLeft(), values) && evaluate(node.getRight(), values);
+            case OR:
+                return evaluate(node.getLeft(), values) || evaluate(node.getRight(), values);
+            default:
+                break;
+        }
+
+        ColumnDescriptor column = columnDescriptors.get(operatorNode.getColumnIndexOperand().index());
+        String name = column.columnName().toLowerCase();
+        if (!values.containsKey(name)) {
+            // the file is not in a directory of this partition column
+            return true;
+        }
+        String value = values.get(name);
+        if (operator == Operator.IS_NULL) {
+            return value == null;
+        } else if (operator == Operator.IS_NOT_NULL) {
+            return value != null;
+        } else if (value == null) {
+            return false;
+        }
+
+        OperandNode valueOperand = operatorNode.getValueOperand();
+        DataType dataType = column.getDataType();
+        if (operator == Operator.IN) {
+            List<String> data = valueOperand instanceof CollectionOperandNode ?
+                    ((CollectionOperandNode) valueOperand).getData() : Collections.emptyList();
+            for (String element : data) {
+                Integer comparison = compare(dataType, value, element);
+                if (comparison == null || comparison == 0) {
+                    return true;
+                }
+            }
+            return data.isEmpty();
+        }
+        if (!(valueOperand instanceof ScalarOperandNode)) {
+            return true;
+        }
+        Integer comparison = compare(dataType, value, ((ScalarOperandNode) valueOperand).getValue());
+        if (comparison == null) {
+            return true;
+        }
+        switch (operator) {
+            case LESS_THAN:
+                return comparison < 0;
+            case GREATER_THAN:
+                return comparison > 0;
+            case LESS_THAN_OR_EQUAL:
+                return comparison <= 0;
+            case GREATER_THAN_OR_EQUAL:
+                return comparison >= 0;
+            case EQUALS:
+                return comparison == 0;
+            case NOT_EQUALS:
+                return comparison != 0;
+            default:
+                return true;
+        }
+    }
+
+    /*
+     * Compares the value of the partition with the value of the filter, or
+     * returns null when the values cannot be compared.
+     */
+    private Integer compare(DataType dataType, String partitionValue, String filterValue) {
+        if (filterValue == null) {
+            return null;
+        }
+        String left = PartitionUtilities.normalizeValue(dataType, partitionValue);
+        String right = PartitionUtilities.normalizeValue(dataType, filterValue);
+        switch (dataType) {
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+            case REAL:
+            case FLOAT8:
+            case NUMERIC:
+                try {
+                    return new BigDecimal(left).compareTo(new BigDecimal(right));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            case BOOLEAN:
+                if (!isBoolean(left) || !isBoolean(right)) {
+                    return null;
+                }
+                return Boolean.compare(Boolean.parseBoolean(left), Boolean.parseBoolean(right));
+            case DATE:
+                try {
+                    return LocalDate.parse(left).compareTo(LocalDate.parse(right));
+                } catch (DateTimeParseException e) {
+                    return null;
+                }
+            case TIMESTAMP:
+                try {
+                    return Timestamp.valueOf(left).compareTo(Timestamp.valueOf(right));
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            default:
+                return left.compareTo(right);
+        }
+    }
+
+    private static boolean isBoolean(String value) {
+        return "true".equals(value) || "false".equals(value);
+    }
+}
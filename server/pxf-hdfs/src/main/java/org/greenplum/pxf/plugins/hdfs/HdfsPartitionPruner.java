@@ -0,0 +1,79 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.greenplum.pxf.api.filter.ColumnIndexOperandNode;
+import org.greenplum.pxf.api.filter.Node;
+import org.greenplum.pxf.api.filter.Operator;
+import org.greenplum.pxf.api.filter.OperatorNode;
+import org.greenplum.pxf.api.filter.SupportedOperatorPruner;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Prunes the filter down to the predicates on the columns of the
+ * PARTITION_BY option, which can be evaluated against the {@code col=value}
+ * directory names of a file.
+ * <p>
+ * Say P is a predicate on a partition column and NP is a predicate on any
+ * other column. The following rules are used during filter pruning
+ * P AND NP -> P
+ * P OR NP -> null
+ * NP AND NP -> null
+ * <p>
+ * NOT is not supported: NOT (P AND NP) does not imply NOT P, pruning below
+ * a NOT would skip directories with matching rows.
+ */
+public class HdfsPartitionPruner extends SupportedOperatorPruner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HdfsPartitionPruner.class);
+
+    static final EnumSet<Operator> SUPPORTED_OPERATORS = EnumSet.of(
+            Operator.LESS_THAN,
+            Operator.GREATER_THAN,
+            Operator.LESS_THAN_OR_EQUAL,
+            Operator.GREATER_THAN_OR_EQUAL,
+            Operator.EQUALS,
+            Operator.NOT_EQUALS,
+            Operator.IS_NULL,
+            Operator.IS_NOT_NULL,
+            Operator.IN,
+            Operator.AND,
+            Operator.OR
+    );
+
+    private final List<ColumnDescriptor> partitionColumns;
+    private final List<ColumnDescriptor> columnDescriptors;
+
+    public HdfsPartitionPruner(List<ColumnDescriptor> partitionColumns,
+                               List<ColumnDescriptor> columnDescriptors) {
+        super(SUPPORTED_OPERATORS);
+        this.partitionColumns = partitionColumns;
+        this.columnDescriptors = columnDescriptors;
+    }
+
+    @Override
+    public Node visit(Node node, final int level) {
+        Node result = super.visit(node, level);
+        if (result instanceof OperatorNode) {
+            OperatorNode operatorNode = (OperatorNode) result;
+            if (!operatorNode.getOperator().isLogical() && !isPartitionColumn(operatorNode)) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    private boolean isPartitionColumn(OperatorNode operatorNode) {
+        ColumnIndexOperandNode columnIndexOperand = operatorNode.getColumnIndexOperand();
+        ColumnDescriptor columnDescriptor = columnDescriptors.get(columnIndexOperand.index());
+        if (!partitionColumns.contains(columnDescriptor)) {
+            LOG.trace("Filter is on a non-partition column, ignore this filter for column: {}",
+                    columnDescriptor.columnName());
+            return false;
+        }
+        return true;
+    }
+}
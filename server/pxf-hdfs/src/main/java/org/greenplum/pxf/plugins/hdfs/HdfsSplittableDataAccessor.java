@@ -82,6 +82,8 @@ public abstract class HdfsSplittableDataAccessor extends HcfsBaseAccessor {
         LinkedList<InputSplit> requestSplits = new LinkedList<>();
         FileSplit fileSplit = HdfsUtilities.parseFileSplit(context);
         requestSplits.add(fileSplit);
+        // splits of other (small) files combined into the same fragment
+        requestSplits.addAll(HdfsUtilities.parseCombinedSplits(context));
 
         // Initialize record reader based on current split
         iter = requestSplits.listIterator(0);
@@ -115,6 +117,10 @@ public abstract class HdfsSplittableDataAccessor extends HcfsBaseAccessor {
             return false;
         }
 
+        if (reader != null) {
+            reader.close();
+        }
+
         InputSplit currSplit = iter.next();
         reader = (RecordReader<Object, Object>) getReader(jobConf, currSplit);
         key = reader.createKey();
@@ -129,12 +135,9 @@ public abstract class HdfsSplittableDataAccessor extends HcfsBaseAccessor {
     @Override
     public OneRow readNextObject() throws IOException {
         // if there is one more record in the current split
-        if (!reader.next(key, data)) {
+        while (!reader.next(key, data)) {
             // the current split is exhausted. try to move to the next split
-            boolean hasMoreSplits = getNextSplit();
-
-            // if there are more splits read the first record of the new split
-            if (!hasMoreSplits || !reader.next(key, data)) {
+            if (!getNextSplit()) {
                 return null;
             }
         }
@@ -20,6 +20,7 @@ package org.greenplum.pxf.plugins.hdfs;
  */
 
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -27,24 +28,35 @@ import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.mapred.FileSplit;
 import org.apache.hadoop.mapred.InputSplit;
 import org.apache.hadoop.mapred.JobConf;
-import org.apache.hadoop.mapred.LineRecordReader;
 import org.apache.hadoop.mapred.TextInputFormat;
+import org.greenplum.pxf.api.BadRecordException;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.utilities.DelimitedLineParser;
 import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
+import org.greenplum.pxf.plugins.hdfs.utilities.PartitionUtilities;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A PXF Accessor for reading delimited plain text records.
  */
 public class LineBreakAccessor extends HdfsSplittableDataAccessor {
-    private DataOutputStream dos;
-    private FSDataOutputStream fsdos;
+    private static final String COMPRESSION_POOL_SIZE_OPTION = "COMPRESSION_POOL_SIZE";
+    private static final String COMPRESSION_BLOCK_SIZE_OPTION = "COMPRESSION_BLOCK_SIZE";
+
     private FileSystem fs;
-    private Path file;
+    private RollingFileWriter<byte[]> writer;
+    private PartitionedFileWriter<byte[]> partitionedWriter;
+    private List<ColumnDescriptor> partitionColumns;
+    private DelimitedLineParser lineParser;
+    private int partitionFieldCount;
     private CodecFactory codecFactory;
 
     /**
@@ -74,70 +86,175 @@ public class LineBreakAccessor extends HdfsSplittableDataAccessor {
                 LOG.debug("Failed to use ChunkRecordReader, falling back to LineRecordReader : " + e.getMessage());
             }
         }
-        return new LineRecordReader(jobConf, (FileSplit) split);
+        return HdfsUtilities.createLineRecordReader(jobConf, (FileSplit) split);
     }
 
     /**
-     * Opens file for write.
+     * Opens file for write. Files are rolled once they reach FILE_SIZE bytes.
      */
     @Override
     public boolean openForWrite() throws IOException {
-        String fileName = hcfsType.getUriForWrite(jobConf, context);
+        String filePrefix = hcfsType.getUriForWrite(jobConf, context, true);
         String compressCodec = context.getOption("COMPRESSION_CODEC");
         // get compression codec
         CompressionCodec codec = compressCodec != null ?
                 codecFactory.getCodec(compressCodec, configuration) : null;
+        String extension = codec != null ? codec.getDefaultExtension() : "";
 
-        file = new Path(fileName);
-        fs = FileSystem.get(URI.create(fileName), configuration);
-        HdfsUtilities.validateFile(file, fs);
-
-        // create output stream - do not allow overwriting existing file
-        createOutputStream(file, codec);
-        return true;
-    }
-
-    /*
-     * Creates output stream from given file. If compression codec is provided,
-     * wrap it around stream.
-     */
-    private void createOutputStream(Path file, CompressionCodec codec)
-            throws IOException {
-        fsdos = fs.create(file, false);
-        if (codec != null) {
-            dos = new DataOutputStream(codec.createOutputStream(fsdos));
+        fs = FileSystem.get(URI.create(filePrefix), configuration);
+        long targetFileSize = RollingFileWriter.getTargetFileSize(context);
+        partitionColumns = PartitionUtilities.getPartitionColumns(context);
+        if (partitionColumns.isEmpty()) {
+            writer = new TextFileWriter(filePrefix, extension, targetFileSize, codec);
+            // create the first file eagerly, even if no rows are written
+            writer.openNextFile();
         } else {
-            dos = fsdos;
+            // the rows arrive formatted, the values of the partition
+            // columns are read back from the delimited line
+            lineParser = new DelimitedLineParser(context.getGreenplumCSV(),
+                    StringUtils.equalsIgnoreCase("csv", context.getFormat()));
+            partitionFieldCount = partitionColumns.stream()
+                    .mapToInt(ColumnDescriptor::columnIndex)
+                    .max().orElse(0) + 1;
+            // the files of a partition are only created once it has rows
+            partitionedWriter = new PartitionedFileWriter<>(filePrefix,
+                    PartitionedFileWriter.getMaxOpenPartitions(context),
+                    prefix -> new TextFileWriter(prefix, extension, targetFileSize, codec));
         }
-
+        return true;
     }
 
     /**
      * Writes row into stream.
      */
     @Override
-    public boolean writeNextObject(OneRow onerow) throws IOException {
-        dos.write((byte[]) onerow.getData());
+    public boolean writeNextObject(OneRow onerow) throws IOException, BadRecordException {
+        byte[] row = (byte[]) onerow.getData();
+        if (partitionedWriter != null) {
+            partitionedWriter.write(getPartitionPath(row), row);
+        } else {
+            writer.write(row);
+        }
         return true;
     }
 
+    /*
+     * Returns the relative path of the partition directory of the row. The
+     * partition columns are also kept in the files, as the readers do not
+     * get their values from the directory names.
+     */
+    private String getPartitionPath(byte[] row) throws BadRecordException {
+        List<String> fields = lineParser.parse(new String(row, StandardCharsets.UTF_8), partitionFieldCount);
+        List<String> values = new ArrayList<>(partitionColumns.size());
+        for (ColumnDescriptor column : partitionColumns) {
+            if (column.columnIndex() >= fields.size()) {
+                throw new BadRecordException(String.format(
+                        "Row has %d fields, missing the value of partition column %s",
+                        fields.size(), column.columnName()));
+            }
+            values.add(fields.get(column.columnIndex()));
+        }
+        return PartitionUtilities.getPartitionPath(partitionColumns, values);
+    }
+
     /**
      * Closes the output stream after done writing.
      */
     @Override
     public void closeForWrite() throws IOException {
-        if ((dos != null) && (fsdos != null)) {
+        if (writer != null) {
+            writer.close();
+            LOG.debug("Wrote {} rows into {} file(s)", writer.getRecordsWritten(), writer.getFileCount());
+        } else if (partitionedWriter != null) {
+            partitionedWriter.close();
+            LOG.debug("Wrote {} rows into {} file(s) in {} partition(s)", partitionedWriter.getRecordsWritten(),
+                    partitionedWriter.getFileCount(), partitionedWriter.getPartitionCount());
+        }
+    }
+
+    /**
+     * Writes delimited text rows into a sequence of files, optionally
+     * compressed with the given codec.
+     */
+    private class TextFileWriter extends RollingFileWriter<byte[]> {
+        private final CompressionCodec codec;
+        private DataOutputStream dos;
+        private ParallelCompressOutputStream parallelCompressStream;
+        private FSDataOutputStream fsdos;
+        private Path file;
+
+        TextFileWriter(String filePrefix, String extension, long targetFileSize, CompressionCodec codec) {
+            super(filePrefix, extension, targetFileSize);
+            this.codec = codec;
+        }
+
+        /*
+         * Creates output stream from given file. If compression codec is provided,
+         * wrap it around stream. Codecs that support concatenated streams (gzip
+         * and bzip2) are run in parallel on a pool of COMPRESSION_POOL_SIZE threads
+         * when the option is greater than 1. Parallel compression is opt-in, as
+         * every segment writing a file gets its own pool.
+         */
+        @Override
+        protected void open(Path file) throws IOException {
+            this.file = file;
+            HdfsUtilities.validateFile(file, fs);
+
+            // create output stream - do not allow overwriting existing file
+            fsdos = fs.create(file, false);
+            parallelCompressStream = null;
+            int poolSize = context.getOption(COMPRESSION_POOL_SIZE_OPTION, 1, true);
+            if (codec != null && poolSize > 1 && ParallelCompressOutputStream.isSupported(codec)) {
+                int blockSize = context.getOption(COMPRESSION_BLOCK_SIZE_OPTION,
+                        ParallelCompressOutputStream.DEFAULT_BLOCK_SIZE, true);
+                LOG.debug("Compressing blocks of {} bytes for path {} using {} threads", blockSize, file, poolSize);
+                parallelCompressStream = new ParallelCompressOutputStream(fsdos, codec, poolSize, blockSize);
+                dos = new DataOutputStream(parallelCompressStream);
+            } else if (codec != null) {
+                dos = new DataOutputStream(codec.createOutputStream(fsdos));
+            } else {
+                dos = fsdos;
+            }
+        }
+
+        @Override
+        protected void append(byte[] row) throws IOException {
+            dos.write(row);
+        }
+
+        /*
+         * The position of the underlying stream accounts for the compressed
+         * bytes that have already been handed to the filesystem.
+         */
+        @Override
+        protected long getFileSize() throws IOException {
+            return fsdos.getPos();
+        }
+
+        @Override
+        protected void closeFile() throws IOException {
             LOG.debug("Closing writing stream for path {}", file);
-            dos.flush();
-            /*
-             * From release 0.21.0 sync() is deprecated in favor of hflush(),
-             * which only guarantees that new readers will see all data written
-             * to that point, and hsync(), which makes a stronger guarantee that
-             * the operating system has flushed the data to disk (like POSIX
-             * fsync), although data may still be in the disk cache.
-             */
-            fsdos.hsync();
-            dos.close();
+            try {
+                if (parallelCompressStream != null) {
+                    // write out all the pending compressed blocks before syncing
+                    parallelCompressStream.finish();
+                }
+                dos.flush();
+                /*
+                 * From release 0.21.0 sync() is deprecated in favor of hflush(),
+                 * which only guarantees that new readers will see all data written
+                 * to that point, and hsync(), which makes a stronger guarantee that
+                 * the operating system has flushed the data to disk (like POSIX
+                 * fsync), although data may still be in the disk cache.
+                 */
+                fsdos.hsync();
+            } finally {
+                if (parallelCompressStream != null) {
+                    // stops the compression threads when finishing failed
+                    parallelCompressStream.abort();
+                }
+                dos.close();
+            }
         }
     }
 }
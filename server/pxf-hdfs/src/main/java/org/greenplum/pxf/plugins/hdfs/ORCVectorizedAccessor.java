@@ -0,0 +1,322 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.apache.orc.TypeDescription;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.UnsupportedTypeException;
+import org.greenplum.pxf.api.filter.FilterParser;
+import org.greenplum.pxf.api.filter.Node;
+import org.greenplum.pxf.api.filter.Operator;
+import org.greenplum.pxf.api.filter.SupportedOperatorPruner;
+import org.greenplum.pxf.api.filter.TreeTraverser;
+import org.greenplum.pxf.api.filter.TreeVisitor;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.Accessor;
+import org.greenplum.pxf.api.model.BasePlugin;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.orc.ORCSearchArgumentBuilder;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Accessor for ORC files, that reads the files with the vectorized reader of
+ * ORC, without the Hive metastore. Unit of operation is a
+ * {@link VectorizedRowBatch} of the columns of the table, in the order of the
+ * table, with no column vector for the columns that are not projected or
+ * are not in the file.
+ * <p>
+ * The columns of the table are matched to the fields of the file by name, or
+ * by position when the fields have the _colN names of the files written by
+ * old versions of Hive. Only the projected columns are read, and the filter
+ * is pushed down to the ORC reader as a {@link SearchArgument}, the stripes
+ * and row groups whose statistics do not match it are skipped.
+ */
+public class ORCVectorizedAccessor extends BasePlugin implements Accessor {
+
+    static final EnumSet<Operator> SUPPORTED_OPERATORS =
+            EnumSet.of(
+                    Operator.NOOP,
+                    Operator.LESS_THAN,
+                    Operator.GREATER_THAN,
+                    Operator.LESS_THAN_OR_EQUAL,
+                    Operator.GREATER_THAN_OR_EQUAL,
+                    Operator.EQUALS,
+                    Operator.NOT_EQUALS,
+                    Operator.IS_NULL,
+                    Operator.IS_NOT_NULL,
+                    Operator.IN,
+                    Operator.OR,
+                    Operator.AND,
+                    Operator.NOT
+            );
+    private static final TreeVisitor PRUNER = new SupportedOperatorPruner(SUPPORTED_OPERATORS);
+    private static final TreeTraverser TRAVERSER = new TreeTraverser();
+    private static final Pattern HIVE_FIELD_NAME = Pattern.compile("_col\\d+");
+
+    private RecordReader recordReader;
+    private VectorizedRowBatch fileBatch;
+    private VectorizedRowBatch tableBatch;
+    private int[] fileColumnIndexes;
+    private int batchIndex;
+
+    @Override
+    public boolean openForRead() throws IOException {
+        Path file = new Path(context.getDataSource());
+        FileSplit fileSplit = HdfsUtilities.parseFileSplit(context);
+        Reader reader = OrcFile.createReader(file, OrcFile.readerOptions(configuration)
+                .filesystem(file.getFileSystem(configuration)));
+        TypeDescription schema = reader.getSchema();
+
+        fileColumnIndexes = getFileColumnIndexes(schema);
+        Reader.Options options = new Reader.Options(configuration)
+                .include(getIncludedColumns(schema))
+                // Read the stripes that start in the split
+                .range(fileSplit.getStart(), fileSplit.getLength());
+        SearchArgument searchArgument = buildSearchArgument();
+        if (searchArgument != null) {
+            options.searchArgument(searchArgument, getSargColumnNames(schema));
+        }
+
+        recordReader = reader.rows(options);
+        fileBatch = schema.createRowBatch();
+        tableBatch = new VectorizedRowBatch(context.getColumns());
+        LOG.debug("{}-{}: Reading {} from {} with length {}{}", context.getTransactionId(),
+                context.getSegmentId(), file, fileSplit.getStart(), fileSplit.getLength(),
+                searchArgument != null ? ", with search argument " + searchArgument : "");
+        return true;
+    }
+
+    /**
+     * Reads the next batch of the split.
+     *
+     * @return next batch in OneRow format, key is a batch number, data is a
+     * batch of the columns of the table
+     */
+    @Override
+    public OneRow readNextObject() throws IOException {
+        if (!recordReader.nextBatch(fileBatch)) {
+            // All batches are exhausted
+            return null;
+        }
+        for (int columnIndex = 0; columnIndex < fileColumnIndexes.length; columnIndex++) {
+            int fileColumnIndex = fileColumnIndexes[columnIndex];
+            tableBatch.cols[columnIndex] = fileColumnIndex >= 0 && context.getColumn(columnIndex).isProjected()
+                    ? fileBatch.cols[fileColumnIndex] : null;
+        }
+        tableBatch.size = fileBatch.size;
+        tableBatch.selectedInUse = fileBatch.selectedInUse;
+        tableBatch.selected = fileBatch.selected;
+        batchIndex++;
+        return new OneRow(new LongWritable(batchIndex), tableBatch);
+    }
+
+    @Override
+    public void closeForRead() throws IOException {
+        if (recordReader != null) {
+            recordReader.close();
+        }
+    }
+
+    @Override
+    public boolean openForWrite() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean writeNextObject(OneRow onerow) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void closeForWrite() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Matches the columns of the table to the top level fields of the file,
+     * and checks that the types of the matched fields are compatible with the
+     * types of the columns.
+     *
+     * @param schema the schema of the file
+     * @return the index of the field of each column, or -1 when the file has
+     * no field for the column
+     */
+    int[] getFileColumnIndexes(TypeDescription schema) {
+        List<String> fieldNames = schema.getFieldNames();
+        List<TypeDescription> fields = schema.getChildren();
+        boolean hiveFieldNames = !fieldNames.isEmpty() &&
+                fieldNames.stream().allMatch(name -> HIVE_FIELD_NAME.matcher(name).matches());
+
+        List<ColumnDescriptor> tupleDescription = context.getTupleDescription();
+        int[] indexes = new int[tupleDescription.size()];
+        for (int columnIndex = 0; columnIndex < indexes.length; columnIndex++) {
+            ColumnDescriptor column = tupleDescription.get(columnIndex);
+            int index = hiveFieldNames
+                    ? (columnIndex < fields.size() ? columnIndex : -1)
+                    : getFieldIndex(fieldNames, column.columnName());
+            if (index >= 0) {
+                validateTypeCompatible(column, fields.get(index));
+            } else {
+                LOG.debug("Column {} is not in the file, its values are null", column.columnName());
+            }
+            indexes[columnIndex] = index;
+        }
+        return indexes;
+    }
+
+    /**
+     * Builds the columns to read, the projected columns with their children.
+     *
+     * @param schema the schema of the file
+     * @return the included columns, indexed by ORC column id
+     */
+    private boolean[] getIncludedColumns(TypeDescription schema) {
+        boolean[] includedColumns = new boolean[schema.getMaximumId() + 1];
+        includedColumns[0] = true;
+        List<TypeDescription> fields = schema.getChildren();
+        for (int columnIndex = 0; columnIndex < fileColumnIndexes.length; columnIndex++) {
+            if (fileColumnIndexes[columnIndex] >= 0 && context.getColumn(columnIndex).isProjected()) {
+                TypeDescription field = fields.get(fileColumnIndexes[columnIndex]);
+                for (int id = field.getId(); id <= field.getMaximumId(); id++) {
+                    includedColumns[id] = true;
+                }
+            }
+        }
+        return includedColumns;
+    }
+
+    /**
+     * The leaves of the search argument refer to the columns by the names of
+     * the table, which can differ from the names of the fields of the file.
+     *
+     * @param schema the schema of the file
+     * @return the names of the table columns, indexed by ORC column id
+     */
+    private String[] getSargColumnNames(TypeDescription schema) {
+        String[] columnNames = new String[schema.getMaximumId() + 1];
+        List<TypeDescription> fields = schema.getChildren();
+        for (int columnIndex = 0; columnIndex < fileColumnIndexes.length; columnIndex++) {
+            if (fileColumnIndexes[columnIndex] >= 0) {
+                columnNames[fields.get(fileColumnIndexes[columnIndex]).getId()] =
+                        context.getColumn(columnIndex).columnName();
+            }
+        }
+        return columnNames;
+    }
+
+    private SearchArgument buildSearchArgument() throws IOException {
+        if (!context.hasFilter()) {
+            return null;
+        }
+
+        ORCSearchArgumentBuilder searchArgumentBuilder =
+                new ORCSearchArgumentBuilder(context.getTupleDescription(), configuration);
+        try {
+            // Parse the filter string into a expression tree Node
+            Node root = new FilterParser().parse(context.getFilterString());
+            // Prune the parsed tree with valid supported operators and then
+            // traverse the pruned tree with the searchArgumentBuilder to
+            // produce a SearchArgument for ORC
+            TRAVERSER.traverse(root, PRUNER, searchArgumentBuilder);
+        } catch (Exception e) {
+            throw new IOException(String.format("Unable to parse the filter %s", context.getFilterString()), e);
+        }
+        return searchArgumentBuilder.getFilterBuilder().build();
+    }
+
+    private static int getFieldIndex(List<String> fieldNames, String columnName) {
+        int index = fieldNames.indexOf(columnName);
+        if (index < 0) {
+            for (int i = 0; i < fieldNames.size(); i++) {
+                if (fieldNames.get(i).equalsIgnoreCase(columnName)) {
+                    return i;
+                }
+            }
+        }
+        return index;
+    }
+
+    private static void validateTypeCompatible(ColumnDescriptor column, TypeDescription field) {
+        DataType dataType = column.getDataType();
+        boolean compatible;
+        switch (field.getCategory()) {
+            case BOOLEAN:
+                compatible = dataType == DataType.BOOLEAN;
+                break;
+            case BYTE:
+            case SHORT:
+                compatible = dataType == DataType.SMALLINT || dataType == DataType.INTEGER ||
+                        dataType == DataType.BIGINT;
+                break;
+            case INT:
+                compatible = dataType == DataType.INTEGER || dataType == DataType.BIGINT;
+                break;
+            case LONG:
+                compatible = dataType == DataType.BIGINT;
+                break;
+            case FLOAT:
+                compatible = dataType == DataType.REAL || dataType == DataType.FLOAT8;
+                break;
+            case DOUBLE:
+                compatible = dataType == DataType.FLOAT8;
+                break;
+            case DECIMAL:
+                compatible = dataType == DataType.NUMERIC;
+                break;
+            case STRING:
+            case VARCHAR:
+            case CHAR:
+                compatible = dataType == DataType.TEXT || dataType == DataType.VARCHAR ||
+                        dataType == DataType.BPCHAR;
+                break;
+            case BINARY:
+                compatible = dataType == DataType.BYTEA;
+                break;
+            case DATE:
+                compatible = dataType == DataType.DATE;
+                break;
+            case TIMESTAMP:
+                compatible = dataType == DataType.TIMESTAMP;
+                break;
+            default:
+                throw new UnsupportedTypeException(String.format(
+                        "Column %s of ORC type %s is not supported, only primitive types are supported",
+                        column.columnName(), field));
+        }
+        if (!compatible) {
+            throw new UnsupportedTypeException(String.format(
+                    "Invalid definition for column %s: expected Greenplum type compatible with ORC type %s, actual Greenplum type %s",
+                    column.columnName(), field, dataType));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.greenplum.pxf.api.BadRecordException;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.ReadVectorizedSerializer;
+import org.greenplum.pxf.api.UnsupportedTypeException;
+import org.greenplum.pxf.api.io.BatchWritable;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.BasePlugin;
+import org.greenplum.pxf.api.model.Resolver;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Resolver for the batches of the {@link ORCVectorizedAccessor}. The batches
+ * are serialized straight from the column vectors into the output format,
+ * without creating an object per value. The values are converted to the
+ * Greenplum types of the columns, the accessor has checked that the types of
+ * the columns are compatible with the types of the ORC fields.
+ */
+public class ORCVectorizedResolver extends BasePlugin implements Resolver, ReadVectorizedSerializer {
+
+    @Override
+    public List<List<OneField>> getFieldsForBatch(OneRow batch) {
+        VectorizedRowBatch vectorizedBatch = (VectorizedRowBatch) batch.getData();
+        int columnsNumber = context.getColumns();
+        List<List<OneField>> resolvedBatch = new ArrayList<>(vectorizedBatch.size);
+        for (int i = 0; i < vectorizedBatch.size; i++) {
+            int rowIndex = vectorizedBatch.selectedInUse ? vectorizedBatch.selected[i] : i;
+            List<OneField> row = new ArrayList<>(columnsNumber);
+            for (int columnIndex = 0; columnIndex < columnsNumber; columnIndex++) {
+                DataType dataType = context.getColumn(columnIndex).getDataType();
+                ColumnVector columnVector = vectorizedBatch.cols[columnIndex];
+                Object value = null;
+                if (columnVector != null) {
+                    int rowId = columnVector.isRepeating ? 0 : rowIndex;
+                    if (columnVector.noNulls || !columnVector.isNull[rowId]) {
+                        value = getValue(dataType, columnVector, rowId);
+                    }
+                }
+                row.add(new OneField(dataType.getOID(), value));
+            }
+            resolvedBatch.add(row);
+        }
+        return resolvedBatch;
+    }
+
+    @Override
+    public void serializeBatch(OneRow batch, BatchWritable output) throws BadRecordException {
+        VectorizedRowBatch vectorizedBatch = (VectorizedRowBatch) batch.getData();
+        int columnsNumber = context.getColumns();
+        DataType[] columnTypes = new DataType[columnsNumber];
+        for (int columnIndex = 0; columnIndex < columnsNumber; columnIndex++) {
+            columnTypes[columnIndex] = context.getColumn(columnIndex).getDataType();
+            output.checkType(columnIndex, columnTypes[columnIndex]);
+        }
+
+        for (int i = 0; i < vectorizedBatch.size; i++) {
+            int rowIndex = vectorizedBatch.selectedInUse ? vectorizedBatch.selected[i] : i;
+            output.startRecord();
+            for (int columnIndex = 0; columnIndex < columnsNumber; columnIndex++) {
+                ColumnVector columnVector = vectorizedBatch.cols[columnIndex];
+                if (columnVector == null) {
+                    output.setNull(columnIndex);
+                    continue;
+                }
+                int rowId = columnVector.isRepeating ? 0 : rowIndex;
+                if (!columnVector.noNulls && columnVector.isNull[rowId]) {
+                    output.setNull(columnIndex);
+                } else {
+                    serializeValue(columnIndex, columnTypes[columnIndex], columnVector, rowId, output);
+                }
+            }
+            output.endRecord();
+        }
+    }
+
+    /**
+     * The batches are resolved with {@link #getFieldsForBatch(OneRow)}.
+     */
+    @Override
+    public List<OneField> getFields(OneRow row) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public OneRow setFields(List<OneField> record) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Writes the value of a column that is not null into the output
+     *
+     * @param columnIndex  index of the column
+     * @param dataType     the Greenplum type of the column
+     * @param columnVector the vector of the column
+     * @param rowId        index of the value in the vector
+     * @param output       the serialized batch
+     */
+    private void serializeValue(int columnIndex, DataType dataType, ColumnVector columnVector, int rowId,
+                                BatchWritable output) {
+        switch (dataType) {
+            case BOOLEAN:
+                output.setBoolean(columnIndex, ((LongColumnVector) columnVector).vector[rowId] == 1);
+                break;
+            case SMALLINT:
+                output.setShort(columnIndex, (short) ((LongColumnVector) columnVector).vector[rowId]);
+                break;
+            case INTEGER:
+                output.setInt(columnIndex, (int) ((LongColumnVector) columnVector).vector[rowId]);
+                break;
+            case BIGINT:
+                output.setLong(columnIndex, ((LongColumnVector) columnVector).vector[rowId]);
+                break;
+            case REAL:
+                output.setFloat(columnIndex, (float) ((DoubleColumnVector) columnVector).vector[rowId]);
+                break;
+            case FLOAT8:
+                output.setDouble(columnIndex, ((DoubleColumnVector) columnVector).vector[rowId]);
+                break;
+            case TEXT:
+            case VARCHAR:
+            case BPCHAR: {
+                BytesColumnVector bcv = (BytesColumnVector) columnVector;
+                output.setText(columnIndex, bcv.vector[rowId], bcv.start[rowId], bcv.length[rowId]);
+                break;
+            }
+            case BYTEA: {
+                BytesColumnVector bcv = (BytesColumnVector) columnVector;
+                output.setBytes(columnIndex, bcv.vector[rowId], bcv.start[rowId], bcv.length[rowId]);
+                break;
+            }
+            default:
+                output.setString(columnIndex, (String) getValue(dataType, columnVector, rowId));
+                break;
+        }
+    }
+
+    /**
+     * Returns the value of a column that is not null, as the object of the
+     * {@link OneField} of the Greenplum type of the column
+     *
+     * @param dataType     the Greenplum type of the column
+     * @param columnVector the vector of the column
+     * @param rowId        index of the value in the vector
+     * @return the value
+     */
+    private Object getValue(DataType dataType, ColumnVector columnVector, int rowId) {
+        switch (dataType) {
+            case BOOLEAN:
+                return ((LongColumnVector) columnVector).vector[rowId] == 1;
+            case SMALLINT:
+                return (short) ((LongColumnVector) columnVector).vector[rowId];
+            case INTEGER:
+                return (int) ((LongColumnVector) columnVector).vector[rowId];
+            case BIGINT:
+                return ((LongColumnVector) columnVector).vector[rowId];
+            case REAL:
+                return (float) ((DoubleColumnVector) columnVector).vector[rowId];
+            case FLOAT8:
+                return ((DoubleColumnVector) columnVector).vector[rowId];
+            case NUMERIC:
+                return ((DecimalColumnVector) columnVector).vector[rowId].toString();
+            case TEXT:
+            case VARCHAR:
+            case BPCHAR: {
+                BytesColumnVector bcv = (BytesColumnVector) columnVector;
+                return new String(bcv.vector[rowId], bcv.start[rowId], bcv.length[rowId], StandardCharsets.UTF_8);
+            }
+            case BYTEA: {
+                BytesColumnVector bcv = (BytesColumnVector) columnVector;
+                return Arrays.copyOfRange(bcv.vector[rowId], bcv.start[rowId], bcv.start[rowId] + bcv.length[rowId]);
+            }
+            case DATE:
+                return LocalDate.ofEpochDay(((LongColumnVector) columnVector).vector[rowId]).toString();
+            case TIMESTAMP:
+                return ((TimestampColumnVector) columnVector).asScratchTimestamp(rowId).toString();
+            default:
+                throw new UnsupportedTypeException(dataType
+                        + " conversion is not supported by "
+                        + getClass().getSimpleName());
+        }
+    }
+}
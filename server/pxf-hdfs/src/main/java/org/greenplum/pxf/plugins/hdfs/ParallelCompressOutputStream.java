@@ -0,0 +1,273 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.io.compress.BZip2Codec;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.GzipCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An output stream that compresses independent blocks of data on a pool of
+ * worker threads and writes the compressed blocks to the underlying stream in
+ * the order they were submitted.
+ * <p>
+ * Every block is compressed into a complete, self-contained compressed stream
+ * (a gzip member or a bzip2 stream), so the resulting file is a concatenation
+ * of such streams. Concatenated gzip members and bzip2 streams are readable by
+ * the standard Hadoop {@link GzipCodec} and {@link BZip2Codec} as well as by
+ * the gzip and bzip2 command line tools. Other codecs do not guarantee that
+ * concatenated streams can be decompressed, use {@link #isSupported} to check
+ * whether a codec can be used with this stream.
+ * <p>
+ * The worker threads are daemon threads that exit after being idle for
+ * {@value #THREAD_KEEP_ALIVE_SECONDS} seconds, so a stream that is abandoned
+ * without being closed, i.e. when a write is aborted, does not leak them.
+ * The pool is shut down as soon as compressing or writing a block fails.
+ */
+public class ParallelCompressOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final OutputStream out;
+    private final CompressionCodec codec;
+    private final ExecutorService executorService;
+    private final LinkedList<Future<byte[]>> pendingBlocks;
+    private final int maxPendingBlocks;
+    private final int blockSize;
+    private byte[] buffer;
+    // the number of bytes of real data in the buffer
+    private int count;
+    private boolean finished;
+
+    /**
+     * Constructs a ParallelCompressOutputStream with the default block size.
+     *
+     * @param out      the underlying output stream
+     * @param codec    the codec used to compress each block
+     * @param poolSize the number of threads used for compression
+     */
+    public ParallelCompressOutputStream(OutputStream out, CompressionCodec codec, int poolSize) {
+        this(out, codec, poolSize, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a ParallelCompressOutputStream.
+     *
+     * @param out       the underlying output stream
+     * @param codec     the codec used to compress each block
+     * @param poolSize  the number of threads used for compression
+     * @param blockSize the size of the uncompressed blocks in bytes
+     */
+    public ParallelCompressOutputStream(OutputStream out, CompressionCodec codec, int poolSize, int blockSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException(String.format("Invalid pool size %d", poolSize));
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException(String.format("Invalid block size %d", blockSize));
+        }
+        this.out = out;
+        this.codec = codec;
+        this.blockSize = blockSize;
+        this.buffer = new byte[blockSize];
+        // allow two blocks per thread to be in flight, one being compressed
+        // and one waiting in the queue, to bound memory usage
+        this.maxPendingBlocks = poolSize * 2;
+        this.pendingBlocks = new LinkedList<>();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize,
+                THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "pxf-compress-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        this.executorService = executor;
+    }
+
+    /**
+     * Determines whether the given codec produces output that can be
+     * concatenated and still be decompressed as a single stream.
+     *
+     * @param codec the compression codec
+     * @return true if the codec can be used with this stream, false otherwise
+     */
+    public static boolean isSupported(CompressionCodec codec) {
+        return codec instanceof GzipCodec || codec instanceof BZip2Codec;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == blockSize) {
+            submitBlock();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (count == blockSize) {
+                submitBlock();
+            }
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Writes all the blocks that have already been compressed to the
+     * underlying stream and flushes it. Data in the current, incomplete block
+     * is not flushed to avoid producing small compressed blocks.
+     */
+    @Override
+    public void flush() throws IOException {
+        try {
+            while (!pendingBlocks.isEmpty() && pendingBlocks.peek().isDone()) {
+                writeBlock(pendingBlocks.poll());
+            }
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Compresses the remaining data and waits for all the blocks to be
+     * written to the underlying stream, without closing it. No more data can
+     * be written after the stream is finished.
+     *
+     * @throws IOException if compressing or writing any of the blocks failed
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            if (count > 0) {
+                submitBlock();
+            }
+            while (!pendingBlocks.isEmpty()) {
+                writeBlock(pendingBlocks.poll());
+            }
+            out.flush();
+        } finally {
+            abort();
+        }
+    }
+
+    /**
+     * Discards the blocks that have not been written yet and stops the
+     * worker threads. No more data can be written after the stream is
+     * aborted, the underlying stream is left open.
+     */
+    public void abort() {
+        finished = true;
+        for (Future<byte[]> pendingBlock : pendingBlocks) {
+            pendingBlock.cancel(true);
+        }
+        pendingBlocks.clear();
+        executorService.shutdownNow();
+        buffer = null;
+    }
+
+    /**
+     * Finishes the stream and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    /*
+     * Submits the current buffer for compression, waiting for the oldest
+     * block to be written out when too many blocks are in flight.
+     */
+    private void submitBlock() throws IOException {
+        try {
+            if (pendingBlocks.size() >= maxPendingBlocks) {
+                writeBlock(pendingBlocks.poll());
+            }
+            final byte[] block = buffer;
+            final int length = count;
+            pendingBlocks.add(executorService.submit(() -> compress(block, length)));
+            buffer = new byte[blockSize];
+            count = 0;
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    private byte[] compress(byte[] block, int length) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2);
+        try (CompressionOutputStream cos = codec.createOutputStream(compressed)) {
+            cos.write(block, 0, length);
+            cos.finish();
+        }
+        return compressed.toByteArray();
+    }
+
+    private void writeBlock(Future<byte[]> future) throws IOException {
+        try {
+            out.write(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for block compression", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to compress block", cause);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Stream finished");
+        }
+    }
+}
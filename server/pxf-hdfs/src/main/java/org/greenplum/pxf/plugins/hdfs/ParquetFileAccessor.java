@@ -21,31 +21,37 @@ package org.greenplum.pxf.plugins.hdfs;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.common.type.HiveDecimal;
 import org.apache.hadoop.mapred.FileSplit;
 import org.apache.parquet.HadoopReadOptions;
 import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.ParquetProperties;
 import org.apache.parquet.column.ParquetProperties.WriterVersion;
 import org.apache.parquet.example.data.Group;
 import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
 import org.apache.parquet.format.converter.ParquetMetadataConverter;
 import org.apache.parquet.hadoop.ParquetFileReader;
 import org.apache.parquet.hadoop.ParquetReader;
 import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.hadoop.api.WriteSupport;
 import org.apache.parquet.hadoop.example.GroupReadSupport;
-import org.apache.parquet.hadoop.example.GroupWriteSupport;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.apache.parquet.hadoop.metadata.FileMetaData;
-import org.apache.parquet.hadoop.util.HadoopInputFile;
-import org.apache.parquet.schema.DecimalMetadata;
+import org.apache.parquet.hadoop.util.HadoopOutputFile;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
 import org.apache.parquet.schema.MessageType;
 import org.apache.parquet.schema.MessageTypeParser;
-import org.apache.parquet.schema.OriginalType;
-import org.apache.parquet.schema.PrimitiveType;
 import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
 import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.UnsupportedTypeException;
 import org.greenplum.pxf.api.filter.FilterParser;
@@ -57,14 +63,22 @@ import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.Accessor;
 import org.greenplum.pxf.api.model.BasePlugin;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetBatchReader;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetColumnBatch;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetFooterCache;
 import org.greenplum.pxf.plugins.hdfs.parquet.ParquetRecordFilterBuilder;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetSortBuffer;
 import org.greenplum.pxf.plugins.hdfs.parquet.ParquetOperatorPrunerAndTransformer;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetWriteSupport;
 import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
+import org.greenplum.pxf.plugins.hdfs.utilities.PartitionUtilities;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
@@ -76,16 +90,26 @@ import static org.apache.parquet.hadoop.api.ReadSupport.PARQUET_READ_SCHEMA;
 
 /**
  * Parquet file accessor.
- * Unit of operation is record.
+ * Unit of operation is record, or a {@link ParquetColumnBatch} of records
+ * when the projected columns can be read column by column.
  */
 public class ParquetFileAccessor extends BasePlugin implements Accessor {
 
     private static final int DEFAULT_PAGE_SIZE = 1024 * 1024;
-    private static final int DEFAULT_FILE_SIZE = 128 * 1024 * 1024;
     private static final int DEFAULT_ROWGROUP_SIZE = 8 * 1024 * 1024;
     private static final int DEFAULT_DICTIONARY_PAGE_SIZE = 512 * 1024;
+    private static final int DEFAULT_PAGE_ROW_COUNT_LIMIT = ParquetProperties.DEFAULT_PAGE_ROW_COUNT_LIMIT;
     private static final WriterVersion DEFAULT_PARQUET_VERSION = WriterVersion.PARQUET_1_0;
     private static final CompressionCodecName DEFAULT_COMPRESSION = CompressionCodecName.SNAPPY;
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+    // records take more space in memory than encoded in a row group, sort
+    // batches of several row groups so the row groups of a batch do not
+    // overlap
+    private static final int SORT_BATCH_ROWGROUPS = 8;
+    private static final long DEFAULT_SORT_MEMORY_SIZE = 64L * 1024 * 1024;
+
+    public static final String SORT_MEMORY_SIZE_PROPERTY = "pxf.fs.parquet.sort.memory-size";
+    public static final String SORT_SPILL_DIRECTORY_PROPERTY = "pxf.fs.parquet.sort.spill-directory";
 
     // From org.apache.hadoop.hive.ql.io.parquet.serde.ParquetHiveSerDe
     public static final int[] PRECISION_TO_BYTE_COUNT = new int[38];
@@ -108,7 +132,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
             Operator.NOT_EQUALS,
             Operator.IS_NULL,
             Operator.IS_NOT_NULL,
-            // Operator.IN,
+            Operator.IN,
             Operator.OR,
             Operator.AND,
             Operator.NOT
@@ -117,15 +141,20 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
     private static final TreeTraverser TRAVERSER = new TreeTraverser();
 
     private ParquetReader<Group> fileReader;
+    private ParquetBatchReader batchReader;
     private CompressionCodecName codecName;
-    private ParquetWriter<Group> parquetWriter;
-    private GroupWriteSupport groupWriteSupport;
+    private MessageType writeSchema;
+    private RollingFileWriter<List<OneField>> fileWriter;
+    private PartitionedFileWriter<List<OneField>> partitionedWriter;
+    private List<ColumnDescriptor> partitionColumns;
+    private ParquetSortBuffer sortBuffer;
     private FileSystem fs;
     private Path file;
-    private String filePrefix;
-    private int fileIndex, pageSize, rowGroupSize, dictionarySize;
-    private long rowsRead, rowsWritten, totalRowsRead, totalRowsWritten;
+    private int pageSize, rowGroupSize, dictionarySize, pageRowCountLimit;
+    private long fileSize;
+    private long rowsRead, totalRowsRead, totalRowsWritten;
     private WriterVersion parquetVersion;
+    private List<String> bloomFilterColumns;
     private CodecFactory codecFactory = CodecFactory.getInstance();
 
     private long totalReadTimeInNanos;
@@ -139,9 +168,13 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
     public boolean openForRead() throws IOException {
         file = new Path(context.getDataSource());
         FileSplit fileSplit = HdfsUtilities.parseFileSplit(context);
+        // The footer is read once per version of the file, and shared by
+        // the schema lookup and the readers
+        InputFile inputFile = ParquetFooterCache.getInstance().getInputFile(configuration,
+                file.getFileSystem(configuration).getFileStatus(file));
 
         // Read the original schema from the parquet file
-        MessageType originalSchema = getSchema(file, fileSplit);
+        MessageType originalSchema = getSchema(inputFile, fileSplit);
         // Get a map of the column name to Types for the given schema
         Map<String, Type> originalFieldsMap = getOriginalFieldsMap(originalSchema);
         // Get the read schema. This is either the full set or a subset (in
@@ -150,15 +183,40 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
         // Get the record filter in case of predicate push-down
         FilterCompat.Filter recordFilter = getRecordFilter(context.getFilterString(), originalFieldsMap, readSchema);
 
-        // add column projection
-        configuration.set(PARQUET_READ_SCHEMA, readSchema.toString());
+        FilterPredicate predicate = recordFilter instanceof FilterCompat.FilterPredicateCompat
+                ? ((FilterCompat.FilterPredicateCompat) recordFilter).getFilterPredicate()
+                : null;
 
-        fileReader = ParquetReader.builder(new GroupReadSupport(), file)
-                .withConf(configuration)
-                // Create reader for a given split, read a range in file
-                .withFileRange(fileSplit.getStart(), fileSplit.getStart() + fileSplit.getLength())
-                .withFilter(recordFilter)
-                .build();
+        if (isBatchReadSupported(recordFilter, predicate, originalSchema, readSchema)) {
+            int batchSize = context.getOption("BATCH_SIZE", DEFAULT_BATCH_SIZE, true);
+            if (batchSize == 0) {
+                throw new IllegalArgumentException("Property BATCH_SIZE has incorrect value 0 : must be a positive integer");
+            }
+            ParquetReadOptions parquetReadOptions = HadoopReadOptions
+                    .builder(configuration)
+                    // Read the row groups for a given split, a range in file
+                    .withMetadataFilter(ParquetMetadataConverter.range(
+                            fileSplit.getStart(), fileSplit.getStart() + fileSplit.getLength()))
+                    // Drop the row groups and the pages without records
+                    // matching the filter
+                    .withRecordFilter(recordFilter)
+                    .build();
+            ParquetFileReader parquetFileReader = ParquetFileReader.open(inputFile, parquetReadOptions);
+            batchReader = new ParquetBatchReader(parquetFileReader, readSchema, batchSize, predicate);
+            LOG.debug("{}-{}: Reading file {} in batches of {} rows{}", context.getTransactionId(),
+                    context.getSegmentId(), file.getName(), batchSize,
+                    predicate != null ? ", decoding the filtered columns first" : "");
+        } else {
+            // add column projection
+            configuration.set(PARQUET_READ_SCHEMA, readSchema.toString());
+
+            fileReader = new GroupReaderBuilder(inputFile)
+                    .withConf(configuration)
+                    // Create reader for a given split, read a range in file
+                    .withFileRange(fileSplit.getStart(), fileSplit.getStart() + fileSplit.getLength())
+                    .withFilter(recordFilter)
+                    .build();
+        }
         context.setMetadata(readSchema);
         return true;
     }
@@ -171,6 +229,9 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
      */
     @Override
     public OneRow readNextObject() throws IOException {
+        if (batchReader != null) {
+            return readNextBatch();
+        }
         final long then = System.nanoTime();
         Group group = fileReader.read();
         final long nanos = System.nanoTime() - then;
@@ -208,6 +269,49 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
         if (fileReader != null) {
             fileReader.close();
         }
+        if (batchReader != null) {
+            batchReader.close();
+        }
+    }
+
+    /**
+     * Reads the next batch of records.
+     *
+     * @return one batch of records or null when split is already exhausted
+     * @throws IOException if unable to read
+     */
+    private OneRow readNextBatch() throws IOException {
+        final long then = System.nanoTime();
+        ParquetColumnBatch batch = batchReader.readNextBatch();
+        totalReadTimeInNanos += System.nanoTime() - then;
+
+        if (batch != null) {
+            rowsRead += batch.size();
+            return new OneRow(null, batch);
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the split can be read in batches of columns. Batches
+     * are only used when the projected columns and the columns of the
+     * filter predicate are top-level primitive columns; the predicate is
+     * then evaluated on the batches of the filtered columns before the
+     * other columns are decoded. ANALYZE samples records one by one, so it
+     * reads records.
+     *
+     * @param recordFilter   the parquet record filter
+     * @param predicate      the filter predicate of the record filter, or null
+     * @param originalSchema the schema of the file
+     * @param readSchema     the projected schema
+     * @return true if the split can be read in batches
+     */
+    private boolean isBatchReadSupported(FilterCompat.Filter recordFilter, FilterPredicate predicate,
+                                         MessageType originalSchema, MessageType readSchema) {
+        return (recordFilter == FilterCompat.NOOP ||
+                (predicate != null && ParquetBatchReader.isSupported(predicate, originalSchema))) &&
+                context.getStatsSampleRatio() <= 0 &&
+                ParquetBatchReader.isSupported(readSchema);
     }
 
     /**
@@ -223,7 +327,8 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
 
         HcfsType hcfsType = HcfsType.getHcfsType(configuration, context);
         // skip codec extension in filePrefix, because we add it in this accessor
-        filePrefix = hcfsType.getUriForWrite(configuration, context, true);
+        String filePrefix = hcfsType.getUriForWrite(configuration, context, true);
+        fs = FileSystem.get(URI.create(filePrefix), configuration);
         String compressCodec = context.getOption("COMPRESSION_CODEC");
         codecName = codecFactory.getCodec(compressCodec, DEFAULT_COMPRESSION);
 
@@ -231,10 +336,12 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
         pageSize = context.getOption("PAGE_SIZE", DEFAULT_PAGE_SIZE);
         rowGroupSize = context.getOption("ROWGROUP_SIZE", DEFAULT_ROWGROUP_SIZE);
         dictionarySize = context.getOption("DICTIONARY_PAGE_SIZE", DEFAULT_DICTIONARY_PAGE_SIZE);
+        pageRowCountLimit = context.getOption("PAGE_ROW_COUNT_LIMIT", DEFAULT_PAGE_ROW_COUNT_LIMIT, true);
+        fileSize = RollingFileWriter.getTargetFileSize(context);
         String parquetVerStr = context.getOption("PARQUET_VERSION");
         parquetVersion = parquetVerStr != null ? WriterVersion.fromString(parquetVerStr.toLowerCase()) : DEFAULT_PARQUET_VERSION;
-        LOG.debug("{}-{}: Parquet options: PAGE_SIZE = {}, ROWGROUP_SIZE = {}, DICTIONARY_PAGE_SIZE = {}, PARQUET_VERSION = {}",
-                context.getTransactionId(), context.getSegmentId(), pageSize, rowGroupSize, dictionarySize, parquetVersion);
+        LOG.debug("{}-{}: Parquet options: PAGE_SIZE = {}, ROWGROUP_SIZE = {}, DICTIONARY_PAGE_SIZE = {}, PAGE_ROW_COUNT_LIMIT = {}, PARQUET_VERSION = {}, FILE_SIZE = {}",
+                context.getTransactionId(), context.getSegmentId(), pageSize, rowGroupSize, dictionarySize, pageRowCountLimit, parquetVersion, fileSize);
 
         // Read schema file, if given
         String schemaFile = context.getOption("SCHEMA");
@@ -242,13 +349,23 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
                 generateParquetSchema(context.getTupleDescription());
         LOG.debug("{}-{}: Schema fields = {}", context.getTransactionId(),
                 context.getSegmentId(), schema.getFields());
-        GroupWriteSupport.setSchema(schema, configuration);
-        groupWriteSupport = new GroupWriteSupport();
+        writeSchema = schema;
+        bloomFilterColumns = getBloomFilterColumns(schema);
 
         // We get the parquet schema and set it to the metadata in the request context
         // to avoid computing the schema again in the Resolver
         context.setMetadata(schema);
-        createParquetWriter();
+        partitionColumns = PartitionUtilities.getPartitionColumns(context);
+        if (partitionColumns.isEmpty()) {
+            fileWriter = new ParquetRollingFileWriter(filePrefix);
+            // create the first file eagerly, even if no rows are written
+            fileWriter.openNextFile();
+        } else {
+            // the files of a partition are only created once it has rows
+            partitionedWriter = new PartitionedFileWriter<>(filePrefix,
+                    PartitionedFileWriter.getMaxOpenPartitions(context), ParquetRollingFileWriter::new);
+        }
+        sortBuffer = createSortBuffer();
         return true;
     }
 
@@ -260,22 +377,44 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
      * @throws IOException writing to the resource failed
      */
     @Override
+    @SuppressWarnings("unchecked")
     public boolean writeNextObject(OneRow onerow) throws IOException {
 
-        parquetWriter.write((Group) onerow.getData());
-        rowsWritten++;
-        // Check for the output file size every 1000 rows
-        if (rowsWritten % 1000 == 0 && parquetWriter.getDataSize() > DEFAULT_FILE_SIZE) {
-            parquetWriter.close();
-            totalRowsWritten += rowsWritten;
-            // Reset rows written
-            rowsWritten = 0;
-            fileIndex++;
-            createParquetWriter();
+        List<OneField> record = (List<OneField>) onerow.getData();
+        if (sortBuffer != null) {
+            sortBuffer.add(record);
+        } else {
+            writeRecord(record);
         }
         return true;
     }
 
+    /*
+     * Writes the record to the current file of the table, or of the
+     * partition of the record when the PARTITION_BY option is set.
+     */
+    private void writeRecord(List<OneField> record) throws IOException {
+        if (partitionedWriter != null) {
+            partitionedWriter.write(getPartitionPath(record), record);
+        } else {
+            fileWriter.write(record);
+        }
+    }
+
+    /*
+     * Returns the relative path of the partition directory of the record.
+     * The partition columns are also kept in the files, as the readers do
+     * not get their values from the directory names.
+     */
+    private String getPartitionPath(List<OneField> record) {
+        List<String> values = new ArrayList<>(partitionColumns.size());
+        for (ColumnDescriptor column : partitionColumns) {
+            Object value = record.get(column.columnIndex()).val;
+            values.add(value == null ? null : value.toString());
+        }
+        return PartitionUtilities.getPartitionPath(partitionColumns, values);
+    }
+
     /**
      * Closes the resource for write.
      *
@@ -284,9 +423,18 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
     @Override
     public void closeForWrite() throws IOException {
 
-        if (parquetWriter != null) {
-            parquetWriter.close();
-            totalRowsWritten += rowsWritten;
+        try {
+            if (sortBuffer != null) {
+                sortBuffer.close();
+            }
+        } finally {
+            if (fileWriter != null) {
+                fileWriter.close();
+                totalRowsWritten = fileWriter.getRecordsWritten();
+            } else if (partitionedWriter != null) {
+                partitionedWriter.close();
+                totalRowsWritten = partitionedWriter.getRecordsWritten();
+            }
         }
         LOG.debug("{}-{}: writer closed, wrote a TOTAL of {} rows to {} on server {}",
                 context.getTransactionId(),
@@ -309,19 +457,9 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
             return FilterCompat.NOOP;
         }
 
-        ParquetRecordFilterBuilder filterBuilder = new ParquetRecordFilterBuilder(
-                context.getTupleDescription(), originalFieldsMap);
-        TreeVisitor pruner = new ParquetOperatorPrunerAndTransformer(
-                context.getTupleDescription(), originalFieldsMap, SUPPORTED_OPERATORS);
-
         try {
-            // Parse the filter string into a expression tree Node
-            Node root = new FilterParser().parse(filterString);
-            // Prune the parsed tree with valid supported operators and then
-            // traverse the pruned tree with the ParquetRecordFilterBuilder to
-            // produce a record filter for parquet
-            TRAVERSER.traverse(root, pruner, filterBuilder);
-            return filterBuilder.getRecordFilter();
+            return buildRecordFilter(filterString, context.getTupleDescription(), originalFieldsMap)
+                    .getRecordFilter();
         } catch (Exception e) {
             LOG.error(String.format("%s-%d: %s--%s Unable to generate Parquet Record Filter for filter",
                     context.getTransactionId(),
@@ -332,15 +470,43 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
         }
     }
 
+    /**
+     * Builds the parquet record filter for the given filter string, pruning
+     * the operators that cannot be pushed down to parquet.
+     *
+     * @param filterString      the filter string, not blank
+     * @param tupleDescription  the Greenplum columns
+     * @param originalFieldsMap a map of field names to types
+     * @return the filter builder holding the record filter for the given
+     * filter string
+     * @throws Exception when the filter string cannot be parsed or converted
+     */
+    static ParquetRecordFilterBuilder buildRecordFilter(String filterString,
+                                                List<ColumnDescriptor> tupleDescription,
+                                                Map<String, Type> originalFieldsMap) throws Exception {
+        ParquetRecordFilterBuilder filterBuilder = new ParquetRecordFilterBuilder(
+                tupleDescription, originalFieldsMap);
+        TreeVisitor pruner = new ParquetOperatorPrunerAndTransformer(
+                tupleDescription, originalFieldsMap, SUPPORTED_OPERATORS);
+
+        // Parse the filter string into a expression tree Node
+        Node root = new FilterParser().parse(filterString);
+        // Prune the parsed tree with valid supported operators and then
+        // traverse the pruned tree with the ParquetRecordFilterBuilder to
+        // produce a record filter for parquet
+        TRAVERSER.traverse(root, pruner, filterBuilder);
+        return filterBuilder;
+    }
+
     /**
      * Reads the original schema from the parquet file.
      *
-     * @param parquetFile the path to the parquet file
-     * @param fileSplit   the file split we are accessing
+     * @param inputFile the parquet file
+     * @param fileSplit the file split we are accessing
      * @return the original schema from the parquet file
      * @throws IOException when there's an IOException while reading the schema
      */
-    private MessageType getSchema(Path parquetFile, FileSplit fileSplit) throws IOException {
+    private MessageType getSchema(InputFile inputFile, FileSplit fileSplit) throws IOException {
 
         final long then = System.nanoTime();
         ParquetMetadataConverter.MetadataFilter filter = ParquetMetadataConverter.range(
@@ -349,14 +515,13 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
                 .builder(configuration)
                 .withMetadataFilter(filter)
                 .build();
-        HadoopInputFile inputFile = HadoopInputFile.fromPath(parquetFile, configuration);
         try (ParquetFileReader parquetFileReader =
                      ParquetFileReader.open(inputFile, parquetReadOptions)) {
             FileMetaData metadata = parquetFileReader.getFileMetaData();
             if (LOG.isDebugEnabled()) {
                 LOG.debug("{}-{}: Reading file {} with {} records in {} RowGroups",
                         context.getTransactionId(), context.getSegmentId(),
-                        parquetFile.getName(), parquetFileReader.getRecordCount(),
+                        file.getName(), parquetFileReader.getRecordCount(),
                         parquetFileReader.getRowGroups().size());
             }
             final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - then);
@@ -375,7 +540,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
      * @param originalSchema the original schema of the parquet file
      * @return a map of field names to types
      */
-    private Map<String, Type> getOriginalFieldsMap(MessageType originalSchema) {
+    static Map<String, Type> getOriginalFieldsMap(MessageType originalSchema) {
         Map<String, Type> originalFields = new HashMap<>(originalSchema.getFieldCount() * 2);
 
         // We need to add the original name and lower cased name to
@@ -413,20 +578,58 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
         return new MessageType(originalSchema.getName(), projectedFields);
     }
 
-    private void createParquetWriter() throws IOException {
+    /*
+     * Returns the names of the fields of the schema that get a bloom filter,
+     * from the comma-separated columns of the BLOOM_FILTER_COLUMNS option.
+     */
+    private List<String> getBloomFilterColumns(MessageType schema) {
+        String bloomFilterOption = context.getOption("BLOOM_FILTER_COLUMNS");
+        if (StringUtils.isBlank(bloomFilterOption)) {
+            return Collections.emptyList();
+        }
+
+        List<String> columns = new ArrayList<>();
+        for (String name : bloomFilterOption.split(",")) {
+            String columnName = name.trim();
+            Type field = schema.getFields().stream()
+                    .filter(f -> f.getName().equalsIgnoreCase(columnName) && f.isPrimitive())
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(String.format(
+                            "Column %s in BLOOM_FILTER_COLUMNS is not a primitive field of the parquet schema", columnName)));
+            columns.add(field.getName());
+        }
+        return columns;
+    }
 
-        String fileName = filePrefix + "." + fileIndex;
-        fileName += codecName.getExtension() + ".parquet";
-        LOG.debug("{}-{}: Creating file {}", context.getTransactionId(),
-                context.getSegmentId(), fileName);
-        file = new Path(fileName);
-        fs = FileSystem.get(URI.create(fileName), configuration);
-        HdfsUtilities.validateFile(file, fs);
+    /*
+     * Returns the buffer that sorts the records by the columns of the
+     * SORT_BY (or CLUSTER_BY) option, or null when the records are written
+     * in arrival order.
+     */
+    private ParquetSortBuffer createSortBuffer() {
+        String optionName = context.getOption("SORT_BY") != null ? "SORT_BY" : "CLUSTER_BY";
+        String sortBy = context.getOption(optionName);
+        if (StringUtils.isBlank(sortBy)) {
+            return null;
+        }
 
-        //noinspection deprecation
-        parquetWriter = new ParquetWriter<>(file, groupWriteSupport, codecName,
-                rowGroupSize, pageSize, dictionarySize,
-                true, false, parquetVersion, configuration);
+        List<ColumnDescriptor> sortColumns = new ArrayList<>();
+        for (String name : sortBy.split(",")) {
+            String columnName = name.trim();
+            ColumnDescriptor sortColumn = context.getTupleDescription().stream()
+                    .filter(c -> c.columnName().equalsIgnoreCase(columnName))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(String.format(
+                            "Column %s in %s is not a column of the table", columnName, optionName)));
+            sortColumns.add(sortColumn);
+        }
+        int batchSize = context.getOption("SORT_BUFFER_SIZE",
+                (int) Math.min(Integer.MAX_VALUE, (long) rowGroupSize * SORT_BATCH_ROWGROUPS), true);
+        long memorySize = configuration.getLong(SORT_MEMORY_SIZE_PROPERTY, DEFAULT_SORT_MEMORY_SIZE);
+        File spillDirectory = new File(configuration.get(SORT_SPILL_DIRECTORY_PROPERTY, System.getProperty("java.io.tmpdir")));
+        LOG.debug("{}-{}: Sorting records by {} in batches of {} bytes, spilling to {} past {} bytes",
+                context.getTransactionId(), context.getSegmentId(), sortBy, batchSize, spillDirectory, memorySize);
+        return new ParquetSortBuffer(sortColumns, batchSize, memorySize, spillDirectory, this::writeRecord);
     }
 
     /**
@@ -453,8 +656,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
             int columnTypeCode = column.columnTypeCode();
 
             PrimitiveTypeName typeName;
-            OriginalType origType = null;
-            DecimalMetadata dmt = null;
+            LogicalTypeAnnotation logicalType = null;
             int length = 0;
             switch (DataType.get(columnTypeCode)) {
                 case BOOLEAN:
@@ -467,7 +669,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
                     typeName = PrimitiveTypeName.INT64;
                     break;
                 case SMALLINT:
-                    origType = OriginalType.INT_16;
+                    logicalType = LogicalTypeAnnotation.intType(16, true);
                     typeName = PrimitiveTypeName.INT32;
                     break;
                 case INTEGER:
@@ -480,7 +682,6 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
                     typeName = PrimitiveTypeName.DOUBLE;
                     break;
                 case NUMERIC:
-                    origType = OriginalType.DECIMAL;
                     typeName = PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY;
                     Integer[] columnTypeModifiers = column.columnTypeModifiers();
                     int precision = HiveDecimal.SYSTEM_DEFAULT_PRECISION;
@@ -491,7 +692,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
                         scale = columnTypeModifiers[1];
                     }
                     length = PRECISION_TO_BYTE_COUNT[precision - 1];
-                    dmt = new DecimalMetadata(precision, scale);
+                    logicalType = LogicalTypeAnnotation.decimalType(scale, precision);
                     break;
                 case TIMESTAMP:
                 case TIMESTAMP_WITH_TIME_ZONE:
@@ -502,23 +703,129 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
                 case VARCHAR:
                 case BPCHAR:
                 case TEXT:
-                    origType = OriginalType.UTF8;
+                    logicalType = LogicalTypeAnnotation.stringType();
                     typeName = PrimitiveTypeName.BINARY;
                     break;
                 default:
                     throw new UnsupportedTypeException(
                             String.format("Type %d is not supported", columnTypeCode));
             }
-            fields.add(new PrimitiveType(
-                    Type.Repetition.OPTIONAL,
-                    typeName,
-                    length,
-                    columnName,
-                    origType,
-                    dmt,
-                    null));
+            fields.add(Types.primitive(typeName, Type.Repetition.OPTIONAL)
+                    .length(length)
+                    .as(logicalType)
+                    .named(columnName));
         }
 
         return new MessageType("hive_schema", fields);
     }
+
+    /**
+     * Builds a reader of {@link Group}s for a parquet {@link InputFile}.
+     */
+    private static class GroupReaderBuilder extends ParquetReader.Builder<Group> {
+
+        GroupReaderBuilder(InputFile file) {
+            super(file);
+        }
+
+        @Override
+        protected ReadSupport<Group> getReadSupport() {
+            return new GroupReadSupport();
+        }
+    }
+
+    /**
+     * Writes the records into a sequence of parquet files named
+     * {@code <prefix>.<index>.<codec>.parquet}. Each file has its own
+     * {@link ParquetWriteSupport}, as the write support keeps the state of
+     * the file it writes to.
+     */
+    private class ParquetRollingFileWriter extends RollingFileWriter<List<OneField>> {
+        private ParquetWriter<List<OneField>> parquetWriter;
+        private long rowsInFile;
+
+        ParquetRollingFileWriter(String filePrefix) {
+            super(filePrefix, codecName.getExtension() + ".parquet", fileSize);
+        }
+
+        @Override
+        protected Path getFile(String filePrefix, int fileIndex, String fileExtension) {
+            return new Path(filePrefix + "." + fileIndex + fileExtension);
+        }
+
+        @Override
+        protected void open(Path file) throws IOException {
+            LOG.debug("{}-{}: Creating file {}", context.getTransactionId(),
+                    context.getSegmentId(), file);
+            HdfsUtilities.validateFile(file, fs);
+
+            // The writer stores the column index and the offset index of every
+            // column chunk, so that readers can skip the pages that cannot match
+            // their filters. Limiting the rows per page keeps the pages of
+            // narrow columns small enough to be skipped. The bloom filters of
+            // the BLOOM_FILTER_COLUMNS let readers skip the row groups without
+            // the values of equality filters.
+            RecordWriterBuilder builder = new RecordWriterBuilder(HadoopOutputFile.fromPath(file, configuration),
+                    new ParquetWriteSupport(writeSchema));
+            for (String column : bloomFilterColumns) {
+                builder.withBloomFilterEnabled(column, true);
+            }
+            parquetWriter = builder
+                    .withConf(configuration)
+                    .withCompressionCodec(codecName)
+                    .withRowGroupSize(rowGroupSize)
+                    .withPageSize(pageSize)
+                    .withDictionaryPageSize(dictionarySize)
+                    .withPageRowCountLimit(pageRowCountLimit)
+                    .withDictionaryEncoding(true)
+                    .withValidation(false)
+                    .withWriterVersion(parquetVersion)
+                    .build();
+            rowsInFile = 0;
+        }
+
+        @Override
+        protected void append(List<OneField> record) throws IOException {
+            parquetWriter.write(record);
+            rowsInFile++;
+        }
+
+        /*
+         * Computing the data size walks all the column writers, check for
+         * the output file size every 1000 rows only.
+         */
+        @Override
+        protected long getFileSize() {
+            return rowsInFile % 1000 == 0 ? parquetWriter.getDataSize() : 0;
+        }
+
+        @Override
+        protected void closeFile() throws IOException {
+            parquetWriter.close();
+        }
+    }
+
+    /**
+     * Builds a writer of the records received from Greenplum for a parquet
+     * {@link OutputFile}.
+     */
+    private static class RecordWriterBuilder extends ParquetWriter.Builder<List<OneField>, RecordWriterBuilder> {
+
+        private final ParquetWriteSupport writeSupport;
+
+        RecordWriterBuilder(OutputFile file, ParquetWriteSupport writeSupport) {
+            super(file);
+            this.writeSupport = writeSupport;
+        }
+
+        @Override
+        protected RecordWriterBuilder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<List<OneField>> getWriteSupport(Configuration conf) {
+            return writeSupport;
+        }
+    }
 }
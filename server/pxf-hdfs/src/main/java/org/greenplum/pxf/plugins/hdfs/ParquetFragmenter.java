@@ -0,0 +1,240 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.InvalidInputException;
+import org.apache.parquet.filter2.compat.RowGroupFilter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetInputFormat;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.schema.MessageType;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetFooterCache;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetRecordFilterBuilder;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
+import org.greenplum.pxf.plugins.hdfs.utilities.PxfInputFormat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fragmenter for Parquet files that returns fragments aligned to row groups.
+ * <p>
+ * The footers of the files are read with
+ * {@value #READ_FOOTER_NUM_THREADS_PROPERTY} threads (defaults to the number
+ * of CPUs available), through the {@link ParquetFooterCache} shared with the
+ * accessors that read the fragments. Row groups whose statistics, or dictionaries for
+ * dictionary encoded columns, show that no record can match the pushed-down
+ * filter are dropped, and files without any matching row group get no
+ * fragment. Consecutive matching row groups are coalesced into a fragment
+ * of up to a block of the file, so that a fragment is never larger than the
+ * HDFS split it replaces.
+ */
+public class ParquetFragmenter extends HdfsDataFragmenter {
+
+    public static final String READ_FOOTER_NUM_THREADS_PROPERTY = "pxf.fs.parquet.read-footer.num-threads";
+
+    /**
+     * Gets the fragments for a data source URI that can appear as a file name,
+     * a directory name or a wildcard. Returns the data fragments in JSON
+     * format.
+     */
+    @Override
+    public List<Fragment> getFragments() throws Exception {
+        Path path = new Path(hcfsType.getDataUri(jobConf, context));
+        FileStatus[] files;
+        try {
+            files = listFiles(path);
+        } catch (InvalidInputException e) {
+            if (StringUtils.equalsIgnoreCase("true", context.getOption(IGNORE_MISSING_PATH_OPTION))) {
+                LOG.debug("Ignoring InvalidInputException", e);
+                return fragments;
+            }
+            throw e;
+        }
+
+        final long then = System.nanoTime();
+        List<RowGroups> rowGroupsPerFile = readRowGroups(files);
+        int totalRowGroups = 0, matchingRowGroups = 0;
+        for (int i = 0; i < files.length; i++) {
+            RowGroups rowGroups = rowGroupsPerFile.get(i);
+            totalRowGroups += rowGroups.count;
+            matchingRowGroups += rowGroups.matching.size();
+            addFragments(files[i], rowGroups.matching);
+        }
+        LOG.debug("{} of {} row groups in {} files match the filter, {} fragments in {} ms",
+                matchingRowGroups, totalRowGroups, files.length, fragments.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - then));
+        return fragments;
+    }
+
+    /*
+     * Returns the non-empty files for the path.
+     */
+    private FileStatus[] listFiles(Path path) throws IOException {
+        PxfInputFormat.setInputPaths(jobConf, path);
+        List<FileStatus> result = new ArrayList<>();
+        for (FileStatus file : new PxfInputFormat(partitionFilter).listStatus(jobConf)) {
+            if (file.getLen() > 0) {
+                result.add(file);
+            }
+        }
+        return result.toArray(new FileStatus[0]);
+    }
+
+    /*
+     * Reads the footers of the files and filters their row groups in
+     * parallel, returns the row groups in the order of the files.
+     */
+    private List<RowGroups> readRowGroups(FileStatus[] files) throws IOException {
+        List<RowGroups> result = new ArrayList<>(files.length);
+        if (files.length == 0) {
+            return result;
+        }
+        int numThreads = Math.max(1, Math.min(files.length,
+                configuration.getInt(READ_FOOTER_NUM_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors())));
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<RowGroups>> futures = new ArrayList<>(files.length);
+            for (FileStatus file : files) {
+                futures.add(executorService.submit(() -> readRowGroups(file)));
+            }
+            for (Future<RowGroups> future : futures) {
+                result.add(future.get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading Parquet footers", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Unable to read Parquet footers", cause);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private RowGroups readRowGroups(FileStatus file) throws IOException {
+        try (ParquetFileReader reader = ParquetFileReader.open(
+                ParquetFooterCache.getInstance().getInputFile(configuration, file))) {
+            List<BlockMetaData> rowGroups = reader.getFooter().getBlocks();
+            return new RowGroups(rowGroups.size(), filterRowGroups(file, reader, rowGroups));
+        }
+    }
+
+    /*
+     * Returns the row groups of the file that may have records matching the
+     * filter, based on the statistics of their columns, on the values of the
+     * dictionaries of dictionary encoded columns and on the bloom filters of
+     * the columns that have one. The filter levels can be disabled with
+     * parquet's filtering properties.
+     */
+    private List<BlockMetaData> filterRowGroups(FileStatus file, ParquetFileReader reader, List<BlockMetaData> rowGroups) {
+        String filterString = context.getFilterString();
+        if (StringUtils.isBlank(filterString) || rowGroups.isEmpty()) {
+            return rowGroups;
+        }
+
+        MessageType schema = reader.getFooter().getFileMetaData().getSchema();
+        try {
+            ParquetRecordFilterBuilder filterBuilder = ParquetFileAccessor.buildRecordFilter(filterString,
+                    context.getTupleDescription(), ParquetFileAccessor.getOriginalFieldsMap(schema));
+
+            List<RowGroupFilter.FilterLevel> levels = new ArrayList<>();
+            if (configuration.getBoolean(ParquetInputFormat.STATS_FILTERING_ENABLED, true)) {
+                levels.add(RowGroupFilter.FilterLevel.STATISTICS);
+            }
+            if (configuration.getBoolean(ParquetInputFormat.DICTIONARY_FILTERING_ENABLED, true)) {
+                levels.add(RowGroupFilter.FilterLevel.DICTIONARY);
+            }
+            if (configuration.getBoolean(ParquetInputFormat.BLOOM_FILTERING_ENABLED, true)) {
+                levels.add(RowGroupFilter.FilterLevel.BLOOMFILTER);
+            }
+            return RowGroupFilter.filterRowGroups(levels, filterBuilder.getRecordFilter(), rowGroups, reader);
+        } catch (Exception e) {
+            LOG.warn(String.format("Unable to prune row groups of file %s for filter %s",
+                    file.getPath(), filterString), e);
+            return rowGroups;
+        }
+    }
+
+    /*
+     * Adds a fragment for each range of consecutive row groups, each range
+     * spanning at most a block of the file. The accessor reads the row
+     * groups whose midpoint falls in the range of the fragment.
+     */
+    private void addFragments(FileStatus file, List<BlockMetaData> rowGroups) throws IOException {
+        if (rowGroups.isEmpty()) {
+            return;
+        }
+        // the locations of all the blocks are fetched once per file, the
+        // hosts of each fragment are the hosts of the block holding its middle
+        BlockLocation[] locations = HdfsUtilities.getBlockLocations(file.getPath().getFileSystem(configuration), file);
+        long blockSize = file.getBlockSize() > 0 ? file.getBlockSize() : Long.MAX_VALUE;
+        long start = -1, end = -1;
+        for (BlockMetaData rowGroup : rowGroups) {
+            long rowGroupStart = rowGroup.getStartingPos();
+            long rowGroupEnd = rowGroupStart + rowGroup.getCompressedSize();
+            if (start >= 0 && (rowGroupStart != end || rowGroupEnd - start > blockSize)) {
+                addFragment(file, locations, start, end - start);
+                start = -1;
+            }
+            if (start < 0) {
+                start = rowGroupStart;
+            }
+            end = rowGroupEnd;
+        }
+        if (start >= 0) {
+            addFragment(file, locations, start, end - start);
+        }
+    }
+
+    private void addFragment(FileStatus file, BlockLocation[] locations, long start, long length) throws IOException {
+        String[] hosts = HdfsUtilities.getHosts(locations, start, length);
+        byte[] fragmentMetadata = HdfsUtilities.prepareFragmentMetadata(start, length, hosts);
+        fragments.add(new Fragment(file.getPath().toString(), hosts, fragmentMetadata));
+    }
+
+    /**
+     * The row groups of a file that match the filter.
+     */
+    private static class RowGroups {
+        final int count;
+        final List<BlockMetaData> matching;
+
+        RowGroups(int count, List<BlockMetaData> matching) {
+            this.count = count;
+            this.matching = matching;
+        }
+    }
+}
@@ -22,33 +22,33 @@ package org.greenplum.pxf.plugins.hdfs;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.hadoop.hive.common.type.HiveDecimal;
 import org.apache.parquet.example.data.Group;
-import org.apache.parquet.example.data.simple.SimpleGroupFactory;
-import org.apache.parquet.io.api.Binary;
 import org.apache.parquet.schema.MessageType;
-import org.apache.parquet.schema.OriginalType;
 import org.apache.parquet.schema.Type;
 import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.ReadVectorizedResolver;
 import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.BasePlugin;
 import org.greenplum.pxf.api.model.Resolver;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.api.utilities.Utilities;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetColumnBatch;
 import org.greenplum.pxf.plugins.hdfs.parquet.ParquetTypeConverter;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetWriteSupport;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
 
 import static org.apache.parquet.schema.Type.Repetition.REPEATED;
 
-public class ParquetResolver extends BasePlugin implements Resolver {
+public class ParquetResolver extends BasePlugin implements Resolver, ReadVectorizedResolver {
 
     private MessageType schema;
-    private SimpleGroupFactory groupFactory;
     private ObjectMapper mapper = new ObjectMapper();
 
     // used to distinguish string pattern between type "timestamp" ("2019-03-14 14:10:28")
@@ -80,7 +80,44 @@ public class ParquetResolver extends BasePlugin implements Resolver {
     }
 
     /**
-     * Constructs and sets the fields of a {@link OneRow}.
+     * Returns the fields of all the records of a batch read by the
+     * {@link ParquetFileAccessor}. When the accessor reads records one by one
+     * the batch is the single record.
+     *
+     * @param batch the batch of records
+     * @return the list of records, each a list of fields
+     */
+    @Override
+    public List<List<OneField>> getFieldsForBatch(OneRow batch) {
+        if (!(batch.getData() instanceof ParquetColumnBatch)) {
+            return Collections.singletonList(getFields(batch));
+        }
+
+        ParquetColumnBatch columnBatch = (ParquetColumnBatch) batch.getData();
+        List<ColumnDescriptor> tupleDescription = context.getTupleDescription();
+        List<List<OneField>> output = new ArrayList<>(columnBatch.size());
+        for (int row = 0; row < columnBatch.size(); row++) {
+            List<OneField> record = new ArrayList<>(tupleDescription.size());
+            int columnIndex = 0;
+            for (ColumnDescriptor columnDescriptor : tupleDescription) {
+                if (!columnDescriptor.isProjected()) {
+                    record.add(new OneField(columnDescriptor.columnTypeCode(), null));
+                } else {
+                    record.add(new OneField(columnBatch.getDataType(columnIndex).getOID(),
+                            columnBatch.getValue(columnIndex, row)));
+                    columnIndex++;
+                }
+            }
+            output.add(record);
+        }
+        return output;
+    }
+
+    /**
+     * Constructs and sets the fields of a {@link OneRow}. The fields are
+     * written as they are by the {@link ParquetWriteSupport} of the
+     * {@link ParquetFileAccessor}, which encodes them to the types of the
+     * parquet schema.
      *
      * @param record list of {@link OneField}
      * @return the constructed {@link OneRow}
@@ -89,10 +126,10 @@ public class ParquetResolver extends BasePlugin implements Resolver {
     @Override
     public OneRow setFields(List<OneField> record) throws IOException {
         validateSchema();
-        Group group = groupFactory.newGroup();
-        for (int i = 0; i < record.size(); i++) {
-            OneField field = record.get(i);
-            ColumnDescriptor columnDescriptor = context.getTupleDescription().get(i);
+        List<ColumnDescriptor> tupleDescription = context.getTupleDescription();
+        int index = 0;
+        for (OneField field : record) {
+            ColumnDescriptor columnDescriptor = tupleDescription.get(index++);
 
             /*
              * We need to right trim the incoming value from Greenplum. This is
@@ -103,92 +140,8 @@ public class ParquetResolver extends BasePlugin implements Resolver {
             if (columnDescriptor.getDataType() == DataType.BPCHAR && field.val instanceof String) {
                 field.val = Utilities.rightTrimWhiteSpace((String) field.val);
             }
-            fillGroup(i, field, group, schema.getType(i));
-        }
-        return new OneRow(null, group);
-    }
-
-    private void fillGroup(int index, OneField field, Group group, Type type) throws IOException {
-        if (field.val == null)
-            return;
-        switch (type.asPrimitiveType().getPrimitiveTypeName()) {
-            case BINARY:
-                if (type.getOriginalType() == OriginalType.UTF8)
-                    group.add(index, (String) field.val);
-                else
-                    group.add(index, Binary.fromReusedByteArray((byte[]) field.val));
-                break;
-            case INT32:
-                if (type.getOriginalType() == OriginalType.INT_16)
-                    group.add(index, (Short) field.val);
-                else
-                    group.add(index, (Integer) field.val);
-                break;
-            case INT64:
-                group.add(index, (Long) field.val);
-                break;
-            case DOUBLE:
-                group.add(index, (Double) field.val);
-                break;
-            case FLOAT:
-                group.add(index, (Float) field.val);
-                break;
-            case FIXED_LEN_BYTE_ARRAY:
-                // From org.apache.hadoop.hive.ql.io.parquet.write.DataWritableWriter.DecimalDataWriter#decimalToBinary
-                String value = (String) field.val;
-                int precision = Math.min(HiveDecimal.MAX_PRECISION, type.asPrimitiveType().getDecimalMetadata().getPrecision());
-                int scale = Math.min(HiveDecimal.MAX_SCALE, type.asPrimitiveType().getDecimalMetadata().getScale());
-                HiveDecimal hiveDecimal = HiveDecimal.enforcePrecisionScale(
-                        HiveDecimal.create(value),
-                        precision,
-                        scale);
-
-                if (hiveDecimal == null) {
-                    // When precision is higher than HiveDecimal.MAX_PRECISION
-                    // and enforcePrecisionScale returns null, it means we
-                    // cannot store the value in Parquet because we have
-                    // exceeded the precision. To make the behavior consistent
-                    // with Hive's behavior when storing on a Parquet-backed
-                    // table, we store the value as null.
-                    return;
-                }
-
-                byte[] decimalBytes = hiveDecimal.bigIntegerBytesScaled(scale);
-
-                // Estimated number of bytes needed.
-                int precToBytes = ParquetFileAccessor.PRECISION_TO_BYTE_COUNT[precision - 1];
-                if (precToBytes == decimalBytes.length) {
-                    // No padding needed.
-                    group.add(index, Binary.fromReusedByteArray(decimalBytes));
-                } else {
-                    byte[] tgt = new byte[precToBytes];
-                    if (hiveDecimal.signum() == -1) {
-                        // For negative number, initializing bits to 1
-                        for (int i = 0; i < precToBytes; i++) {
-                            tgt[i] |= 0xFF;
-                        }
-                    }
-                    System.arraycopy(decimalBytes, 0, tgt, precToBytes - decimalBytes.length, decimalBytes.length); // Padding leading zeroes/ones.
-                    group.add(index, Binary.fromReusedByteArray(tgt));
-                }
-                // end -- org.apache.hadoop.hive.ql.io.parquet.write.DataWritableWriter.DecimalDataWriter#decimalToBinary
-                break;
-            case INT96:  // SQL standard timestamp string value with or without time zone literals: https://www.postgresql.org/docs/9.4/datatype-datetime.html
-                String timestamp = (String) field.val;
-                if (TIMESTAMP_PATTERN.matcher(timestamp).find()) {
-                    // Note: this conversion convert type "timestamp with time zone" will lose timezone information
-                    // while preserving the correct value. (as Parquet doesn't support timestamp with time zone.
-                    group.add(index, ParquetTypeConverter.getBinaryFromTimestampWithTimeZone(timestamp));
-                } else {
-                    group.add(index, ParquetTypeConverter.getBinaryFromTimestamp(timestamp));
-                }
-                break;
-            case BOOLEAN:
-                group.add(index, (Boolean) field.val);
-                break;
-            default:
-                throw new IOException("Not supported type " + type.asPrimitiveType().getPrimitiveTypeName());
         }
+        return new OneRow(null, record);
     }
 
     // Set schema from context if null
@@ -199,7 +152,6 @@ public class ParquetResolver extends BasePlugin implements Resolver {
             schema = (MessageType) context.getMetadata();
             if (schema == null)
                 throw new RuntimeException("No schema detected in request context");
-            groupFactory = new SimpleGroupFactory(schema);
         }
     }
 
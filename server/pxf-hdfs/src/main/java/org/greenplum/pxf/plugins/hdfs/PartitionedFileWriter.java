@@ -0,0 +1,226 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.model.RequestContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes records into the {@code col=value} partition directories of a
+ * table, each directory with its own {@link RollingFileWriter}.
+ * <p>
+ * At most MAX_OPEN_PARTITIONS writers are kept open at a time, the least
+ * recently used writer is closed when a record for another partition
+ * arrives. Rows that are sorted or clustered by the partition columns keep a
+ * single writer open, in the worst case every record closes a file. When a
+ * partition is written to again after its writer was closed, the new files
+ * are named {@code <prefix>_<n>} so that they do not overwrite the files
+ * written before.
+ *
+ * @param <T> the type of the records written
+ */
+public class PartitionedFileWriter<T> implements Closeable {
+
+    public static final String MAX_OPEN_PARTITIONS_OPTION = "MAX_OPEN_PARTITIONS";
+    public static final int DEFAULT_MAX_OPEN_PARTITIONS = 32;
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionedFileWriter.class);
+
+    /**
+     * Creates the writer of a partition directory.
+     *
+     * @param <T> the type of the records written
+     */
+    public interface WriterFactory<T> {
+
+        /**
+         * Returns a new writer for the files with the given prefix.
+         *
+         * @param filePrefix the fully qualified path of the files without
+         *                   extension
+         * @return the writer
+         * @throws IOException if the writer could not be created
+         */
+        RollingFileWriter<T> create(String filePrefix) throws IOException;
+    }
+
+    private final String basePath;
+    private final String fileName;
+    private final int maxOpenPartitions;
+    private final WriterFactory<T> writerFactory;
+    // in access order, the first writer is the least recently used
+    private final LinkedHashMap<String, RollingFileWriter<T>> openWriters;
+    private final Map<String, Integer> writerCounts = new HashMap<>();
+    private long recordsWritten;
+    private int fileCount;
+    private int evictions;
+
+    /**
+     * Constructs a PartitionedFileWriter.
+     *
+     * @param filePrefix        the fully qualified path of the files without
+     *                          extension, the partition directories are
+     *                          created next to the file
+     * @param maxOpenPartitions the maximum number of writers open at a time
+     * @param writerFactory     the factory of the partition writers
+     */
+    public PartitionedFileWriter(String filePrefix, int maxOpenPartitions, WriterFactory<T> writerFactory) {
+        if (maxOpenPartitions <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Property %s has incorrect value %d : must be a positive integer",
+                    MAX_OPEN_PARTITIONS_OPTION, maxOpenPartitions));
+        }
+        int index = filePrefix.lastIndexOf('/');
+        this.basePath = filePrefix.substring(0, index);
+        this.fileName = filePrefix.substring(index + 1);
+        this.maxOpenPartitions = maxOpenPartitions;
+        this.writerFactory = writerFactory;
+        this.openWriters = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the maximum number of open writers requested with the
+     * MAX_OPEN_PARTITIONS option, or the default when the option is not
+     * provided.
+     *
+     * @param context the request context
+     * @return the maximum number of open writers
+     */
+    public static int getMaxOpenPartitions(RequestContext context) {
+        return context.getOption(MAX_OPEN_PARTITIONS_OPTION, DEFAULT_MAX_OPEN_PARTITIONS, true);
+    }
+
+    /**
+     * Writes a record into the given partition directory, opening a writer
+     * for the partition if needed.
+     *
+     * @param partitionPath the relative path of the partition directory
+     * @param record        the record to write
+     * @throws IOException if the record could not be written
+     */
+    public void write(String partitionPath, T record) throws IOException {
+        RollingFileWriter<T> writer = openWriters.get(partitionPath);
+        if (writer == null) {
+            if (openWriters.size() >= maxOpenPartitions) {
+                closeLeastRecentlyUsed();
+            }
+            int count = writerCounts.getOrDefault(partitionPath, 0);
+            writerCounts.put(partitionPath, count + 1);
+            String prefix = basePath + "/" + partitionPath + "/" + fileName + (count == 0 ? "" : "_" + count);
+            LOG.debug("Opening writer {} for partition {}", prefix, partitionPath);
+            writer = writerFactory.create(prefix);
+            openWriters.put(partitionPath, writer);
+        }
+        writer.write(record);
+    }
+
+    /**
+     * Closes all the writers that are open.
+     *
+     * @throws IOException if a writer could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        IOException exception = null;
+        for (RollingFileWriter<T> writer : openWriters.values()) {
+            try {
+                closeWriter(writer);
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        openWriters.clear();
+        if (evictions > 0) {
+            LOG.info("Closed writers {} times before the end of the write to keep at most {} partitions open, " +
+                            "consider sorting the rows by the partition columns or increasing {}",
+                    evictions, maxOpenPartitions, MAX_OPEN_PARTITIONS_OPTION);
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * @return the total number of records written across all partitions
+     */
+    public long getRecordsWritten() {
+        long records = recordsWritten;
+        for (RollingFileWriter<T> writer : openWriters.values()) {
+            records += writer.getRecordsWritten();
+        }
+        return records;
+    }
+
+    /**
+     * @return the number of files opened so far across all partitions
+     */
+    public int getFileCount() {
+        int files = fileCount;
+        for (RollingFileWriter<T> writer : openWriters.values()) {
+            files += writer.getFileCount();
+        }
+        return files;
+    }
+
+    /**
+     * @return the number of partitions written to
+     */
+    public int getPartitionCount() {
+        return writerCounts.size();
+    }
+
+    /**
+     * @return the number of writers that were closed to open other writers
+     */
+    int getEvictionCount() {
+        return evictions;
+    }
+
+    private void closeLeastRecentlyUsed() throws IOException {
+        Iterator<Map.Entry<String, RollingFileWriter<T>>> iterator = openWriters.entrySet().iterator();
+        Map.Entry<String, RollingFileWriter<T>> eldest = iterator.next();
+        iterator.remove();
+        evictions++;
+        LOG.debug("Closing writer for partition {} to stay within {} open partitions",
+                eldest.getKey(), maxOpenPartitions);
+        closeWriter(eldest.getValue());
+    }
+
+    private void closeWriter(RollingFileWriter<T> writer) throws IOException {
+        try {
+            writer.close();
+        } finally {
+            recordsWritten += writer.getRecordsWritten();
+            fileCount += writer.getFileCount();
+        }
+    }
+}
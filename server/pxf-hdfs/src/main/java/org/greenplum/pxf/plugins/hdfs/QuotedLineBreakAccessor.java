@@ -58,11 +58,13 @@ public class QuotedLineBreakAccessor extends HdfsAtomicDataAccessor {
     }
 
     @Override
-    public boolean openForRead() throws Exception {
-        if (!super.openForRead()) {
+    protected boolean openNextFile() throws IOException {
+        if (!super.openNextFile()) {
             return false;
         }
         firstLine = true;
+        lastLine = false;
+        lineQueue = null;
         reader = new BufferedReader(new InputStreamReader(inputStream));
         return true;
     }
@@ -77,8 +79,11 @@ public class QuotedLineBreakAccessor extends HdfsAtomicDataAccessor {
         }
 
         String nextLine = readLine();
-        if (nextLine == null) /* EOF */ {
-            return null;
+        while (nextLine == null) /* EOF */ {
+            if (!openNextFile()) {
+                return null;
+            }
+            nextLine = readLine();
         }
 
         if (fileAsRow) {
@@ -0,0 +1,324 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An input stream that reads the next buffers of the underlying stream on a
+ * background thread while the current buffer is being consumed, so that the
+ * latency of remote reads overlaps with parsing.
+ * <p>
+ * With a depth of 1 the stream is double buffered: one buffer is consumed by
+ * the caller while the next one is fetched. Higher-latency stores, like
+ * object stores, benefit from a deeper read-ahead. The read-ahead is
+ * configured per server with the {@value #DEPTH_PROPERTY} and
+ * {@value #BUFFER_SIZE_PROPERTY} properties, and is disabled by default.
+ * <p>
+ * Seeking within the current buffer is cheap; any other seek waits for the
+ * outstanding reads to finish and repositions the underlying stream.
+ * <p>
+ * Once a background read fails, the reads in flight are cancelled and every
+ * later read throws the same error, so that no bytes are silently skipped.
+ * The background thread is a daemon thread that stops after
+ * {@value #THREAD_KEEP_ALIVE_SECONDS} seconds without reads, so a stream
+ * that is not closed does not keep a thread alive.
+ */
+public class ReadAheadInputStream extends FSInputStream {
+
+    public static final String DEPTH_PROPERTY = "pxf.fs.read-ahead.depth";
+    public static final String BUFFER_SIZE_PROPERTY = "pxf.fs.read-ahead.buffer-size";
+    public static final int DEFAULT_DEPTH = 0;
+    public static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final FSDataInputStream source;
+    private final int bufferSize;
+    private final int depth;
+    private final ExecutorService executorService;
+    private final LinkedList<Future<byte[]>> pendingBuffers;
+    private byte[] buffer = EMPTY;
+    // the position in the file of the first byte of the buffer
+    private long bufferStart;
+    private int offset;
+    private boolean endOfStream;
+    private boolean closed;
+    // the error of a failed background read, thrown by every later read
+    private IOException failure;
+
+    /**
+     * Constructs a ReadAheadInputStream starting at the current position of
+     * the source stream.
+     *
+     * @param source     the underlying stream
+     * @param bufferSize the number of bytes read by each background read
+     * @param depth      the number of buffers read ahead of the current one
+     * @throws IOException if the position of the source cannot be retrieved
+     */
+    public ReadAheadInputStream(FSDataInputStream source, int bufferSize, int depth) throws IOException {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException(String.format("Invalid read-ahead buffer size %d", bufferSize));
+        }
+        if (depth < 1) {
+            throw new IllegalArgumentException(String.format("Invalid read-ahead depth %d", depth));
+        }
+        this.source = source;
+        this.bufferSize = bufferSize;
+        this.depth = depth;
+        this.bufferStart = source.getPos();
+        this.pendingBuffers = new LinkedList<>();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+                THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "pxf-read-ahead-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        this.executorService = executor;
+    }
+
+    /**
+     * Opens the file, reading ahead when read-ahead is enabled for the
+     * server.
+     *
+     * @param fs            the file system of the file
+     * @param path          the path of the file
+     * @param configuration the configuration for the server
+     * @return the input stream for the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static FSDataInputStream open(FileSystem fs, Path path, Configuration configuration) throws IOException {
+        return wrap(fs.open(path), configuration);
+    }
+
+    /**
+     * Wraps the stream with a read-ahead stream when read-ahead is enabled
+     * for the server, otherwise returns the stream itself.
+     *
+     * @param in            the stream to wrap
+     * @param configuration the configuration for the server
+     * @return the stream to read from
+     * @throws IOException if the position of the stream cannot be retrieved
+     */
+    public static FSDataInputStream wrap(FSDataInputStream in, Configuration configuration) throws IOException {
+        if (!isEnabled(configuration)) {
+            return in;
+        }
+        return new FSDataInputStream(new ReadAheadInputStream(in,
+                configuration.getInt(BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE),
+                configuration.getInt(DEPTH_PROPERTY, DEFAULT_DEPTH)));
+    }
+
+    /**
+     * @param configuration the configuration for the server
+     * @return true if read-ahead is enabled for the server
+     */
+    public static boolean isEnabled(Configuration configuration) {
+        return configuration.getInt(DEPTH_PROPERTY, DEFAULT_DEPTH) > 0;
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        if (offset == buffer.length && !nextBuffer()) {
+            return -1;
+        }
+        return buffer[offset++] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (offset == buffer.length && !nextBuffer()) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.length - offset);
+        System.arraycopy(buffer, offset, b, off, n);
+        offset += n;
+        return n;
+    }
+
+    @Override
+    public synchronized int available() throws IOException {
+        ensureOpen();
+        return buffer.length - offset;
+    }
+
+    @Override
+    public synchronized void seek(long pos) throws IOException {
+        ensureOpen();
+        if (pos < 0) {
+            throw new EOFException("Cannot seek to a negative offset");
+        }
+        if (pos >= bufferStart && pos <= bufferStart + buffer.length) {
+            offset = (int) (pos - bufferStart);
+            return;
+        }
+        // the source must not be repositioned while a read is in progress
+        awaitPendingBuffers();
+        source.seek(pos);
+        bufferStart = pos;
+        buffer = EMPTY;
+        offset = 0;
+        endOfStream = false;
+    }
+
+    @Override
+    public synchronized long getPos() {
+        return bufferStart + offset;
+    }
+
+    @Override
+    public boolean seekToNewSource(long targetPos) {
+        return false;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            awaitPendingBuffers();
+        } finally {
+            executorService.shutdownNow();
+            buffer = EMPTY;
+            source.close();
+        }
+    }
+
+    /*
+     * Replaces the current buffer with the next one, keeping the configured
+     * number of buffers in flight. Returns false at the end of the stream.
+     */
+    private boolean nextBuffer() throws IOException {
+        ensureOpen();
+        if (failure != null) {
+            throw failure;
+        }
+        if (endOfStream) {
+            return false;
+        }
+        while (pendingBuffers.size() < depth + 1) {
+            pendingBuffers.add(executorService.submit(this::fetch));
+        }
+        byte[] next;
+        try {
+            next = getBuffer(pendingBuffers.poll());
+        } catch (IOException e) {
+            // the buffers after the failed one must not be served
+            failure = e;
+            cancelPendingBuffers();
+            throw e;
+        }
+
+        bufferStart += buffer.length;
+        buffer = next;
+        offset = 0;
+        endOfStream = buffer.length == 0;
+        return !endOfStream;
+    }
+
+    /*
+     * Reads the next buffer from the source, runs on the background thread.
+     * Returns an empty buffer at the end of the stream.
+     */
+    private byte[] fetch() throws IOException {
+        byte[] data = new byte[bufferSize];
+        int count = 0;
+        while (count < bufferSize) {
+            int n = source.read(data, count, bufferSize - count);
+            if (n < 0) {
+                break;
+            }
+            count += n;
+        }
+        return count == bufferSize ? data : Arrays.copyOf(data, count);
+    }
+
+    /*
+     * Waits for the reads in flight to finish, discarding their data. A
+     * failed read is ignored, reading again from the new position reports
+     * the error if the source is still failing.
+     */
+    private void awaitPendingBuffers() {
+        while (!pendingBuffers.isEmpty()) {
+            try {
+                getBuffer(pendingBuffers.poll());
+            } catch (IOException ignored) {
+                // the data of the read is not needed
+            }
+        }
+    }
+
+    /*
+     * Cancels the reads in flight, a read that already started completes in
+     * the background and its data is discarded.
+     */
+    private void cancelPendingBuffers() {
+        for (Future<byte[]> future : pendingBuffers) {
+            future.cancel(false);
+        }
+        pendingBuffers.clear();
+    }
+
+    private byte[] getBuffer(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for read-ahead", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to read ahead", cause);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
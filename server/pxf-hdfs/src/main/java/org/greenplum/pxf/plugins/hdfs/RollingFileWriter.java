@@ -0,0 +1,202 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.fs.Path;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Base class for writers that roll over to a new file once the current file
+ * reaches a target size. Subclasses know how to open, write to, measure and
+ * close a single file, this class takes care of naming the files and deciding
+ * when to start a new one.
+ * <p>
+ * The first file keeps the name {@code <prefix><extension>}, subsequent files
+ * are named {@code <prefix>.<index><extension>}.
+ *
+ * @param <T> the type of the records written
+ */
+public abstract class RollingFileWriter<T> implements Closeable {
+
+    public static final String FILE_SIZE_OPTION = "FILE_SIZE";
+    public static final int DEFAULT_FILE_SIZE = 128 * 1024 * 1024;
+
+    protected final Logger LOG = LoggerFactory.getLogger(this.getClass());
+
+    private final String filePrefix;
+    private final String fileExtension;
+    private final long targetFileSize;
+    private Path currentFile;
+    private int fileIndex;
+    private long recordsWritten;
+
+    /**
+     * Constructs a RollingFileWriter.
+     *
+     * @param filePrefix     the fully qualified path of the files without extension
+     * @param fileExtension  the extension appended to every file, may be empty
+     * @param targetFileSize the size in bytes after which a new file is started
+     */
+    protected RollingFileWriter(String filePrefix, String fileExtension, long targetFileSize) {
+        if (targetFileSize <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Property %s has incorrect value %d : must be a positive integer", FILE_SIZE_OPTION, targetFileSize));
+        }
+        this.filePrefix = filePrefix;
+        this.fileExtension = fileExtension == null ? "" : fileExtension;
+        this.targetFileSize = targetFileSize;
+    }
+
+    /**
+     * Returns the target file size requested with the FILE_SIZE option, or
+     * the default file size when the option is not provided.
+     *
+     * @param context the request context
+     * @return the target file size in bytes
+     */
+    public static long getTargetFileSize(RequestContext context) {
+        return context.getOption(FILE_SIZE_OPTION, DEFAULT_FILE_SIZE, true);
+    }
+
+    /**
+     * Writes a record, opening a new file if there is no file currently open,
+     * and closes the file once it reaches the target size.
+     *
+     * @param record the record to write
+     * @throws IOException if the record could not be written
+     */
+    public void write(T record) throws IOException {
+        if (currentFile == null) {
+            openNextFile();
+        }
+        append(record);
+        recordsWritten++;
+        if (getFileSize() >= targetFileSize) {
+            LOG.debug("File {} reached the target size of {} bytes after {} records",
+                    currentFile, targetFileSize, recordsWritten);
+            closeCurrentFile();
+        }
+    }
+
+    /**
+     * Opens the next file in the sequence. Writers that need to create the
+     * first file before any record is written (i.e. to produce a file even
+     * when there is no data) can call this method explicitly.
+     *
+     * @throws IOException if the file could not be opened
+     */
+    public void openNextFile() throws IOException {
+        if (currentFile != null) {
+            closeCurrentFile();
+        }
+        Path file = getFile(filePrefix, fileIndex, fileExtension);
+        LOG.debug("Opening file {} for write", file);
+        open(file);
+        currentFile = file;
+        fileIndex++;
+    }
+
+    /**
+     * Closes the file currently open, if any.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (currentFile != null) {
+            closeCurrentFile();
+        }
+    }
+
+    /**
+     * @return the total number of records written across all files
+     */
+    public long getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    /**
+     * @return the number of files opened so far
+     */
+    public int getFileCount() {
+        return fileIndex;
+    }
+
+    /**
+     * Returns the path of the file with the given index in the sequence.
+     * Subclasses can override this method to follow the naming conventions
+     * of their file format.
+     *
+     * @param filePrefix    the fully qualified path of the files without extension
+     * @param fileIndex     the index of the file, starting at 0
+     * @param fileExtension the extension appended to every file
+     * @return the path of the file
+     */
+    protected Path getFile(String filePrefix, int fileIndex, String fileExtension) {
+        return new Path(fileIndex == 0 ?
+                filePrefix + fileExtension :
+                filePrefix + "." + fileIndex + fileExtension);
+    }
+
+    /**
+     * Opens the given file for write.
+     *
+     * @param file the path of the file to create
+     * @throws IOException if the file could not be created
+     */
+    protected abstract void open(Path file) throws IOException;
+
+    /**
+     * Appends a record to the file currently open.
+     *
+     * @param record the record to write
+     * @throws IOException if the record could not be written
+     */
+    protected abstract void append(T record) throws IOException;
+
+    /**
+     * Returns the number of bytes written to the file currently open so far.
+     *
+     * @return the size of the current file
+     * @throws IOException if the size could not be determined
+     */
+    protected abstract long getFileSize() throws IOException;
+
+    /**
+     * Flushes and closes the file currently open.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    protected abstract void closeFile() throws IOException;
+
+    private void closeCurrentFile() throws IOException {
+        LOG.debug("Closing file {}", currentFile);
+        try {
+            closeFile();
+        } finally {
+            currentFile = null;
+        }
+    }
+}
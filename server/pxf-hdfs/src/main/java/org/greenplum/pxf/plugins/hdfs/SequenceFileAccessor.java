@@ -48,10 +48,10 @@ import java.util.EnumSet;
 public class SequenceFileAccessor extends HdfsSplittableDataAccessor {
 
     private FileContext fc;
-    private Path file;
     private CompressionCodec codec;
     private CompressionType compressionType;
-    private SequenceFile.Writer writer;
+    private RollingFileWriter<OneRow> fileWriter;
+    private Class<? extends Writable> keyClass, valueClass;
     private LongWritable defaultKey; // used when recordkey is not defined
     private CodecFactory codecFactory;
 
@@ -83,7 +83,7 @@ public class SequenceFileAccessor extends HdfsSplittableDataAccessor {
         getCompressionCodec(context);
 
         // construct the output stream
-        file = new Path(filename);
+        Path file = new Path(filename);
         FileSystem fs = file.getFileSystem(configuration);
         fc = FileContext.getFileContext(configuration);
         defaultKey = new LongWritable(context.getSegmentId());
@@ -103,7 +103,10 @@ public class SequenceFileAccessor extends HdfsSplittableDataAccessor {
             LOG.debug("Directory {} already exists. Skip creating", parent);
         }
 
-        writer = null;
+        String filePrefix = hcfsType.getUriForWrite(jobConf, context, true);
+        fileWriter = new SequenceRollingFileWriter(filePrefix,
+                codec != null ? codec.getDefaultExtension() : "",
+                RollingFileWriter.getTargetFileSize(context));
         return true;
     }
 
@@ -169,20 +172,15 @@ public class SequenceFileAccessor extends HdfsSplittableDataAccessor {
         Writable value = (Writable) onerow.getData();
         Writable key = (Writable) onerow.getKey();
 
-        // init writer on first approach here, based on onerow.getData type
+        // init key and value classes on first approach here, based on onerow.getData type
         // TODO: verify data is serializable.
-        if (writer == null) {
-            Class<? extends Writable> valueClass = value.getClass();
-            Class<? extends Writable> keyClass = (key == null) ? LongWritable.class
-                    : key.getClass();
-            // create writer - do not allow overwriting existing file
-            writer = SequenceFile.createWriter(fc, configuration, file, keyClass,
-                    valueClass, compressionType, codec,
-                    new SequenceFile.Metadata(), EnumSet.of(CreateFlag.CREATE));
+        if (valueClass == null) {
+            valueClass = value.getClass();
+            keyClass = (key == null) ? LongWritable.class : key.getClass();
         }
 
         try {
-            writer.append((key == null) ? defaultKey : key, value);
+            fileWriter.write(onerow);
         } catch (IOException e) {
             LOG.error("Failed to write data to file: {}", e.getMessage());
             return false;
@@ -193,7 +191,52 @@ public class SequenceFileAccessor extends HdfsSplittableDataAccessor {
 
     @Override
     public void closeForWrite() throws Exception {
-        if (writer != null) {
+        if (fileWriter != null) {
+            fileWriter.close();
+        }
+    }
+
+    public CompressionType getCompressionType() {
+        return compressionType;
+    }
+
+    public CompressionCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Writes key/value pairs into a sequence of SequenceFiles. The files are
+     * created lazily, since the key and value classes are only known once the
+     * first row is received.
+     */
+    private class SequenceRollingFileWriter extends RollingFileWriter<OneRow> {
+        private SequenceFile.Writer writer;
+
+        SequenceRollingFileWriter(String filePrefix, String extension, long targetFileSize) {
+            super(filePrefix, extension, targetFileSize);
+        }
+
+        @Override
+        protected void open(Path file) throws IOException {
+            // create writer - do not allow overwriting existing file
+            writer = SequenceFile.createWriter(fc, configuration, file, keyClass,
+                    valueClass, compressionType, codec,
+                    new SequenceFile.Metadata(), EnumSet.of(CreateFlag.CREATE));
+        }
+
+        @Override
+        protected void append(OneRow onerow) throws IOException {
+            Writable key = (Writable) onerow.getKey();
+            writer.append((key == null) ? defaultKey : key, (Writable) onerow.getData());
+        }
+
+        @Override
+        protected long getFileSize() throws IOException {
+            return writer.getLength();
+        }
+
+        @Override
+        protected void closeFile() throws IOException {
             writer.sync();
             /*
              * From release 0.21.0 sync() is deprecated in favor of hflush(),
@@ -206,12 +249,4 @@ public class SequenceFileAccessor extends HdfsSplittableDataAccessor {
             writer.close();
         }
     }
-
-    public CompressionType getCompressionType() {
-        return compressionType;
-    }
-
-    public CompressionCodec getCodec() {
-        return codec;
-    }
 }
@@ -0,0 +1,242 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.filter2.predicate.UserDefinedPredicate;
+import org.apache.parquet.hadoop.metadata.ColumnPath;
+import org.apache.parquet.schema.MessageType;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Evaluates a parquet {@link FilterPredicate} on a batch of rows, given the
+ * values of the columns of the predicate, and returns the selection vector
+ * of the rows that match it.
+ * <p>
+ * Values are the ones returned by parquet's column readers (Integer, Long,
+ * Boolean, Float, Double or Binary) and are compared with the comparators
+ * of their columns. Nulls match the same way they do in parquet's record
+ * filter: only {@code eq(column, null)}, {@code notEq(column, value)} and
+ * user defined predicates that keep null can match them.
+ */
+class ParquetBatchFilter implements FilterPredicate.Visitor<boolean[]> {
+
+    private final FilterPredicate predicate;
+    private final Map<ColumnPath, Integer> columnIndexes;
+    private final Comparator<?>[] comparators;
+    private Object[][] columns;
+    private int size;
+
+    /**
+     * Constructs a ParquetBatchFilter.
+     *
+     * @param predicate the predicate to evaluate
+     * @param schema    the schema of the columns of the predicate, in the
+     *                  order of the values given to {@link #evaluate(Object[][], int)}
+     */
+    ParquetBatchFilter(FilterPredicate predicate, MessageType schema) {
+        this.predicate = predicate;
+        this.columnIndexes = new HashMap<>();
+        this.comparators = new Comparator<?>[schema.getColumns().size()];
+        for (int i = 0; i < comparators.length; i++) {
+            columnIndexes.put(ColumnPath.get(schema.getColumns().get(i).getPath()), i);
+            comparators[i] = schema.getColumns().get(i).getPrimitiveType().comparator();
+        }
+    }
+
+    /**
+     * Returns the paths of the columns of the predicate.
+     *
+     * @param predicate the predicate
+     * @return the paths of the columns the predicate reads
+     */
+    static Set<ColumnPath> getColumnPaths(FilterPredicate predicate) {
+        Set<ColumnPath> paths = new LinkedHashSet<>();
+        addColumnPaths(predicate, paths);
+        return paths;
+    }
+
+    /**
+     * Evaluates the predicate on a batch of rows.
+     *
+     * @param columns the values of the columns of the predicate, nulls for
+     *                null values
+     * @param size    the number of rows in the batch
+     * @return the selection vector, true for the rows that match
+     */
+    boolean[] evaluate(Object[][] columns, int size) {
+        this.columns = columns;
+        this.size = size;
+        try {
+            return predicate.accept(this);
+        } finally {
+            this.columns = null;
+        }
+    }
+
+    @Override
+    public <T extends Comparable<T>> boolean[] visit(Operators.Eq<T> eq) {
+        if (eq.getValue() == null) {
+            return isNull(eq.getColumn(), true);
+        }
+        return compare(eq, c -> c == 0, false);
+    }
+
+    @Override
+    public <T extends Comparable<T>> boolean[] visit(Operators.NotEq<T> notEq) {
+        if (notEq.getValue() == null) {
+            return isNull(notEq.getColumn(), false);
+        }
+        return compare(notEq, c -> c != 0, true);
+    }
+
+    @Override
+    public <T extends Comparable<T>> boolean[] visit(Operators.Lt<T> lt) {
+        return compare(lt, c -> c < 0, false);
+    }
+
+    @Override
+    public <T extends Comparable<T>> boolean[] visit(Operators.LtEq<T> ltEq) {
+        return compare(ltEq, c -> c <= 0, false);
+    }
+
+    @Override
+    public <T extends Comparable<T>> boolean[] visit(Operators.Gt<T> gt) {
+        return compare(gt, c -> c > 0, false);
+    }
+
+    @Override
+    public <T extends Comparable<T>> boolean[] visit(Operators.GtEq<T> gtEq) {
+        return compare(gtEq, c -> c >= 0, false);
+    }
+
+    @Override
+    public boolean[] visit(Operators.And and) {
+        boolean[] left = and.getLeft().accept(this);
+        boolean[] right = and.getRight().accept(this);
+        for (int row = 0; row < size; row++) {
+            left[row] = left[row] && right[row];
+        }
+        return left;
+    }
+
+    @Override
+    public boolean[] visit(Operators.Or or) {
+        boolean[] left = or.getLeft().accept(this);
+        boolean[] right = or.getRight().accept(this);
+        for (int row = 0; row < size; row++) {
+            left[row] = left[row] || right[row];
+        }
+        return left;
+    }
+
+    @Override
+    public boolean[] visit(Operators.Not not) {
+        boolean[] result = not.getPredicate().accept(this);
+        for (int row = 0; row < size; row++) {
+            result[row] = !result[row];
+        }
+        return result;
+    }
+
+    @Override
+    public <T extends Comparable<T>, U extends UserDefinedPredicate<T>> boolean[] visit(Operators.UserDefined<T, U> udp) {
+        return keep(udp.getColumn(), udp.getUserDefinedPredicate(), false);
+    }
+
+    @Override
+    public <T extends Comparable<T>, U extends UserDefinedPredicate<T>> boolean[] visit(Operators.LogicalNotUserDefined<T, U> udp) {
+        return keep(udp.getUserDefined().getColumn(), udp.getUserDefined().getUserDefinedPredicate(), true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Comparable<T>> boolean[] compare(Operators.ColumnFilterPredicate<T> predicate,
+                                                        IntPredicate comparison,
+                                                        boolean nullMatches) {
+        int column = getColumnIndex(predicate.getColumn());
+        Comparator<T> comparator = (Comparator<T>) comparators[column];
+        T value = predicate.getValue();
+        Object[] values = columns[column];
+        boolean[] result = new boolean[size];
+        for (int row = 0; row < size; row++) {
+            result[row] = values[row] == null
+                    ? nullMatches
+                    : comparison.test(comparator.compare((T) values[row], value));
+        }
+        return result;
+    }
+
+    private boolean[] isNull(Operators.Column<?> column, boolean isNull) {
+        Object[] values = columns[getColumnIndex(column)];
+        boolean[] result = new boolean[size];
+        for (int row = 0; row < size; row++) {
+            result[row] = (values[row] == null) == isNull;
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Comparable<T>> boolean[] keep(Operators.Column<T> column,
+                                                     UserDefinedPredicate<T> predicate,
+                                                     boolean inverted) {
+        Object[] values = columns[getColumnIndex(column)];
+        boolean[] result = new boolean[size];
+        for (int row = 0; row < size; row++) {
+            result[row] = predicate.keep((T) values[row]) != inverted;
+        }
+        return result;
+    }
+
+    private int getColumnIndex(Operators.Column<?> column) {
+        Integer index = columnIndexes.get(column.getColumnPath());
+        if (index == null) {
+            throw new IllegalArgumentException(String.format("Column %s is not in the schema of the filter",
+                    column.getColumnPath().toDotString()));
+        }
+        return index;
+    }
+
+    private static void addColumnPaths(FilterPredicate predicate, Set<ColumnPath> paths) {
+        if (predicate instanceof Operators.ColumnFilterPredicate) {
+            paths.add(((Operators.ColumnFilterPredicate<?>) predicate).getColumn().getColumnPath());
+        } else if (predicate instanceof Operators.UserDefined) {
+            paths.add(((Operators.UserDefined<?, ?>) predicate).getColumn().getColumnPath());
+        } else if (predicate instanceof Operators.LogicalNotUserDefined) {
+            paths.add(((Operators.LogicalNotUserDefined<?, ?>) predicate).getUserDefined().getColumn().getColumnPath());
+        } else if (predicate instanceof Operators.And) {
+            addColumnPaths(((Operators.And) predicate).getLeft(), paths);
+            addColumnPaths(((Operators.And) predicate).getRight(), paths);
+        } else if (predicate instanceof Operators.Or) {
+            addColumnPaths(((Operators.Or) predicate).getLeft(), paths);
+            addColumnPaths(((Operators.Or) predicate).getRight(), paths);
+        } else if (predicate instanceof Operators.Not) {
+            addColumnPaths(((Operators.Not) predicate).getPredicate(), paths);
+        } else {
+            throw new IllegalArgumentException("Unsupported predicate " + predicate);
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.hive.serde2.io.DateWritable;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.Dictionary;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.ColumnPath;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.greenplum.pxf.api.io.DataType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.parquet.schema.Type.Repetition.REPEATED;
+
+/**
+ * Reads a Parquet file into {@link ParquetColumnBatch}es, decoding the pages
+ * of each row group column by column with parquet's {@link ColumnReader}s
+ * instead of assembling a {@link org.apache.parquet.example.data.Group} for
+ * every record.
+ * <p>
+ * Only read schemas made of top-level, non-repeated primitive columns are
+ * supported, see {@link #isSupported(MessageType)}. Values of dictionary
+ * encoded binary columns are converted once per dictionary entry and shared
+ * by all the rows referencing the entry.
+ * <p>
+ * When a filter predicate is given, the row groups are read with the column
+ * indexes of the file, when it has them, so only the pages that may have
+ * rows matching the filter are read and decoded. The rows of these pages
+ * are then materialized late: the columns of the predicate are decoded
+ * first for a batch of rows and the predicate is evaluated on them with a
+ * {@link ParquetBatchFilter}. The other projected columns are decoded only
+ * for the rows that match, the values of the rows that do not match are
+ * skipped without being converted, and batches without any matching row are
+ * not returned.
+ */
+public class ParquetBatchReader implements Closeable {
+
+    private final ParquetFileReader fileReader;
+    private final MessageType readSchema;
+    // the read schema, followed by the columns of the predicate that are not projected
+    private final MessageType requestedSchema;
+    private final int batchSize;
+    private final String createdBy;
+    private final ColumnConverter[] converters;
+    private final DataType[] types;
+    private final GroupConverter recordConverter;
+    private final ColumnReader[] columnReaders;
+    private long rowsLeftInRowGroup;
+
+    private final ParquetBatchFilter batchFilter;
+    // index in the requested schema of each column of the predicate
+    private final int[] filterColumnIndexes;
+    // index in the read schema of each column that is not in the predicate
+    private final int[] dataColumnIndexes;
+
+    /**
+     * Constructs a ParquetBatchReader that reads all the rows of the row
+     * groups of the file reader.
+     *
+     * @param fileReader the reader for the file, with the row groups to read
+     * @param readSchema the projected schema, must be supported
+     * @param batchSize  the maximum number of rows in a batch
+     */
+    public ParquetBatchReader(ParquetFileReader fileReader, MessageType readSchema, int batchSize) {
+        this(fileReader, readSchema, batchSize, null);
+    }
+
+    /**
+     * Constructs a ParquetBatchReader that only returns the rows matching
+     * the predicate. The file reader should be opened with the record filter
+     * of the predicate, so that the row groups and the pages without
+     * matching rows are dropped before they are read.
+     *
+     * @param fileReader the reader for the file, with the row groups to read
+     * @param readSchema the projected schema, must be supported
+     * @param batchSize  the maximum number of rows in a batch
+     * @param predicate  the predicate the rows must match, or null to read all the rows
+     */
+    public ParquetBatchReader(ParquetFileReader fileReader, MessageType readSchema, int batchSize,
+                              FilterPredicate predicate) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException(String.format("Invalid batch size %d", batchSize));
+        }
+        this.fileReader = fileReader;
+        this.readSchema = readSchema;
+        this.batchSize = batchSize;
+        this.createdBy = fileReader.getFooter().getFileMetaData().getCreatedBy();
+
+        int columnCount = readSchema.getFieldCount();
+        this.converters = new ColumnConverter[columnCount];
+        this.types = new DataType[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            converters[i] = new ColumnConverter(readSchema.getType(i));
+            types[i] = converters[i].dataType;
+        }
+
+        if (predicate == null) {
+            this.requestedSchema = readSchema;
+            this.batchFilter = null;
+            this.filterColumnIndexes = null;
+            this.dataColumnIndexes = null;
+        } else {
+            MessageType filterSchema = getPredicateSchema(predicate, fileReader.getFooter().getFileMetaData().getSchema());
+            if (filterSchema == null || !isSupported(filterSchema)) {
+                throw new IllegalArgumentException(String.format("Unsupported filter predicate %s", predicate));
+            }
+            this.batchFilter = new ParquetBatchFilter(predicate, filterSchema);
+
+            List<Type> requestedFields = new ArrayList<>(readSchema.getFields());
+            for (Type field : filterSchema.getFields()) {
+                if (!readSchema.containsField(field.getName())) {
+                    requestedFields.add(field);
+                }
+            }
+            this.requestedSchema = new MessageType(readSchema.getName(), requestedFields);
+
+            this.filterColumnIndexes = new int[filterSchema.getFieldCount()];
+            for (int i = 0; i < filterColumnIndexes.length; i++) {
+                filterColumnIndexes[i] = requestedSchema.getFieldIndex(filterSchema.getFieldName(i));
+            }
+            List<Integer> dataIndexes = new ArrayList<>();
+            for (int i = 0; i < columnCount; i++) {
+                if (!filterSchema.containsField(readSchema.getFieldName(i))) {
+                    dataIndexes.add(i);
+                }
+            }
+            this.dataColumnIndexes = dataIndexes.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // the raw values of the columns of the predicate that are not
+        // projected are read with the getters of the column readers, their
+        // converters are never called
+        PrimitiveConverter[] recordConverters = new PrimitiveConverter[requestedSchema.getFieldCount()];
+        for (int i = 0; i < recordConverters.length; i++) {
+            recordConverters[i] = i < columnCount ? converters[i] : new PrimitiveConverter() {
+            };
+        }
+        this.recordConverter = new GroupConverter() {
+            @Override
+            public Converter getConverter(int fieldIndex) {
+                return recordConverters[fieldIndex];
+            }
+
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void end() {
+            }
+        };
+        this.columnReaders = new ColumnReader[recordConverters.length];
+        fileReader.setRequestedSchema(requestedSchema);
+    }
+
+    /**
+     * @param readSchema the projected schema
+     * @return true if the schema only has top-level, non-repeated primitive
+     * columns and can be read in batches
+     */
+    public static boolean isSupported(MessageType readSchema) {
+        return readSchema.getFields().stream()
+                .allMatch(t -> t.isPrimitive() && t.getRepetition() != REPEATED);
+    }
+
+    /**
+     * @param predicate  the filter predicate
+     * @param fileSchema the schema of the file
+     * @return true if the predicate only reads top-level, non-repeated
+     * primitive columns of the file and can be evaluated on batches
+     */
+    public static boolean isSupported(FilterPredicate predicate, MessageType fileSchema) {
+        MessageType predicateSchema = getPredicateSchema(predicate, fileSchema);
+        return predicateSchema != null && isSupported(predicateSchema);
+    }
+
+    /**
+     * Reads the next batch of rows. A batch never spans row groups.
+     *
+     * @return the next batch, or null when there are no more rows
+     * @throws IOException when reading the file fails
+     */
+    public ParquetColumnBatch readNextBatch() throws IOException {
+        if (batchFilter != null) {
+            return readNextFilteredBatch();
+        }
+        while (rowsLeftInRowGroup == 0) {
+            if (!nextRowGroup()) {
+                return null;
+            }
+        }
+
+        int size = (int) Math.min(batchSize, rowsLeftInRowGroup);
+        Object[][] columns = new Object[converters.length][];
+        for (int i = 0; i < converters.length; i++) {
+            columns[i] = readColumn(columnReaders[i], converters[i], size, null, size);
+        }
+        rowsLeftInRowGroup -= size;
+        return new ParquetColumnBatch(types, columns, size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileReader.close();
+    }
+
+    /*
+     * Reads the columns of the predicate for the next batches of rows until
+     * a batch has rows matching the predicate, then reads the other columns
+     * for the matching rows only.
+     */
+    private ParquetColumnBatch readNextFilteredBatch() throws IOException {
+        while (true) {
+            while (rowsLeftInRowGroup == 0) {
+                if (!nextRowGroup()) {
+                    return null;
+                }
+            }
+
+            int size = (int) Math.min(batchSize, rowsLeftInRowGroup);
+            rowsLeftInRowGroup -= size;
+
+            Object[][] filterValues = new Object[filterColumnIndexes.length][];
+            for (int i = 0; i < filterColumnIndexes.length; i++) {
+                filterValues[i] = readRawColumn(columnReaders[filterColumnIndexes[i]], size);
+            }
+            boolean[] selection = batchFilter.evaluate(filterValues, size);
+            int selected = 0;
+            for (boolean isSelected : selection) {
+                if (isSelected) {
+                    selected++;
+                }
+            }
+            if (selected == 0) {
+                for (int index : dataColumnIndexes) {
+                    skipRows(columnReaders[index], size);
+                }
+                continue;
+            }
+
+            Object[][] columns = new Object[converters.length][];
+            for (int i = 0; i < filterColumnIndexes.length; i++) {
+                int index = filterColumnIndexes[i];
+                if (index < converters.length) {
+                    columns[index] = convertSelected(converters[index], filterValues[i], selection, selected);
+                }
+            }
+            for (int index : dataColumnIndexes) {
+                columns[index] = readColumn(columnReaders[index], converters[index], size, selection, selected);
+            }
+            return new ParquetColumnBatch(types, columns, selected);
+        }
+    }
+
+    private boolean nextRowGroup() throws IOException {
+        // with a filter, only the rows of the pages that may match it are read
+        PageReadStore pages = batchFilter != null
+                ? fileReader.readNextFilteredRowGroup()
+                : fileReader.readNextRowGroup();
+        if (pages == null) {
+            return false;
+        }
+        ColumnReadStoreImpl columnReadStore = new ColumnReadStoreImpl(pages, recordConverter, requestedSchema, createdBy);
+        for (int i = 0; i < columnReaders.length; i++) {
+            columnReaders[i] = columnReadStore.getColumnReader(requestedSchema.getColumns().get(i));
+        }
+        rowsLeftInRowGroup = pages.getRowCount();
+        return true;
+    }
+
+    /*
+     * Returns the schema of the columns of the predicate in the order of the
+     * file, or null when the predicate reads a column that is not a
+     * top-level column of the file.
+     */
+    private static MessageType getPredicateSchema(FilterPredicate predicate, MessageType fileSchema) {
+        Set<ColumnPath> paths = ParquetBatchFilter.getColumnPaths(predicate);
+        List<Type> fields = new ArrayList<>(paths.size());
+        for (Type field : fileSchema.getFields()) {
+            if (paths.contains(ColumnPath.get(field.getName()))) {
+                fields.add(field);
+            }
+        }
+        return fields.size() == paths.size() ? new MessageType(fileSchema.getName(), fields) : null;
+    }
+
+    /*
+     * Decodes the next values of the column into a new array, values that
+     * are not defined at the maximum definition level are nulls. When a
+     * selection is given, only the values of the selected rows are decoded
+     * and the others are skipped.
+     */
+    private static Object[] readColumn(ColumnReader columnReader, ColumnConverter converter, int size,
+                                       boolean[] selection, int selected) {
+        Object[] values = new Object[selected];
+        int maxDefinitionLevel = columnReader.getDescriptor().getMaxDefinitionLevel();
+        converter.values = values;
+        converter.row = 0;
+        for (int row = 0; row < size; row++) {
+            boolean isDefined = columnReader.getCurrentDefinitionLevel() == maxDefinitionLevel;
+            if (selection == null || selection[row]) {
+                if (isDefined) {
+                    columnReader.writeCurrentValueToConverter();
+                }
+                converter.row++;
+            } else if (isDefined) {
+                columnReader.skip();
+            }
+            columnReader.consume();
+        }
+        converter.values = null;
+        return values;
+    }
+
+    /*
+     * Reads the next values of the column as returned by the column reader,
+     * without converting them.
+     */
+    private static Object[] readRawColumn(ColumnReader columnReader, int size) {
+        Object[] values = new Object[size];
+        int maxDefinitionLevel = columnReader.getDescriptor().getMaxDefinitionLevel();
+        PrimitiveType.PrimitiveTypeName typeName = columnReader.getDescriptor().getPrimitiveType().getPrimitiveTypeName();
+        for (int row = 0; row < size; row++) {
+            if (columnReader.getCurrentDefinitionLevel() == maxDefinitionLevel) {
+                switch (typeName) {
+                    case BOOLEAN:
+                        values[row] = columnReader.getBoolean();
+                        break;
+                    case INT32:
+                        values[row] = columnReader.getInteger();
+                        break;
+                    case INT64:
+                        values[row] = columnReader.getLong();
+                        break;
+                    case FLOAT:
+                        values[row] = columnReader.getFloat();
+                        break;
+                    case DOUBLE:
+                        values[row] = columnReader.getDouble();
+                        break;
+                    default:
+                        values[row] = columnReader.getBinary();
+                }
+            }
+            columnReader.consume();
+        }
+        return values;
+    }
+
+    /*
+     * Converts the raw values of the selected rows.
+     */
+    private static Object[] convertSelected(ColumnConverter converter, Object[] rawValues,
+                                            boolean[] selection, int selected) {
+        Object[] values = new Object[selected];
+        converter.values = values;
+        converter.row = 0;
+        for (int row = 0; row < rawValues.length; row++) {
+            if (selection[row]) {
+                if (rawValues[row] != null) {
+                    converter.addRawValue(rawValues[row]);
+                }
+                converter.row++;
+            }
+        }
+        converter.values = null;
+        return values;
+    }
+
+    /*
+     * Skips the next rows of the column.
+     */
+    private static void skipRows(ColumnReader columnReader, long rows) {
+        int maxDefinitionLevel = columnReader.getDescriptor().getMaxDefinitionLevel();
+        for (long row = 0; row < rows; row++) {
+            if (columnReader.getCurrentDefinitionLevel() == maxDefinitionLevel) {
+                columnReader.skip();
+            }
+            columnReader.consume();
+        }
+    }
+
+    /**
+     * Converts the values of a column into their PXF representation, using
+     * the same mapping as {@link ParquetTypeConverter}.
+     */
+    private static class ColumnConverter extends PrimitiveConverter {
+
+        private final Type type;
+        private final PrimitiveType.PrimitiveTypeName typeName;
+        private final DataType dataType;
+        private Object[] values;
+        private int row;
+        private Dictionary dictionary;
+        private Object[] dictionaryValues;
+
+        ColumnConverter(Type type) {
+            this.type = type;
+            this.typeName = type.asPrimitiveType().getPrimitiveTypeName();
+            this.dataType = ParquetTypeConverter.from(type.asPrimitiveType()).getDataType(type);
+        }
+
+        @Override
+        public boolean hasDictionarySupport() {
+            return typeName == PrimitiveType.PrimitiveTypeName.BINARY ||
+                    typeName == PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY ||
+                    typeName == PrimitiveType.PrimitiveTypeName.INT96;
+        }
+
+        @Override
+        public void setDictionary(Dictionary dictionary) {
+            this.dictionary = dictionary;
+            this.dictionaryValues = new Object[dictionary.getMaxId() + 1];
+        }
+
+        @Override
+        public void addValueFromDictionary(int dictionaryId) {
+            // byte arrays are mutable and cannot be shared between rows
+            if (dataType == DataType.BYTEA) {
+                values[row] = dictionary.decodeToBinary(dictionaryId).getBytes();
+                return;
+            }
+            Object value = dictionaryValues[dictionaryId];
+            if (value == null) {
+                value = convertBinary(dictionary.decodeToBinary(dictionaryId));
+                dictionaryValues[dictionaryId] = value;
+            }
+            values[row] = value;
+        }
+
+        /*
+         * Converts a value as returned by the getters of the column readers.
+         */
+        void addRawValue(Object value) {
+            switch (typeName) {
+                case BOOLEAN:
+                    addBoolean((Boolean) value);
+                    break;
+                case INT32:
+                    addInt((Integer) value);
+                    break;
+                case INT64:
+                    addLong((Long) value);
+                    break;
+                case FLOAT:
+                    addFloat((Float) value);
+                    break;
+                case DOUBLE:
+                    addDouble((Double) value);
+                    break;
+                default:
+                    addBinary((Binary) value);
+            }
+        }
+
+        @Override
+        public void addBinary(Binary value) {
+            values[row] = convertBinary(value);
+        }
+
+        @Override
+        public void addBoolean(boolean value) {
+            values[row] = value;
+        }
+
+        @Override
+        public void addDouble(double value) {
+            values[row] = value;
+        }
+
+        @Override
+        public void addFloat(float value) {
+            values[row] = value;
+        }
+
+        @Override
+        public void addInt(int value) {
+            if (dataType == DataType.DATE) {
+                values[row] = new DateWritable(value).get(true);
+            } else if (dataType == DataType.NUMERIC) {
+                values[row] = toBigDecimal(value);
+            } else if (dataType == DataType.SMALLINT) {
+                values[row] = (short) value;
+            } else {
+                values[row] = value;
+            }
+        }
+
+        @Override
+        public void addLong(long value) {
+            if (dataType == DataType.NUMERIC) {
+                values[row] = toBigDecimal(value);
+            } else {
+                values[row] = value;
+            }
+        }
+
+        private Object convertBinary(Binary value) {
+            switch (typeName) {
+                case INT96:
+                    return ParquetTypeConverter.bytesToTimestamp(value.getBytes());
+                case FIXED_LEN_BYTE_ARRAY:
+                    int scale = ParquetTypeConverter.getDecimalScale(type);
+                    return new BigDecimal(new BigInteger(value.getBytes()), scale);
+                default:
+                    return dataType == DataType.BYTEA ? value.getBytes() : value.toStringUsingUTF8();
+            }
+        }
+
+        private BigDecimal toBigDecimal(long value) {
+            int scale = ParquetTypeConverter.getDecimalScale(type);
+            return new BigDecimal(BigInteger.valueOf(value), scale);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.io.DataType;
+
+/**
+ * A batch of rows read from a Parquet file, stored column by column. Each
+ * column holds the values of the projected columns of the read schema, in
+ * read schema order, already converted to their PXF representation. Null
+ * values are stored as null.
+ */
+public class ParquetColumnBatch {
+
+    private final DataType[] types;
+    private final Object[][] columns;
+    private final int size;
+
+    ParquetColumnBatch(DataType[] types, Object[][] columns, int size) {
+        this.types = types;
+        this.columns = columns;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of rows in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of columns in the batch
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @param column the index of the column in the read schema
+     * @return the PXF data type of the column values
+     */
+    public DataType getDataType(int column) {
+        return types[column];
+    }
+
+    /**
+     * @param column the index of the column in the read schema
+     * @param row    the index of the row in the batch
+     * @return the value of the column for the row, or null
+     */
+    public Object getValue(int column, int row) {
+        return columns[column][row];
+    }
+}
@@ -0,0 +1,366 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.SeekableInputStream;
+import org.greenplum.pxf.api.model.ConfigurationFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the footers of Parquet files, so that the fragmenter, the schema
+ * lookup of the accessor and the record reader of every query read the
+ * footer of a file from the file system only once.
+ * <p>
+ * The cache keeps the raw bytes at the end of the file, the serialized
+ * footer followed by its length and the magic number, and serves them to
+ * parquet through the {@link InputFile} returned by
+ * {@link #getInputFile(Configuration, FileStatus)}; parquet still parses the
+ * footer with the metadata filter of each reader. Entries are keyed by the
+ * server, the user, the path, the length and the modification time of the
+ * file, so a rewritten file is never served a stale footer. The memory used
+ * by the cache is bounded by the size of the cached footers.
+ */
+public class ParquetFooterCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParquetFooterCache.class);
+
+    public static final String FOOTER_CACHE_ENABLED_PROPERTY = "pxf.fs.parquet.footer-cache.enabled";
+
+    static final long MAX_CACHED_BYTES = 256L * 1024 * 1024;
+    static final long MAX_ENTRY_IDLE_HOURS = 1;
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final int FOOTER_LENGTH_SIZE = 4;
+    // read enough bytes to get most footers in a single request
+    private static final int TAIL_READ_SIZE = 64 * 1024;
+
+    /**
+     * Singleton instance of the ParquetFooterCache
+     */
+    private static final ParquetFooterCache instance = new ParquetFooterCache(MAX_CACHED_BYTES);
+
+    private final Cache<String, byte[]> cache;
+
+    ParquetFooterCache(long maxCachedBytes) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxCachedBytes)
+                .weigher((Weigher<String, byte[]>) (key, tail) -> tail.length)
+                .expireAfterAccess(MAX_ENTRY_IDLE_HOURS, TimeUnit.HOURS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return a singleton instance of the footer cache.
+     */
+    public static ParquetFooterCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the file to give to parquet's readers. The footer of the file
+     * is read from the cache, or read from the file system and cached when
+     * it is not cached yet. The rest of the file is read from the file
+     * system on demand.
+     *
+     * @param configuration the configuration for the server
+     * @param file          the status of the file
+     * @return the input file for parquet's readers
+     * @throws IOException when the footer cannot be read
+     */
+    public InputFile getInputFile(Configuration configuration, FileStatus file) throws IOException {
+        InputFile inputFile = HadoopInputFile.fromStatus(file, configuration);
+        if (!configuration.getBoolean(FOOTER_CACHE_ENABLED_PROPERTY, true)) {
+            return inputFile;
+        }
+
+        String key = String.format("%s:%s:%s:%d:%d",
+                configuration.get(ConfigurationFactory.PXF_CONFIG_SERVER_DIRECTORY_PROPERTY),
+                configuration.get(ConfigurationFactory.PXF_SESSION_USER_PROPERTY),
+                file.getPath(), file.getLen(), file.getModificationTime());
+        byte[] tail;
+        try {
+            tail = cache.get(key, () -> readTail(inputFile, file));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(String.format("Unable to read the footer of %s", file.getPath()), cause);
+        }
+        return new CachedTailInputFile(inputFile, file.getLen(), tail);
+    }
+
+    /**
+     * Removes all the cached footers.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    long size() {
+        return cache.size();
+    }
+
+    CacheStats stats() {
+        return cache.stats();
+    }
+
+    /*
+     * Reads the footer of the file, its length and the magic number at the
+     * end of the file.
+     */
+    private static byte[] readTail(InputFile inputFile, FileStatus file) throws IOException {
+        long fileLength = file.getLen();
+        int minTailLength = FOOTER_LENGTH_SIZE + MAGIC.length;
+        if (fileLength < MAGIC.length + minTailLength) {
+            throw new IOException(String.format("%s is not a Parquet file (too small length: %d)",
+                    file.getPath(), fileLength));
+        }
+
+        try (SeekableInputStream stream = inputFile.newStream()) {
+            byte[] bytes = new byte[(int) Math.min(fileLength, TAIL_READ_SIZE)];
+            stream.seek(fileLength - bytes.length);
+            stream.readFully(bytes);
+
+            byte[] magic = Arrays.copyOfRange(bytes, bytes.length - MAGIC.length, bytes.length);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new IOException(String.format("%s is not a Parquet file. expected magic number at tail %s but found %s",
+                        file.getPath(), Arrays.toString(MAGIC), Arrays.toString(magic)));
+            }
+            int footerLength = ByteBuffer.wrap(bytes, bytes.length - minTailLength, FOOTER_LENGTH_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .getInt();
+            long tailLength = (long) footerLength + minTailLength;
+            if (footerLength < 0 || tailLength > fileLength - MAGIC.length) {
+                throw new IOException(String.format("corrupted file %s: the footer length %d is invalid",
+                        file.getPath(), footerLength));
+            }
+
+            if (tailLength <= bytes.length) {
+                return Arrays.copyOfRange(bytes, (int) (bytes.length - tailLength), bytes.length);
+            }
+            // the footer is larger than the bytes read, read the rest of it
+            byte[] tail = new byte[(int) tailLength];
+            int remaining = tail.length - bytes.length;
+            stream.seek(fileLength - tailLength);
+            stream.readFully(tail, 0, remaining);
+            System.arraycopy(bytes, 0, tail, remaining, bytes.length);
+            LOG.debug("Read footer of {} bytes for {}", footerLength, file.getPath());
+            return tail;
+        }
+    }
+
+    /**
+     * A Parquet file whose last bytes are served from memory.
+     */
+    private static class CachedTailInputFile implements InputFile {
+
+        private final InputFile file;
+        private final long length;
+        private final byte[] tail;
+
+        CachedTailInputFile(InputFile file, long length, byte[] tail) {
+            this.file = file;
+            this.length = length;
+            this.tail = tail;
+        }
+
+        @Override
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public SeekableInputStream newStream() {
+            return new CachedTailInputStream(file, length - tail.length, tail);
+        }
+
+        @Override
+        public String toString() {
+            return file.toString();
+        }
+    }
+
+    /**
+     * A stream that reads the last bytes of the file from memory and opens
+     * a stream on the file only to read the bytes before them.
+     */
+    private static class CachedTailInputStream extends SeekableInputStream {
+
+        private final InputFile file;
+        private final long tailStart;
+        private final byte[] tail;
+        private SeekableInputStream stream;
+        private long pos;
+
+        CachedTailInputStream(InputFile file, long tailStart, byte[] tail) {
+            this.file = file;
+            this.tailStart = tailStart;
+            this.tail = tail;
+        }
+
+        @Override
+        public long getPos() {
+            return pos;
+        }
+
+        @Override
+        public void seek(long newPos) {
+            pos = newPos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= tailStart) {
+                if (pos - tailStart >= tail.length) {
+                    return -1;
+                }
+                return tail[(int) (pos++ - tailStart)] & 0xff;
+            }
+            int b = positionedStream().read();
+            if (b >= 0) {
+                pos++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= tailStart) {
+                long index = pos - tailStart;
+                if (index >= tail.length) {
+                    return -1;
+                }
+                int n = (int) Math.min(len, tail.length - index);
+                System.arraycopy(tail, (int) index, bytes, off, n);
+                pos += n;
+                return n;
+            }
+            // do not read past the start of the tail
+            int n = positionedStream().read(bytes, off, (int) Math.min(len, tailStart - pos));
+            if (n > 0) {
+                pos += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void readFully(byte[] bytes) throws IOException {
+            readFully(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void readFully(byte[] bytes, int start, int len) throws IOException {
+            while (len > 0) {
+                int n = read(bytes, start, len);
+                if (n < 0) {
+                    throw new EOFException("Reached the end of stream with " + len + " bytes left to read");
+                }
+                start += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer buf) throws IOException {
+            if (!buf.hasRemaining()) {
+                return 0;
+            }
+            if (pos + buf.remaining() <= tailStart) {
+                int n = positionedStream().read(buf);
+                if (n > 0) {
+                    pos += n;
+                }
+                return n;
+            }
+            int n;
+            if (buf.hasArray()) {
+                n = read(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+                if (n > 0) {
+                    buf.position(buf.position() + n);
+                }
+            } else {
+                byte[] bytes = new byte[buf.remaining()];
+                n = read(bytes, 0, bytes.length);
+                if (n > 0) {
+                    buf.put(bytes, 0, n);
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public void readFully(ByteBuffer buf) throws IOException {
+            if (pos + buf.remaining() <= tailStart) {
+                int n = buf.remaining();
+                positionedStream().readFully(buf);
+                pos += n;
+                return;
+            }
+            while (buf.hasRemaining()) {
+                if (read(buf) < 0) {
+                    throw new EOFException("Reached the end of stream with " + buf.remaining() + " bytes left to read");
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (stream != null) {
+                stream.close();
+            }
+        }
+
+        /*
+         * Returns the stream on the file, positioned at the current position.
+         */
+        private SeekableInputStream positionedStream() throws IOException {
+            if (stream == null) {
+                stream = file.newStream();
+            }
+            if (stream.getPos() != pos) {
+                stream.seek(pos);
+            }
+            return stream;
+        }
+    }
+}
@@ -2,8 +2,10 @@ package org.greenplum.pxf.plugins.hdfs.parquet;
 
 import org.apache.parquet.schema.PrimitiveType;
 import org.apache.parquet.schema.Type;
+import org.greenplum.pxf.api.filter.CollectionOperandNode;
 import org.greenplum.pxf.api.filter.ColumnIndexOperandNode;
 import org.greenplum.pxf.api.filter.Node;
+import org.greenplum.pxf.api.filter.OperandNode;
 import org.greenplum.pxf.api.filter.Operator;
 import org.greenplum.pxf.api.filter.OperatorNode;
 import org.greenplum.pxf.api.filter.ScalarOperandNode;
@@ -12,6 +14,8 @@ import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.api.utilities.Utilities;
 
+import java.math.BigInteger;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
@@ -21,18 +25,21 @@ import java.util.Map;
  * from an expression tree. And transforms non-logical operator nodes that have
  * scalar operand nodes as its children of BPCHAR type and which values have
  * whitespace at the end of the string.
+ * <p>
+ * FIXED_LEN_BYTE_ARRAY columns are only supported for decimals. Decimals
+ * stored as INT32 or INT64 are compared by their unscaled value, so
+ * operators with values that have more fractional digits than the scale of
+ * the column, or that overflow the column, are pruned.
  */
 public class ParquetOperatorPrunerAndTransformer extends SupportedOperatorPruner {
-    // INT96 and FIXED_LEN_BYTE_ARRAY cannot be pushed down
-    // for more details look at
-    // org.apache.parquet.filter2.dictionarylevel.DictionaryFilter#expandDictionary
-    // where INT96 and FIXED_LEN_BYTE_ARRAY are not dictionary values
     private static final EnumSet<PrimitiveType.PrimitiveTypeName> SUPPORTED_PRIMITIVE_TYPES =
             EnumSet.of(
                     PrimitiveType.PrimitiveTypeName.INT32,
                     PrimitiveType.PrimitiveTypeName.INT64,
+                    PrimitiveType.PrimitiveTypeName.INT96,
                     PrimitiveType.PrimitiveTypeName.BOOLEAN,
                     PrimitiveType.PrimitiveTypeName.BINARY,
+                    PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY,
                     PrimitiveType.PrimitiveTypeName.FLOAT,
                     PrimitiveType.PrimitiveTypeName.DOUBLE);
 
@@ -66,7 +73,7 @@ public class ParquetOperatorPrunerAndTransformer extends SupportedOperatorPruner
             Operator operator = operatorNode.getOperator();
 
             if (!operator.isLogical()) {
-                if (!SUPPORTED_PRIMITIVE_TYPES.contains(getPrimitiveType(operatorNode))) {
+                if (!isSupportedType(operatorNode)) {
                     return null;
                 }
 
@@ -123,16 +130,66 @@ public class ParquetOperatorPrunerAndTransformer extends SupportedOperatorPruner
     }
 
     /**
-     * Returns the parquet primitive type for the given column index
+     * Returns whether the operator can be pushed down for the type of its
+     * column
      *
      * @param operatorNode the operator node
-     * @return the parquet primitive type for the given column index
+     * @return true if the operator can be pushed down, false otherwise
      */
-    private PrimitiveType.PrimitiveTypeName getPrimitiveType(OperatorNode operatorNode) {
+    private boolean isSupportedType(OperatorNode operatorNode) {
+        Type type = getType(operatorNode);
+        PrimitiveType.PrimitiveTypeName typeName = type.asPrimitiveType().getPrimitiveTypeName();
+        if (!SUPPORTED_PRIMITIVE_TYPES.contains(typeName)) {
+            return false;
+        }
+        if (!ParquetTypeConverter.isDecimal(type)) {
+            return typeName != PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY;
+        }
+        if (typeName != PrimitiveType.PrimitiveTypeName.INT32 && typeName != PrimitiveType.PrimitiveTypeName.INT64) {
+            return true;
+        }
+        for (String value : getValues(operatorNode)) {
+            try {
+                BigInteger unscaled = ParquetRecordFilterBuilder.getUnscaledDecimal(type, value);
+                if (typeName == PrimitiveType.PrimitiveTypeName.INT32) {
+                    unscaled.intValueExact();
+                } else {
+                    unscaled.longValueExact();
+                }
+            } catch (ArithmeticException | NumberFormatException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the values the column is compared with
+     *
+     * @param operatorNode the operator node
+     * @return the values of the operand of the operator
+     */
+    private List<String> getValues(OperatorNode operatorNode) {
+        OperandNode valueOperand = operatorNode.getValueOperand();
+        if (valueOperand instanceof CollectionOperandNode) {
+            return ((CollectionOperandNode) valueOperand).getData();
+        }
+        if (valueOperand instanceof ScalarOperandNode) {
+            return Collections.singletonList(((ScalarOperandNode) valueOperand).getValue());
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the parquet type for the given column index
+     *
+     * @param operatorNode the operator node
+     * @return the parquet type for the given column index
+     */
+    private Type getType(OperatorNode operatorNode) {
         ColumnIndexOperandNode columnIndexOperand = operatorNode.getColumnIndexOperand();
         ColumnDescriptor columnDescriptor = columnDescriptors.get(columnIndexOperand.index());
         String filterColumnName = columnDescriptor.columnName();
-        Type type = fields.get(filterColumnName);
-        return type.asPrimitiveType().getPrimitiveTypeName();
+        return fields.get(filterColumnName);
     }
 }
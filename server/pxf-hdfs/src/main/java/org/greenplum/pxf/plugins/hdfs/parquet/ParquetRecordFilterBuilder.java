@@ -4,9 +4,12 @@ import org.apache.parquet.filter2.compat.FilterCompat;
 import org.apache.parquet.filter2.predicate.FilterApi;
 import org.apache.parquet.filter2.predicate.FilterPredicate;
 import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.filter2.predicate.Statistics;
+import org.apache.parquet.filter2.predicate.UserDefinedPredicate;
 import org.apache.parquet.io.api.Binary;
-import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveComparator;
 import org.apache.parquet.schema.Type;
+import org.greenplum.pxf.api.filter.CollectionOperandNode;
 import org.greenplum.pxf.api.filter.ColumnIndexOperandNode;
 import org.greenplum.pxf.api.filter.Node;
 import org.greenplum.pxf.api.filter.OperandNode;
@@ -14,9 +17,13 @@ import org.greenplum.pxf.api.filter.Operator;
 import org.greenplum.pxf.api.filter.OperatorNode;
 import org.greenplum.pxf.api.filter.TreeVisitor;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.ParquetResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.Deque;
@@ -34,6 +41,7 @@ import static org.apache.parquet.filter2.predicate.FilterApi.intColumn;
 import static org.apache.parquet.filter2.predicate.FilterApi.longColumn;
 import static org.apache.parquet.filter2.predicate.FilterApi.not;
 import static org.apache.parquet.filter2.predicate.FilterApi.or;
+import static org.apache.parquet.filter2.predicate.FilterApi.userDefined;
 
 /**
  * This is the implementation of {@link TreeVisitor} for Parquet.
@@ -42,6 +50,12 @@ import static org.apache.parquet.filter2.predicate.FilterApi.or;
  * and builds a simple (single {@link FilterCompat.Filter} class) for
  * {@link org.greenplum.pxf.plugins.hdfs.ParquetFileAccessor} to use for its
  * scan.
+ * <p>
+ * INT96 timestamps and FIXED_LEN_BYTE_ARRAY decimals are compared by their
+ * value with {@link UserDefinedPredicate}s, as the byte order of their binary
+ * representation is not the order of their values. The predicates decode
+ * the values they are given, so parquet's dictionary filter can evaluate
+ * them on the entries of the dictionaries as well as on the records.
  */
 public class ParquetRecordFilterBuilder implements TreeVisitor {
 
@@ -136,7 +150,8 @@ public class ParquetRecordFilterBuilder implements TreeVisitor {
     }
 
     /**
-     * Handles simple column-operator-constant expressions.
+     * Handles simple column-operator-constant expressions. The IN operator
+     * is handled as an OR of equalities, one per value of the list.
      *
      * @param operatorNode the operator node
      */
@@ -158,48 +173,96 @@ public class ParquetRecordFilterBuilder implements TreeVisitor {
         String filterColumnName = columnDescriptor.columnName();
         Type type = fields.get(filterColumnName);
 
-        // INT96 and FIXED_LEN_BYTE_ARRAY cannot be pushed down
-        // for more details look at org.apache.parquet.filter2.dictionarylevel.DictionaryFilter#expandDictionary
-        // where INT96 and FIXED_LEN_BYTE_ARRAY are not dictionary values
         FilterPredicate simpleFilter;
+        if (operator == Operator.IN) {
+            if (!(valueOperand instanceof CollectionOperandNode) ||
+                    ((CollectionOperandNode) valueOperand).getData().isEmpty()) {
+                throw new IllegalArgumentException(
+                        String.format("Operator %s requires a non-empty list of values", operator));
+            }
+            simpleFilter = null;
+            for (String value : ((CollectionOperandNode) valueOperand).getData()) {
+                FilterPredicate equals = getFilterPredicate(Operator.EQUALS, type, value);
+                simpleFilter = simpleFilter == null ? equals : or(simpleFilter, equals);
+            }
+        } else {
+            simpleFilter = getFilterPredicate(operator, type, valueOperand == null ? null : valueOperand.toString());
+        }
+
+        filterQueue.push(simpleFilter);
+    }
+
+    /**
+     * Returns the predicate comparing the column with the value.
+     *
+     * @param operator the operator
+     * @param type     the type of the column
+     * @param value    the value, null for IS_NULL and IS_NOT_NULL
+     * @return the predicate
+     */
+    private FilterPredicate getFilterPredicate(Operator operator, Type type, String value) {
         switch (type.asPrimitiveType().getPrimitiveTypeName()) {
             case INT32:
-                simpleFilter = ParquetRecordFilterBuilder.<Integer, Operators.IntColumn>getOperatorWithLtGtSupport(operator)
-                        .apply(intColumn(type.getName()), getIntegerForINT32(type.getOriginalType(), valueOperand));
-                break;
+                return ParquetRecordFilterBuilder.<Integer, Operators.IntColumn>getOperatorWithLtGtSupport(operator)
+                        .apply(intColumn(type.getName()), getIntegerForINT32(type, value));
 
             case INT64:
-                simpleFilter = ParquetRecordFilterBuilder.<Long, Operators.LongColumn>getOperatorWithLtGtSupport(operator)
-                        .apply(longColumn(type.getName()), valueOperand == null ? null : Long.parseLong(valueOperand.toString()));
-                break;
+                return ParquetRecordFilterBuilder.<Long, Operators.LongColumn>getOperatorWithLtGtSupport(operator)
+                        .apply(longColumn(type.getName()), getLongForINT64(type, value));
 
             case BINARY:
-                simpleFilter = ParquetRecordFilterBuilder.<Binary, Operators.BinaryColumn>getOperatorWithLtGtSupport(operator)
-                        .apply(binaryColumn(type.getName()), valueOperand == null ? null : Binary.fromString(valueOperand.toString()));
-                break;
+                if (ParquetTypeConverter.isDecimal(type)) {
+                    // the unscaled value in two's-complement, as for FIXED_LEN_BYTE_ARRAY
+                    return getDecimalFilterPredicate(operator, type, value);
+                }
+                return ParquetRecordFilterBuilder.<Binary, Operators.BinaryColumn>getOperatorWithLtGtSupport(operator)
+                        .apply(binaryColumn(type.getName()), value == null ? null : Binary.fromString(value));
+
+            case INT96:
+                if (value == null) {
+                    return ParquetRecordFilterBuilder.<Binary, Operators.BinaryColumn>getOperatorWithEqNotEqSupport(operator)
+                            .apply(binaryColumn(type.getName()), null);
+                }
+                return userDefined(binaryColumn(type.getName()), new TimestampPredicate(operator, value));
+
+            case FIXED_LEN_BYTE_ARRAY:
+                return getDecimalFilterPredicate(operator, type, value);
 
             case BOOLEAN:
                 // Boolean does not SupportsLtGt
-                simpleFilter = ParquetRecordFilterBuilder.<Boolean, Operators.BooleanColumn>getOperatorWithEqNotEqSupport(operator)
-                        .apply(booleanColumn(type.getName()), valueOperand == null ? null : Boolean.parseBoolean(valueOperand.toString()));
-                break;
+                return ParquetRecordFilterBuilder.<Boolean, Operators.BooleanColumn>getOperatorWithEqNotEqSupport(operator)
+                        .apply(booleanColumn(type.getName()), value == null ? null : Boolean.parseBoolean(value));
 
             case FLOAT:
-                simpleFilter = ParquetRecordFilterBuilder.<Float, Operators.FloatColumn>getOperatorWithLtGtSupport(operator)
-                        .apply(floatColumn(type.getName()), valueOperand == null ? null : Float.parseFloat(valueOperand.toString()));
-                break;
+                return ParquetRecordFilterBuilder.<Float, Operators.FloatColumn>getOperatorWithLtGtSupport(operator)
+                        .apply(floatColumn(type.getName()), value == null ? null : Float.parseFloat(value));
 
             case DOUBLE:
-                simpleFilter = ParquetRecordFilterBuilder.<Double, Operators.DoubleColumn>getOperatorWithLtGtSupport(operator)
-                        .apply(doubleColumn(type.getName()), valueOperand == null ? null : Double.parseDouble(valueOperand.toString()));
-                break;
+                return ParquetRecordFilterBuilder.<Double, Operators.DoubleColumn>getOperatorWithLtGtSupport(operator)
+                        .apply(doubleColumn(type.getName()), value == null ? null : Double.parseDouble(value));
 
             default:
                 throw new UnsupportedOperationException(String.format("Column %s of type %s is not supported",
                         type.getName(), type.asPrimitiveType().getPrimitiveTypeName()));
         }
+    }
 
-        filterQueue.push(simpleFilter);
+    /**
+     * Returns the predicate comparing a decimal column stored as a byte
+     * array with the value.
+     *
+     * @param operator the operator
+     * @param type     the type of the column
+     * @param value    the value, null for IS_NULL and IS_NOT_NULL
+     * @return the predicate
+     */
+    private FilterPredicate getDecimalFilterPredicate(Operator operator, Type type, String value) {
+        if (value == null) {
+            return ParquetRecordFilterBuilder.<Binary, Operators.BinaryColumn>getOperatorWithEqNotEqSupport(operator)
+                    .apply(binaryColumn(type.getName()), null);
+        }
+        return userDefined(binaryColumn(type.getName()), new DecimalPredicate(operator, value,
+                ParquetTypeConverter.getDecimalScale(type)));
     }
 
     /**
@@ -260,14 +323,230 @@ public class ParquetRecordFilterBuilder implements TreeVisitor {
         }
     }
 
-    private static Integer getIntegerForINT32(OriginalType originalType, OperandNode valueOperand) {
-        if (valueOperand == null) return null;
-        if (originalType == OriginalType.DATE) {
+    private static Integer getIntegerForINT32(Type type, String value) {
+        if (value == null) return null;
+        if (ParquetTypeConverter.isDate(type)) {
             // Number of days since epoch
-            LocalDate localDateValue = LocalDate.parse(valueOperand.toString());
+            LocalDate localDateValue = LocalDate.parse(value);
             LocalDate epoch = LocalDate.ofEpochDay(0);
             return (int) ChronoUnit.DAYS.between(epoch, localDateValue);
         }
-        return Integer.parseInt(valueOperand.toString());
+        if (ParquetTypeConverter.isDecimal(type)) {
+            return getUnscaledDecimal(type, value).intValueExact();
+        }
+        return Integer.parseInt(value);
+    }
+
+    private static Long getLongForINT64(Type type, String value) {
+        if (value == null) return null;
+        if (ParquetTypeConverter.isDecimal(type)) {
+            return getUnscaledDecimal(type, value).longValueExact();
+        }
+        return Long.parseLong(value);
+    }
+
+    /**
+     * Returns the unscaled value of a decimal literal at the scale of the
+     * decimal column, the value stored for INT32 and INT64 decimals.
+     *
+     * @param type  the type of the decimal column
+     * @param value the decimal literal
+     * @return the unscaled value of the literal
+     * @throws ArithmeticException when the literal has more fractional digits
+     *                             than the scale of the column
+     */
+    static BigInteger getUnscaledDecimal(Type type, String value) {
+        int scale = ParquetTypeConverter.getDecimalScale(type);
+        return new BigDecimal(value).setScale(scale).unscaledValue();
+    }
+
+    /**
+     * A predicate comparing the values of a binary column with a constant,
+     * in the order of the values the column stores rather than the order of
+     * their bytes. Null values never match. Row groups are dropped on the
+     * minimum and maximum of the column when the statistics are ordered by
+     * value, see {@link #hasValueOrderedStatistics(Statistics)}.
+     *
+     * @param <T> the type of the decoded values
+     */
+    private abstract static class ComparisonPredicate<T extends Comparable<T>>
+            extends UserDefinedPredicate<Binary> implements Serializable {
+
+        final Operator operator;
+        final T value;
+
+        ComparisonPredicate(Operator operator, T value) {
+            this.operator = operator;
+            this.value = value;
+        }
+
+        /**
+         * @param binary a non-null value of the column
+         * @return the decoded value
+         */
+        abstract T decode(Binary binary);
+
+        /**
+         * @param statistics the statistics of a column chunk
+         * @return true if the minimum and maximum of the statistics are the
+         * minimum and maximum decoded values of the column chunk
+         */
+        abstract boolean hasValueOrderedStatistics(Statistics<Binary> statistics);
+
+        @Override
+        public boolean keep(Binary binary) {
+            if (binary == null) {
+                return false;
+            }
+            int comparison = decode(binary).compareTo(value);
+            switch (operator) {
+                case EQUALS:
+                    return comparison == 0;
+                case NOT_EQUALS:
+                    return comparison != 0;
+                case LESS_THAN:
+                    return comparison < 0;
+                case LESS_THAN_OR_EQUAL:
+                    return comparison <= 0;
+                case GREATER_THAN:
+                    return comparison > 0;
+                case GREATER_THAN_OR_EQUAL:
+                    return comparison >= 0;
+                default:
+                    throw new UnsupportedOperationException("not supported " + operator);
+            }
+        }
+
+        /**
+         * Returns true when no value between the minimum and the maximum of
+         * the statistics matches the predicate.
+         */
+        @Override
+        public boolean canDrop(Statistics<Binary> statistics) {
+            if (!hasBounds(statistics)) {
+                return false;
+            }
+            T min = decode(statistics.getMin());
+            T max = decode(statistics.getMax());
+            switch (operator) {
+                case EQUALS:
+                    return value.compareTo(min) < 0 || value.compareTo(max) > 0;
+                case NOT_EQUALS:
+                    return value.compareTo(min) == 0 && value.compareTo(max) == 0;
+                case LESS_THAN:
+                    return min.compareTo(value) >= 0;
+                case LESS_THAN_OR_EQUAL:
+                    return min.compareTo(value) > 0;
+                case GREATER_THAN:
+                    return max.compareTo(value) <= 0;
+                case GREATER_THAN_OR_EQUAL:
+                    return max.compareTo(value) < 0;
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * Returns true when every value between the minimum and the maximum
+         * of the statistics matches the predicate, for the negation of the
+         * predicate. The nulls do not match the negation either.
+         */
+        @Override
+        public boolean inverseCanDrop(Statistics<Binary> statistics) {
+            if (!hasBounds(statistics)) {
+                return false;
+            }
+            T min = decode(statistics.getMin());
+            T max = decode(statistics.getMax());
+            switch (operator) {
+                case EQUALS:
+                    return value.compareTo(min) == 0 && value.compareTo(max) == 0;
+                case NOT_EQUALS:
+                    return value.compareTo(min) < 0 || value.compareTo(max) > 0;
+                case LESS_THAN:
+                    return max.compareTo(value) < 0;
+                case LESS_THAN_OR_EQUAL:
+                    return max.compareTo(value) <= 0;
+                case GREATER_THAN:
+                    return min.compareTo(value) > 0;
+                case GREATER_THAN_OR_EQUAL:
+                    return min.compareTo(value) >= 0;
+                default:
+                    return false;
+            }
+        }
+
+        private boolean hasBounds(Statistics<Binary> statistics) {
+            return statistics != null && statistics.getMin() != null && statistics.getMax() != null &&
+                    hasValueOrderedStatistics(statistics);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%s)", operator.name().toLowerCase(), value);
+        }
+    }
+
+    /**
+     * Compares INT96 timestamps by their number of nanoseconds since the
+     * epoch. Timestamps without a time zone are in the time zone of the server.
+     */
+    private static class TimestampPredicate extends ComparisonPredicate<Long> {
+
+        TimestampPredicate(Operator operator, String timestamp) {
+            super(operator, ParquetTypeConverter.bytesToEpochNanos(toInt96(timestamp).getBytes()));
+        }
+
+        private static Binary toInt96(String timestamp) {
+            return ParquetResolver.TIMESTAMP_PATTERN.matcher(timestamp).find()
+                    ? ParquetTypeConverter.getBinaryFromTimestampWithTimeZone(timestamp)
+                    : ParquetTypeConverter.getBinaryFromTimestamp(timestamp);
+        }
+
+        @Override
+        Long decode(Binary binary) {
+            return ParquetTypeConverter.bytesToEpochNanos(binary.getBytes());
+        }
+
+        /**
+         * The INT96 column order is undefined: parquet-mr discards the
+         * statistics of INT96 columns when it reads the footer, and a minimum
+         * and maximum taken in the byte order of the values, which starts
+         * with the little-endian time of the day, would not bound the
+         * timestamps. Row groups are left to the dictionary and the records.
+         */
+        @Override
+        boolean hasValueOrderedStatistics(Statistics<Binary> statistics) {
+            return false;
+        }
+    }
+
+    /**
+     * Compares FIXED_LEN_BYTE_ARRAY decimals, the big-endian two's complement
+     * of their unscaled value, by their numeric value.
+     */
+    private static class DecimalPredicate extends ComparisonPredicate<BigDecimal> {
+
+        private final int scale;
+
+        DecimalPredicate(Operator operator, String value, int scale) {
+            super(operator, new BigDecimal(value));
+            this.scale = scale;
+        }
+
+        @Override
+        BigDecimal decode(Binary binary) {
+            return new BigDecimal(new BigInteger(binary.getBytes()), scale);
+        }
+
+        /**
+         * The statistics of decimal columns are ordered as signed integers,
+         * their numeric order. Parquet discards the statistics that writers
+         * before 1.10 ordered by signed bytes.
+         */
+        @Override
+        boolean hasValueOrderedStatistics(Statistics<Binary> statistics) {
+            return PrimitiveComparator.BINARY_AS_SIGNED_INTEGER_COMPARATOR.equals(statistics.getComparator());
+        }
     }
 }
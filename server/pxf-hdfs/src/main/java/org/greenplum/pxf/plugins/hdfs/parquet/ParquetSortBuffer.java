@@ -0,0 +1,489 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Buffers the records written to a Parquet file and passes them on to the
+ * writer sorted by a list of columns, so that each row group holds a narrow
+ * range of values of the sort columns and its statistics can prune it on
+ * read.
+ * <p>
+ * Records are sorted in batches: a batch is flushed once the estimated
+ * in-memory size of its records reaches the size of the batch. When the
+ * records held in memory reach the memory limit before that, they are
+ * sorted and spilled to a file in the spill directory, and the sorted runs
+ * are merged with the records in memory when the batch is flushed. Values
+ * are sorted in ascending order with nulls last, and records with equal
+ * sort values keep their arrival order.
+ */
+public class ParquetSortBuffer implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParquetSortBuffer.class);
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte SHORT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte FLOAT = 6;
+    private static final byte BOOLEAN = 7;
+    private static final byte BYTES = 8;
+
+    private static final int SPILL_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Receives the sorted records.
+     */
+    @FunctionalInterface
+    public interface RecordSink {
+        void write(List<OneField> record) throws IOException;
+    }
+
+    private final int[] keyPositions;
+    private final DataType[] keyTypes;
+    private final long batchSize;
+    private final long maxMemory;
+    private final File spillDirectory;
+    private final RecordSink sink;
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final List<File> spillFiles = new ArrayList<>();
+    private long memorySize, batchBytes;
+
+    /**
+     * Constructs a ParquetSortBuffer.
+     *
+     * @param sortColumns    the columns to sort by, in order
+     * @param batchSize      the estimated size of the records sorted at a time
+     * @param maxMemory      the estimated size of the records kept in memory
+     * @param spillDirectory the directory of the files the records are spilled to
+     * @param sink           the receiver of the sorted records
+     */
+    public ParquetSortBuffer(List<ColumnDescriptor> sortColumns, long batchSize, long maxMemory,
+                             File spillDirectory, RecordSink sink) {
+        int maxIndex = sortColumns.stream().mapToInt(ColumnDescriptor::columnIndex).max().orElse(-1);
+        this.keyPositions = new int[maxIndex + 1];
+        Arrays.fill(keyPositions, -1);
+        this.keyTypes = new DataType[sortColumns.size()];
+        for (int i = 0; i < sortColumns.size(); i++) {
+            keyPositions[sortColumns.get(i).columnIndex()] = i;
+            keyTypes[i] = sortColumns.get(i).getDataType();
+        }
+        this.batchSize = batchSize;
+        this.maxMemory = maxMemory;
+        this.spillDirectory = spillDirectory;
+        this.sink = sink;
+    }
+
+    /**
+     * Adds a record to the buffer, flushing the sorted batch when it is
+     * full.
+     *
+     * @param record the record
+     * @throws IOException when the records cannot be spilled or written
+     */
+    public void add(List<OneField> record) throws IOException {
+        entries.add(new Entry(record, getKey(record)));
+        long size = estimateSize(record);
+        memorySize += size;
+        batchBytes += size;
+        if (batchBytes >= batchSize) {
+            flush();
+        } else if (memorySize >= maxMemory) {
+            spill();
+        }
+    }
+
+    /**
+     * Writes the buffered records, sorted, to the sink.
+     *
+     * @throws IOException when the records cannot be read back or written
+     */
+    public void flush() throws IOException {
+        sortEntries();
+        if (spillFiles.isEmpty()) {
+            for (Entry entry : entries) {
+                sink.write(entry.record);
+            }
+        } else {
+            merge();
+        }
+        entries.clear();
+        memorySize = 0;
+        batchBytes = 0;
+    }
+
+    /**
+     * Flushes the buffered records and deletes the spill files.
+     *
+     * @throws IOException when the records cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            deleteSpillFiles();
+        }
+    }
+
+    int getSpillCount() {
+        return spillFiles.size();
+    }
+
+    /*
+     * Sorts the records in memory and writes them to a new spill file.
+     */
+    private void spill() throws IOException {
+        sortEntries();
+        File file = File.createTempFile("pxf-parquet-sort-", ".spill", spillDirectory);
+        spillFiles.add(file);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), SPILL_BUFFER_SIZE))) {
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                writeRecord(out, entry.record);
+            }
+        }
+        LOG.debug("Spilled {} records of about {} bytes to {}", entries.size(), memorySize, file);
+        entries.clear();
+        memorySize = 0;
+    }
+
+    /*
+     * Merges the sorted runs of the spill files and of the records in
+     * memory into the sink. Runs spilled earlier win ties, so records keep
+     * their arrival order.
+     */
+    private void merge() throws IOException {
+        List<Run> runs = new ArrayList<>(spillFiles.size() + 1);
+        PriorityQueue<Run> queue = new PriorityQueue<>((a, b) -> {
+            int c = compareKeys(a.current.key, b.current.key);
+            return c != 0 ? c : Integer.compare(a.order, b.order);
+        });
+        try {
+            for (File file : spillFiles) {
+                runs.add(new SpillRun(runs.size(), file));
+            }
+            runs.add(new MemoryRun(runs.size(), entries));
+            for (Run run : runs) {
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                sink.write(run.current.record);
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+        } finally {
+            for (Run run : runs) {
+                // the records were read, a run that fails to close must not
+                // keep the other runs open or their files on disk
+                try {
+                    run.close();
+                } catch (IOException e) {
+                    LOG.warn("Unable to close sort run {}", run.order, e);
+                }
+            }
+            deleteSpillFiles();
+        }
+    }
+
+    private void sortEntries() {
+        // List.sort is stable, records with equal keys keep their order
+        entries.sort((a, b) -> compareKeys(a.key, b.key));
+    }
+
+    private void deleteSpillFiles() {
+        for (File file : spillFiles) {
+            if (!file.delete() && file.exists()) {
+                LOG.warn("Unable to delete spill file {}", file);
+            }
+        }
+        spillFiles.clear();
+    }
+
+    /*
+     * Returns the values of the sort columns of the record. Numeric values
+     * come as strings and are compared as decimals.
+     */
+    private Object[] getKey(List<OneField> record) {
+        Object[] key = new Object[keyTypes.length];
+        int index = 0;
+        for (OneField field : record) {
+            if (index >= keyPositions.length) {
+                break;
+            }
+            int position = keyPositions[index++];
+            if (position >= 0 && field.val != null) {
+                key[position] = keyTypes[position] == DataType.NUMERIC && field.val instanceof String
+                        ? new BigDecimal((String) field.val)
+                        : field.val;
+            }
+        }
+        return key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareKeys(Object[] left, Object[] right) {
+        for (int i = 0; i < left.length; i++) {
+            Object a = left[i], b = right[i];
+            int c;
+            if (a == null || b == null) {
+                c = a == null ? (b == null ? 0 : 1) : -1;
+            } else if (a instanceof byte[]) {
+                c = compareBytes((byte[]) a, (byte[]) b);
+            } else {
+                c = ((Comparable<Object>) a).compareTo(b);
+            }
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int c = Integer.compare(a[i] & 0xff, b[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    /*
+     * Estimates the memory used by the record and its values.
+     */
+    static long estimateSize(List<OneField> record) {
+        long size = 64;
+        for (OneField field : record) {
+            size += 48;
+            Object value = field.val;
+            if (value instanceof String) {
+                size += 40 + 2L * ((String) value).length();
+            } else if (value instanceof byte[]) {
+                size += 16 + ((byte[]) value).length;
+            } else if (value != null) {
+                size += 16;
+            }
+        }
+        return size;
+    }
+
+    private static void writeRecord(DataOutputStream out, List<OneField> record) throws IOException {
+        out.writeInt(record.size());
+        for (OneField field : record) {
+            out.writeInt(field.type);
+            Object value = field.val;
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof String) {
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                out.writeByte(STRING);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            } else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Short) {
+                out.writeByte(SHORT);
+                out.writeShort((Short) value);
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof Float) {
+                out.writeByte(FLOAT);
+                out.writeFloat((Float) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof byte[]) {
+                out.writeByte(BYTES);
+                out.writeInt(((byte[]) value).length);
+                out.write((byte[]) value);
+            } else {
+                throw new IOException(String.format("Unable to spill value of type %s", value.getClass().getName()));
+            }
+        }
+    }
+
+    private static List<OneField> readRecord(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<OneField> record = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int type = in.readInt();
+            byte tag = in.readByte();
+            Object value;
+            switch (tag) {
+                case NULL:
+                    value = null;
+                    break;
+                case STRING:
+                    byte[] chars = new byte[in.readInt()];
+                    in.readFully(chars);
+                    value = new String(chars, StandardCharsets.UTF_8);
+                    break;
+                case INTEGER:
+                    value = in.readInt();
+                    break;
+                case SHORT:
+                    value = in.readShort();
+                    break;
+                case LONG:
+                    value = in.readLong();
+                    break;
+                case DOUBLE:
+                    value = in.readDouble();
+                    break;
+                case FLOAT:
+                    value = in.readFloat();
+                    break;
+                case BOOLEAN:
+                    value = in.readBoolean();
+                    break;
+                case BYTES:
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    value = bytes;
+                    break;
+                default:
+                    throw new IOException("Invalid value tag " + tag + " in spill file");
+            }
+            record.add(new OneField(type, value));
+        }
+        return record;
+    }
+
+    /**
+     * A record and the values of its sort columns.
+     */
+    private static class Entry {
+        final List<OneField> record;
+        final Object[] key;
+
+        Entry(List<OneField> record, Object[] key) {
+            this.record = record;
+            this.key = key;
+        }
+    }
+
+    /**
+     * A sorted run of records.
+     */
+    private abstract static class Run implements Closeable {
+        final int order;
+        Entry current;
+
+        Run(int order) {
+            this.order = order;
+        }
+
+        /*
+         * Moves to the next record of the run, returns false at the end.
+         */
+        abstract boolean advance() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static class MemoryRun extends Run {
+        private final List<Entry> entries;
+        private int next;
+
+        MemoryRun(int order, List<Entry> entries) {
+            super(order);
+            this.entries = entries;
+        }
+
+        @Override
+        boolean advance() {
+            current = next < entries.size() ? entries.get(next++) : null;
+            return current != null;
+        }
+    }
+
+    private class SpillRun extends Run {
+        private final DataInputStream in;
+        private int remaining;
+
+        SpillRun(int order, File file) throws IOException {
+            super(order);
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), SPILL_BUFFER_SIZE));
+            try {
+                this.remaining = in.readInt();
+            } catch (EOFException e) {
+                in.close();
+                throw new IOException("Spill file " + file + " is truncated", e);
+            }
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                current = null;
+                return false;
+            }
+            remaining--;
+            List<OneField> record = readRecord(in);
+            current = new Entry(record, getKey(record));
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
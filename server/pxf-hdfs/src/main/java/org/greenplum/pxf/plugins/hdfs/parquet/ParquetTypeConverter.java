@@ -5,7 +5,11 @@ import org.apache.hadoop.hive.serde2.io.DateWritable;
 import org.apache.parquet.example.data.Group;
 import org.apache.parquet.example.data.simple.NanoTime;
 import org.apache.parquet.io.api.Binary;
-import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.DateLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.DecimalLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.IntLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.TimestampLogicalTypeAnnotation;
 import org.apache.parquet.schema.PrimitiveType;
 import org.apache.parquet.schema.Type;
 import org.greenplum.pxf.api.GreenplumDateTime;
@@ -32,17 +36,16 @@ public enum ParquetTypeConverter {
     BINARY {
         @Override
         public DataType getDataType(Type type) {
-            OriginalType originalType = type.getOriginalType();
-            if (originalType == null) {
+            LogicalTypeAnnotation logicalType = type.getLogicalTypeAnnotation();
+            if (logicalType == null) {
                 return DataType.BYTEA;
-            }
-            switch (originalType) {
-                case DATE:
-                    return DataType.DATE;
-                case TIMESTAMP_MILLIS:
-                    return DataType.TIMESTAMP;
-                default:
-                    return DataType.TEXT;
+            } else if (logicalType instanceof DateLogicalTypeAnnotation) {
+                return DataType.DATE;
+            } else if (logicalType instanceof TimestampLogicalTypeAnnotation &&
+                    ((TimestampLogicalTypeAnnotation) logicalType).getUnit() == LogicalTypeAnnotation.TimeUnit.MILLIS) {
+                return DataType.TIMESTAMP;
+            } else {
+                return DataType.TEXT;
             }
         }
 
@@ -68,12 +71,11 @@ public enum ParquetTypeConverter {
     INT32 {
         @Override
         public DataType getDataType(Type type) {
-            OriginalType originalType = type.getOriginalType();
-            if (originalType == OriginalType.DATE) {
+            if (isDate(type)) {
                 return DataType.DATE;
-            } else if (originalType == OriginalType.DECIMAL) {
+            } else if (isDecimal(type)) {
                 return DataType.NUMERIC;
-            } else if (originalType == OriginalType.INT_8 || originalType == OriginalType.INT_16) {
+            } else if (isSmallInt(type)) {
                 return DataType.SMALLINT;
             } else {
                 return DataType.INTEGER;
@@ -83,12 +85,11 @@ public enum ParquetTypeConverter {
         @Override
         public Object getValue(Group group, int columnIndex, int repeatIndex, Type type) {
             int result = group.getInteger(columnIndex, repeatIndex);
-            OriginalType originalType = type.getOriginalType();
-            if (originalType == OriginalType.DATE) {
+            if (isDate(type)) {
                 return new DateWritable(result).get(true);
-            } else if (originalType == OriginalType.DECIMAL) {
+            } else if (isDecimal(type)) {
                 return ParquetTypeConverter.bigDecimalFromLong(type, result);
-            } else if (originalType == OriginalType.INT_8 || originalType == OriginalType.INT_16) {
+            } else if (isSmallInt(type)) {
                 return (short) result;
             } else {
                 return result;
@@ -104,8 +105,7 @@ public enum ParquetTypeConverter {
     INT64 {
         @Override
         public DataType getDataType(Type type) {
-            OriginalType originalType = type.getOriginalType();
-            if (originalType == OriginalType.DECIMAL) {
+            if (isDecimal(type)) {
                 return DataType.NUMERIC;
             }
             return DataType.BIGINT;
@@ -114,8 +114,7 @@ public enum ParquetTypeConverter {
         @Override
         public Object getValue(Group group, int columnIndex, int repeatIndex, Type type) {
             long value = group.getLong(columnIndex, repeatIndex);
-            OriginalType originalType = type.getOriginalType();
-            if (originalType == OriginalType.DECIMAL) {
+            if (isDecimal(type)) {
                 return ParquetTypeConverter.bigDecimalFromLong(type, value);
             }
             return value;
@@ -187,7 +186,7 @@ public enum ParquetTypeConverter {
 
         @Override
         public Object getValue(Group group, int columnIndex, int repeatIndex, Type type) {
-            int scale = type.asPrimitiveType().getDecimalMetadata().getScale();
+            int scale = getDecimalScale(type);
             return new BigDecimal(new BigInteger(group.getBinary(columnIndex, repeatIndex).getBytes()), scale);
         }
 
@@ -232,6 +231,7 @@ public enum ParquetTypeConverter {
     private static final long MILLIS_IN_DAY = 24 * 3600 * 1000;
     private static final long MICROS_IN_DAY = 24 * 3600 * 1000 * 1000L;
     private static final long NANOS_IN_MICROS = 1000;
+    private static final long NANOS_IN_MILLIS = 1000 * 1000;
     private static final Logger LOG = LoggerFactory.getLogger(ParquetTypeConverter.class);
 
     // Convert parquet byte array to java timestamp IN LOCAL SERVER'S TIME ZONE
@@ -254,6 +254,21 @@ public enum ParquetTypeConverter {
         return timestamp;
     }
 
+    /**
+     * Converts a parquet INT96 byte array to the number of nanoseconds since
+     * the epoch (UTC), the order in which INT96 timestamps compare.
+     *
+     * @param bytes the INT96 byte array
+     * @return the number of nanoseconds since the epoch
+     */
+    public static long bytesToEpochNanos(byte[] bytes) {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+        byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        long timeOfDayNanos = byteBuffer.getLong();
+        long julianDay = byteBuffer.getInt();
+        return (julianDay - JULIAN_EPOCH_OFFSET_DAYS) * MILLIS_IN_DAY * NANOS_IN_MILLIS + timeOfDayNanos;
+    }
+
     /**
      * Converts a timestamp string to a INT96 byte array.
      * Supports microseconds for timestamps
@@ -289,9 +304,52 @@ public enum ParquetTypeConverter {
         return new NanoTime(julianDays, timeOfDayNanos).toBinary();
     }
 
+    /**
+     * @param type the parquet type
+     * @return true if the type is annotated as a date
+     */
+    public static boolean isDate(Type type) {
+        return type.getLogicalTypeAnnotation() instanceof DateLogicalTypeAnnotation;
+    }
+
+    /**
+     * @param type the parquet type
+     * @return true if the type is annotated as a decimal
+     */
+    public static boolean isDecimal(Type type) {
+        return type.getLogicalTypeAnnotation() instanceof DecimalLogicalTypeAnnotation;
+    }
+
+    /**
+     * @param type the parquet type
+     * @return true if the type is annotated as a signed integer of 8 or 16 bits
+     */
+    public static boolean isSmallInt(Type type) {
+        LogicalTypeAnnotation logicalType = type.getLogicalTypeAnnotation();
+        return logicalType instanceof IntLogicalTypeAnnotation &&
+                ((IntLogicalTypeAnnotation) logicalType).isSigned() &&
+                ((IntLogicalTypeAnnotation) logicalType).getBitWidth() <= 16;
+    }
+
+    /**
+     * @param type the parquet type, annotated as a decimal
+     * @return the scale of the decimal
+     */
+    public static int getDecimalScale(Type type) {
+        return ((DecimalLogicalTypeAnnotation) type.getLogicalTypeAnnotation()).getScale();
+    }
+
+    /**
+     * @param type the parquet type, annotated as a decimal
+     * @return the precision of the decimal
+     */
+    public static int getDecimalPrecision(Type type) {
+        return ((DecimalLogicalTypeAnnotation) type.getLogicalTypeAnnotation()).getPrecision();
+    }
+
     // Helper method that returns a BigDecimal from the long value
     private static BigDecimal bigDecimalFromLong(Type type, long value) {
-        int scale = type.asPrimitiveType().getDecimalMetadata().getScale();
+        int scale = getDecimalScale(type);
         return new BigDecimal(BigInteger.valueOf(value), scale);
     }
 }
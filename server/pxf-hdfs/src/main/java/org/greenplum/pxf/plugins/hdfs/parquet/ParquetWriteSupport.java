@@ -0,0 +1,414 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.IntLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.StringLogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.UnsupportedTypeException;
+import org.greenplum.pxf.plugins.hdfs.ParquetFileAccessor;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes the fields of the records received from Greenplum straight to
+ * parquet's {@link RecordConsumer}, without building an intermediate
+ * {@code Group} for each record.
+ * <p>
+ * The writer of each column is chosen once from the parquet schema. The
+ * writers of decimal and timestamp columns encode the values into buffers
+ * they reuse for every record; parquet copies the values it keeps for the
+ * dictionaries and the statistics. The field at position {@code i} of a
+ * record is written to the field at position {@code i} of the schema, null
+ * values are not written.
+ */
+public class ParquetWriteSupport extends WriteSupport<List<OneField>> {
+
+    private static final long SECONDS_IN_DAY = 24 * 3600L;
+    private static final long SECOND_IN_MICROS = 1000 * 1000L;
+    private static final long MICROS_IN_DAY = SECONDS_IN_DAY * SECOND_IN_MICROS;
+    private static final long NANOS_IN_MICROS = 1000L;
+    private static final long JULIAN_EPOCH_OFFSET_DAYS = 2440588L;
+    private static final int MAX_DECIMAL_PRECISION = 38;
+
+    private final MessageType schema;
+    private final FieldWriter[] writers;
+    private RecordConsumer recordConsumer;
+
+    /**
+     * Constructs a ParquetWriteSupport for the given schema.
+     *
+     * @param schema the schema of the parquet file
+     */
+    public ParquetWriteSupport(MessageType schema) {
+        this.schema = schema;
+        this.writers = new FieldWriter[schema.getFieldCount()];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = createWriter(schema.getType(i), i);
+        }
+    }
+
+    @Override
+    public WriteContext init(Configuration configuration) {
+        return new WriteContext(schema, Collections.emptyMap());
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer) {
+        this.recordConsumer = recordConsumer;
+    }
+
+    @Override
+    public void write(List<OneField> record) {
+        recordConsumer.startMessage();
+        // the records built by the bridge are linked lists, iterate them
+        int index = 0;
+        for (OneField field : record) {
+            if (field.val != null) {
+                writers[index].write(field.val);
+            }
+            index++;
+        }
+        recordConsumer.endMessage();
+    }
+
+    /**
+     * Returns whether the timestamp string has a time zone offset, that is
+     * whether it ends with {@code [+-]HH} or {@code [+-]HH:mm}.
+     *
+     * @param timestamp the timestamp string from Greenplum
+     * @return true if the timestamp has a time zone offset
+     */
+    public static boolean hasTimeZoneOffset(String timestamp) {
+        int length = timestamp.length();
+        if (isOffsetHours(timestamp, length - 3)) {
+            return true;
+        }
+        return timestamp.length() >= 6 &&
+                timestamp.charAt(length - 3) == ':' &&
+                isDigit(timestamp, length - 2) &&
+                isDigit(timestamp, length - 1) &&
+                isOffsetHours(timestamp, length - 6);
+    }
+
+    private FieldWriter createWriter(Type type, int index) {
+        String name = type.getName();
+        if (!type.isPrimitive()) {
+            return value -> {
+                throw new UnsupportedTypeException("Not supported type " + type);
+            };
+        }
+        LogicalTypeAnnotation logicalType = type.getLogicalTypeAnnotation();
+        switch (type.asPrimitiveType().getPrimitiveTypeName()) {
+            case BINARY:
+                if (logicalType instanceof StringLogicalTypeAnnotation) {
+                    return value -> writeField(name, index, Binary.fromString((String) value));
+                }
+                return value -> writeField(name, index, Binary.fromReusedByteArray((byte[]) value));
+            case INT32:
+                if (logicalType instanceof IntLogicalTypeAnnotation &&
+                        ((IntLogicalTypeAnnotation) logicalType).getBitWidth() == 16) {
+                    return value -> {
+                        recordConsumer.startField(name, index);
+                        recordConsumer.addInteger((Short) value);
+                        recordConsumer.endField(name, index);
+                    };
+                }
+                return value -> {
+                    recordConsumer.startField(name, index);
+                    recordConsumer.addInteger((Integer) value);
+                    recordConsumer.endField(name, index);
+                };
+            case INT64:
+                return value -> {
+                    recordConsumer.startField(name, index);
+                    recordConsumer.addLong((Long) value);
+                    recordConsumer.endField(name, index);
+                };
+            case DOUBLE:
+                return value -> {
+                    recordConsumer.startField(name, index);
+                    recordConsumer.addDouble((Double) value);
+                    recordConsumer.endField(name, index);
+                };
+            case FLOAT:
+                return value -> {
+                    recordConsumer.startField(name, index);
+                    recordConsumer.addFloat((Float) value);
+                    recordConsumer.endField(name, index);
+                };
+            case BOOLEAN:
+                return value -> {
+                    recordConsumer.startField(name, index);
+                    recordConsumer.addBoolean((Boolean) value);
+                    recordConsumer.endField(name, index);
+                };
+            case FIXED_LEN_BYTE_ARRAY:
+                if (!ParquetTypeConverter.isDecimal(type)) {
+                    break;
+                }
+                DecimalEncoder decimalEncoder = new DecimalEncoder(
+                        ParquetTypeConverter.getDecimalPrecision(type),
+                        ParquetTypeConverter.getDecimalScale(type));
+                return value -> {
+                    Binary binary = decimalEncoder.encode((String) value);
+                    // values that exceed the precision of the column are
+                    // stored as nulls, as Hive does
+                    if (binary != null) {
+                        writeField(name, index, binary);
+                    }
+                };
+            case INT96:
+                TimestampEncoder timestampEncoder = new TimestampEncoder(ZoneId.systemDefault());
+                return value -> writeField(name, index, timestampEncoder.encode((String) value));
+        }
+        return value -> {
+            throw new UnsupportedTypeException("Not supported type " + type.asPrimitiveType().getPrimitiveTypeName());
+        };
+    }
+
+    private void writeField(String name, int index, Binary value) {
+        recordConsumer.startField(name, index);
+        recordConsumer.addBinary(value);
+        recordConsumer.endField(name, index);
+    }
+
+    private static boolean isOffsetHours(String s, int start) {
+        return start >= 0 &&
+                (s.charAt(start) == '+' || s.charAt(start) == '-') &&
+                isDigit(s, start + 1) &&
+                isDigit(s, start + 2);
+    }
+
+    private static boolean isDigit(String s, int index) {
+        char c = s.charAt(index);
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Writes a non-null value of a column.
+     */
+    @FunctionalInterface
+    private interface FieldWriter {
+        void write(Object value);
+    }
+
+    /**
+     * Encodes numeric strings to the fixed length, big-endian two's
+     * complement bytes of their unscaled value, the way Hive writes
+     * decimals to parquet.
+     */
+    static class DecimalEncoder {
+
+        private final int precision;
+        private final int scale;
+        private final byte[] bytes;
+
+        DecimalEncoder(int precision, int scale) {
+            this.precision = Math.min(MAX_DECIMAL_PRECISION, precision);
+            this.scale = Math.min(MAX_DECIMAL_PRECISION, scale);
+            this.bytes = new byte[ParquetFileAccessor.PRECISION_TO_BYTE_COUNT[this.precision - 1]];
+        }
+
+        /**
+         * Encodes the value, rounded half up to the scale of the column.
+         *
+         * @param value the numeric string
+         * @return the encoded value, backed by a buffer reused for the next
+         * value, or null when the value exceeds the precision of the column
+         */
+        Binary encode(String value) {
+            BigDecimal decimal = new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP);
+            if (decimal.precision() - decimal.scale() > precision - scale) {
+                return null;
+            }
+            BigInteger unscaled = decimal.unscaledValue();
+            if (unscaled.bitLength() < Long.SIZE) {
+                // the unscaled value of most decimals fits in a long
+                long unscaledLong = unscaled.longValue();
+                for (int i = bytes.length - 1; i >= 0; i--) {
+                    bytes[i] = (byte) unscaledLong;
+                    unscaledLong >>= 8;
+                }
+            } else {
+                byte[] unscaledBytes = unscaled.toByteArray();
+                int padding = bytes.length - unscaledBytes.length;
+                byte fill = (byte) (unscaled.signum() < 0 ? 0xFF : 0);
+                for (int i = 0; i < padding; i++) {
+                    bytes[i] = fill;
+                }
+                System.arraycopy(unscaledBytes, 0, bytes, padding, unscaledBytes.length);
+            }
+            return Binary.fromReusedByteArray(bytes);
+        }
+    }
+
+    /**
+     * Encodes the timestamp strings of Greenplum to INT96 nano times. The
+     * strings are parsed by hand when they have the
+     * {@code yyyy-MM-dd HH:mm:ss[.SSSSSS][+HH[:mm]]} format Greenplum sends,
+     * and with {@link ParquetTypeConverter} otherwise. Timestamps without a
+     * time zone offset are in the given time zone.
+     */
+    static class TimestampEncoder {
+
+        private final ZoneRules zoneRules;
+        private final byte[] bytes = new byte[12];
+
+        TimestampEncoder(ZoneId zoneId) {
+            this.zoneRules = zoneId.getRules();
+        }
+
+        /**
+         * Encodes the timestamp.
+         *
+         * @param timestamp the timestamp string
+         * @return the nano time, backed by a buffer reused for the next value
+         */
+        Binary encode(String timestamp) {
+            if (!encodeFast(timestamp)) {
+                Binary binary = hasTimeZoneOffset(timestamp)
+                        // Note: the time zone information is lost while
+                        // preserving the correct value, as Parquet doesn't
+                        // support timestamp with time zone
+                        ? ParquetTypeConverter.getBinaryFromTimestampWithTimeZone(timestamp)
+                        : ParquetTypeConverter.getBinaryFromTimestamp(timestamp);
+                System.arraycopy(binary.getBytesUnsafe(), 0, bytes, 0, bytes.length);
+            }
+            return Binary.fromReusedByteArray(bytes);
+        }
+
+        /*
+         * Encodes the timestamp and returns true when it has the expected
+         * format and valid fields, returns false otherwise.
+         */
+        private boolean encodeFast(String s) {
+            int length = s.length();
+            if (length < 19 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != ' ' ||
+                    s.charAt(13) != ':' || s.charAt(16) != ':') {
+                return false;
+            }
+            int year = parseDigits(s, 0, 4);
+            int month = parseDigits(s, 5, 7);
+            int day = parseDigits(s, 8, 10);
+            int hour = parseDigits(s, 11, 13);
+            int minute = parseDigits(s, 14, 16);
+            int second = parseDigits(s, 17, 19);
+            if (year < 1 || month < 0 || day < 0 || hour < 0 || hour > 23 ||
+                    minute < 0 || minute > 59 || second < 0 || second > 59) {
+                return false;
+            }
+
+            int pos = 19;
+            long micros = 0;
+            if (pos < length && s.charAt(pos) == '.') {
+                int start = ++pos;
+                while (pos < length && pos - start < 6 && isDigit(s, pos)) {
+                    micros = micros * 10 + (s.charAt(pos++) - '0');
+                }
+                if (pos == start) {
+                    return false;
+                }
+                for (int i = pos - start; i < 6; i++) {
+                    micros *= 10;
+                }
+            }
+
+            long epochDay;
+            try {
+                epochDay = LocalDate.of(year, month, day).toEpochDay();
+            } catch (DateTimeException e) {
+                return false;
+            }
+            long localSeconds = epochDay * SECONDS_IN_DAY + hour * 3600L + minute * 60L + second;
+
+            int offsetSeconds;
+            if (pos == length) {
+                offsetSeconds = zoneRules.isFixedOffset()
+                        ? zoneRules.getOffset(Instant.EPOCH).getTotalSeconds()
+                        : zoneRules.getOffset(LocalDateTime.of(year, month, day, hour, minute, second)).getTotalSeconds();
+            } else if (length - pos == 3 && isOffsetHours(s, pos)) {
+                offsetSeconds = parseDigits(s, pos + 1, pos + 3) * 3600;
+            } else if (length - pos == 6 && isOffsetHours(s, pos) && s.charAt(pos + 3) == ':') {
+                int offsetMinutes = parseDigits(s, pos + 4, pos + 6);
+                if (offsetMinutes < 0 || offsetMinutes > 59) {
+                    return false;
+                }
+                offsetSeconds = parseDigits(s, pos + 1, pos + 3) * 3600 + offsetMinutes * 60;
+            } else {
+                return false;
+            }
+            if (pos < length) {
+                if (offsetSeconds > 18 * 3600) {
+                    return false;
+                }
+                if (s.charAt(pos) == '-') {
+                    offsetSeconds = -offsetSeconds;
+                }
+            }
+
+            long timeMicros = (localSeconds - offsetSeconds) * SECOND_IN_MICROS + micros;
+            long daysSinceEpoch = timeMicros / MICROS_IN_DAY;
+            int julianDays = (int) (JULIAN_EPOCH_OFFSET_DAYS + daysSinceEpoch);
+            long timeOfDayNanos = (timeMicros % MICROS_IN_DAY) * NANOS_IN_MICROS;
+
+            // little-endian nanos of the day followed by the julian day
+            for (int i = 0; i < 8; i++) {
+                bytes[i] = (byte) (timeOfDayNanos >>> (8 * i));
+            }
+            for (int i = 0; i < 4; i++) {
+                bytes[8 + i] = (byte) (julianDays >>> (8 * i));
+            }
+            return true;
+        }
+
+        /*
+         * Returns the value of the digits between start and end, or -1 if
+         * any of the characters is not a digit.
+         */
+        private static int parseDigits(String s, int start, int end) {
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                if (!isDigit(s, i)) {
+                    return -1;
+                }
+                value = value * 10 + (s.charAt(i) - '0');
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.greenplum.pxf.plugins.hdfs.utilities;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.model.GreenplumCSV;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the rows that Greenplum sends in the TEXT and CSV formats into
+ * fields. The writable text profiles receive each row as a single formatted
+ * line, this parser extracts the values of the leading fields of a line
+ * without converting the whole row.
+ * <p>
+ * In CSV format, fields can be quoted, and the escape character escapes the
+ * quote character inside quoted fields. In TEXT format, the backslash escapes
+ * special characters and {@code \N} is the null value.
+ */
+public class DelimitedLineParser {
+
+    private static final char TEXT_ESCAPE = '\\';
+    private static final String TEXT_NULL = "\\N";
+
+    private final boolean csv;
+    private final char delimiter;
+    private final char quote;
+    private final char escape;
+    private final String valueOfNull;
+
+    /**
+     * Constructs a DelimitedLineParser.
+     *
+     * @param greenplumCSV the delimiter, quote, escape and null value options
+     * @param csv          true for the CSV format, false for the TEXT format
+     */
+    public DelimitedLineParser(GreenplumCSV greenplumCSV, boolean csv) {
+        if (greenplumCSV.getDelimiter() == null) {
+            throw new IllegalArgumentException("A delimiter is required to split the rows into fields");
+        }
+        this.csv = csv;
+        this.delimiter = greenplumCSV.getDelimiter();
+        this.quote = greenplumCSV.getQuote();
+        this.escape = greenplumCSV.getEscape() != null ? greenplumCSV.getEscape() : greenplumCSV.getQuote();
+        this.valueOfNull = greenplumCSV.getValueOfNull();
+    }
+
+    /**
+     * Returns the values of the first fields of the line, null for the
+     * fields that hold the null value. Lines with fewer fields return fewer
+     * values.
+     *
+     * @param line       the line, with or without its line terminator
+     * @param fieldCount the maximum number of fields to return
+     * @return the values of the fields
+     */
+    public List<String> parse(String line, int fieldCount) {
+        int end = line.length();
+        while (end > 0 && (line.charAt(end - 1) == '\n' || line.charAt(end - 1) == '\r')) {
+            end--;
+        }
+
+        List<String> values = new ArrayList<>(fieldCount);
+        int position = 0;
+        StringBuilder field = new StringBuilder();
+        while (values.size() < fieldCount && position <= end) {
+            field.setLength(0);
+            position = csv ? parseCsvField(line, position, end, field, values) :
+                    parseTextField(line, position, end, field, values);
+            // skip the delimiter
+            position++;
+        }
+        return values;
+    }
+
+    private int parseCsvField(String line, int position, int end, StringBuilder field, List<String> values) {
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        int i = position;
+        while (i < end) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == escape && i + 1 < end && (line.charAt(i + 1) == quote || line.charAt(i + 1) == escape)
+                        && (escape != quote || line.charAt(i + 1) == quote)) {
+                    field.append(line.charAt(i + 1));
+                    i += 2;
+                    continue;
+                }
+                if (c == quote) {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == delimiter) {
+                break;
+            } else if (c == quote) {
+                quoted = true;
+                wasQuoted = true;
+            } else {
+                field.append(c);
+            }
+            i++;
+        }
+        String value = field.toString();
+        // a quoted value is never the null value, i.e. "" is an empty string
+        values.add(!wasQuoted && value.equals(valueOfNull) ? null : value);
+        return i;
+    }
+
+    private int parseTextField(String line, int position, int end, StringBuilder field, List<String> values) {
+        int i = position;
+        while (i < end) {
+            char c = line.charAt(i);
+            if (c == delimiter) {
+                break;
+            }
+            if (c == TEXT_ESCAPE && i + 1 < end) {
+                i = unescape(line, i + 1, end, field);
+                continue;
+            }
+            field.append(c);
+            i++;
+        }
+        String raw = line.substring(position, i);
+        values.add(raw.equals(TEXT_NULL) || raw.equals(valueOfNull) ? null : field.toString());
+        return i;
+    }
+
+    /*
+     * Appends the character escaped at the given position, and returns the
+     * position after the escape sequence.
+     */
+    private int unescape(String line, int i, int end, StringBuilder field) {
+        char c = line.charAt(i);
+        switch (c) {
+            case 'b':
+                field.append('\b');
+                return i + 1;
+            case 'f':
+                field.append('\f');
+                return i + 1;
+            case 'n':
+                field.append('\n');
+                return i + 1;
+            case 'r':
+                field.append('\r');
+                return i + 1;
+            case 't':
+                field.append('\t');
+                return i + 1;
+            case 'v':
+                field.append('\u000B');
+                return i + 1;
+            case 'x':
+                int hexEnd = i + 1;
+                while (hexEnd < end && hexEnd < i + 3 && Character.digit(line.charAt(hexEnd), 16) >= 0) {
+                    hexEnd++;
+                }
+                if (hexEnd == i + 1) {
+                    field.append(c);
+                    return i + 1;
+                }
+                field.append((char) Integer.parseInt(line.substring(i + 1, hexEnd), 16));
+                return hexEnd;
+            default:
+                if (c >= '0' && c <= '7') {
+                    int octalEnd = i + 1;
+                    while (octalEnd < end && octalEnd < i + 3 &&
+                            line.charAt(octalEnd) >= '0' && line.charAt(octalEnd) <= '7') {
+                        octalEnd++;
+                    }
+                    field.append((char) Integer.parseInt(line.substring(i, octalEnd), 8));
+                    return octalEnd;
+                }
+                field.append(c);
+                return i + 1;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.greenplum.pxf.plugins.hdfs.utilities;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.greenplum.pxf.api.model.ConfigurationFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the result of listing input paths, so that repeated fragmenter
+ * calls for the same path do not list the whole directory again.
+ * <p>
+ * Entries are keyed by the server, the user and the input paths, and are
+ * only used while they are younger than the requested TTL and the
+ * modification times of the (non-glob) input paths have not changed. Adding
+ * or removing a file changes the modification time of its parent directory
+ * on HDFS, so listings of a single directory are invalidated right away.
+ * Changes in nested directories, and changes on object stores that do not
+ * keep directory modification times, are picked up once the TTL expires.
+ */
+public class FileListingCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileListingCache.class);
+
+    static final long MAX_CACHED_FILES = 1_000_000;
+    static final long MAX_ENTRY_AGE_HOURS = 1;
+
+    /**
+     * Singleton instance of the FileListingCache
+     */
+    private static final FileListingCache instance = new FileListingCache();
+
+    private final Ticker ticker;
+    private final Cache<String, Entry> cache;
+
+    /**
+     * Lists files for the given input paths.
+     */
+    @FunctionalInterface
+    public interface Lister {
+        FileStatus[] list() throws IOException;
+    }
+
+    private FileListingCache() {
+        this(Ticker.systemTicker());
+    }
+
+    FileListingCache(Ticker ticker) {
+        this.ticker = ticker;
+        this.cache = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                // bound the memory used by the cache by the number of files
+                .maximumWeight(MAX_CACHED_FILES)
+                .weigher((Weigher<String, Entry>) (key, entry) -> Math.max(1, entry.files.length))
+                .expireAfterWrite(MAX_ENTRY_AGE_HOURS, TimeUnit.HOURS)
+                .build();
+    }
+
+    /**
+     * @return a singleton instance of the file listing cache.
+     */
+    public static FileListingCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the cached listing of the input paths, if it is still valid,
+     * otherwise lists the files with the given lister and caches the result.
+     *
+     * @param configuration the configuration for the server
+     * @param paths         the input paths being listed
+     * @param ttlNanos      the maximum age of a cached listing in nanoseconds
+     * @param lister        lists the files when there is no valid entry
+     * @return the files for the input paths
+     * @throws IOException when listing the files fails
+     */
+    public FileStatus[] getFileStatuses(Configuration configuration, Path[] paths, long ttlNanos, Lister lister)
+            throws IOException {
+        String key = String.format("%s:%s:%s:%s",
+                configuration.get(ConfigurationFactory.PXF_CONFIG_SERVER_DIRECTORY_PROPERTY),
+                configuration.get(ConfigurationFactory.PXF_SESSION_USER_PROPERTY),
+                configuration.getBoolean(FileInputFormat.INPUT_DIR_RECURSIVE, false),
+                Arrays.toString(paths));
+
+        long[] modificationTimes = getModificationTimes(configuration, paths);
+        if (modificationTimes == null) {
+            // the paths do not exist (yet), let the lister report the error
+            return lister.list();
+        }
+
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null &&
+                ticker.read() - entry.createdNanos <= ttlNanos &&
+                Arrays.equals(entry.modificationTimes, modificationTimes)) {
+            LOG.debug("Using cached listing of {} files for {}", entry.files.length, key);
+            return entry.files.clone();
+        }
+
+        FileStatus[] files = lister.list();
+        cache.put(key, new Entry(modificationTimes, files.clone(), ticker.read()));
+        return files;
+    }
+
+    /**
+     * Removes all the cached listings.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /*
+     * Returns the modification times of the input paths, using -1 for glob
+     * patterns, or null if any of the paths does not exist.
+     */
+    private long[] getModificationTimes(Configuration configuration, Path[] paths) throws IOException {
+        long[] result = new long[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            if (PxfInputFormat.isGlob(paths[i])) {
+                result[i] = -1;
+                continue;
+            }
+            FileSystem fs = paths[i].getFileSystem(configuration);
+            try {
+                result[i] = fs.getFileStatus(paths[i]).getModificationTime();
+            } catch (FileNotFoundException e) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    private static class Entry {
+        final long[] modificationTimes;
+        final FileStatus[] files;
+        final long createdNanos;
+
+        Entry(long[] modificationTimes, FileStatus[] files, long createdNanos) {
+            this.modificationTimes = modificationTimes;
+            this.files = files;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
@@ -20,25 +20,39 @@ package org.greenplum.pxf.plugins.hdfs.utilities;
  */
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.compress.BZip2Codec;
 import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
 import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.LineRecordReader;
 import org.apache.parquet.hadoop.codec.CompressionCodecNotSupportedException;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.Fragment;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.utilities.FragmentMetadata;
 import org.greenplum.pxf.api.utilities.Utilities;
 import org.greenplum.pxf.plugins.hdfs.CodecFactory;
+import org.greenplum.pxf.plugins.hdfs.ReadAheadInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -48,6 +62,16 @@ public class HdfsUtilities {
 
     private static Logger LOG = LoggerFactory.getLogger(HdfsUtilities.class);
 
+    private static final String TEXT_RECORD_DELIMITER_PROPERTY = "textinputformat.record.delimiter";
+
+    /**
+     * The fragment metadata starts with the start, the length and the hosts
+     * of a split, optionally followed by a section starting with one of the
+     * tags below. Readers ignore the sections they don't know about.
+     */
+    static final byte COMBINED_SPLITS_TAG = 1;
+    static final byte NUMBER_OF_ROWS_TAG = 2;
+
     /**
      * Prepares byte serialization of a file split information (start, length,
      * hosts) using {@link ObjectOutputStream}.
@@ -81,6 +105,185 @@ public class HdfsUtilities {
         return byteArrayStream.toByteArray();
     }
 
+    /**
+     * Prepares byte serialization of a group of file splits that are read as
+     * a single fragment. The first split is serialized the same way as
+     * {@link #prepareFragmentMetadata(FileSplit)}, so readers that only know
+     * about single splits still see the first split, followed by the
+     * {@link #COMBINED_SPLITS_TAG}, the number of remaining splits and the
+     * path, start and length of each of them.
+     *
+     * @param splits the file splits in the fragment, the first split's path
+     *               is expected to be the fragment's source name
+     * @param hosts  the data node locations for the fragment
+     * @return byte serialization of the file splits
+     * @throws IOException if I/O errors occur while writing to the underlying
+     *                     stream
+     */
+    public static byte[] prepareFragmentMetadata(List<FileSplit> splits, String[] hosts)
+            throws IOException {
+
+        FileSplit first = splits.get(0);
+        ByteArrayOutputStream byteArrayStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectStream = new ObjectOutputStream(byteArrayStream)) {
+            objectStream.writeLong(first.getStart());
+            objectStream.writeLong(first.getLength());
+            objectStream.writeObject(hosts);
+            objectStream.writeByte(COMBINED_SPLITS_TAG);
+            objectStream.writeInt(splits.size() - 1);
+            for (FileSplit split : splits.subList(1, splits.size())) {
+                objectStream.writeUTF(split.getPath().toString());
+                objectStream.writeLong(split.getStart());
+                objectStream.writeLong(split.getLength());
+            }
+        }
+        return byteArrayStream.toByteArray();
+    }
+
+    /**
+     * Prepares byte serialization of a file split whose number of rows is
+     * known, as a range of stripes of an ORC file. The split is serialized
+     * the same way as {@link #prepareFragmentMetadata(long, long, String[])},
+     * followed by the {@link #NUMBER_OF_ROWS_TAG} and the number of rows.
+     *
+     * @param start        the file split start
+     * @param length       the file split length
+     * @param hosts        the data node locations for this split
+     * @param numberOfRows the number of rows of the split
+     * @return byte serialization of the file split
+     * @throws IOException if I/O errors occur while writing to the underlying
+     *                     stream
+     */
+    public static byte[] prepareFragmentMetadata(long start, long length, String[] hosts, long numberOfRows)
+            throws IOException {
+
+        ByteArrayOutputStream byteArrayStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectStream = new ObjectOutputStream(byteArrayStream)) {
+            objectStream.writeLong(start);
+            objectStream.writeLong(length);
+            objectStream.writeObject(hosts);
+            objectStream.writeByte(NUMBER_OF_ROWS_TAG);
+            objectStream.writeLong(numberOfRows);
+        }
+        return byteArrayStream.toByteArray();
+    }
+
+    /**
+     * Parses fragment metadata and returns the {@link FileSplit}s combined
+     * into the fragment after the first one, see
+     * {@link #prepareFragmentMetadata(List, String[])}. The list is empty
+     * for fragments made of a single split.
+     *
+     * @param requestContext request input data
+     * @return the additional file splits of the fragment
+     */
+    public static List<FileSplit> parseCombinedSplits(RequestContext requestContext) {
+        List<FileSplit> splits = new ArrayList<>();
+        try (ObjectInputStream objectStream =
+                     openFragmentMetadataSection(requestContext.getFragmentMetadata(), COMBINED_SPLITS_TAG)) {
+            if (objectStream == null) {
+                // a regular fragment with a single split
+                return splits;
+            }
+            int count = objectStream.readInt();
+            for (int i = 0; i < count; i++) {
+                Path path = new Path(objectStream.readUTF());
+                long start = objectStream.readLong();
+                long length = objectStream.readLong();
+                splits.add(new FileSplit(path, start, length, (String[]) null));
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Exception while reading expected fragment metadata", e);
+        }
+        return splits;
+    }
+
+    /**
+     * Parses fragment metadata and returns the number of rows of the
+     * fragment, see {@link #prepareFragmentMetadata(long, long, String[], long)}.
+     *
+     * @param requestContext request input data
+     * @return the number of rows, or -1 when the fragment does not carry it
+     */
+    public static long parseNumberOfRows(RequestContext requestContext) {
+        try (ObjectInputStream objectStream =
+                     openFragmentMetadataSection(requestContext.getFragmentMetadata(), NUMBER_OF_ROWS_TAG)) {
+            return objectStream == null ? -1 : objectStream.readLong();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Exception while reading expected fragment metadata", e);
+        }
+    }
+
+    /**
+     * Opens the fragment metadata and skips the start, the length and the
+     * hosts of the split. The stream is positioned after the tag of the
+     * section that follows them, when the tag is the expected one.
+     *
+     * @param metadata the fragment metadata
+     * @param tag      the tag of the expected section
+     * @return the stream positioned at the section, or null when the
+     * metadata has no section with the tag
+     * @throws IOException            if the metadata cannot be read
+     * @throws ClassNotFoundException if the hosts cannot be deserialized
+     */
+    private static ObjectInputStream openFragmentMetadataSection(byte[] metadata, byte tag)
+            throws IOException, ClassNotFoundException {
+        if (metadata == null) {
+            return null;
+        }
+        ObjectInputStream objectStream = new ObjectInputStream(new ByteArrayInputStream(metadata));
+        objectStream.readLong();
+        objectStream.readLong();
+        objectStream.readObject();
+        try {
+            if (objectStream.readByte() == tag) {
+                return objectStream;
+            }
+        } catch (EOFException e) {
+            // the metadata of a single split
+        }
+        objectStream.close();
+        return null;
+    }
+
+    /**
+     * Returns the locations of all the blocks of the file, with a single
+     * call to the filesystem, or without any call when the file was listed
+     * with its block locations.
+     *
+     * @param fs   the filesystem of the file
+     * @param file the status of the file
+     * @return the locations of the blocks of the file
+     * @throws IOException if the locations cannot be retrieved
+     */
+    public static BlockLocation[] getBlockLocations(FileSystem fs, FileStatus file) throws IOException {
+        if (file instanceof LocatedFileStatus) {
+            return ((LocatedFileStatus) file).getBlockLocations();
+        }
+        return fs.getFileBlockLocations(file, 0, file.getLen());
+    }
+
+    /**
+     * Returns the hosts of the block holding the middle of a range of a
+     * file, from the locations of the blocks of the file.
+     *
+     * @param locations the locations of the blocks of the file
+     * @param start     the start of the range
+     * @param length    the length of the range
+     * @return the hosts of the block, or {@link Fragment#HOSTS} when no
+     * block holds the middle of the range
+     * @throws IOException if the hosts of the block cannot be retrieved
+     */
+    public static String[] getHosts(BlockLocation[] locations, long start, long length) throws IOException {
+        long middle = start + length / 2;
+        for (BlockLocation location : locations) {
+            if (middle >= location.getOffset() && middle < location.getOffset() + location.getLength()) {
+                return location.getHosts();
+            }
+        }
+        return Fragment.HOSTS;
+    }
+
     /**
      * Parses fragment metadata and return matching {@link FileSplit}.
      *
@@ -93,6 +296,50 @@ public class HdfsUtilities {
                 metadata.getStart(), metadata.getEnd(), (String[]) null);
     }
 
+    /**
+     * Creates a {@link LineRecordReader} for the split that reads the file
+     * through a {@link ReadAheadInputStream} when read-ahead is enabled for
+     * the server. Files compressed with a splittable codec are read with the
+     * default LineRecordReader, which needs to position the compressed
+     * stream itself.
+     *
+     * @param configuration the configuration for the server
+     * @param split         the file split to read
+     * @return the record reader for the split
+     * @throws IOException if the file cannot be opened
+     */
+    public static LineRecordReader createLineRecordReader(Configuration configuration, FileSplit split)
+            throws IOException {
+        Path file = split.getPath();
+        CompressionCodec codec = new CompressionCodecFactory(configuration).getCodec(file);
+        if (!ReadAheadInputStream.isEnabled(configuration) || codec instanceof SplittableCompressionCodec) {
+            return new LineRecordReader(configuration, split);
+        }
+
+        // the delimiter of the records, as set for TextInputFormat
+        String delimiter = configuration.get(TEXT_RECORD_DELIMITER_PROPERTY);
+        byte[] recordDelimiter = delimiter == null ? null : delimiter.getBytes(StandardCharsets.UTF_8);
+
+        FSDataInputStream fileIn = file.getFileSystem(configuration).open(file);
+        if (codec != null) {
+            // files compressed with a non-splittable codec are read whole
+            return new LineRecordReader(
+                    codec.createInputStream(ReadAheadInputStream.wrap(fileIn, configuration)),
+                    0, Long.MAX_VALUE, configuration, recordDelimiter);
+        }
+
+        long start = split.getStart();
+        fileIn.seek(start);
+        LineRecordReader reader = new LineRecordReader(
+                ReadAheadInputStream.wrap(fileIn, configuration),
+                start, start + split.getLength(), configuration, recordDelimiter);
+        if (start != 0) {
+            // the first (partial) line belongs to the previous split
+            reader.next(reader.createKey(), reader.createValue());
+        }
+        return reader;
+    }
+
     /**
      * Validates that the destination file does not exist and creates parent directory, if missing.
      *
@@ -0,0 +1,243 @@
+package org.greenplum.pxf.plugins.hdfs.utilities;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.lang.StringUtils;
+import org.greenplum.pxf.api.UnsupportedTypeException;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helper methods for tables partitioned into {@code col=value} directories,
+ * the layout used by Hive and Spark. The values are escaped the way Hive
+ * escapes them, so that the directories written by PXF can be read by Hive
+ * and vice versa.
+ */
+public class PartitionUtilities {
+
+    public static final String PARTITION_BY_OPTION = "PARTITION_BY";
+
+    /**
+     * The directory name used by Hive for partitions with a null value.
+     */
+    public static final String DEFAULT_PARTITION_NAME = "__HIVE_DEFAULT_PARTITION__";
+
+    private static final EnumSet<DataType> SUPPORTED_TYPES = EnumSet.of(
+            DataType.BOOLEAN,
+            DataType.SMALLINT,
+            DataType.INTEGER,
+            DataType.BIGINT,
+            DataType.REAL,
+            DataType.FLOAT8,
+            DataType.NUMERIC,
+            DataType.TEXT,
+            DataType.VARCHAR,
+            DataType.BPCHAR,
+            DataType.DATE,
+            DataType.TIMESTAMP);
+
+    // From org.apache.hadoop.hive.common.FileUtils
+    private static final BitSet CHARS_TO_ESCAPE = new BitSet(128);
+
+    static {
+        for (char c = 0; c < ' '; c++) {
+            CHARS_TO_ESCAPE.set(c);
+        }
+        for (char c : new char[]{'\u007F', '"', '#', '%', '\'', '*', '/', ':', '=', '?', '\\', '{', '[', ']', '^'}) {
+            CHARS_TO_ESCAPE.set(c);
+        }
+    }
+
+    /**
+     * Returns the columns listed in the PARTITION_BY option, in the order of
+     * the option, or an empty list when the table is not partitioned.
+     *
+     * @param context the request context
+     * @return the partition columns
+     * @throws IllegalArgumentException if a column is not a column of the
+     *                                  table, or is listed more than once
+     * @throws UnsupportedTypeException if the type of a column cannot be
+     *                                  used to partition the table
+     */
+    public static List<ColumnDescriptor> getPartitionColumns(RequestContext context) {
+        String partitionBy = context.getOption(PARTITION_BY_OPTION);
+        if (StringUtils.isBlank(partitionBy)) {
+            return Collections.emptyList();
+        }
+
+        List<ColumnDescriptor> partitionColumns = new ArrayList<>();
+        for (String name : partitionBy.split(",")) {
+            String columnName = name.trim();
+            ColumnDescriptor partitionColumn = context.getTupleDescription().stream()
+                    .filter(c -> c.columnName().equalsIgnoreCase(columnName))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(String.format(
+                            "Column %s in %s is not a column of the table", columnName, PARTITION_BY_OPTION)));
+            if (partitionColumns.contains(partitionColumn)) {
+                throw new IllegalArgumentException(String.format(
+                        "Column %s is listed more than once in %s", columnName, PARTITION_BY_OPTION));
+            }
+            if (!SUPPORTED_TYPES.contains(partitionColumn.getDataType())) {
+                throw new UnsupportedTypeException(String.format(
+                        "Column %s of type %s cannot be used in %s", columnName,
+                        partitionColumn.columnTypeName(), PARTITION_BY_OPTION));
+            }
+            partitionColumns.add(partitionColumn);
+        }
+        return partitionColumns;
+    }
+
+    /**
+     * Returns the relative path of the partition directory for the given
+     * values, i.e. {@code year=2020/month=1}. Null and empty values map to the
+     * {@link #DEFAULT_PARTITION_NAME}, as they do in Hive.
+     *
+     * @param partitionColumns the partition columns
+     * @param values           the values of the partition columns, in the
+     *                         same order
+     * @return the relative path of the partition directory
+     */
+    public static String getPartitionPath(List<ColumnDescriptor> partitionColumns, List<String> values) {
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < partitionColumns.size(); i++) {
+            if (i > 0) {
+                path.append('/');
+            }
+            ColumnDescriptor column = partitionColumns.get(i);
+            String value = normalizeValue(column.getDataType(), values.get(i));
+            path.append(escapePathName(column.columnName().toLowerCase()))
+                    .append('=')
+                    .append(value == null || value.isEmpty() ? DEFAULT_PARTITION_NAME : escapePathName(value));
+        }
+        return path.toString();
+    }
+
+    /**
+     * Returns the same value for the text and the binary representations of
+     * a value: the text formats write booleans as t and f, and pad bpchar
+     * values with spaces.
+     *
+     * @param dataType the type of the partition column
+     * @param value    the value, may be null
+     * @return the value used in the partition directory name
+     */
+    public static String normalizeValue(DataType dataType, String value) {
+        if (value == null) {
+            return null;
+        }
+        switch (dataType) {
+            case BOOLEAN:
+                return "t".equals(value) ? "true" : "f".equals(value) ? "false" : value;
+            case BPCHAR:
+                return StringUtils.stripEnd(value, " ");
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Returns the partition values of the {@code col=value} directories in
+     * the given path, keyed by lower case column name. Null values are
+     * returned for the {@link #DEFAULT_PARTITION_NAME}. Path components that
+     * are not partition directories are ignored.
+     *
+     * @param relativePath the path of a file relative to the table directory
+     * @return the partition values of the path
+     */
+    public static Map<String, String> parsePartitionValues(String relativePath) {
+        Map<String, String> values = new HashMap<>();
+        String[] components = relativePath.split("/");
+        // the last component is the file name
+        for (int i = 0; i < components.length - 1; i++) {
+            int index = components[i].indexOf('=');
+            if (index <= 0) {
+                continue;
+            }
+            String value = unescapePathName(components[i].substring(index + 1));
+            values.put(unescapePathName(components[i].substring(0, index)).toLowerCase(),
+                    DEFAULT_PARTITION_NAME.equals(value) ? null : value);
+        }
+        return values;
+    }
+
+    /**
+     * Escapes the characters that are not allowed in a partition directory
+     * name as {@code %XX}.
+     *
+     * @param name the name to escape
+     * @return the escaped name
+     */
+    public static String escapePathName(String name) {
+        StringBuilder sb = null;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < CHARS_TO_ESCAPE.size() && CHARS_TO_ESCAPE.get(c)) {
+                if (sb == null) {
+                    sb = new StringBuilder(name.length() + 8).append(name, 0, i);
+                }
+                sb.append('%').append(String.format("%02X", (int) c));
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? name : sb.toString();
+    }
+
+    /**
+     * Reverts {@link #escapePathName(String)}.
+     *
+     * @param name the escaped name
+     * @return the unescaped name
+     */
+    public static String unescapePathName(String name) {
+        if (name.indexOf('%') < 0) {
+            return name;
+        }
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '%' && i + 2 < name.length()) {
+                int code = hexValue(name.charAt(i + 1)) * 16 + hexValue(name.charAt(i + 2));
+                if (code >= 0) {
+                    sb.append((char) code);
+                    i += 2;
+                    continue;
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static int hexValue(char c) {
+        int value = Character.digit(c, 16);
+        // keeps the sum of two digits negative when any digit is invalid
+        return value < 0 ? -256 : value;
+    }
+}
@@ -21,17 +21,33 @@ package org.greenplum.pxf.plugins.hdfs.utilities;
 
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.fs.RemoteIterator;
 import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.apache.hadoop.io.compress.SplittableCompressionCodec;
 import org.apache.hadoop.mapred.FileInputFormat;
 import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.InvalidInputException;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.RecordReader;
 import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapreduce.security.TokenCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * PxfInputFormat is not intended to read a specific format, hence it implements
@@ -39,9 +55,52 @@ import java.io.IOException;
  * FileInputFormat.getSplits from one point in PXF and get the splits which are
  * valid for the actual InputFormats, since all of them we use inherit
  * FileInputFormat but do not override getSplits.
+ * <p>
+ * Input paths are listed with {@value #LIST_STATUS_NUM_THREADS_PROPERTY}
+ * threads (defaults to the number of CPUs available). When an input
+ * directory of an object store is listed recursively, the files are streamed
+ * with {@link FileSystem#listFiles(Path, boolean)}, which object stores
+ * implement as a single flat listing instead of a directory tree walk. Other
+ * filesystems, as HDFS, walk the directory tree one directory at a time in
+ * {@link FileSystem#listFiles(Path, boolean)}, so their directories are
+ * listed by the parallel listing of {@link FileInputFormat}. Listings can be
+ * cached for {@value #LIST_STATUS_CACHE_TTL_PROPERTY} seconds, see
+ * {@link FileListingCache}.
  */
 public class PxfInputFormat extends FileInputFormat {
 
+    public static final String LIST_STATUS_NUM_THREADS_PROPERTY = "pxf.fs.list-status.num-threads";
+    public static final String LIST_STATUS_CACHE_TTL_PROPERTY = "pxf.fs.list-status.cache.ttl";
+
+    private static final Logger LOG = LoggerFactory.getLogger(PxfInputFormat.class);
+
+    // the schemes of the object stores that list all the files under a
+    // prefix in a single flat listing
+    private static final Set<String> FLAT_LISTING_SCHEMES = new HashSet<>(Arrays.asList(
+            "s3", "s3a", "s3n", "gs", "wasb", "wasbs", "abfs", "abfss", "adl"));
+
+    private final PathFilter fileFilter;
+
+    /**
+     * Constructs a PxfInputFormat that returns all the files of the input
+     * paths.
+     */
+    public PxfInputFormat() {
+        this(null);
+    }
+
+    /**
+     * Constructs a PxfInputFormat that only returns the files of the input
+     * paths accepted by the given filter, i.e. the files of the partition
+     * directories that match the query. The files are filtered before the
+     * splits are computed.
+     *
+     * @param fileFilter the filter of the files, or null to return all files
+     */
+    public PxfInputFormat(PathFilter fileFilter) {
+        this.fileFilter = fileFilter;
+    }
+
     @Override
     public RecordReader getRecordReader(InputSplit split,
                                         JobConf conf,
@@ -51,7 +110,108 @@ public class PxfInputFormat extends FileInputFormat {
 
     @Override
     public FileStatus[] listStatus(JobConf job) throws IOException {
-        return super.listStatus(job);
+        long ttlSeconds = job.getLong(LIST_STATUS_CACHE_TTL_PROPERTY, 0);
+        FileStatus[] files = ttlSeconds <= 0 ? doListStatus(job) :
+                FileListingCache.getInstance().getFileStatuses(job,
+                        getInputPaths(job), TimeUnit.SECONDS.toNanos(ttlSeconds), () -> doListStatus(job));
+        if (fileFilter == null) {
+            return files;
+        }
+        // the cache keeps the complete listing, filter the files of every query
+        FileStatus[] accepted = Arrays.stream(files)
+                .filter(file -> fileFilter.accept(file.getPath()))
+                .toArray(FileStatus[]::new);
+        LOG.debug("{} of {} files accepted by the file filter", accepted.length, files.length);
+        return accepted;
+    }
+
+    private FileStatus[] doListStatus(JobConf job) throws IOException {
+        Path[] dirs = getInputPaths(job);
+        boolean recursive = job.getBoolean(INPUT_DIR_RECURSIVE, false);
+        job.setInt(org.apache.hadoop.mapreduce.lib.input.FileInputFormat.LIST_STATUS_NUM_THREADS,
+                job.getInt(LIST_STATUS_NUM_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+
+        final long then = System.nanoTime();
+        FileStatus[] result = null;
+        if (recursive && dirs.length == 1 && !isGlob(dirs[0])) {
+            result = listFilesRecursively(job, dirs[0]);
+        }
+        if (result == null) {
+            result = super.listStatus(job);
+        }
+        // listing with multiple threads returns the files in the order the
+        // listings complete, sort the files so that the fragments are
+        // returned in the same order to every segment
+        Arrays.sort(result, Comparator.comparing(FileStatus::getPath));
+
+        LOG.debug("Listed {} files in {} ms", result.length,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - then));
+        return result;
+    }
+
+    /*
+     * Lists all the files under the given directory of an object store with
+     * a single flat listing, skipping hidden files and directories and the
+     * files rejected by the input path filter of the job, the same way
+     * FileInputFormat does. Returns null if the filesystem is not an object
+     * store or the path is not a directory.
+     */
+    private FileStatus[] listFilesRecursively(JobConf job, Path dir) throws IOException {
+        FileSystem fs = dir.getFileSystem(job);
+        String scheme = fs.getUri().getScheme();
+        if (scheme == null || !FLAT_LISTING_SCHEMES.contains(scheme.toLowerCase())) {
+            return null;
+        }
+        TokenCache.obtainTokensForNamenodes(job.getCredentials(), new Path[]{dir}, job);
+        FileStatus dirStatus;
+        try {
+            dirStatus = fs.getFileStatus(dir);
+        } catch (FileNotFoundException e) {
+            throw new InvalidInputException(Collections.singletonList(
+                    new IOException("Input path does not exist: " + dir)));
+        }
+        if (!dirStatus.isDirectory()) {
+            return null;
+        }
+
+        String root = dirStatus.getPath().toUri().getPath();
+        PathFilter inputFilter = getInputPathFilter(job);
+        List<FileStatus> result = new ArrayList<>();
+        RemoteIterator<LocatedFileStatus> iterator = fs.listFiles(dir, true);
+        while (iterator.hasNext()) {
+            LocatedFileStatus file = iterator.next();
+            if (!isHidden(root, file.getPath()) && (inputFilter == null || inputFilter.accept(file.getPath()))) {
+                result.add(file);
+            }
+        }
+        return result.toArray(new FileStatus[0]);
+    }
+
+    /*
+     * Returns true if any path component below the root starts with "_" or
+     * "." (i.e. _SUCCESS, .staging), the same rule FileInputFormat applies
+     */
+    private static boolean isHidden(String root, Path path) {
+        String relative = path.toUri().getPath();
+        if (relative.startsWith(root)) {
+            relative = relative.substring(root.length());
+        }
+        for (String component : relative.split(Path.SEPARATOR)) {
+            if (component.startsWith("_") || component.startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isGlob(Path path) {
+        String pathString = path.toString();
+        for (char c : new char[]{'*', '?', '[', '{', '\\'}) {
+            if (pathString.indexOf(c) >= 0) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
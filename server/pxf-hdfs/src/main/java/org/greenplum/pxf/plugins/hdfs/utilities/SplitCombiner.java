@@ -0,0 +1,149 @@
+package org.greenplum.pxf.plugins.hdfs.utilities;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.mapred.FileSplit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Packs small file splits into groups that are read as a single fragment,
+ * similar to Hadoop's CombineFileInputFormat. Splits that are at least as
+ * large as the target size are never combined. Smaller splits are grouped by
+ * the first host holding their data, so that splits sharing block locations
+ * end up in the same group, and are then packed in order until a group
+ * reaches the target size.
+ * <p>
+ * The result only depends on the order of the input splits, so every segment
+ * computing the groups for the same splits gets the same list.
+ */
+public class SplitCombiner {
+
+    private final long targetSize;
+
+    /**
+     * Constructs a SplitCombiner.
+     *
+     * @param targetSize the maximum size in bytes of a group of combined splits
+     */
+    public SplitCombiner(long targetSize) {
+        if (targetSize <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid combine target size %d : must be a positive integer", targetSize));
+        }
+        this.targetSize = targetSize;
+    }
+
+    /**
+     * Groups the given splits.
+     *
+     * @param splits the splits to combine
+     * @return the list of groups, each with at least one split
+     * @throws IOException when the locations of a split cannot be retrieved
+     */
+    public List<CombinedSplit> combine(List<FileSplit> splits) throws IOException {
+        List<CombinedSplit> result = new ArrayList<>();
+        Map<String, List<FileSplit>> splitsByHost = new TreeMap<>();
+
+        for (FileSplit split : splits) {
+            if (split.getLength() >= targetSize) {
+                result.add(new CombinedSplit(Collections.singletonList(split), split.getLocations()));
+                continue;
+            }
+            String[] locations = split.getLocations();
+            String host = (locations == null || locations.length == 0) ? "" : locations[0];
+            splitsByHost.computeIfAbsent(host, k -> new ArrayList<>()).add(split);
+        }
+
+        for (Map.Entry<String, List<FileSplit>> entry : splitsByHost.entrySet()) {
+            List<FileSplit> group = new ArrayList<>();
+            long groupSize = 0;
+            for (FileSplit split : entry.getValue()) {
+                if (!group.isEmpty() && groupSize + split.getLength() > targetSize) {
+                    result.add(newCombinedSplit(entry.getKey(), group));
+                    group = new ArrayList<>();
+                    groupSize = 0;
+                }
+                group.add(split);
+                groupSize += split.getLength();
+            }
+            if (!group.isEmpty()) {
+                result.add(newCombinedSplit(entry.getKey(), group));
+            }
+        }
+        return result;
+    }
+
+    /*
+     * The hosts of a group are the hosts that have data for all of its
+     * splits, or the host the splits were grouped by when there are none.
+     */
+    private CombinedSplit newCombinedSplit(String host, List<FileSplit> group) throws IOException {
+        Set<String> hosts = null;
+        for (FileSplit split : group) {
+            String[] locations = split.getLocations();
+            List<String> splitHosts = locations == null ? Collections.emptyList() : Arrays.asList(locations);
+            if (hosts == null) {
+                hosts = new LinkedHashSet<>(splitHosts);
+            } else {
+                hosts.retainAll(splitHosts);
+            }
+        }
+        if (hosts.isEmpty() && !host.isEmpty()) {
+            hosts.add(host);
+        }
+        return new CombinedSplit(group, hosts.toArray(new String[0]));
+    }
+
+    /**
+     * A group of splits that are read together.
+     */
+    public static class CombinedSplit {
+        private final List<FileSplit> splits;
+        private final String[] hosts;
+
+        CombinedSplit(List<FileSplit> splits, String[] hosts) {
+            this.splits = splits;
+            this.hosts = hosts;
+        }
+
+        /**
+         * @return the splits in this group
+         */
+        public List<FileSplit> getSplits() {
+            return splits;
+        }
+
+        /**
+         * @return the hosts with data for the splits in this group
+         */
+        public String[] getHosts() {
+            return hosts;
+        }
+    }
+}
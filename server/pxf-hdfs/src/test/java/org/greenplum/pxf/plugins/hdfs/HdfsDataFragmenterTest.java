@@ -1,23 +1,36 @@
 package org.greenplum.pxf.plugins.hdfs;
 
 import org.apache.hadoop.mapred.InvalidInputException;
+import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.Fragment;
 import org.greenplum.pxf.api.model.Fragmenter;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class HdfsDataFragmenterTest {
 
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testFragmenterReturnsListOfFiles() throws Exception {
         String path = this.getClass().getClassLoader().getResource("csv/").getPath();
@@ -88,4 +101,83 @@ public class HdfsDataFragmenterTest {
         assertNotNull(fragmentList);
         assertEquals(0, fragmentList.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFragmenterCombinesSmallFiles() throws Exception {
+        String path = this.getClass().getClassLoader().getResource("csv/").getPath();
+
+        RequestContext context = new RequestContext();
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.setProfileScheme("localfile");
+        context.setAccessor(LineBreakAccessor.class.getName());
+        context.addOption("COMBINE_FILES", "true");
+        context.setDataSource(path);
+
+        Fragmenter fragmenter = new HdfsDataFragmenter();
+        fragmenter.initialize(context);
+
+        List<Fragment> fragmentList = fragmenter.getFragments();
+        assertEquals(1, fragmentList.size());
+
+        context.setDataSource(fragmentList.get(0).getSourceName());
+        context.setFragmentMetadata(fragmentList.get(0).getMetadata());
+        assertEquals(2, HdfsUtilities.parseCombinedSplits(context).size());
+    }
+
+    @Test
+    public void testFragmenterIgnoresCombineForSingleSplitAccessor() throws Exception {
+        String path = this.getClass().getClassLoader().getResource("csv/").getPath();
+
+        RequestContext context = new RequestContext();
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.setProfileScheme("localfile");
+        context.setAccessor(ParquetFileAccessor.class.getName());
+        context.addOption("COMBINE_FILES", "true");
+        context.setDataSource(path);
+
+        Fragmenter fragmenter = new HdfsDataFragmenter();
+        fragmenter.initialize(context);
+
+        assertEquals(3, fragmenter.getFragments().size());
+    }
+
+    @Test
+    public void testFragmenterPrunesPartitionDirectories() throws Exception {
+        File root = temporaryFolder.newFolder("partitioned");
+        for (String file : new String[]{"year=2019/a.csv", "year=2020/b.csv", "year=2020/c.csv",
+                "year=__HIVE_DEFAULT_PARTITION__/d.csv"}) {
+            File data = new File(root, file);
+            assertTrue(data.getParentFile().mkdirs() || data.getParentFile().isDirectory());
+            Files.write(data.toPath(), "1,2020\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        columns.add(new ColumnDescriptor("year", DataType.INTEGER.getOID(), 1, "int4", null));
+
+        RequestContext context = new RequestContext();
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.setProfileScheme("localfile");
+        context.setDataSource(root.getAbsolutePath());
+        context.setTupleDescription(columns);
+        context.addOption("PARTITION_BY", "year");
+
+        Fragmenter fragmenter = new HdfsDataFragmenter();
+        fragmenter.initialize(context);
+        // the files of all the partitions are listed without a filter
+        assertEquals(4, fragmenter.getFragments().size());
+
+        // year = 2020
+        context.setFilterString("a1c23s4d2020o5");
+        fragmenter = new HdfsDataFragmenter();
+        fragmenter.initialize(context);
+        List<String> files = fragmenter.getFragments().stream()
+                .map(f -> new File(f.getSourceName()).getName())
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals("[b.csv, c.csv]", files.toString());
+    }
+}
@@ -4,12 +4,14 @@ import org.apache.hadoop.mapred.InvalidInputException;
 import org.greenplum.pxf.api.model.Fragment;
 import org.greenplum.pxf.api.model.Fragmenter;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
@@ -107,4 +109,46 @@ public class HdfsFileFragmenterTest {
         assertNotNull(fragmentList);
         assertEquals(0, fragmentList.size());
     }
+
+    @Test
+    public void testFragmenterCombinesSmallFiles() throws Exception {
+        String path = this.getClass().getClassLoader().getResource("csv/").getPath();
+
+        RequestContext context = new RequestContext();
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.setProfileScheme("localfile");
+        context.setAccessor(QuotedLineBreakAccessor.class.getName());
+        context.addOption("COMBINE_FILES", "true");
+        context.setDataSource(path);
+
+        Fragmenter fragmenter = new HdfsFileFragmenter();
+        fragmenter.initialize(context);
+
+        List<Fragment> fragmentList = fragmenter.getFragments();
+        assertEquals(1, fragmentList.size());
+        assertArrayEquals(new String[]{"localhost"}, fragmentList.get(0).getReplicas());
+
+        context.setDataSource(fragmentList.get(0).getSourceName());
+        context.setFragmentMetadata(fragmentList.get(0).getMetadata());
+        assertEquals(3, HdfsUtilities.parseCombinedSplits(context).size());
+    }
+
+    @Test
+    public void testFragmenterIgnoresCombineForSingleSplitAccessor() throws Exception {
+        String path = this.getClass().getClassLoader().getResource("csv/").getPath();
+
+        RequestContext context = new RequestContext();
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.setProfileScheme("localfile");
+        context.setAccessor(LineBreakAccessor.class.getName());
+        context.addOption("COMBINE_FILES", "true");
+        context.setDataSource(path);
+
+        Fragmenter fragmenter = new HdfsFileFragmenter();
+        fragmenter.initialize(context);
+
+        assertEquals(4, fragmenter.getFragments().size());
+    }
 }
@@ -0,0 +1,114 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.apache.hadoop.fs.Path;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HdfsPartitionFilterTest {
+
+    private static final Path P2019_EU = new Path("hdfs://namenode:8020/data/year=2019/region=eu/XID_0.csv");
+    private static final Path P2020_EU = new Path("hdfs://namenode:8020/data/year=2020/region=eu/XID_0.csv");
+    private static final Path P2020_US = new Path("hdfs://namenode:8020/data/year=2020/region=us/XID_0.csv");
+    private static final Path PNULL_US = new Path("hdfs://namenode:8020/data/year=__HIVE_DEFAULT_PARTITION__/region=us/XID_0.csv");
+    private static final Path UNPARTITIONED = new Path("hdfs://namenode:8020/data/XID_0.csv");
+
+    private RequestContext context;
+
+    @Before
+    public void setup() {
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        columns.add(new ColumnDescriptor("year", DataType.SMALLINT.getOID(), 1, "int2", null));
+        columns.add(new ColumnDescriptor("region", DataType.TEXT.getOID(), 2, "text", null));
+        context = new RequestContext();
+        context.setTupleDescription(columns);
+        context.addOption("PARTITION_BY", "year,region");
+    }
+
+    @Test
+    public void testNotPartitioned() {
+        context = new RequestContext();
+        assertNull(HdfsPartitionFilter.forContext(context));
+    }
+
+    @Test
+    public void testNoFilter() {
+        HdfsPartitionFilter filter = HdfsPartitionFilter.forContext(context);
+        assertFalse(filter.hasFilter());
+        assertTrue(filter.accept(P2019_EU));
+    }
+
+    @Test
+    public void testComparisons() {
+        // year = 2020
+        assertAccepted("a1c23s4d2020o5", false, true, true, false, true);
+        // year <> 2020
+        assertAccepted("a1c23s4d2020o6", true, false, false, false, true);
+        // year > 999, compared as numbers
+        assertAccepted("a1c23s3d999o2", true, true, true, false, true);
+        // year < 2020
+        assertAccepted("a1c23s4d2020o1", true, false, false, false, true);
+        // region >= 'f'
+        assertAccepted("a2c25s1dfo4", false, false, true, true, true);
+        // year IS NULL
+        assertAccepted("a1o8", false, false, false, true, true);
+        // year IS NOT NULL
+        assertAccepted("a1o9", true, true, true, false, true);
+        // region IN ('us', 'ca')
+        assertAccepted("a2m1009s2duss2dcao10", false, false, true, true, true);
+    }
+
+    @Test
+    public void testLogicalOperators() {
+        // year = 2020 AND region = 'eu'
+        assertAccepted("a1c23s4d2020o5a2c25s2deuo5l0", false, true, false, false, true);
+        // year = 2019 OR region = 'us'
+        assertAccepted("a1c23s4d2019o5a2c25s2duso5l1", true, false, true, true, true);
+    }
+
+    @Test
+    public void testNonPartitionColumns() {
+        // year = 2020 AND id = 1 prunes on the year
+        assertAccepted("a1c23s4d2020o5a0c23s1d1o5l0", false, true, true, false, true);
+        // year = 2020 OR id = 1 cannot prune
+        assertAccepted("a1c23s4d2020o5a0c23s1d1o5l1", true, true, true, true, true);
+    }
+
+    @Test
+    public void testNotIsNotPruned() {
+        // NOT (year = 2020 AND id = 1) matches rows in every partition
+        assertAccepted("a1c23s4d2020o5a0c23s1d1o5l0l2", true, true, true, true, true);
+        assertFalse(filter("a1c23s4d2020o5l2").hasFilter());
+    }
+
+    @Test
+    public void testInvalidFilterIsIgnored() {
+        assertFalse(filter("a1c23s4d2020").hasFilter());
+    }
+
+    private HdfsPartitionFilter filter(String filterString) {
+        context.setFilterString(filterString);
+        return HdfsPartitionFilter.forContext(context);
+    }
+
+    private void assertAccepted(String filterString, boolean p2019Eu, boolean p2020Eu, boolean p2020Us,
+                                boolean pNullUs, boolean unpartitioned) {
+        HdfsPartitionFilter filter = filter(filterString);
+        assertEquals(filterString, p2019Eu, filter.accept(P2019_EU));
+        assertEquals(filterString, p2020Eu, filter.accept(P2020_EU));
+        assertEquals(filterString, p2020Us, filter.accept(P2020_US));
+        assertEquals(filterString, pNullUs, filter.accept(PNULL_US));
+        assertEquals(filterString, unpartitioned, filter.accept(UNPARTITIONED));
+    }
+}
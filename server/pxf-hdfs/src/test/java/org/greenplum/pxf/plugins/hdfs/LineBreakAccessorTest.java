@@ -0,0 +1,71 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.greenplum.pxf.api.BadRecordException;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+public class LineBreakAccessorTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private LineBreakAccessor accessor;
+    private String path;
+
+    @Before
+    public void setup() {
+        path = temporaryFolder.getRoot().getAbsolutePath() + "/partitioned";
+        List<ColumnDescriptor> columnDescriptors = new ArrayList<>();
+        columnDescriptors.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        columnDescriptors.add(new ColumnDescriptor("region", DataType.TEXT.getOID(), 1, "text", null));
+
+        RequestContext context = new RequestContext();
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.setProfileScheme("localfile");
+        context.setDataSource(path);
+        context.setTransactionId("XID-XYZ-123456");
+        context.setSegmentId(0);
+        context.setFormat("CSV");
+        context.setTupleDescription(columnDescriptors);
+        context.addOption("PARTITION_BY", "region");
+
+        accessor = new LineBreakAccessor();
+        accessor.initialize(context);
+    }
+
+    @Test
+    public void testWritePartitionedByColumn() throws Exception {
+        accessor.openForWrite();
+        accessor.writeNextObject(new OneRow(null, "1,eu\n".getBytes(StandardCharsets.UTF_8)));
+        accessor.closeForWrite();
+
+        assertTrue(new File(path, "region=eu").isDirectory());
+    }
+
+    @Test
+    public void testWriteRowMissingPartitionColumn() throws Exception {
+        expectedException.expect(BadRecordException.class);
+        expectedException.expectMessage("missing the value of partition column region");
+
+        accessor.openForWrite();
+        accessor.writeNextObject(new OneRow(null, "1\n".getBytes(StandardCharsets.UTF_8)));
+    }
+}
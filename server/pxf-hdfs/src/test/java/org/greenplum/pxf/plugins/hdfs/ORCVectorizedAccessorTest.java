@@ -0,0 +1,195 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.UnsupportedTypeException;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.io.TextBatchWritable;
+import org.greenplum.pxf.api.model.GreenplumCSV;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ORCVectorizedAccessorTest {
+
+    private static final int NUMBER_OF_ROWS = 30000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private RequestContext context;
+    private File file;
+
+    @Before
+    public void setup() throws Exception {
+        file = new File(temporaryFolder.getRoot(), "sales.orc");
+        writeOrcFile(file);
+
+        context = new RequestContext();
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.setTransactionId("XID-XYZ-123456");
+        context.setSegmentId(0);
+        context.setDataSource(file.getAbsolutePath());
+        context.setFragmentMetadata(HdfsUtilities.prepareFragmentMetadata(0, file.length(), new String[]{"localhost"}));
+        context.setTupleDescription(new ArrayList<>(Arrays.asList(
+                // the names are matched case insensitively
+                new ColumnDescriptor("ID", DataType.BIGINT.getOID(), 0, "int8", null),
+                new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null),
+                new ColumnDescriptor("sold", DataType.DATE.getOID(), 2, "date", null),
+                new ColumnDescriptor("missing", DataType.INTEGER.getOID(), 3, "int4", null))));
+    }
+
+    @Test
+    public void testReadAllRows() throws Exception {
+        List<List<OneField>> rows = readRows();
+
+        assertEquals(NUMBER_OF_ROWS, rows.size());
+        List<OneField> row = rows.get(12344);
+        assertEquals(12344L, row.get(0).val);
+        assertEquals("name12344", row.get(1).val);
+        assertEquals("2001-10-17", row.get(2).val);
+        // the column is not in the file
+        assertNull(row.get(3).val);
+        // the names of the odd rows are null
+        assertNull(rows.get(1).get(1).val);
+    }
+
+    @Test
+    public void testReadProjectedColumns() throws Exception {
+        context.getColumn(1).setProjected(false);
+        context.getColumn(2).setProjected(false);
+
+        List<List<OneField>> rows = readRows();
+
+        assertEquals(NUMBER_OF_ROWS, rows.size());
+        assertEquals(42L, rows.get(42).get(0).val);
+        assertNull(rows.get(42).get(1).val);
+        assertNull(rows.get(42).get(2).val);
+    }
+
+    @Test
+    public void testFilterSkipsRowGroups() throws Exception {
+        // id >= 25000
+        context.setFilterString("a0c20s5d25000o4");
+
+        List<List<OneField>> rows = readRows();
+
+        // the row groups of 10000 rows without ids >= 25000 are skipped, the
+        // rows of the matching row group are not filtered
+        assertEquals(10000, rows.size());
+        assertEquals(20000L, rows.get(0).get(0).val);
+    }
+
+    @Test
+    public void testReadSplitWithoutStripe() throws Exception {
+        // the only stripe starts before the split
+        context.setFragmentMetadata(HdfsUtilities.prepareFragmentMetadata(10, file.length() - 10, new String[]{"localhost"}));
+
+        assertEquals(0, readRows().size());
+    }
+
+    @Test
+    public void testSerializeBatch() throws Exception {
+        context.setFilterString("a0c20s5d29998o4");
+        ORCVectorizedAccessor accessor = new ORCVectorizedAccessor();
+        accessor.initialize(context);
+        accessor.openForRead();
+        ORCVectorizedResolver resolver = new ORCVectorizedResolver();
+        resolver.initialize(context);
+
+        TextBatchWritable batch = new TextBatchWritable(new int[]{
+                DataType.BIGINT.getOID(), DataType.TEXT.getOID(), DataType.DATE.getOID(), DataType.INTEGER.getOID()},
+                new GreenplumCSV());
+        OneRow row;
+        while ((row = accessor.readNextObject()) != null) {
+            resolver.serializeBatch(row, batch);
+        }
+        accessor.closeForRead();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        batch.write(new DataOutputStream(bytes));
+        String[] lines = new String(bytes.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(10000, lines.length);
+        assertEquals("29998,name29998,2050-02-16,", lines[9998]);
+        assertEquals("29999,,2050-02-17,", lines[9999]);
+    }
+
+    @Test(expected = UnsupportedTypeException.class)
+    public void testIncompatibleType() throws Exception {
+        context.getTupleDescription().set(1, new ColumnDescriptor("name", DataType.INTEGER.getOID(), 1, "int4", null));
+        ORCVectorizedAccessor accessor = new ORCVectorizedAccessor();
+        accessor.initialize(context);
+        accessor.openForRead();
+    }
+
+    private List<List<OneField>> readRows() throws Exception {
+        ORCVectorizedAccessor accessor = new ORCVectorizedAccessor();
+        accessor.initialize(context);
+        accessor.openForRead();
+        ORCVectorizedResolver resolver = new ORCVectorizedResolver();
+        resolver.initialize(context);
+
+        List<List<OneField>> rows = new ArrayList<>();
+        OneRow row;
+        while ((row = accessor.readNextObject()) != null) {
+            rows.addAll(resolver.getFieldsForBatch(row));
+        }
+        accessor.closeForRead();
+        return rows;
+    }
+
+    /*
+     * Writes a file with a single stripe, with increasing ids, a day per row
+     * from 1967-12-31, and null names for the odd ids.
+     */
+    private void writeOrcFile(File file) throws Exception {
+        TypeDescription schema = TypeDescription.fromString("struct<id:bigint,name:string,sold:date>");
+        Writer writer = OrcFile.createWriter(new Path(file.toURI()),
+                OrcFile.writerOptions(new Configuration()).setSchema(schema));
+        VectorizedRowBatch batch = schema.createRowBatch();
+        LongColumnVector id = (LongColumnVector) batch.cols[0];
+        BytesColumnVector name = (BytesColumnVector) batch.cols[1];
+        LongColumnVector sold = (LongColumnVector) batch.cols[2];
+        for (int i = 0; i < NUMBER_OF_ROWS; i++) {
+            int row = batch.size++;
+            id.vector[row] = i;
+            if (i % 2 == 0) {
+                name.setVal(row, ("name" + i).getBytes(StandardCharsets.UTF_8));
+            } else {
+                name.noNulls = false;
+                name.isNull[row] = true;
+            }
+            sold.vector[row] = i - 732;
+            if (batch.size == batch.getMaxSize()) {
+                writer.addRowBatch(batch);
+                batch.reset();
+            }
+        }
+        writer.addRowBatch(batch);
+        writer.close();
+    }
+}
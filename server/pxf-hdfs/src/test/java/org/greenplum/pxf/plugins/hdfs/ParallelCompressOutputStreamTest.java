@@ -0,0 +1,129 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.compress.BZip2Codec;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelCompressOutputStreamTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void isSupported() {
+        Configuration conf = new Configuration();
+        assertTrue(ParallelCompressOutputStream.isSupported(ReflectionUtils.newInstance(GzipCodec.class, conf)));
+        assertTrue(ParallelCompressOutputStream.isSupported(ReflectionUtils.newInstance(BZip2Codec.class, conf)));
+        assertFalse(ParallelCompressOutputStream.isSupported(ReflectionUtils.newInstance(DefaultCodec.class, conf)));
+        assertFalse(ParallelCompressOutputStream.isSupported(null));
+    }
+
+    @Test
+    public void writeGzipIsReadableByCodec() throws IOException {
+        testRoundTrip(GzipCodec.class);
+    }
+
+    @Test
+    public void writeBZip2IsReadableByCodec() throws IOException {
+        testRoundTrip(BZip2Codec.class);
+    }
+
+    @Test
+    public void writeAfterFinish() throws IOException {
+        thrown.expect(IOException.class);
+        thrown.expectMessage("Stream finished");
+
+        CompressionCodec codec = ReflectionUtils.newInstance(GzipCodec.class, new Configuration());
+        ParallelCompressOutputStream stream =
+                new ParallelCompressOutputStream(new ByteArrayOutputStream(), codec, 2, 16);
+        stream.finish();
+        stream.write(1);
+    }
+
+    @Test
+    public void failedWriteAbortsStream() throws IOException {
+        CompressionCodec codec = ReflectionUtils.newInstance(GzipCodec.class, new Configuration());
+        ParallelCompressOutputStream stream = new ParallelCompressOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        }, codec, 1, 16);
+
+        // one pool thread allows two pending blocks, the third block writes
+        // out the first one
+        try {
+            stream.write(new byte[16 * 4]);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+
+        // the stream has been aborted
+        thrown.expect(IOException.class);
+        thrown.expectMessage("Stream finished");
+        stream.write(1);
+    }
+
+    @Test
+    public void invalidPoolSize() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Invalid pool size 0");
+
+        CompressionCodec codec = ReflectionUtils.newInstance(GzipCodec.class, new Configuration());
+        new ParallelCompressOutputStream(new ByteArrayOutputStream(), codec, 0);
+    }
+
+    private void testRoundTrip(Class<? extends CompressionCodec> codecClass) throws IOException {
+        CompressionCodec codec = ReflectionUtils.newInstance(codecClass, new Configuration());
+
+        // small blocks and a small pool to force many concatenated streams
+        // and more blocks than the number of pending blocks allowed
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append(i).append(",row number ").append(i).append('\n');
+        }
+        byte[] expected = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelCompressOutputStream stream =
+                     new ParallelCompressOutputStream(compressed, codec, 3, 1000)) {
+            // write in uneven pieces to cross block boundaries
+            int offset = 0;
+            while (offset < expected.length) {
+                int len = Math.min(777, expected.length - offset);
+                stream.write(expected, offset, len);
+                offset += len;
+            }
+            stream.write('\n');
+        }
+
+        byte[] withNewline = new byte[expected.length + 1];
+        System.arraycopy(expected, 0, withNewline, 0, expected.length);
+        withNewline[expected.length] = '\n';
+
+        try (InputStream in = codec.createInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            assertArrayEquals(withNewline, IOUtils.toByteArray(in));
+        }
+    }
+}
@@ -1,17 +1,49 @@
 package org.greenplum.pxf.plugins.hdfs;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.HadoopReadOptions;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.compat.RowGroupFilter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.internal.column.columnindex.ColumnIndex;
+import org.apache.parquet.internal.column.columnindex.OffsetIndex;
 import org.apache.parquet.schema.MessageType;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.apache.parquet.filter2.predicate.FilterApi.eq;
+import static org.apache.parquet.filter2.predicate.FilterApi.gtEq;
+import static org.apache.parquet.filter2.predicate.FilterApi.intColumn;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class ParquetFileAccessorTest {
     ParquetFileAccessor accessor;
     RequestContext context;
     MessageType schema;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void setup() {
         accessor = new ParquetFileAccessor();
@@ -27,4 +59,223 @@ public class ParquetFileAccessorTest {
         assertNull(context.getMetadata());
     }
 
+    @Test
+    public void testWriteEmitsPageIndexes() throws Exception {
+        String path = temporaryFolder.getRoot().getAbsolutePath() + "/page_indexes";
+        List<ColumnDescriptor> columnDescriptors = new ArrayList<>();
+        columnDescriptors.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        columnDescriptors.add(new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null));
+        context.setTupleDescription(columnDescriptors);
+        context.setProfileScheme("localfile");
+        context.setDataSource(path);
+        context.setTransactionId("XID-XYZ-123456");
+        context.setSegmentId(0);
+        context.addOption("COMPRESSION_CODEC", "uncompressed");
+        context.addOption("PAGE_ROW_COUNT_LIMIT", "100");
+
+        accessor.initialize(context);
+        accessor.openForWrite();
+        ParquetResolver resolver = new ParquetResolver();
+        resolver.initialize(context);
+        for (int i = 0; i < 1000; i++) {
+            accessor.writeNextObject(resolver.setFields(Arrays.asList(
+                    new OneField(DataType.INTEGER.getOID(), i),
+                    new OneField(DataType.TEXT.getOID(), "row" + i))));
+        }
+        accessor.closeForWrite();
+
+        File[] files = new File(path).listFiles((dir, name) -> name.endsWith(".parquet"));
+        assertNotNull(files);
+        assertEquals(1, files.length);
+
+        Configuration configuration = new Configuration();
+        HadoopInputFile inputFile = HadoopInputFile.fromPath(new Path(files[0].getAbsolutePath()), configuration);
+        try (ParquetFileReader reader = ParquetFileReader.open(inputFile)) {
+            assertEquals(1, reader.getRowGroups().size());
+            for (ColumnChunkMetaData column : reader.getRowGroups().get(0).getColumns()) {
+                ColumnIndex columnIndex = reader.readColumnIndex(column);
+                OffsetIndex offsetIndex = reader.readOffsetIndex(column);
+                assertNotNull(columnIndex);
+                assertNotNull(offsetIndex);
+                // the row count limit splits the columns in several pages
+                assertTrue(offsetIndex.getPageCount() > 1);
+                assertEquals(offsetIndex.getPageCount(), columnIndex.getMinValues().size());
+            }
+        }
+
+        // the pages of the row group without ids >= 950 are not read
+        HadoopReadOptions options = HadoopReadOptions.builder(configuration)
+                .withRecordFilter(FilterCompat.get(gtEq(intColumn("id"), 950)))
+                .build();
+        try (ParquetFileReader reader = ParquetFileReader.open(inputFile, options)) {
+            PageReadStore pages = reader.readNextFilteredRowGroup();
+            assertNotNull(pages);
+            assertTrue(pages.getRowCount() >= 50);
+            assertTrue(pages.getRowCount() < 1000);
+        }
+    }
+
+    @Test
+    public void testWriteEmitsBloomFilters() throws Exception {
+        String path = temporaryFolder.getRoot().getAbsolutePath() + "/bloom_filters";
+        List<ColumnDescriptor> columnDescriptors = new ArrayList<>();
+        columnDescriptors.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        columnDescriptors.add(new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null));
+        context.setTupleDescription(columnDescriptors);
+        context.setProfileScheme("localfile");
+        context.setDataSource(path);
+        context.setTransactionId("XID-XYZ-123456");
+        context.setSegmentId(0);
+        context.addOption("COMPRESSION_CODEC", "uncompressed");
+        // the ids do not fit in the dictionary
+        context.addOption("DICTIONARY_PAGE_SIZE", "1024");
+        context.addOption("BLOOM_FILTER_COLUMNS", "ID");
+
+        accessor.initialize(context);
+        accessor.openForWrite();
+        ParquetResolver resolver = new ParquetResolver();
+        resolver.initialize(context);
+        // the ids are even
+        for (int i = 0; i < 1000; i++) {
+            accessor.writeNextObject(resolver.setFields(Arrays.asList(
+                    new OneField(DataType.INTEGER.getOID(), i * 2),
+                    new OneField(DataType.TEXT.getOID(), "row" + i))));
+        }
+        accessor.closeForWrite();
+
+        File[] files = new File(path).listFiles((dir, name) -> name.endsWith(".parquet"));
+        assertNotNull(files);
+        assertEquals(1, files.length);
+
+        HadoopInputFile inputFile = HadoopInputFile.fromPath(new Path(files[0].getAbsolutePath()), new Configuration());
+        try (ParquetFileReader reader = ParquetFileReader.open(inputFile)) {
+            List<BlockMetaData> rowGroups = reader.getRowGroups();
+            assertEquals(1, rowGroups.size());
+            List<ColumnChunkMetaData> columns = rowGroups.get(0).getColumns();
+            assertNotNull(reader.readBloomFilter(columns.get(0)));
+            assertNull(reader.readBloomFilter(columns.get(1)));
+
+            // an odd id is within the statistics but not in the bloom filter
+            FilterCompat.Filter oddId = FilterCompat.get(eq(intColumn("id"), 999));
+            assertEquals(1, RowGroupFilter.filterRowGroups(
+                    Collections.singletonList(RowGroupFilter.FilterLevel.STATISTICS), oddId, rowGroups, reader).size());
+            assertEquals(0, RowGroupFilter.filterRowGroups(
+                    Collections.singletonList(RowGroupFilter.FilterLevel.BLOOMFILTER), oddId, rowGroups, reader).size());
+            FilterCompat.Filter evenId = FilterCompat.get(eq(intColumn("id"), 998));
+            assertEquals(1, RowGroupFilter.filterRowGroups(
+                    Collections.singletonList(RowGroupFilter.FilterLevel.BLOOMFILTER), evenId, rowGroups, reader).size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBloomFilterOnMissingColumn() throws Exception {
+        List<ColumnDescriptor> columnDescriptors = new ArrayList<>();
+        columnDescriptors.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        context.setTupleDescription(columnDescriptors);
+        context.setProfileScheme("localfile");
+        context.setDataSource(temporaryFolder.getRoot().getAbsolutePath() + "/bloom_filters");
+        context.setTransactionId("XID-XYZ-123456");
+        context.setSegmentId(0);
+        context.addOption("BLOOM_FILTER_COLUMNS", "id,missing");
+
+        accessor.initialize(context);
+        accessor.openForWrite();
+    }
+
+    @Test
+    public void testDecimalAndTimestampFiltersPruneRowGroups() throws Exception {
+        String path = temporaryFolder.getRoot().getAbsolutePath() + "/decimals";
+        List<ColumnDescriptor> columnDescriptors = new ArrayList<>();
+        columnDescriptors.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        columnDescriptors.add(new ColumnDescriptor("price", DataType.NUMERIC.getOID(), 1, "numeric", new Integer[]{5, 2}));
+        columnDescriptors.add(new ColumnDescriptor("tm", DataType.TIMESTAMP.getOID(), 2, "timestamp", null));
+        context.setTupleDescription(columnDescriptors);
+        context.setProfileScheme("localfile");
+        context.setDataSource(path);
+        context.setTransactionId("XID-XYZ-123456");
+        context.setSegmentId(0);
+        context.addOption("COMPRESSION_CODEC", "uncompressed");
+
+        accessor.initialize(context);
+        accessor.openForWrite();
+        ParquetResolver resolver = new ParquetResolver();
+        resolver.initialize(context);
+        // the prices are even cents from 0.00 to 0.18, over five days
+        for (int i = 0; i < 1000; i++) {
+            accessor.writeNextObject(resolver.setFields(Arrays.asList(
+                    new OneField(DataType.INTEGER.getOID(), i),
+                    new OneField(DataType.NUMERIC.getOID(), String.format("0.%02d", (i % 10) * 2)),
+                    new OneField(DataType.TIMESTAMP.getOID(), String.format("2020-01-0%d 12:00:00", i % 5 + 1)))));
+        }
+        accessor.closeForWrite();
+
+        File[] files = new File(path).listFiles((dir, name) -> name.endsWith(".parquet"));
+        assertNotNull(files);
+        assertEquals(1, files.length);
+
+        HadoopInputFile inputFile = HadoopInputFile.fromPath(new Path(files[0].getAbsolutePath()), new Configuration());
+        try (ParquetFileReader reader = ParquetFileReader.open(inputFile)) {
+            // price = 1.00 is above the maximum of the statistics
+            assertEquals(0, countRowGroups(reader, "a1c1700s4d1.00o5", RowGroupFilter.FilterLevel.STATISTICS));
+            // price = 0.05 is within the statistics but not in the dictionary
+            assertEquals(1, countRowGroups(reader, "a1c1700s4d0.05o5", RowGroupFilter.FilterLevel.STATISTICS));
+            assertEquals(0, countRowGroups(reader, "a1c1700s4d0.05o5", RowGroupFilter.FilterLevel.DICTIONARY));
+            assertEquals(1, countRowGroups(reader, "a1c1700s4d0.04o5", RowGroupFilter.FilterLevel.DICTIONARY));
+            // the dictionary filter keeps the row groups with the timestamp
+            assertEquals(1, countRowGroups(reader, "a2c1114s19d2020-01-03 12:00:00o5", RowGroupFilter.FilterLevel.DICTIONARY));
+            assertEquals(1, countRowGroups(reader, "a2c1114s19d2020-01-03 12:00:00o5", RowGroupFilter.FilterLevel.STATISTICS));
+        }
+    }
+
+    @Test
+    public void testWritePartitionedByColumn() throws Exception {
+        String path = temporaryFolder.getRoot().getAbsolutePath() + "/partitioned";
+        List<ColumnDescriptor> columnDescriptors = new ArrayList<>();
+        columnDescriptors.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        columnDescriptors.add(new ColumnDescriptor("region", DataType.TEXT.getOID(), 1, "text", null));
+        context.setTupleDescription(columnDescriptors);
+        context.setProfileScheme("localfile");
+        context.setDataSource(path);
+        context.setTransactionId("XID-XYZ-123456");
+        context.setSegmentId(0);
+        context.addOption("COMPRESSION_CODEC", "uncompressed");
+        context.addOption("PARTITION_BY", "region");
+        context.addOption("MAX_OPEN_PARTITIONS", "1");
+
+        accessor.initialize(context);
+        accessor.openForWrite();
+        ParquetResolver resolver = new ParquetResolver();
+        resolver.initialize(context);
+        String[] regions = {"eu", "us", "eu", null};
+        for (int i = 0; i < regions.length; i++) {
+            accessor.writeNextObject(resolver.setFields(Arrays.asList(
+                    new OneField(DataType.INTEGER.getOID(), i),
+                    new OneField(DataType.TEXT.getOID(), regions[i]))));
+        }
+        accessor.closeForWrite();
+
+        // a single writer is open at a time, eu is written to twice
+        assertEquals(Arrays.asList("XID-XYZ-123456_0.0.parquet", "XID-XYZ-123456_0_1.0.parquet"),
+                listFiles(new File(path, "region=eu")));
+        assertEquals(Arrays.asList("XID-XYZ-123456_0.0.parquet"), listFiles(new File(path, "region=us")));
+        assertEquals(Arrays.asList("XID-XYZ-123456_0.0.parquet"),
+                listFiles(new File(path, "region=__HIVE_DEFAULT_PARTITION__")));
+        // no file is written outside of the partition directories
+        assertEquals(0, listFiles(new File(path)).size());
+    }
+
+    private int countRowGroups(ParquetFileReader reader, String filterString, RowGroupFilter.FilterLevel level)
+            throws Exception {
+        MessageType schema = reader.getFooter().getFileMetaData().getSchema();
+        FilterCompat.Filter filter = ParquetFileAccessor.buildRecordFilter(filterString,
+                context.getTupleDescription(), ParquetFileAccessor.getOriginalFieldsMap(schema)).getRecordFilter();
+        return RowGroupFilter.filterRowGroups(Collections.singletonList(level), filter, reader.getRowGroups(), reader).size();
+    }
+
+    private List<String> listFiles(File directory) {
+        String[] names = directory.list((dir, name) -> name.endsWith(".parquet"));
+        assertNotNull(names);
+        Arrays.sort(names);
+        return Arrays.asList(names);
+    }
 }
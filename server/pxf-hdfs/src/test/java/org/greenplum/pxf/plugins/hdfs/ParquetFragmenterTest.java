@@ -0,0 +1,125 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.Fragmenter;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParquetFragmenterTest {
+
+    private RequestContext context;
+
+    @Before
+    public void setup() {
+        String path = Objects.requireNonNull(getClass().getClassLoader().getResource("parquet/parquet_types.parquet")).getPath();
+
+        List<ColumnDescriptor> columnDescriptors = new ArrayList<>();
+        columnDescriptors.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        columnDescriptors.add(new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null));
+        columnDescriptors.add(new ColumnDescriptor("cdate", DataType.DATE.getOID(), 2, "date", null));
+        columnDescriptors.add(new ColumnDescriptor("amt", DataType.FLOAT8.getOID(), 3, "float8", null));
+        columnDescriptors.add(new ColumnDescriptor("grade", DataType.TEXT.getOID(), 4, "text", null));
+        columnDescriptors.add(new ColumnDescriptor("b", DataType.BOOLEAN.getOID(), 5, "bool", null));
+        columnDescriptors.add(new ColumnDescriptor("tm", DataType.TIMESTAMP.getOID(), 6, "timestamp", null));
+
+        context = new RequestContext();
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.setProfileScheme("localfile");
+        context.setDataSource(path);
+        context.setTupleDescription(columnDescriptors);
+    }
+
+    @Test
+    public void testFragmentPerRowGroup() throws Exception {
+        List<Fragment> fragments = getFragments();
+
+        // parquet_types.parquet has a single row group
+        assertEquals(1, fragments.size());
+    }
+
+    @Test
+    public void testRowGroupsMatchingFilter() throws Exception {
+        // id <= 25
+        context.setFilterString("a0c23s2d25o3");
+        assertEquals(1, getFragments().size());
+    }
+
+    @Test
+    public void testRowGroupsPrunedByFilter() throws Exception {
+        // id > 25
+        context.setFilterString("a0c23s2d25o2");
+        assertEquals(0, getFragments().size());
+    }
+
+    @Test
+    public void testRowGroupsMatchingInFilter() throws Exception {
+        // id IN (1, 100)
+        context.setFilterString("a0m1007s1d1s3d100o10");
+        assertEquals(1, getFragments().size());
+    }
+
+    @Test
+    public void testRowGroupsPrunedByInFilter() throws Exception {
+        // id IN (100, 101)
+        context.setFilterString("a0m1007s3d100s3d101o10");
+        assertEquals(0, getFragments().size());
+    }
+
+    @Test
+    public void testRowGroupsPrunedByDictionary() throws Exception {
+        // grade = 'fair', between the min and max values of the column but
+        // not one of the values of its dictionary
+        context.setFilterString("a4c25s4dfairo5");
+        assertEquals(0, getFragments().size());
+    }
+
+    @Test
+    public void testRowGroupsPrunedByDateRange() throws Exception {
+        // cdate > '2019-12-25'
+        context.setFilterString("a2c1082s10d2019-12-25o2");
+        assertEquals(0, getFragments().size());
+    }
+
+    @Test
+    public void testRowGroupsMatchingINT96Filter() throws Exception {
+        // tm = '2013-07-23 21:00:00' in the server time zone, the dictionary
+        // of the INT96 column must not be used to prune row groups
+        String timestamp = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+                .format(Instant.parse("2013-07-24T04:00:00Z").atZone(ZoneId.systemDefault()));
+        context.setFilterString("a6c1114s19d" + timestamp + "o5");
+        assertEquals(1, getFragments().size());
+    }
+
+    @Test
+    public void testUnsupportedFilterIsNotPruned() throws Exception {
+        // name LIKE 'abc%' is not pushed down to parquet
+        context.setFilterString("a1c25s4dabc%o7");
+        assertEquals(1, getFragments().size());
+    }
+
+    @Test
+    public void testInvalidInputPathIgnored() throws Exception {
+        context.setDataSource("/tmp/non-existent-path-on-disk/*.parquet");
+        context.addOption("IGNORE_MISSING_PATH", "true");
+        assertEquals(0, getFragments().size());
+    }
+
+    private List<Fragment> getFragments() throws Exception {
+        Fragmenter fragmenter = new ParquetFragmenter();
+        fragmenter.initialize(context);
+        return fragmenter.getFragments();
+    }
+}
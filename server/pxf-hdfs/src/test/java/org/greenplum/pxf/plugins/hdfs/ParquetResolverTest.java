@@ -10,21 +10,23 @@ import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
 import org.apache.parquet.format.converter.ParquetMetadataConverter;
 import org.apache.parquet.hadoop.ParquetFileReader;
 import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.ConverterConsumer;
 import org.apache.parquet.io.MessageColumnIO;
 import org.apache.parquet.io.RecordReader;
 import org.apache.parquet.io.api.Binary;
 import org.apache.parquet.pig.convert.DecimalUtils;
-import org.apache.parquet.schema.DecimalMetadata;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
 import org.apache.parquet.schema.MessageType;
-import org.apache.parquet.schema.OriginalType;
 import org.apache.parquet.schema.PrimitiveType;
 import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
 import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.plugins.hdfs.parquet.ParquetTypeConverter;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetWriteSupport;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -133,8 +135,8 @@ public class ParquetResolverTest {
         assertNotNull(row);
         Object data = row.getData();
         assertNotNull(data);
-        assertTrue(data instanceof Group);
-        Group group = (Group) data;
+        assertTrue(data instanceof List);
+        Group group = writeRecord(data);
 
         // assert column values
         assertEquals("row1", group.getString(0, 0));
@@ -220,8 +222,8 @@ public class ParquetResolverTest {
         assertNotNull(row);
         Object data = row.getData();
         assertNotNull(data);
-        assertTrue(data instanceof Group);
-        Group group = (Group) data;
+        assertTrue(data instanceof List);
+        Group group = writeRecord(data);
         // assert value repetition count
         for (int i = 0; i < 16; i++) {
             assertEquals(0, group.getFieldRepetitionCount(i));
@@ -372,7 +374,7 @@ public class ParquetResolverTest {
     @Test
     public void testGetFields_Primitive_RepeatedString() throws IOException {
         List<Type> columns = new ArrayList<>();
-        columns.add(new PrimitiveType(Type.Repetition.REPEATED, PrimitiveTypeName.BINARY, "myString", OriginalType.UTF8));
+        columns.add(Types.primitive(PrimitiveTypeName.BINARY, Type.Repetition.REPEATED).as(LogicalTypeAnnotation.stringType()).named("myString"));
         schema = new MessageType("TestProtobuf.StringArray", columns);
         context.setMetadata(schema);
         context.setTupleDescription(getColumnDescriptorsFromSchema(schema));
@@ -535,26 +537,26 @@ public class ParquetResolverTest {
     private MessageType getParquetSchemaForPrimitiveTypes(Type.Repetition repetition, boolean readCase) {
         List<Type> fields = new ArrayList<>();
 
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.BINARY, "s1", OriginalType.UTF8));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.BINARY, "s2", OriginalType.UTF8));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.INT32, "n1", null));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.DOUBLE, "d1", null));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY, 16, "dc1", OriginalType.DECIMAL, new DecimalMetadata(38, 18), null));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.INT96, "tm", null));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.FLOAT, "f", null));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.INT64, "bg", null));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.BOOLEAN, "b", null));
+        fields.add(Types.primitive(PrimitiveTypeName.BINARY, repetition).as(LogicalTypeAnnotation.stringType()).named("s1"));
+        fields.add(Types.primitive(PrimitiveTypeName.BINARY, repetition).as(LogicalTypeAnnotation.stringType()).named("s2"));
+        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.INT32, "n1"));
+        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.DOUBLE, "d1"));
+        fields.add(Types.primitive(PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY, repetition).length(16).as(LogicalTypeAnnotation.decimalType(18, 38)).named("dc1"));
+        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.INT96, "tm"));
+        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.FLOAT, "f"));
+        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.INT64, "bg"));
+        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.BOOLEAN, "b"));
 
         // GPDB only has int16 and not int8 type, so for write tiny numbers int8 are still treated as shorts in16
-        OriginalType tinyType = readCase ? OriginalType.INT_8 : OriginalType.INT_16;
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.INT32, "tn", tinyType));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.INT32, "sml", OriginalType.INT_16));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.BINARY, "vc1", OriginalType.UTF8));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.BINARY, "c1", OriginalType.UTF8));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.BINARY, "bin", null));
+        LogicalTypeAnnotation tinyType = readCase ? LogicalTypeAnnotation.intType(8, true) : LogicalTypeAnnotation.intType(16, true);
+        fields.add(Types.primitive(PrimitiveTypeName.INT32, repetition).as(tinyType).named("tn"));
+        fields.add(Types.primitive(PrimitiveTypeName.INT32, repetition).as(LogicalTypeAnnotation.intType(16, true)).named("sml"));
+        fields.add(Types.primitive(PrimitiveTypeName.BINARY, repetition).as(LogicalTypeAnnotation.stringType()).named("vc1"));
+        fields.add(Types.primitive(PrimitiveTypeName.BINARY, repetition).as(LogicalTypeAnnotation.stringType()).named("c1"));
+        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.BINARY, "bin"));
 
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.INT96, "tmtz", null));
-        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.INT96, "tmtz2", null));
+        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.INT96, "tmtz"));
+        fields.add(new PrimitiveType(repetition, PrimitiveTypeName.INT96, "tmtz2"));
 
         return new MessageType("hive_schema", fields);
     }
@@ -601,10 +603,23 @@ public class ParquetResolverTest {
         return new MessageType(originalSchema.getName(), projectedFields);
     }
 
+    /*
+     * Writes the record set by the resolver to a Group, the way the
+     * ParquetFileAccessor writes it to the file.
+     */
+    @SuppressWarnings("unchecked")
+    private Group writeRecord(Object data) {
+        GroupRecordConverter converter = new GroupRecordConverter(schema);
+        ParquetWriteSupport writeSupport = new ParquetWriteSupport(schema);
+        writeSupport.prepareForWrite(new ConverterConsumer(converter.getRootConverter(), schema));
+        writeSupport.write((List<OneField>) data);
+        return converter.getCurrentRecord();
+    }
+
     private void testSetFields_RightTrimCharHelper(String varchar, String inputChar, String expectedChar) throws IOException {
         List<Type> typeFields = new ArrayList<>();
-        typeFields.add(new PrimitiveType(Type.Repetition.OPTIONAL, PrimitiveTypeName.BINARY, "vc1", OriginalType.UTF8));
-        typeFields.add(new PrimitiveType(Type.Repetition.OPTIONAL, PrimitiveTypeName.BINARY, "c1", OriginalType.UTF8));
+        typeFields.add(Types.primitive(PrimitiveTypeName.BINARY, Type.Repetition.OPTIONAL).as(LogicalTypeAnnotation.stringType()).named("vc1"));
+        typeFields.add(Types.primitive(PrimitiveTypeName.BINARY, Type.Repetition.OPTIONAL).as(LogicalTypeAnnotation.stringType()).named("c1"));
         schema = new MessageType("hive_schema", typeFields);
         context.setMetadata(schema);
 
@@ -624,8 +639,8 @@ public class ParquetResolverTest {
         assertNotNull(row);
         Object data = row.getData();
         assertNotNull(data);
-        assertTrue(data instanceof Group);
-        Group group = (Group) data;
+        assertTrue(data instanceof List);
+        Group group = writeRecord(data);
 
         // assert column values
         assertEquals(varchar, group.getString(0, 0));
@@ -0,0 +1,119 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.apache.hadoop.fs.Path;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PartitionedFileWriterTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final List<String> events = new ArrayList<>();
+
+    @Test
+    public void writesEachPartitionIntoItsDirectory() throws IOException {
+        PartitionedFileWriter<String> writer = newWriter(10);
+        writer.write("year=2019", "a");
+        writer.write("year=2020", "b");
+        writer.write("year=2019", "c");
+        writer.close();
+
+        // the writers are closed from the least to the most recently used
+        assertEquals("[open /tmp/data/year=2019/XID_1.txt, open /tmp/data/year=2020/XID_1.txt, " +
+                "close /tmp/data/year=2020/XID_1.txt, close /tmp/data/year=2019/XID_1.txt]", events.toString());
+        assertEquals(3, writer.getRecordsWritten());
+        assertEquals(2, writer.getFileCount());
+        assertEquals(2, writer.getPartitionCount());
+        assertEquals(0, writer.getEvictionCount());
+    }
+
+    @Test
+    public void closesLeastRecentlyUsedWriter() throws IOException {
+        PartitionedFileWriter<String> writer = newWriter(2);
+        writer.write("p=1", "a");
+        writer.write("p=2", "b");
+        // p=1 is now the most recently used partition
+        writer.write("p=1", "c");
+        writer.write("p=3", "d");
+        // p=2 was closed, its new files must not overwrite the first one
+        writer.write("p=2", "e");
+        writer.close();
+
+        assertEquals("[open /tmp/data/p=1/XID_1.txt, open /tmp/data/p=2/XID_1.txt, " +
+                "close /tmp/data/p=2/XID_1.txt, open /tmp/data/p=3/XID_1.txt, " +
+                "close /tmp/data/p=1/XID_1.txt, open /tmp/data/p=2/XID_1_1.txt, " +
+                "close /tmp/data/p=3/XID_1.txt, close /tmp/data/p=2/XID_1_1.txt]", events.toString());
+        assertEquals(5, writer.getRecordsWritten());
+        assertEquals(4, writer.getFileCount());
+        assertEquals(3, writer.getPartitionCount());
+        assertEquals(2, writer.getEvictionCount());
+    }
+
+    @Test
+    public void noFileWhenNothingIsWritten() throws IOException {
+        PartitionedFileWriter<String> writer = newWriter(2);
+        writer.close();
+
+        assertEquals(0, events.size());
+        assertEquals(0, writer.getFileCount());
+    }
+
+    @Test
+    public void maxOpenPartitionsFromOption() {
+        RequestContext context = new RequestContext();
+        assertEquals(PartitionedFileWriter.DEFAULT_MAX_OPEN_PARTITIONS,
+                PartitionedFileWriter.getMaxOpenPartitions(context));
+
+        context.addOption("MAX_OPEN_PARTITIONS", "4");
+        assertEquals(4, PartitionedFileWriter.getMaxOpenPartitions(context));
+    }
+
+    @Test
+    public void invalidMaxOpenPartitions() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Property MAX_OPEN_PARTITIONS has incorrect value 0 : must be a positive integer");
+
+        newWriter(0);
+    }
+
+    private PartitionedFileWriter<String> newWriter(int maxOpenPartitions) {
+        return new PartitionedFileWriter<>("/tmp/data/XID_1", maxOpenPartitions, TestWriter::new);
+    }
+
+    private class TestWriter extends RollingFileWriter<String> {
+        private Path file;
+
+        TestWriter(String filePrefix) {
+            super(filePrefix, ".txt", 100);
+        }
+
+        @Override
+        protected void open(Path file) {
+            this.file = file;
+            events.add("open " + file);
+        }
+
+        @Override
+        protected void append(String record) {
+        }
+
+        @Override
+        protected long getFileSize() {
+            return 0;
+        }
+
+        @Override
+        protected void closeFile() {
+            events.add("close " + file);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReadAheadInputStreamTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileSystem fs;
+    private Path path;
+    private byte[] data;
+
+    @Before
+    public void setup() throws IOException {
+        fs = FileSystem.getLocal(new Configuration());
+        data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        File file = folder.newFile("data.bin");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        path = new Path(file.toURI());
+    }
+
+    @Test
+    public void readsWholeFile() throws IOException {
+        for (int depth = 1; depth <= 3; depth++) {
+            try (ReadAheadInputStream in = new ReadAheadInputStream(fs.open(path), 777, depth)) {
+                assertArrayEquals(data, IOUtils.toByteArray(in));
+                assertEquals(-1, in.read());
+                assertEquals(data.length, in.getPos());
+            }
+        }
+    }
+
+    @Test
+    public void readsSingleBytes() throws IOException {
+        try (ReadAheadInputStream in = new ReadAheadInputStream(fs.open(path), 100, 1)) {
+            for (int i = 0; i < 250; i++) {
+                assertEquals(data[i] & 0xff, in.read());
+            }
+            assertEquals(250, in.getPos());
+        }
+    }
+
+    @Test
+    public void startsAtSourcePosition() throws IOException {
+        FSDataInputStream source = fs.open(path);
+        source.seek(9000);
+        try (ReadAheadInputStream in = new ReadAheadInputStream(source, 300, 2)) {
+            assertEquals(9000, in.getPos());
+            assertArrayEquals(Arrays.copyOfRange(data, 9000, data.length), IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void seeksWithinAndOutsideBuffer() throws IOException {
+        try (ReadAheadInputStream in = new ReadAheadInputStream(fs.open(path), 100, 2)) {
+            assertEquals(data[0] & 0xff, in.read());
+            in.seek(50);
+            assertEquals(data[50] & 0xff, in.read());
+            in.seek(5000);
+            assertEquals(5000, in.getPos());
+            assertEquals(data[5000] & 0xff, in.read());
+            in.seek(10);
+            byte[] buffer = new byte[20];
+            IOUtils.readFully(in, buffer);
+            assertArrayEquals(Arrays.copyOfRange(data, 10, 30), buffer);
+        }
+    }
+
+    @Test
+    public void wrapWhenEnabled() throws IOException {
+        Configuration configuration = new Configuration();
+        FSDataInputStream source = fs.open(path);
+        assertFalse(ReadAheadInputStream.isEnabled(configuration));
+        assertSame(source, ReadAheadInputStream.wrap(source, configuration));
+
+        configuration.setInt(ReadAheadInputStream.DEPTH_PROPERTY, 2);
+        configuration.setInt(ReadAheadInputStream.BUFFER_SIZE_PROPERTY, 1000);
+        assertTrue(ReadAheadInputStream.isEnabled(configuration));
+        try (FSDataInputStream in = ReadAheadInputStream.wrap(source, configuration)) {
+            assertTrue(in.getWrappedStream() instanceof ReadAheadInputStream);
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void readAfterClose() throws IOException {
+        thrown.expect(IOException.class);
+        thrown.expectMessage("Stream closed");
+
+        ReadAheadInputStream in = new ReadAheadInputStream(fs.open(path), 100, 1);
+        in.close();
+        in.read();
+    }
+
+    @Test
+    public void failedReadIsNotSkipped() throws IOException {
+        // the read of the second buffer fails once, the source recovers after
+        FailingInputStream source = new FailingInputStream(data, 100);
+        try (ReadAheadInputStream in = new ReadAheadInputStream(new FSDataInputStream(source), 100, 2)) {
+            byte[] buffer = new byte[100];
+            IOUtils.readFully(in, buffer);
+            assertArrayEquals(Arrays.copyOfRange(data, 0, 100), buffer);
+
+            IOException failure = null;
+            for (int i = 0; i < 2; i++) {
+                try {
+                    in.read();
+                    fail("the failed read must be reported");
+                } catch (IOException e) {
+                    assertEquals("read failed at 100", e.getMessage());
+                    failure = failure == null ? e : failure;
+                    assertSame(failure, e);
+                }
+            }
+            assertEquals(100, in.getPos());
+        }
+    }
+
+    @Test
+    public void invalidDepth() throws IOException {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Invalid read-ahead depth 0");
+
+        new ReadAheadInputStream(fs.open(path), 100, 0);
+    }
+
+    /*
+     * A stream over a byte array whose read at the given position fails once.
+     */
+    private static class FailingInputStream extends FSInputStream {
+        private final byte[] data;
+        private final long failAt;
+        private boolean failed;
+        private int pos;
+
+        FailingInputStream(byte[] data, long failAt) {
+            this.data = data;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public void seek(long pos) {
+            this.pos = (int) pos;
+        }
+
+        @Override
+        public long getPos() {
+            return pos;
+        }
+
+        @Override
+        public boolean seekToNewSource(long targetPos) {
+            return false;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (pos == failAt && !failed) {
+                failed = true;
+                pos += len;
+                throw new IOException("read failed at " + failAt);
+            }
+            if (pos >= data.length) {
+                return -1;
+            }
+            int n = Math.min(len, data.length - pos);
+            System.arraycopy(data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.apache.hadoop.fs.Path;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RollingFileWriterTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void singleFileWhenBelowTargetSize() throws IOException {
+        TestWriter writer = new TestWriter(".gz", 100);
+        writer.write("abc");
+        writer.write("def");
+        writer.close();
+
+        assertEquals(1, writer.getFileCount());
+        assertEquals(2, writer.getRecordsWritten());
+        assertEquals("[/tmp/XID_1.gz]", writer.openedFiles.toString());
+        assertEquals(1, writer.closedFiles);
+    }
+
+    @Test
+    public void rollsFilesWhenTargetSizeReached() throws IOException {
+        TestWriter writer = new TestWriter(".avro", 5);
+        for (int i = 0; i < 7; i++) {
+            writer.write("abc");
+        }
+        writer.close();
+
+        // every second record reaches the target size of 5 bytes
+        assertEquals(4, writer.getFileCount());
+        assertEquals(7, writer.getRecordsWritten());
+        assertEquals("[/tmp/XID_1.avro, /tmp/XID_1.1.avro, /tmp/XID_1.2.avro, /tmp/XID_1.3.avro]",
+                writer.openedFiles.toString());
+        assertEquals(4, writer.closedFiles);
+    }
+
+    @Test
+    public void noFileWhenNothingIsWritten() throws IOException {
+        TestWriter writer = new TestWriter("", 5);
+        writer.close();
+
+        assertEquals(0, writer.getFileCount());
+        assertEquals(0, writer.closedFiles);
+    }
+
+    @Test
+    public void targetFileSizeFromOption() {
+        RequestContext context = new RequestContext();
+        assertEquals(RollingFileWriter.DEFAULT_FILE_SIZE, RollingFileWriter.getTargetFileSize(context));
+
+        context.addOption("FILE_SIZE", "1024");
+        assertEquals(1024, RollingFileWriter.getTargetFileSize(context));
+    }
+
+    @Test
+    public void invalidTargetFileSize() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Property FILE_SIZE has incorrect value 0 : must be a positive integer");
+
+        new TestWriter("", 0);
+    }
+
+    private static class TestWriter extends RollingFileWriter<String> {
+        List<Path> openedFiles = new ArrayList<>();
+        int closedFiles;
+        long size;
+
+        TestWriter(String extension, long targetFileSize) {
+            super("/tmp/XID_1", extension, targetFileSize);
+        }
+
+        @Override
+        protected void open(Path file) {
+            openedFiles.add(file);
+            size = 0;
+        }
+
+        @Override
+        protected void append(String record) {
+            size += record.length();
+        }
+
+        @Override
+        protected long getFileSize() {
+            return size;
+        }
+
+        @Override
+        protected void closeFile() {
+            closedFiles++;
+        }
+    }
+}
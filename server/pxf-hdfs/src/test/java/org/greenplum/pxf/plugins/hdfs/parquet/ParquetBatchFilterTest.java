@@ -0,0 +1,121 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Statistics;
+import org.apache.parquet.filter2.predicate.UserDefinedPredicate;
+import org.apache.parquet.hadoop.metadata.ColumnPath;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import static org.apache.parquet.filter2.predicate.FilterApi.and;
+import static org.apache.parquet.filter2.predicate.FilterApi.binaryColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.eq;
+import static org.apache.parquet.filter2.predicate.FilterApi.gt;
+import static org.apache.parquet.filter2.predicate.FilterApi.gtEq;
+import static org.apache.parquet.filter2.predicate.FilterApi.intColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.lt;
+import static org.apache.parquet.filter2.predicate.FilterApi.ltEq;
+import static org.apache.parquet.filter2.predicate.FilterApi.not;
+import static org.apache.parquet.filter2.predicate.FilterApi.notEq;
+import static org.apache.parquet.filter2.predicate.FilterApi.or;
+import static org.apache.parquet.filter2.predicate.FilterApi.userDefined;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ParquetBatchFilterTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private MessageType schema;
+    private Object[][] columns;
+
+    @Before
+    public void setup() {
+        schema = MessageTypeParser.parseMessageType(
+                "message test { optional int32 id; optional binary name (UTF8); }");
+        columns = new Object[][]{
+                {1, 2, null, 4},
+                {Binary.fromString("a"), null, Binary.fromString("c"), Binary.fromString("d")}
+        };
+    }
+
+    @Test
+    public void testComparisons() {
+        assertSelection(eq(intColumn("id"), 2), false, true, false, false);
+        assertSelection(notEq(intColumn("id"), 2), true, false, true, true);
+        assertSelection(lt(intColumn("id"), 2), true, false, false, false);
+        assertSelection(ltEq(intColumn("id"), 2), true, true, false, false);
+        assertSelection(gt(intColumn("id"), 2), false, false, false, true);
+        assertSelection(gtEq(intColumn("id"), 2), false, true, false, true);
+        assertSelection(gt(binaryColumn("name"), Binary.fromString("b")), false, false, true, true);
+    }
+
+    @Test
+    public void testNulls() {
+        assertSelection(eq(intColumn("id"), null), false, false, true, false);
+        assertSelection(notEq(binaryColumn("name"), null), true, false, true, true);
+    }
+
+    @Test
+    public void testLogicalOperators() {
+        assertSelection(and(gt(intColumn("id"), 1), notEq(binaryColumn("name"), null)),
+                false, false, false, true);
+        assertSelection(or(eq(intColumn("id"), 1), eq(binaryColumn("name"), Binary.fromString("c"))),
+                true, false, true, false);
+        assertSelection(not(lt(intColumn("id"), 2)), false, true, true, true);
+    }
+
+    @Test
+    public void testUserDefinedPredicate() {
+        FilterPredicate even = userDefined(intColumn("id"), new EvenPredicate());
+        assertSelection(even, false, true, false, true);
+        assertSelection(not(even), true, false, true, false);
+    }
+
+    @Test
+    public void testColumnPaths() {
+        FilterPredicate predicate = or(eq(intColumn("id"), 1),
+                and(not(eq(binaryColumn("name"), null)), gt(intColumn("id"), 0)));
+        assertEquals(new LinkedHashSet<>(Arrays.asList(ColumnPath.get("id"), ColumnPath.get("name"))),
+                ParquetBatchFilter.getColumnPaths(predicate));
+    }
+
+    @Test
+    public void testColumnNotInSchema() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Column other is not in the schema of the filter");
+        new ParquetBatchFilter(eq(intColumn("other"), 1), schema).evaluate(columns, 4);
+    }
+
+    private void assertSelection(FilterPredicate predicate, boolean... expected) {
+        assertArrayEquals(expected, new ParquetBatchFilter(predicate, schema).evaluate(columns, 4));
+    }
+
+    private static class EvenPredicate extends UserDefinedPredicate<Integer> implements Serializable {
+
+        @Override
+        public boolean keep(Integer value) {
+            return value != null && value % 2 == 0;
+        }
+
+        @Override
+        public boolean canDrop(Statistics<Integer> statistics) {
+            return false;
+        }
+
+        @Override
+        public boolean inverseCanDrop(Statistics<Integer> statistics) {
+            return false;
+        }
+    }
+}
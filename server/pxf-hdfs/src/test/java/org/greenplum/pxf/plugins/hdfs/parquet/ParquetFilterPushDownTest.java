@@ -2,6 +2,7 @@ package org.greenplum.pxf.plugins.hdfs.parquet;
 
 import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.ReadVectorizedResolver;
 import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.Accessor;
 import org.greenplum.pxf.api.model.Fragment;
@@ -20,6 +21,8 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -84,6 +87,35 @@ public class ParquetFilterPushDownTest extends ParquetBaseTest {
         assertRowsReturned(ALL);
     }
 
+    @Test
+    public void testNoFilterInSmallBatches() throws Exception {
+        // all rows are expected, in batches of at most 10 rows
+        context.addOption("BATCH_SIZE", "10");
+        assertRowsReturned(ALL);
+
+        assertTrue(accessor.openForRead());
+        int batches = 0;
+        OneRow oneRow;
+        while ((oneRow = accessor.readNextObject()) != null) {
+            assertTrue(oneRow.getData() instanceof ParquetColumnBatch);
+            assertTrue(((ParquetColumnBatch) oneRow.getData()).size() <= 10);
+            batches++;
+        }
+        accessor.closeForRead();
+        assertEquals(3, batches);
+    }
+
+    @Test
+    public void testNoFilterWithProjectedColumns() throws Exception {
+        List<ColumnDescriptor> columnDescriptors = context.getTupleDescription();
+        columnDescriptors.forEach(d -> d.setProjected(false));
+        columnDescriptors.get(1).setProjected(true);
+        columnDescriptors.get(8).setProjected(true);
+        columnDescriptors.get(13).setProjected(true);
+
+        assertRowsReturned(ALL);
+    }
+
     @Test
     public void testIdPushDown() throws Exception {
 
@@ -96,6 +128,38 @@ public class ParquetFilterPushDownTest extends ParquetBaseTest {
         }
     }
 
+    @Test
+    public void testFilterInSmallBatches() throws Exception {
+        // id > 20, the first two batches of 10 rows have no match
+        context.addOption("BATCH_SIZE", "10");
+        context.setFilterString("a0c23s2d20o2");
+        assertRowsReturned(new int[]{21, 22, 23, 24, 25});
+
+        assertTrue(accessor.openForRead());
+        List<Integer> batchSizes = new ArrayList<>();
+        OneRow oneRow;
+        while ((oneRow = accessor.readNextObject()) != null) {
+            assertTrue(oneRow.getData() instanceof ParquetColumnBatch);
+            batchSizes.add(((ParquetColumnBatch) oneRow.getData()).size());
+        }
+        accessor.closeForRead();
+        assertEquals(Collections.singletonList(5), batchSizes);
+    }
+
+    @Test
+    public void testFilterOnColumnNotProjectedInSmallBatches() throws Exception {
+        List<ColumnDescriptor> columnDescriptors = context.getTupleDescription();
+        columnDescriptors.forEach(d -> d.setProjected(false));
+        columnDescriptors.get(1).setProjected(true);
+        columnDescriptors.get(13).setProjected(true);
+
+        // grade = 'bad' OR amt IS NULL, matching rows on both sides of the
+        // batch boundaries
+        context.addOption("BATCH_SIZE", "7");
+        context.setFilterString("a4c25s3dbado5a3o8l1");
+        assertRowsReturned(new int[]{6, 8, 10, 14, 16, 18, 24});
+    }
+
     @Test
     public void testIdPushDownWithProjectedColumns() throws Exception {
         List<ColumnDescriptor> columnDescriptors = context.getTupleDescription();
@@ -641,47 +705,86 @@ public class ParquetFilterPushDownTest extends ParquetBaseTest {
     }
 
     @Test
-    public void testUnsupportedINT96Filter() throws Exception {
+    public void testINT96Filter() throws Exception {
+        // the timestamps are stored in UTC and compared in the server time zone
+        String timestamp = toServerTimestamp("2013-07-24T04:00:00Z");
+
         // tm = '2013-07-23 21:00:00'
-        context.setFilterString("a6c1114s19d2013-07-23 21:00:00o5");
-        // all rows are expected
-        assertRowsReturned(ALL);
+        context.setFilterString("a6c1114s19d" + timestamp + "o5");
+        assertRowsReturned(new int[]{11, 12, 13, 14, 17, 18, 19, 20, 21, 22, 23, 24, 25});
+
+        // tm >= '2013-07-23 21:00:00'
+        context.setFilterString("a6c1114s19d" + timestamp + "o4");
+        assertRowsReturned(new int[]{11, 12, 13, 14, 15, 17, 18, 19, 20, 21, 22, 23, 24, 25});
+
+        // tm < '2013-07-15 21:00:00'
+        context.setFilterString("a6c1114s19d" + toServerTimestamp("2013-07-16T04:00:00Z") + "o1");
+        assertRowsReturned(new int[]{1, 2});
+
+        // tm IS NULL
+        context.setFilterString("a6o8");
+        assertRowsReturned(new int[]{16});
     }
 
     @Test
-    public void testUnsupportedFixedLenByteArrayFilter() throws Exception {
+    public void testFixedLenByteArrayFilter() throws Exception {
         // dec2 = 0
         context.setFilterString("a14c23s1d0o5");
-        // all rows are expected
-        assertRowsReturned(ALL);
+        assertRowsReturned(new int[]{1});
+
+        // dec2 > 555
+        context.setFilterString("a14c23s3d555o2");
+        assertRowsReturned(new int[]{6, 10, 21});
+
+        // dec2 < -300.5
+        context.setFilterString("a14c1700s6d-300.5o1");
+        assertRowsReturned(new int[]{7, 11});
+
+        // dec2 in (1, 8)
+        context.setFilterString("a14m1007s1d1s1d8o10");
+        assertRowsReturned(new int[]{8, 25});
     }
 
     @Test
-    public void testUnsupportedInOperationFilter() throws Exception {
+    public void testInOperationFilter() throws Exception {
         // a16 in (11, 12)
         context.setFilterString("a16m1007s2d11s2d12o10");
-        // all rows are expected
-        assertRowsReturned(ALL);
+        assertRowsReturned(new int[]{11, 12, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25});
+
+        // grade in ('bad', 'ugly')
+        context.setFilterString("a4m1009s3dbads4duglyo10");
+        assertRowsReturned(new int[]{6, 8, 10, 16, 18, 24});
+
+        // a16 in (100, 101)
+        context.setFilterString("a16m1007s3d100s3d101o10");
+        assertRowsReturned(new int[]{});
+    }
+
+    private String toServerTimestamp(String instant) {
+        return DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+                .format(Instant.parse(instant).atZone(ZoneId.systemDefault()));
     }
 
     private void assertRowsReturned(int[] expectedRows) throws Exception {
         assertTrue(accessor.openForRead());
 
+        List<List<OneField>> rows = new ArrayList<>();
         OneRow oneRow;
-        for (int expectedRow : expectedRows) {
-            oneRow = accessor.readNextObject();
-            assertNotNull("Row " + expectedRow, oneRow);
-            List<OneField> fieldList = resolver.getFields(oneRow);
+        while ((oneRow = accessor.readNextObject()) != null) {
+            rows.addAll(((ReadVectorizedResolver) resolver).getFieldsForBatch(oneRow));
+        }
+        accessor.closeForRead();
+
+        assertEquals("Number of rows", expectedRows.length, rows.size());
+        for (int i = 0; i < expectedRows.length; i++) {
+            int expectedRow = expectedRows[i];
+            List<OneField> fieldList = rows.get(i);
             assertNotNull("Row " + expectedRow, fieldList);
             assertEquals("Row " + expectedRow, 17, fieldList.size());
 
             assertTypes(fieldList);
             assertValues(fieldList, expectedRow - 1);
         }
-        oneRow = accessor.readNextObject();
-        assertNull("No more rows expected", oneRow);
-
-        accessor.closeForRead();
     }
 
     private void assertTypes(List<OneField> fieldList) {
@@ -0,0 +1,155 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.SeekableInputStream;
+import org.apache.parquet.schema.MessageType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ParquetFooterCacheTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private Configuration configuration;
+    private FileStatus file;
+    private ParquetFooterCache cache;
+
+    @Before
+    public void setup() throws IOException {
+        configuration = new Configuration();
+        Path path = new Path(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("parquet/parquet_types.parquet")).getPath());
+        file = FileSystem.getLocal(configuration).getFileStatus(path);
+        cache = new ParquetFooterCache(ParquetFooterCache.MAX_CACHED_BYTES);
+    }
+
+    @Test
+    public void testFooterIsReadOnce() throws IOException {
+        MessageType schema;
+        try (ParquetFileReader reader = ParquetFileReader.open(cache.getInputFile(configuration, file))) {
+            schema = reader.getFooter().getFileMetaData().getSchema();
+            assertEquals(25, reader.getRecordCount());
+        }
+        try (ParquetFileReader reader = ParquetFileReader.open(cache.getInputFile(configuration, file))) {
+            assertEquals(schema, reader.getFooter().getFileMetaData().getSchema());
+            assertEquals(25, reader.getRecordCount());
+        }
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    public void testModifiedFileIsReadAgain() throws IOException {
+        cache.getInputFile(configuration, file);
+        FileStatus modified = new FileStatus(file.getLen(), false, file.getReplication(),
+                file.getBlockSize(), file.getModificationTime() + 1, file.getPath());
+        cache.getInputFile(configuration, modified);
+
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.stats().missCount());
+    }
+
+    @Test
+    public void testDisabledCache() throws IOException {
+        configuration.setBoolean(ParquetFooterCache.FOOTER_CACHE_ENABLED_PROPERTY, false);
+        try (ParquetFileReader reader = ParquetFileReader.open(cache.getInputFile(configuration, file))) {
+            assertEquals(25, reader.getRecordCount());
+        }
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFootersLargerThanTheCacheAreNotKept() throws IOException {
+        cache = new ParquetFooterCache(1);
+        try (ParquetFileReader reader = ParquetFileReader.open(cache.getInputFile(configuration, file))) {
+            assertEquals(25, reader.getRecordCount());
+        }
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testReadRecords() throws IOException {
+        InputFile inputFile = cache.getInputFile(configuration, file);
+        int count = 0;
+        try (ParquetReader<Group> reader = new GroupReaderBuilder(inputFile).withConf(configuration).build()) {
+            while (reader.read() != null) {
+                count++;
+            }
+        }
+        assertEquals(25, count);
+    }
+
+    @Test
+    public void testStreamReadsTheWholeFile() throws IOException {
+        byte[] expected = new byte[(int) file.getLen()];
+        try (SeekableInputStream stream = HadoopInputFile.fromStatus(file, configuration).newStream()) {
+            stream.readFully(expected);
+        }
+
+        InputFile inputFile = cache.getInputFile(configuration, file);
+        assertEquals(file.getLen(), inputFile.getLength());
+        try (SeekableInputStream stream = inputFile.newStream()) {
+            byte[] bytes = new byte[expected.length];
+            // read across the start of the cached footer
+            stream.readFully(bytes, 0, 10);
+            stream.readFully(ByteBuffer.wrap(bytes, 10, bytes.length - 10));
+            assertArrayEquals(expected, bytes);
+            assertEquals(-1, stream.read());
+
+            stream.seek(expected.length - 4);
+            assertEquals(expected[expected.length - 4], (byte) stream.read());
+            assertEquals(expected.length - 3, stream.getPos());
+        }
+    }
+
+    @Test
+    public void testNotAParquetFile() throws IOException {
+        Path path = new Path(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("parquet/parquet_types.csv")).getPath());
+        FileStatus csv = FileSystem.getLocal(configuration).getFileStatus(path);
+
+        thrown.expect(IOException.class);
+        thrown.expectMessage("is not a Parquet file");
+        cache.getInputFile(configuration, csv);
+    }
+
+    @Test
+    public void testSingleton() {
+        assertSame(ParquetFooterCache.getInstance(), ParquetFooterCache.getInstance());
+    }
+
+    private static class GroupReaderBuilder extends ParquetReader.Builder<Group> {
+
+        GroupReaderBuilder(InputFile file) {
+            super(file);
+        }
+
+        @Override
+        protected ReadSupport<Group> getReadSupport() {
+            return new GroupReadSupport();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.greenplum.pxf.plugins.hdfs.parquet;
 
+import org.apache.parquet.schema.MessageTypeParser;
 import org.greenplum.pxf.api.filter.ColumnIndexOperandNode;
 import org.greenplum.pxf.api.filter.FilterParser;
 import org.greenplum.pxf.api.filter.Node;
@@ -92,30 +93,49 @@ public class ParquetOperatorPrunerAndTransformerTest extends ParquetBaseTest {
     }
 
     @Test
-    public void testUnsupportedINT96Filter() throws Exception {
-        // tm = '2013-07-23 21:00:00' -> null
+    public void testINT96Filter() throws Exception {
+        // tm = '2013-07-23 21:00:00'
         Node result = helper("a6c1114s19d2013-07-23 21:00:00o5");
-        assertNull(result);
+        assertNotNull(result);
+        assertTrue(result instanceof OperatorNode);
+        OperatorNode operatorNode = (OperatorNode) result;
+        assertEquals(Operator.EQUALS, operatorNode.getOperator());
+        assertTrue(operatorNode.getLeft() instanceof ColumnIndexOperandNode);
+        assertEquals(6, ((ColumnIndexOperandNode) operatorNode.getLeft()).index());
+        assertTrue(operatorNode.getRight() instanceof OperandNode);
+        assertEquals("2013-07-23 21:00:00", operatorNode.getRight().toString());
 
-        // name = 'row2' and tm = '2013-07-23 21:00:00' -> name = 'row2'
-        result = helper("a1c25s4drow2o5a6c1114s19d2013-07-23 21:00:00o5l0");
+        // name = 'row2' or tm < '2013-07-23 21:00:00'
+        result = helper("a1c25s4drow2o5a6c1114s19d2013-07-23 21:00:00o1l1");
+        assertNotNull(result);
+        assertEquals(Operator.OR, ((OperatorNode) result).getOperator());
+    }
+
+    @Test
+    public void testFixedLenByteArrayDecimalFilter() throws Exception {
+        // dec2 = 0
+        Node result = helper("a14c23s1d0o5");
         assertNotNull(result);
         assertTrue(result instanceof OperatorNode);
         OperatorNode operatorNode = (OperatorNode) result;
         assertEquals(Operator.EQUALS, operatorNode.getOperator());
         assertTrue(operatorNode.getLeft() instanceof ColumnIndexOperandNode);
-        assertEquals(1, ((ColumnIndexOperandNode) operatorNode.getLeft()).index());
+        assertEquals(14, ((ColumnIndexOperandNode) operatorNode.getLeft()).index());
         assertTrue(operatorNode.getRight() instanceof OperandNode);
-        assertEquals("row2", operatorNode.getRight().toString());
+        assertEquals("0", operatorNode.getRight().toString());
 
-        // name = 'row2' or tm = '2013-07-23 21:00:00' -> null
-        result = helper("a1c25s4drow2o5a6c1114s19d2013-07-23 21:00:00o5l1");
-        assertNull(result);
+        // name = 'row2' or dec2 > 1.005
+        result = helper("a1c25s4drow2o5a14c1700s5d1.005o2l1");
+        assertNotNull(result);
+        assertEquals(Operator.OR, ((OperatorNode) result).getOperator());
     }
 
     @Test
     public void testUnsupportedFixedLenByteArrayFilter() throws Exception {
-        // dec2 = 0
+        originalFieldsMap.put("dec2", MessageTypeParser.parseMessageType(
+                "message m { optional fixed_len_byte_array(3) dec2; }").getType(0));
+
+        // dec2 = 0 on a fixed_len_byte_array that is not a decimal -> null
         Node result = helper("a14c23s1d0o5");
         assertNull(result);
 
@@ -136,10 +156,37 @@ public class ParquetOperatorPrunerAndTransformerTest extends ParquetBaseTest {
     }
 
     @Test
-    public void testUnsupportedInOperationFilter() throws Exception {
+    public void testINT32DecimalFilter() throws Exception {
+        originalFieldsMap.put("num1", MessageTypeParser.parseMessageType(
+                "message m { optional int32 num1 (DECIMAL(5,2)); }").getType(0));
+
+        // a16 = 1.5
+        assertNotNull(helper("a16c1700s3d1.5o5"));
+        // a16 in (1.5, 2.25)
+        assertNotNull(helper("a16m1009s3d1.5s4d2.25o10"));
+        // a16 = 1.005 has more fractional digits than the column -> null
+        assertNull(helper("a16c1700s5d1.005o5"));
+        // a16 in (1.5, 1.005) -> null
+        assertNull(helper("a16m1009s3d1.5s5d1.005o10"));
+        // a16 > 99999999999 overflows the column -> null
+        assertNull(helper("a16c1700s11d99999999999o2"));
+    }
+
+    @Test
+    public void testInOperationFilter() throws Exception {
         // a16 in (11, 12)
         Node result = helper("a16m1007s2d11s2d12o10");
-        assertNull(result);
+        assertNotNull(result);
+        assertTrue(result instanceof OperatorNode);
+        assertEquals(Operator.IN, ((OperatorNode) result).getOperator());
+    }
+
+    @Test
+    public void testInOperationFilterOnFixedLenByteArray() throws Exception {
+        // dec2 in (1, 2)
+        Node result = helper("a14m1007s1d1s1d2o10");
+        assertNotNull(result);
+        assertEquals(Operator.IN, ((OperatorNode) result).getOperator());
     }
 
     private Node helper(String filterString) throws Exception {
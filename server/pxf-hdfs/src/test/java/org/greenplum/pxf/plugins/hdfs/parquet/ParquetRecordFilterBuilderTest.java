@@ -1,11 +1,25 @@
 package org.greenplum.pxf.plugins.hdfs.parquet;
 
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.filter2.predicate.Statistics;
+import org.apache.parquet.filter2.predicate.UserDefinedPredicate;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.apache.parquet.schema.PrimitiveComparator;
 import org.greenplum.pxf.api.filter.FilterParser;
 import org.greenplum.pxf.api.filter.Node;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 public class ParquetRecordFilterBuilderTest extends ParquetBaseTest {
 
     @Rule
@@ -14,154 +28,183 @@ public class ParquetRecordFilterBuilderTest extends ParquetBaseTest {
     @Test
     public void testUnsupportedOperationError() throws Exception {
         thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("not supported IN");
+        thrown.expectMessage("not supported LIKE");
 
-        // a16 in (11, 12)
-        filterBuilderFromFilterString("a16m1007s2d11s2d12o10");
+        // name like 'row%'
+        filterBuilderFromFilterString("a1c25s4drow%o7");
     }
 
     @Test
-    public void testUnsupportedINT96EqualsFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column tm of type INT96 is not supported");
-
-        // tm = '2013-07-23 21:00:00'
-        filterBuilderFromFilterString("a6c1114s19d2013-07-23 21:00:00o5");
+    public void testInOperation() throws Exception {
+        // a16 in (11, 12)
+        ParquetRecordFilterBuilder filterBuilder = filterBuilderFromFilterString("a16m1007s2d11s2d12o10");
+        FilterCompat.Filter recordFilter = filterBuilder.getRecordFilter();
+        assertTrue(recordFilter instanceof FilterCompat.FilterPredicateCompat);
+        assertEquals("or(eq(num1, 11), eq(num1, 12))",
+                ((FilterCompat.FilterPredicateCompat) recordFilter).getFilterPredicate().toString());
     }
 
     @Test
-    public void testUnsupportedINT96LessThanFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column tm of type INT96 is not supported");
-
+    public void testINT96EqualsFilter() throws Exception {
         // tm = '2013-07-23 21:00:00'
-        filterBuilderFromFilterString("a6c1114s19d2013-07-23 21:00:00o1");
+        UserDefinedPredicate<Binary> predicate = getUserDefinedPredicate(
+                filterBuilderFromFilterString("a6c1114s19d2013-07-23 21:00:00o5"));
+        assertTrue(predicate.keep(ParquetTypeConverter.getBinaryFromTimestamp("2013-07-23 21:00:00")));
+        assertFalse(predicate.keep(ParquetTypeConverter.getBinaryFromTimestamp("2013-07-23 21:00:00.000001")));
+        assertFalse(predicate.keep(null));
     }
 
     @Test
-    public void testUnsupportedINT96GreaterThanFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column tm of type INT96 is not supported");
-
-        // tm = '2013-07-23 21:00:00'
-        filterBuilderFromFilterString("a6c1114s19d2013-07-23 21:00:00o2");
+    public void testINT96LessThanFilter() throws Exception {
+        // tm < '2013-07-23 21:00:00'
+        UserDefinedPredicate<Binary> predicate = getUserDefinedPredicate(
+                filterBuilderFromFilterString("a6c1114s19d2013-07-23 21:00:00o1"));
+        // the day is compared before the time of the day
+        assertTrue(predicate.keep(ParquetTypeConverter.getBinaryFromTimestamp("2013-07-22 23:00:00")));
+        assertFalse(predicate.keep(ParquetTypeConverter.getBinaryFromTimestamp("2013-07-23 21:00:00")));
+        assertFalse(predicate.keep(ParquetTypeConverter.getBinaryFromTimestamp("2013-07-24 01:00:00")));
     }
 
     @Test
-    public void testUnsupportedINT96LessThanOrEqualsFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column tm of type INT96 is not supported");
-
-        // tm = '2013-07-23 21:00:00'
-        filterBuilderFromFilterString("a6c1114s19d2013-07-23 21:00:00o3");
+    public void testINT96GreaterThanOrEqualsFilter() throws Exception {
+        // tm >= '2013-07-23 21:00:00'
+        UserDefinedPredicate<Binary> predicate = getUserDefinedPredicate(
+                filterBuilderFromFilterString("a6c1114s19d2013-07-23 21:00:00o4"));
+        assertFalse(predicate.keep(ParquetTypeConverter.getBinaryFromTimestamp("2013-07-22 23:00:00")));
+        assertTrue(predicate.keep(ParquetTypeConverter.getBinaryFromTimestamp("2013-07-23 21:00:00")));
+        assertTrue(predicate.keep(ParquetTypeConverter.getBinaryFromTimestamp("2013-07-24 01:00:00")));
     }
 
     @Test
-    public void testUnsupportedINT96GreaterThanOrEqualsFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column tm of type INT96 is not supported");
-
+    public void testINT96FilterIgnoresStatistics() throws Exception {
         // tm = '2013-07-23 21:00:00'
-        filterBuilderFromFilterString("a6c1114s19d2013-07-23 21:00:00o4");
+        UserDefinedPredicate<Binary> predicate = getUserDefinedPredicate(
+                filterBuilderFromFilterString("a6c1114s19d2013-07-23 21:00:00o5"));
+        Statistics<Binary> statistics = new Statistics<>(
+                ParquetTypeConverter.getBinaryFromTimestamp("2014-01-01 00:00:00"),
+                ParquetTypeConverter.getBinaryFromTimestamp("2014-12-31 00:00:00"),
+                PrimitiveComparator.UNSIGNED_LEXICOGRAPHICAL_BINARY_COMPARATOR);
+        // the minimum and maximum of INT96 columns do not bound their values
+        assertFalse(predicate.canDrop(statistics));
+        assertFalse(predicate.inverseCanDrop(statistics));
     }
 
     @Test
-    public void testUnsupportedINT96NotEqualsFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column tm of type INT96 is not supported");
-
-        // tm = '2013-07-23 21:00:00'
-        filterBuilderFromFilterString("a6c1114s19d2013-07-23 21:00:00o6");
+    public void testINT96IsNullFilter() throws Exception {
+        // tm IS NULL
+        assertEquals("eq(tm, null)", getFilterPredicate(filterBuilderFromFilterString("a6o8")).toString());
     }
 
     @Test
-    public void testUnsupportedINT96IsNullFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column tm of type INT96 is not supported");
-
-        // tm = '2013-07-23 21:00:00'
-        filterBuilderFromFilterString("a6o8");
+    public void testFixedLenByteArrayEqualsFilter() throws Exception {
+        // dec2 = 0
+        UserDefinedPredicate<Binary> predicate = getUserDefinedPredicate(filterBuilderFromFilterString("a14c23s1d0o5"));
+        assertTrue(predicate.keep(Binary.fromConstantByteArray(new byte[]{0, 0, 0})));
+        // 0.01
+        assertFalse(predicate.keep(Binary.fromConstantByteArray(new byte[]{0, 0, 1})));
+        assertFalse(predicate.keep(null));
     }
 
     @Test
-    public void testUnsupportedINT96IsNotNullFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column tm of type INT96 is not supported");
-
-        // tm = '2013-07-23 21:00:00'
-        filterBuilderFromFilterString("a6o9");
+    public void testFixedLenByteArrayLessThanFilter() throws Exception {
+        // dec2 < 1.28
+        UserDefinedPredicate<Binary> predicate = getUserDefinedPredicate(
+                filterBuilderFromFilterString("a14c1700s4d1.28o1"));
+        // -0.01
+        assertTrue(predicate.keep(Binary.fromConstantByteArray(new byte[]{-1, -1, -1})));
+        // 1.27, the last byte is compared as unsigned
+        assertTrue(predicate.keep(Binary.fromConstantByteArray(new byte[]{0, 0, 127})));
+        // 1.28
+        assertFalse(predicate.keep(Binary.fromConstantByteArray(new byte[]{0, 0, -128})));
     }
 
     @Test
-    public void testUnsupportedFixedLenByteArrayEqualsFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column dec2 of type FIXED_LEN_BYTE_ARRAY is not supported");
+    public void testFixedLenByteArrayFilterDropsOnStatistics() throws Exception {
+        // -0.01 to 1.27
+        Statistics<Binary> statistics = decimalStatistics(new byte[]{-1, -1, -1}, new byte[]{0, 0, 127});
 
         // dec2 = 0
-        filterBuilderFromFilterString("a14c23s1d0o5");
-    }
+        UserDefinedPredicate<Binary> predicate = getUserDefinedPredicate(filterBuilderFromFilterString("a14c23s1d0o5"));
+        assertFalse(predicate.canDrop(statistics));
+        assertFalse(predicate.inverseCanDrop(statistics));
+        // 0 to 0
+        assertTrue(predicate.inverseCanDrop(decimalStatistics(new byte[]{0, 0, 0}, new byte[]{0, 0, 0})));
 
-    @Test
-    public void testUnsupportedFixedLenByteArrayLessThanFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column dec2 of type FIXED_LEN_BYTE_ARRAY is not supported");
+        // dec2 = 1.28
+        predicate = getUserDefinedPredicate(filterBuilderFromFilterString("a14c1700s4d1.28o5"));
+        assertTrue(predicate.canDrop(statistics));
 
-        // dec2 = 0
-        filterBuilderFromFilterString("a14c23s1d0o1");
-    }
+        // dec2 >= 1.27
+        predicate = getUserDefinedPredicate(filterBuilderFromFilterString("a14c1700s4d1.27o4"));
+        assertFalse(predicate.canDrop(statistics));
 
-    @Test
-    public void testUnsupportedFixedLenByteArrayGreaterThanFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column dec2 of type FIXED_LEN_BYTE_ARRAY is not supported");
+        // dec2 < -0.01
+        predicate = getUserDefinedPredicate(filterBuilderFromFilterString("a14c1700s5d-0.01o1"));
+        assertTrue(predicate.canDrop(statistics));
+        // not dec2 < 1.28
+        predicate = getUserDefinedPredicate(filterBuilderFromFilterString("a14c1700s4d1.28o1"));
+        assertTrue(predicate.inverseCanDrop(statistics));
 
-        // dec2 = 0
-        filterBuilderFromFilterString("a14c23s1d0o2");
+        // the statistics of older writers are not in the order of the values
+        predicate = getUserDefinedPredicate(filterBuilderFromFilterString("a14c1700s4d1.28o5"));
+        assertFalse(predicate.canDrop(new Statistics<>(statistics.getMin(), statistics.getMax(),
+                PrimitiveComparator.UNSIGNED_LEXICOGRAPHICAL_BINARY_COMPARATOR)));
     }
 
     @Test
-    public void testUnsupportedFixedLenByteArrayLessThanOrEqualsFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column dec2 of type FIXED_LEN_BYTE_ARRAY is not supported");
-
-        // dec2 = 0
-        filterBuilderFromFilterString("a14c23s1d0o3");
+    public void testFixedLenByteArrayIsNotNullFilter() throws Exception {
+        // dec2 IS NOT NULL
+        assertEquals("noteq(dec2, null)", getFilterPredicate(filterBuilderFromFilterString("a14o9")).toString());
     }
 
     @Test
-    public void testUnsupportedFixedLenByteArrayGreaterThanOrEqualsFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column dec2 of type FIXED_LEN_BYTE_ARRAY is not supported");
+    public void testINT32DecimalFilter() throws Exception {
+        originalFieldsMap.put("num1", MessageTypeParser.parseMessageType(
+                "message m { optional int32 num1 (DECIMAL(5,2)); }").getType(0));
 
-        // dec2 = 0
-        filterBuilderFromFilterString("a14c23s1d0o4");
+        // a16 > 1.5 compares the unscaled value of the column
+        ParquetRecordFilterBuilder filterBuilder = filterBuilderFromFilterString("a16c1700s3d1.5o2");
+        assertEquals("gt(num1, 150)", getFilterPredicate(filterBuilder).toString());
     }
 
     @Test
-    public void testUnsupportedFixedLenByteArrayNotEqualsFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column dec2 of type FIXED_LEN_BYTE_ARRAY is not supported");
+    public void testBINARYDecimalFilter() throws Exception {
+        originalFieldsMap.put("num1", MessageTypeParser.parseMessageType(
+                "message m { optional binary num1 (DECIMAL(5,2)); }").getType(0));
 
-        // dec2 = 0
-        filterBuilderFromFilterString("a14c23s1d0o6");
+        // a16 > 1.5 compares the unscaled two's-complement value of the column, not its text
+        UserDefinedPredicate<Binary> predicate = getUserDefinedPredicate(filterBuilderFromFilterString("a16c1700s3d1.5o2"));
+        assertTrue(predicate.keep(unscaledDecimal(151)));
+        assertFalse(predicate.keep(unscaledDecimal(150)));
+        assertFalse(predicate.keep(unscaledDecimal(-300)));
+        // -3.00 to 1.50
+        assertTrue(predicate.canDrop(new Statistics<>(unscaledDecimal(-300), unscaledDecimal(150),
+                PrimitiveComparator.BINARY_AS_SIGNED_INTEGER_COMPARATOR)));
+        // -3.00 to 2.00
+        assertFalse(predicate.canDrop(new Statistics<>(unscaledDecimal(-300), unscaledDecimal(200),
+                PrimitiveComparator.BINARY_AS_SIGNED_INTEGER_COMPARATOR)));
     }
 
-    @Test
-    public void testUnsupportedFixedLenByteArrayIsNullFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column dec2 of type FIXED_LEN_BYTE_ARRAY is not supported");
+    private Binary unscaledDecimal(long unscaled) {
+        return Binary.fromConstantByteArray(BigInteger.valueOf(unscaled).toByteArray());
+    }
 
-        // tm = '2013-07-23 21:00:00'
-        filterBuilderFromFilterString("a14o8");
+    private Statistics<Binary> decimalStatistics(byte[] min, byte[] max) {
+        return new Statistics<>(Binary.fromConstantByteArray(min), Binary.fromConstantByteArray(max),
+                PrimitiveComparator.BINARY_AS_SIGNED_INTEGER_COMPARATOR);
     }
 
-    @Test
-    public void testUnsupportedFixedLenByteArrayIsNotNullFilter() throws Exception {
-        thrown.expect(UnsupportedOperationException.class);
-        thrown.expectMessage("Column dec2 of type FIXED_LEN_BYTE_ARRAY is not supported");
+    @SuppressWarnings("unchecked")
+    private UserDefinedPredicate<Binary> getUserDefinedPredicate(ParquetRecordFilterBuilder filterBuilder) {
+        FilterPredicate predicate = getFilterPredicate(filterBuilder);
+        assertTrue(predicate instanceof Operators.UserDefined);
+        return ((Operators.UserDefined<Binary, ?>) predicate).getUserDefinedPredicate();
+    }
 
-        // tm = '2013-07-23 21:00:00'
-        filterBuilderFromFilterString("a14o9");
+    private FilterPredicate getFilterPredicate(ParquetRecordFilterBuilder filterBuilder) {
+        FilterCompat.Filter recordFilter = filterBuilder.getRecordFilter();
+        assertTrue(recordFilter instanceof FilterCompat.FilterPredicateCompat);
+        return ((FilterCompat.FilterPredicateCompat) recordFilter).getFilterPredicate();
     }
 
     private ParquetRecordFilterBuilder filterBuilderFromFilterString(String filterString) throws Exception {
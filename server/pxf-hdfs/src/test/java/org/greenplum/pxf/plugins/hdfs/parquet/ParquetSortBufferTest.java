@@ -0,0 +1,145 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParquetSortBufferTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ColumnDescriptor id, name, amount, bytes;
+    private List<List<OneField>> written;
+
+    @Before
+    public void setup() {
+        id = new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null);
+        name = new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null);
+        amount = new ColumnDescriptor("amount", DataType.NUMERIC.getOID(), 2, "numeric", null);
+        bytes = new ColumnDescriptor("bytes", DataType.BYTEA.getOID(), 3, "bytea", null);
+        written = new ArrayList<>();
+    }
+
+    @Test
+    public void testSortByColumns() throws IOException {
+        ParquetSortBuffer buffer = newBuffer(Arrays.asList(name, id), Long.MAX_VALUE, Long.MAX_VALUE);
+        buffer.add(record(3, "b", "1", null));
+        buffer.add(record(2, "a", "1", null));
+        buffer.add(record(1, "b", "1", null));
+        buffer.add(record(4, null, "1", null));
+        buffer.add(record(null, "a", "1", null));
+        assertTrue(written.isEmpty());
+        buffer.close();
+
+        assertEquals(Arrays.asList(2, null, 1, 3, 4), ids());
+    }
+
+    @Test
+    public void testNumericSortsByValue() throws IOException {
+        ParquetSortBuffer buffer = newBuffer(Collections.singletonList(amount), Long.MAX_VALUE, Long.MAX_VALUE);
+        buffer.add(record(1, "a", "10.5", null));
+        buffer.add(record(2, "a", "9.75", null));
+        buffer.add(record(3, "a", "-100", null));
+        buffer.close();
+
+        assertEquals(Arrays.asList(3, 2, 1), ids());
+    }
+
+    @Test
+    public void testBytesSortUnsigned() throws IOException {
+        ParquetSortBuffer buffer = newBuffer(Collections.singletonList(bytes), Long.MAX_VALUE, Long.MAX_VALUE);
+        buffer.add(record(1, "a", "1", new byte[]{(byte) 0xff}));
+        buffer.add(record(2, "a", "1", new byte[]{1, 2}));
+        buffer.add(record(3, "a", "1", new byte[]{1}));
+        buffer.close();
+
+        assertEquals(Arrays.asList(3, 2, 1), ids());
+    }
+
+    @Test
+    public void testEqualKeysKeepArrivalOrder() throws IOException {
+        ParquetSortBuffer buffer = newBuffer(Collections.singletonList(name), Long.MAX_VALUE, 1);
+        for (int i = 0; i < 10; i++) {
+            buffer.add(record(i, i % 2 == 0 ? "even" : "odd", "1", null));
+        }
+        buffer.close();
+
+        assertEquals(Arrays.asList(0, 2, 4, 6, 8, 1, 3, 5, 7, 9), ids());
+    }
+
+    @Test
+    public void testBatchesAreSortedSeparately() throws IOException {
+        long recordSize = ParquetSortBuffer.estimateSize(record(1, "a", "1", null));
+        ParquetSortBuffer buffer = newBuffer(Collections.singletonList(id), 3 * recordSize, Long.MAX_VALUE);
+        for (int i : new int[]{6, 5, 4, 3, 2, 1, 0}) {
+            buffer.add(record(i, "a", "1", null));
+        }
+        assertEquals(Arrays.asList(4, 5, 6, 1, 2, 3), ids());
+        buffer.close();
+
+        assertEquals(Arrays.asList(4, 5, 6, 1, 2, 3, 0), ids());
+    }
+
+    @Test
+    public void testSpilledRecordsAreMerged() throws IOException {
+        long recordSize = ParquetSortBuffer.estimateSize(record(1, "a", "1", null));
+        ParquetSortBuffer buffer = newBuffer(Collections.singletonList(id), Long.MAX_VALUE, 2 * recordSize);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            int value = (i * 7) % 25;
+            expected.add(value);
+            buffer.add(record(value, "name" + value, "1." + value, new byte[]{(byte) value}));
+        }
+        assertEquals(12, buffer.getSpillCount());
+        buffer.close();
+        Collections.sort(expected);
+
+        assertEquals(expected, ids());
+        for (List<OneField> record : written) {
+            int value = (Integer) record.get(0).val;
+            assertEquals(DataType.TEXT.getOID(), record.get(1).type);
+            assertEquals("name" + value, record.get(1).val);
+            assertEquals("1." + value, record.get(2).val);
+            assertArrayEquals(new byte[]{(byte) value}, (byte[]) record.get(3).val);
+        }
+        // the spill files are deleted
+        File[] files = temporaryFolder.getRoot().listFiles();
+        assertEquals(0, files == null ? 0 : files.length);
+    }
+
+    private ParquetSortBuffer newBuffer(List<ColumnDescriptor> sortColumns, long batchSize, long maxMemory) {
+        return new ParquetSortBuffer(sortColumns, batchSize, maxMemory, temporaryFolder.getRoot(), written::add);
+    }
+
+    private List<Integer> ids() {
+        return written.stream().map(r -> (Integer) r.get(0).val).collect(Collectors.toList());
+    }
+
+    private List<OneField> record(Integer id, String name, String amount, byte[] bytes) {
+        // the bridge builds the records as linked lists
+        List<OneField> record = new LinkedList<>();
+        record.add(new OneField(DataType.INTEGER.getOID(), id));
+        record.add(new OneField(DataType.TEXT.getOID(), name));
+        record.add(new OneField(DataType.NUMERIC.getOID(), amount));
+        record.add(new OneField(DataType.BYTEA.getOID(), bytes));
+        return record;
+    }
+}
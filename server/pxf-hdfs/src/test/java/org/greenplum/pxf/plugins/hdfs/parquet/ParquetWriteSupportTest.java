@@ -0,0 +1,163 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.io.ConverterConsumer;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.UnsupportedTypeException;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.plugins.hdfs.ParquetResolver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ParquetWriteSupportTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void testDecimalEncoder() {
+        ParquetWriteSupport.DecimalEncoder encoder = new ParquetWriteSupport.DecimalEncoder(5, 2);
+        assertDecimal("123.46", 3, encoder.encode("123.456"));
+        assertDecimal("-123.46", 3, encoder.encode("-123.456"));
+        assertDecimal("0.00", 3, encoder.encode("0"));
+        assertDecimal("-0.01", 3, encoder.encode("-0.005"));
+        // more integer digits than the precision allows
+        assertNull(encoder.encode("1234.5"));
+    }
+
+    @Test
+    public void testDecimalEncoderLargePrecision() {
+        ParquetWriteSupport.DecimalEncoder encoder = new ParquetWriteSupport.DecimalEncoder(38, 18);
+        assertDecimal("12345678901234567890.123456789012345679", 16,
+                encoder.encode("12345678901234567890.1234567890123456789"));
+        assertDecimal("-12345678901234567890.000000000000000000", 16,
+                encoder.encode("-12345678901234567890"));
+        assertDecimal("1.000000000000000000", 16, encoder.encode("1"));
+    }
+
+    @Test
+    public void testTimestampEncoderMatchesTypeConverter() {
+        ParquetWriteSupport.TimestampEncoder encoder = new ParquetWriteSupport.TimestampEncoder(ZoneId.systemDefault());
+        for (String timestamp : Arrays.asList(
+                "2013-07-13 21:00:05",
+                "2013-07-13 21:00:05.1",
+                "2013-07-13 21:00:05.123456",
+                "1969-12-31 23:59:59.999999",
+                "1900-01-01 00:00:00",
+                "2016-02-29 12:30:00",
+                "2019-03-10 02:30:00",
+                "2019-11-03 01:30:00")) {
+            assertArrayEquals(timestamp, ParquetTypeConverter.getBinaryFromTimestamp(timestamp).getBytes(),
+                    encoder.encode(timestamp).getBytes());
+        }
+        for (String timestamp : Arrays.asList(
+                "2013-07-13 21:00:05-07",
+                "2013-07-14 16:45:05+12:45",
+                "2013-07-14 16:45:05.5+00",
+                "1969-12-31 23:59:59.000001-03:30")) {
+            assertArrayEquals(timestamp, ParquetTypeConverter.getBinaryFromTimestampWithTimeZone(timestamp).getBytes(),
+                    encoder.encode(timestamp).getBytes());
+        }
+    }
+
+    @Test
+    public void testTimestampEncoderInFixedZone() {
+        ParquetWriteSupport.TimestampEncoder encoder = new ParquetWriteSupport.TimestampEncoder(ZoneId.of("UTC"));
+        assertArrayEquals(ParquetTypeConverter.getBinaryFromTimestampWithTimeZone("2013-07-14 04:00:05+00").getBytes(),
+                encoder.encode("2013-07-14 04:00:05").getBytes());
+    }
+
+    @Test
+    public void testTimestampEncoderFallsBackToTypeConverter() {
+        ParquetWriteSupport.TimestampEncoder encoder = new ParquetWriteSupport.TimestampEncoder(ZoneId.systemDefault());
+        // not a valid day of the month, resolved by the formatter
+        assertArrayEquals(ParquetTypeConverter.getBinaryFromTimestamp("2013-02-30 21:00:05").getBytes(),
+                encoder.encode("2013-02-30 21:00:05").getBytes());
+    }
+
+    @Test
+    public void testTimestampEncoderInvalidTimestamp() {
+        thrown.expect(DateTimeParseException.class);
+        new ParquetWriteSupport.TimestampEncoder(ZoneId.systemDefault()).encode("2013-07-13 21:00:05.1234567");
+    }
+
+    @Test
+    public void testHasTimeZoneOffset() {
+        for (String timestamp : Arrays.asList(
+                "2013-07-13 21:00:05", "2013-07-13 21:00:05-07", "2013-07-13 21:00:05+07:30",
+                "2013-07-13 21:00:05.123456+12", "2013-07-13 21:00:05Z", "-07", "+07:3", "7")) {
+            assertEquals(timestamp, ParquetResolver.TIMESTAMP_PATTERN.matcher(timestamp).find(),
+                    ParquetWriteSupport.hasTimeZoneOffset(timestamp));
+        }
+    }
+
+    @Test
+    public void testWrite() {
+        MessageType schema = MessageTypeParser.parseMessageType("message test {\n" +
+                "  optional int32 id;\n" +
+                "  optional binary name (UTF8);\n" +
+                "  optional fixed_len_byte_array(3) dec (DECIMAL(5,2));\n" +
+                "  optional int64 bg;\n" +
+                "}");
+        Group group = write(schema,
+                new OneField(DataType.INTEGER.getOID(), 1),
+                new OneField(DataType.TEXT.getOID(), null),
+                new OneField(DataType.NUMERIC.getOID(), "99999.99"),
+                new OneField(DataType.BIGINT.getOID(), 2L));
+
+        assertEquals(1, group.getInteger(0, 0));
+        assertEquals(0, group.getFieldRepetitionCount(1));
+        // the decimal exceeds the precision of the column, it is written as null
+        assertEquals(0, group.getFieldRepetitionCount(2));
+        assertEquals(2L, group.getLong(3, 0));
+    }
+
+    @Test
+    public void testWriteUnsupportedType() {
+        thrown.expect(UnsupportedTypeException.class);
+        thrown.expectMessage("Not supported type FIXED_LEN_BYTE_ARRAY");
+
+        MessageType schema = MessageTypeParser.parseMessageType(
+                "message test { optional fixed_len_byte_array(4) f; }");
+        write(schema, new OneField(DataType.BYTEA.getOID(), new byte[4]));
+    }
+
+    @Test
+    public void testWriteNullOfUnsupportedType() {
+        MessageType schema = MessageTypeParser.parseMessageType(
+                "message test { optional fixed_len_byte_array(4) f; }");
+        Group group = write(schema, new OneField(DataType.BYTEA.getOID(), null));
+        assertEquals(0, group.getFieldRepetitionCount(0));
+    }
+
+    private Group write(MessageType schema, OneField... fields) {
+        GroupRecordConverter converter = new GroupRecordConverter(schema);
+        ParquetWriteSupport writeSupport = new ParquetWriteSupport(schema);
+        assertEquals(schema, writeSupport.init(null).getSchema());
+        writeSupport.prepareForWrite(new ConverterConsumer(converter.getRootConverter(), schema));
+        writeSupport.write(Arrays.asList(fields));
+        return converter.getCurrentRecord();
+    }
+
+    private void assertDecimal(String expected, int length, Binary binary) {
+        byte[] bytes = binary.getBytes();
+        assertEquals(length, bytes.length);
+        BigDecimal expectedDecimal = new BigDecimal(expected);
+        assertEquals(expectedDecimal, new BigDecimal(new BigInteger(bytes), expectedDecimal.scale()));
+    }
+}
@@ -0,0 +1,53 @@
+package org.greenplum.pxf.plugins.hdfs.utilities;
+
+import org.greenplum.pxf.api.model.GreenplumCSV;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class DelimitedLineParserTest {
+
+    @Test
+    public void testCsv() {
+        DelimitedLineParser parser = new DelimitedLineParser(new GreenplumCSV(), true);
+
+        assertEquals(Arrays.asList("1", "a,b", "say \"hi\""),
+                parser.parse("1,\"a,b\",\"say \"\"hi\"\"\",rest\n", 3));
+        // the unquoted empty string is the null value, the quoted one is not
+        assertEquals(Arrays.asList(null, "", "x"), parser.parse(",\"\",x\r\n", 3));
+        // the missing fields are not returned, an empty last field is null
+        assertEquals(Arrays.asList("1"), parser.parse("1\n", 3));
+        assertEquals(Arrays.asList("1", null), parser.parse("1,", 2));
+    }
+
+    @Test
+    public void testCsvWithOptions() {
+        GreenplumCSV greenplumCSV = new GreenplumCSV()
+                .withDelimiter("|")
+                .withQuoteChar("'")
+                .withEscapeChar("\\")
+                .withValueOfNull("NULL");
+        DelimitedLineParser parser = new DelimitedLineParser(greenplumCSV, true);
+
+        assertEquals(Arrays.asList("it's", "a|b\\", null, "NULL"),
+                parser.parse("'it\\'s'|'a|b\\\\'|NULL|'NULL'", 4));
+    }
+
+    @Test
+    public void testText() {
+        DelimitedLineParser parser = new DelimitedLineParser(new GreenplumCSV().withDelimiter("\t"), false);
+
+        assertEquals(Arrays.asList("a\tb", null, "c\\d", "\n\u0001A"),
+                parser.parse("a\\tb\t\\N\tc\\\\d\t\\n\\1\\x41\tlast\n", 4));
+        assertEquals(Arrays.asList("x,y", "\"z\""), parser.parse("x,y\t\"z\"", 2));
+    }
+
+    @Test
+    public void testTextEscapedDelimiter() {
+        DelimitedLineParser parser = new DelimitedLineParser(new GreenplumCSV().withDelimiter(","), false);
+
+        assertEquals(Arrays.asList("a,b", "c"), parser.parse("a\\,b,c", 2));
+    }
+}
@@ -0,0 +1,101 @@
+package org.greenplum.pxf.plugins.hdfs.utilities;
+
+import com.google.common.base.Ticker;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileListingCacheTest {
+
+    private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeTicker ticker;
+    private FileListingCache cache;
+    private Configuration configuration;
+    private AtomicInteger listings;
+    private Path[] paths;
+
+    @Before
+    public void setup() {
+        ticker = new FakeTicker();
+        cache = new FileListingCache(ticker);
+        configuration = new Configuration();
+        configuration.set("pxf.session.user", "alice");
+        listings = new AtomicInteger();
+        paths = new Path[]{new Path(folder.getRoot().toURI())};
+    }
+
+    @Test
+    public void cachedWithinTtl() throws IOException {
+        assertEquals(0, cache.getFileStatuses(configuration, paths, TTL_NANOS, this::list).length);
+        ticker.advance(TimeUnit.SECONDS.toNanos(30));
+        assertEquals(0, cache.getFileStatuses(configuration, paths, TTL_NANOS, this::list).length);
+        assertEquals(1, listings.get());
+    }
+
+    @Test
+    public void expiredAfterTtl() throws IOException {
+        cache.getFileStatuses(configuration, paths, TTL_NANOS, this::list);
+        ticker.advance(TimeUnit.SECONDS.toNanos(61));
+        cache.getFileStatuses(configuration, paths, TTL_NANOS, this::list);
+        assertEquals(2, listings.get());
+    }
+
+    @Test
+    public void invalidatedWhenDirectoryIsModified() throws IOException {
+        cache.getFileStatuses(configuration, paths, TTL_NANOS, this::list);
+        File file = folder.newFile("new.csv");
+        assertTrue(folder.getRoot().setLastModified(file.lastModified() + 5000));
+        cache.getFileStatuses(configuration, paths, TTL_NANOS, this::list);
+        assertEquals(2, listings.get());
+    }
+
+    @Test
+    public void notSharedAcrossUsers() throws IOException {
+        cache.getFileStatuses(configuration, paths, TTL_NANOS, this::list);
+        configuration.set("pxf.session.user", "bob");
+        cache.getFileStatuses(configuration, paths, TTL_NANOS, this::list);
+        assertEquals(2, listings.get());
+    }
+
+    @Test
+    public void missingPathIsNotCached() throws IOException {
+        Path[] missing = new Path[]{new Path(folder.getRoot().toURI().toString() + "/missing")};
+        cache.getFileStatuses(configuration, missing, TTL_NANOS, this::list);
+        cache.getFileStatuses(configuration, missing, TTL_NANOS, this::list);
+        assertEquals(2, listings.get());
+    }
+
+    private FileStatus[] list() {
+        listings.incrementAndGet();
+        return new FileStatus[0];
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long delta) {
+            nanos += delta;
+        }
+    }
+}
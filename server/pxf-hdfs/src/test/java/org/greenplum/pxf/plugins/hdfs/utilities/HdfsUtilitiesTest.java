@@ -20,23 +20,40 @@ package org.greenplum.pxf.plugins.hdfs.utilities;
  */
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.LineRecordReader;
 import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.model.Fragment;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.plugins.hdfs.CodecFactory;
+import org.greenplum.pxf.plugins.hdfs.ReadAheadInputStream;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class HdfsUtilitiesTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testToString() {
         List<OneField> oneFields = Arrays.asList(new OneField(1, "uno"), new OneField(2, "dos"), new OneField(3, "tres"));
@@ -63,4 +80,115 @@ public class HdfsUtilitiesTest {
         assertEquals(fileSplit.getLength(), 100);
         assertEquals(fileSplit.getPath().toString(), "/abc/path/to/data/source");
     }
+
+    @Test
+    public void testParseCombinedSplits() throws Exception {
+        RequestContext context = new RequestContext();
+        context.setDataSource("/abc/path/to/file1");
+        context.setFragmentMetadata(HdfsUtilities.prepareFragmentMetadata(Arrays.asList(
+                new FileSplit(new Path("/abc/path/to/file1"), 0, 10, (String[]) null),
+                new FileSplit(new Path("/abc/path/to/file2"), 0, 20, (String[]) null),
+                new FileSplit(new Path("/abc/path/to/file3"), 5, 30, (String[]) null)),
+                new String[]{"hostname"}));
+
+        FileSplit fileSplit = HdfsUtilities.parseFileSplit(context);
+        assertEquals(0, fileSplit.getStart());
+        assertEquals(10, fileSplit.getLength());
+        assertEquals("/abc/path/to/file1", fileSplit.getPath().toString());
+
+        List<FileSplit> combinedSplits = HdfsUtilities.parseCombinedSplits(context);
+        assertEquals(2, combinedSplits.size());
+        assertEquals("/abc/path/to/file2", combinedSplits.get(0).getPath().toString());
+        assertEquals(0, combinedSplits.get(0).getStart());
+        assertEquals(20, combinedSplits.get(0).getLength());
+        assertEquals("/abc/path/to/file3", combinedSplits.get(1).getPath().toString());
+        assertEquals(5, combinedSplits.get(1).getStart());
+        assertEquals(30, combinedSplits.get(1).getLength());
+    }
+
+    @Test
+    public void testParseCombinedSplitsOfSingleSplit() throws Exception {
+        RequestContext context = new RequestContext();
+        context.setDataSource("/abc/path/to/data/source");
+        context.setFragmentMetadata(HdfsUtilities.prepareFragmentMetadata(10, 100, new String[]{"hostname"}));
+
+        assertEquals(0, HdfsUtilities.parseCombinedSplits(context).size());
+    }
+
+    @Test
+    public void testParseNumberOfRows() throws Exception {
+        RequestContext context = new RequestContext();
+        context.setDataSource("/abc/path/to/data/source");
+        context.setFragmentMetadata(HdfsUtilities.prepareFragmentMetadata(10, 100, new String[]{"hostname"}, 5000));
+
+        FileSplit fileSplit = HdfsUtilities.parseFileSplit(context);
+        assertEquals(10, fileSplit.getStart());
+        assertEquals(100, fileSplit.getLength());
+        assertEquals(5000, HdfsUtilities.parseNumberOfRows(context));
+        // the number of rows is not read as combined splits
+        assertEquals(0, HdfsUtilities.parseCombinedSplits(context).size());
+    }
+
+    @Test
+    public void testNumberOfRowsOfSplitIsUnknown() throws Exception {
+        RequestContext context = new RequestContext();
+        context.setDataSource("/abc/path/to/data/source");
+        context.setFragmentMetadata(HdfsUtilities.prepareFragmentMetadata(0, 100, new String[]{"hostname"}));
+        assertEquals(-1, HdfsUtilities.parseNumberOfRows(context));
+
+        context.setFragmentMetadata(null);
+        assertEquals(-1, HdfsUtilities.parseNumberOfRows(context));
+    }
+
+    @Test
+    public void testNumberOfRowsOfCombinedSplitsIsUnknown() throws Exception {
+        RequestContext context = new RequestContext();
+        context.setDataSource("/abc/path/to/file1");
+        // the combined splits are not read as a number of rows
+        context.setFragmentMetadata(HdfsUtilities.prepareFragmentMetadata(Arrays.asList(
+                new FileSplit(new Path("/abc/path/to/file1"), 0, 10, (String[]) null),
+                new FileSplit(new Path("/abc/path/to/file2"), 0, 20, (String[]) null)),
+                new String[]{"hostname"}));
+        assertEquals(-1, HdfsUtilities.parseNumberOfRows(context));
+    }
+
+    @Test
+    public void testCreateLineRecordReaderWithRecordDelimiter() throws Exception {
+        File file = folder.newFile("records.txt");
+        Files.write(file.toPath(), "a,1|b,2|c,3".getBytes(StandardCharsets.UTF_8));
+        Configuration configuration = new Configuration();
+        configuration.setInt(ReadAheadInputStream.DEPTH_PROPERTY, 1);
+        configuration.set("textinputformat.record.delimiter", "|");
+        Path path = new Path(file.toURI());
+
+        assertEquals(Arrays.asList("a,1", "b,2", "c,3"),
+                readRecords(configuration, new FileSplit(path, 0, file.length(), (String[]) null)));
+        // the partial first record belongs to the previous split
+        assertEquals(Arrays.asList("b,2", "c,3"),
+                readRecords(configuration, new FileSplit(path, 1, file.length() - 1, (String[]) null)));
+    }
+
+    private List<String> readRecords(Configuration configuration, FileSplit split) throws Exception {
+        List<String> records = new ArrayList<>();
+        LineRecordReader reader = HdfsUtilities.createLineRecordReader(configuration, split);
+        LongWritable key = reader.createKey();
+        Text value = reader.createValue();
+        while (reader.next(key, value)) {
+            records.add(value.toString());
+        }
+        reader.close();
+        return records;
+    }
+
+    @Test
+    public void testGetHosts() throws Exception {
+        BlockLocation[] locations = new BlockLocation[]{
+                new BlockLocation(null, new String[]{"host1"}, 0, 100),
+                new BlockLocation(null, new String[]{"host2"}, 100, 100)};
+
+        // the middle of the range is in the second block
+        assertArrayEquals(new String[]{"host2"}, HdfsUtilities.getHosts(locations, 60, 100));
+        assertArrayEquals(new String[]{"host1"}, HdfsUtilities.getHosts(locations, 0, 150));
+        assertArrayEquals(Fragment.HOSTS, HdfsUtilities.getHosts(locations, 200, 100));
+    }
 }
@@ -0,0 +1,114 @@
+package org.greenplum.pxf.plugins.hdfs.utilities;
+
+import org.greenplum.pxf.api.UnsupportedTypeException;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionUtilitiesTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private RequestContext context;
+
+    @Before
+    public void setup() {
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        columns.add(new ColumnDescriptor("Region", DataType.TEXT.getOID(), 1, "text", null));
+        columns.add(new ColumnDescriptor("code", DataType.BPCHAR.getOID(), 2, "bpchar", null));
+        columns.add(new ColumnDescriptor("flag", DataType.BOOLEAN.getOID(), 3, "bool", null));
+        columns.add(new ColumnDescriptor("payload", DataType.BYTEA.getOID(), 4, "bytea", null));
+        context = new RequestContext();
+        context.setTupleDescription(columns);
+    }
+
+    @Test
+    public void testNoPartitionColumns() {
+        assertTrue(PartitionUtilities.getPartitionColumns(context).isEmpty());
+    }
+
+    @Test
+    public void testPartitionColumns() {
+        context.addOption("PARTITION_BY", "region, ID");
+        List<ColumnDescriptor> partitionColumns = PartitionUtilities.getPartitionColumns(context);
+
+        assertEquals(2, partitionColumns.size());
+        assertSame(context.getColumn(1), partitionColumns.get(0));
+        assertSame(context.getColumn(0), partitionColumns.get(1));
+    }
+
+    @Test
+    public void testUnknownPartitionColumn() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Column other in PARTITION_BY is not a column of the table");
+
+        context.addOption("PARTITION_BY", "id,other");
+        PartitionUtilities.getPartitionColumns(context);
+    }
+
+    @Test
+    public void testDuplicatePartitionColumn() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Column ID is listed more than once in PARTITION_BY");
+
+        context.addOption("PARTITION_BY", "id,ID");
+        PartitionUtilities.getPartitionColumns(context);
+    }
+
+    @Test
+    public void testUnsupportedPartitionColumn() {
+        thrown.expect(UnsupportedTypeException.class);
+        thrown.expectMessage("Column payload of type bytea cannot be used in PARTITION_BY");
+
+        context.addOption("PARTITION_BY", "payload");
+        PartitionUtilities.getPartitionColumns(context);
+    }
+
+    @Test
+    public void testPartitionPath() {
+        List<ColumnDescriptor> columns = context.getTupleDescription().subList(0, 4);
+
+        assertEquals("id=1/region=us-east/code=ab/flag=true",
+                PartitionUtilities.getPartitionPath(columns, Arrays.asList("1", "us-east", "ab  ", "t")));
+        assertEquals("id=__HIVE_DEFAULT_PARTITION__/region=__HIVE_DEFAULT_PARTITION__/code=x/flag=false",
+                PartitionUtilities.getPartitionPath(columns, Arrays.asList(null, "", "x", "false")));
+        assertEquals("id=1/region=a%2Fb%3Dc%25d e/code=%0A/flag=f%3F",
+                PartitionUtilities.getPartitionPath(columns, Arrays.asList("1", "a/b=c%d e", "\n", "f?")));
+    }
+
+    @Test
+    public void testParsePartitionValues() {
+        Map<String, String> expected = new HashMap<>();
+        expected.put("region", "a/b=c%d e");
+        expected.put("id", null);
+        assertEquals(expected, PartitionUtilities.parsePartitionValues(
+                "/data/table/Region=a%2Fb%3Dc%25d e/id=__HIVE_DEFAULT_PARTITION__/file=1.csv"));
+
+        assertTrue(PartitionUtilities.parsePartitionValues("/data/table/file.csv").isEmpty());
+    }
+
+    @Test
+    public void testEscapeRoundTrip() {
+        for (String name : Arrays.asList("plain", "50%", "%zz", "a:b", "2020-01-01 10:00:00", "\u007F\u0001", "café")) {
+            assertEquals(name, PartitionUtilities.unescapePathName(PartitionUtilities.escapePathName(name)));
+        }
+        // invalid escape sequences are kept as they are
+        assertEquals("%zz%4", PartitionUtilities.unescapePathName("%zz%4"));
+    }
+}
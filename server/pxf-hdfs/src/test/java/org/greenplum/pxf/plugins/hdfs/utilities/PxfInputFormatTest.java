@@ -1,21 +1,32 @@
 package org.greenplum.pxf.plugins.hdfs.utilities;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.JobConf;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class PxfInputFormatTest {
 
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testGetRecordReader() throws IOException {
         thrown.expect(UnsupportedOperationException.class);
@@ -35,6 +46,54 @@ public class PxfInputFormatTest {
                 "bzip2.bz2", true);
     }
 
+    @Test
+    public void listStatusRecursiveSkipsHiddenFiles() throws IOException {
+        File root = folder.newFolder("data");
+        assertTrue(new File(root, "b/c").mkdirs());
+        assertTrue(new File(root, "_temporary").mkdirs());
+        assertTrue(new File(root, "b/2.csv").createNewFile());
+        assertTrue(new File(root, "b/c/3.csv").createNewFile());
+        assertTrue(new File(root, "1.csv").createNewFile());
+        assertTrue(new File(root, "_temporary/4.csv").createNewFile());
+        assertTrue(new File(root, ".5.csv.crc").createNewFile());
+
+        JobConf jobConf = new JobConf(new Configuration());
+        jobConf.setBoolean(FileInputFormat.INPUT_DIR_RECURSIVE, true);
+        PxfInputFormat.setInputPaths(jobConf, new Path(root.toURI()));
+
+        FileStatus[] files = new PxfInputFormat().listStatus(jobConf);
+        assertEquals(3, files.length);
+        assertEquals("1.csv", files[0].getPath().getName());
+        assertEquals("2.csv", files[1].getPath().getName());
+        assertEquals("3.csv", files[2].getPath().getName());
+    }
+
+    @Test
+    public void listStatusRecursiveAppliesInputPathFilter() throws IOException {
+        File root = folder.newFolder("data");
+        assertTrue(new File(root, "b").mkdirs());
+        assertTrue(new File(root, "b/2.csv").createNewFile());
+        assertTrue(new File(root, "b/2.txt").createNewFile());
+        assertTrue(new File(root, "1.csv").createNewFile());
+
+        JobConf jobConf = new JobConf(new Configuration());
+        jobConf.setBoolean(FileInputFormat.INPUT_DIR_RECURSIVE, true);
+        FileInputFormat.setInputPathFilter(jobConf, CsvFilter.class);
+        PxfInputFormat.setInputPaths(jobConf, new Path(root.toURI()));
+
+        FileStatus[] files = new PxfInputFormat().listStatus(jobConf);
+        assertEquals(2, files.length);
+        assertEquals("1.csv", files[0].getPath().getName());
+        assertEquals("2.csv", files[1].getPath().getName());
+    }
+
+    @Test
+    public void isGlob() {
+        assertTrue(PxfInputFormat.isGlob(new Path("/foo/*.csv")));
+        assertTrue(PxfInputFormat.isGlob(new Path("/foo/{a,b}")));
+        assertFalse(PxfInputFormat.isGlob(new Path("/foo/bar")));
+    }
+
     private void testIsSplittableCodec(String description, String pathName, boolean expected)
             throws IOException {
         Path path = new Path(pathName);
@@ -44,4 +103,12 @@ public class PxfInputFormatTest {
         boolean result = new PxfInputFormat().isSplitable(fs, path);
         assertEquals(description, result, expected);
     }
-}
\ No newline at end of file
+
+    public static class CsvFilter implements PathFilter {
+        @Override
+        public boolean accept(Path path) {
+            // accepts the directories, FileInputFormat filters them too
+            return !path.getName().contains(".") || path.getName().endsWith(".csv");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.greenplum.pxf.plugins.hdfs.utilities;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.FileSplit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SplitCombinerTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void largeSplitsAreNotCombined() throws IOException {
+        List<SplitCombiner.CombinedSplit> result = new SplitCombiner(100).combine(Arrays.asList(
+                split("/a", 100, "host1"),
+                split("/b", 150, "host1")));
+
+        assertEquals(2, result.size());
+        assertEquals(1, result.get(0).getSplits().size());
+        assertEquals(1, result.get(1).getSplits().size());
+    }
+
+    @Test
+    public void smallSplitsArePackedUpToTargetSize() throws IOException {
+        List<SplitCombiner.CombinedSplit> result = new SplitCombiner(100).combine(Arrays.asList(
+                split("/a", 40, "host1"),
+                split("/b", 40, "host1"),
+                split("/c", 40, "host1"),
+                split("/d", 10, "host1")));
+
+        assertEquals(2, result.size());
+        assertEquals("[file:/a:0+40, file:/b:0+40]", result.get(0).getSplits().toString());
+        assertEquals("[file:/c:0+40, file:/d:0+10]", result.get(1).getSplits().toString());
+    }
+
+    @Test
+    public void splitsAreGroupedByHost() throws IOException {
+        List<SplitCombiner.CombinedSplit> result = new SplitCombiner(100).combine(Arrays.asList(
+                split("/a", 10, "host2", "host1"),
+                split("/b", 10, "host1", "host2"),
+                split("/c", 10, "host2", "host3"),
+                split("/d", 10, "host1", "host3")));
+
+        assertEquals(2, result.size());
+        assertEquals("[file:/b:0+10, file:/d:0+10]", result.get(0).getSplits().toString());
+        assertArrayEquals(new String[]{"host1"}, result.get(0).getHosts());
+        assertEquals("[file:/a:0+10, file:/c:0+10]", result.get(1).getSplits().toString());
+        assertArrayEquals(new String[]{"host2"}, result.get(1).getHosts());
+    }
+
+    @Test
+    public void invalidTargetSize() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Invalid combine target size 0 : must be a positive integer");
+
+        new SplitCombiner(0);
+    }
+
+    private FileSplit split(String path, long length, String... hosts) {
+        return new FileSplit(new Path("file://" + path), 0, length, hosts);
+    }
+}
@@ -0,0 +1,394 @@
+package org.greenplum.pxf.plugins.hive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.base.Ticker;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.thrift.transport.TTransportException;
+import org.greenplum.pxf.api.model.ConfigurationFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the metastore clients of a server and a user open between
+ * requests, so that a request does not connect (and authenticate) to the
+ * Hive metastore again.
+ * <p>
+ * The pool gives out a client that returns to the pool when it is closed,
+ * instead of disconnecting. A server keeps at most
+ * {@link #POOL_SIZE_PROPERTY} clients per user; when all of them are
+ * in use, a request gets a client of its own that is disconnected when it is
+ * closed. The pool is not used when the size is 0, the default.
+ * <p>
+ * A client that failed to reach the metastore is not returned to the pool,
+ * a client that was not used for a while is checked with the metastore
+ * before it is given out again, and a client that was not used for
+ * {@link #IDLE_TIMEOUT_PROPERTY} seconds is disconnected.
+ * <p>
+ * The metrics of the pool, see {@link #getMetrics()}, are logged at debug
+ * level whenever a client is given out or returned.
+ */
+public class HiveClientPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HiveClientPool.class);
+
+    public static final String POOL_SIZE_PROPERTY = "pxf.hive.metastore.client-pool.size";
+    public static final String IDLE_TIMEOUT_PROPERTY = "pxf.hive.metastore.client-pool.idle-timeout";
+
+    static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 300;
+    static final long VALIDATION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * Singleton instance of the HiveClientPool
+     */
+    private static final HiveClientPool instance = new HiveClientPool(Ticker.systemTicker());
+
+    private final Ticker ticker;
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+
+    /**
+     * Connects a new metastore client.
+     */
+    @FunctionalInterface
+    interface ClientFactory {
+        IMetaStoreClient create() throws MetaException, InterruptedException, IOException;
+    }
+
+    HiveClientPool(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    /**
+     * @return a singleton instance of the client pool.
+     */
+    public static HiveClientPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns an open metastore client for the server and the user.
+     * The client must be closed once the request no longer needs it.
+     *
+     * @param configuration the configuration for the server
+     * @param user          the user the client is connected as, the login
+     *                      user when security is enabled, the user of the
+     *                      request otherwise
+     * @param hiveConf      the Hive configuration for the server
+     * @param factory       connects a new client
+     * @return the client
+     * @throws MetaException        when the client cannot connect
+     * @throws InterruptedException when interrupted while connecting
+     * @throws IOException          when the client cannot connect
+     */
+    public IMetaStoreClient getClient(Configuration configuration, String user, HiveConf hiveConf,
+                                      ClientFactory factory)
+            throws MetaException, InterruptedException, IOException {
+        int size = configuration.getInt(POOL_SIZE_PROPERTY, 0);
+        if (size <= 0) {
+            return factory.create();
+        }
+        long idleTimeoutNanos = TimeUnit.SECONDS.toNanos(
+                configuration.getLong(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT_SECONDS));
+        evictIdleClients(idleTimeoutNanos);
+
+        String key = String.format("%s:%s",
+                configuration.get(ConfigurationFactory.PXF_CONFIG_SERVER_DIRECTORY_PROPERTY),
+                user == null ? "" : user);
+        Pool pool = pools.computeIfAbsent(key, k -> new Pool());
+
+        PooledClient pooledClient;
+        while ((pooledClient = pool.borrow(size)) != null) {
+            if (isUsable(pooledClient, hiveConf)) {
+                reused.incrementAndGet();
+                LOG.debug("Reusing Hive MetaStore client for {}, {}", key, pool);
+                logMetrics();
+                return pooledClient.open();
+            }
+            pool.discard(pooledClient);
+            invalidated.incrementAndGet();
+        }
+
+        if (pool.reserve(size)) {
+            try {
+                pooledClient = new PooledClient(pool, factory.create());
+            } catch (MetaException | InterruptedException | IOException | RuntimeException e) {
+                pool.cancelReservation();
+                throw e;
+            }
+            created.incrementAndGet();
+            LOG.debug("Created pooled Hive MetaStore client for {}, {}", key, pool);
+            logMetrics();
+            return pooledClient.open();
+        }
+
+        // all the clients of the pool are in use
+        overflowed.incrementAndGet();
+        LOG.debug("Hive MetaStore client pool for {} is exhausted, {}", key, pool);
+        logMetrics();
+        return factory.create();
+    }
+
+    /**
+     * Returns the utilization of the pool: the numbers of clients in use and
+     * idle, and the numbers of clients that were created, reused, given out
+     * beyond the size of the pool, evicted when idle and invalidated.
+     *
+     * @return the name and the value of each metric
+     */
+    public Map<String, Long> getMetrics() {
+        long active = 0;
+        long idle = 0;
+        for (Pool pool : pools.values()) {
+            synchronized (pool) {
+                active += pool.active;
+                idle += pool.idle.size();
+            }
+        }
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("active", active);
+        metrics.put("idle", idle);
+        metrics.put("created", created.get());
+        metrics.put("reused", reused.get());
+        metrics.put("overflowed", overflowed.get());
+        metrics.put("evicted", evicted.get());
+        metrics.put("invalidated", invalidated.get());
+        return metrics;
+    }
+
+    /*
+     * Logs the metrics of all the pools. Must not be called while holding
+     * the lock of a pool, as the metrics lock every pool in turn.
+     */
+    private void logMetrics() {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Hive MetaStore client pool metrics: {}", getMetrics());
+        }
+    }
+
+    /**
+     * Disconnects all the idle clients.
+     */
+    public void closeIdleClients() {
+        evictIdleClients(-1);
+    }
+
+    private boolean isUsable(PooledClient pooledClient, HiveConf hiveConf) {
+        try {
+            if (!pooledClient.client.isCompatibleWith(hiveConf)) {
+                LOG.debug("Hive MetaStore client configuration changed");
+                return false;
+            }
+            if (ticker.read() - pooledClient.releasedNanos > VALIDATION_INTERVAL_NANOS) {
+                pooledClient.client.getDatabases("default");
+            }
+            return true;
+        } catch (Exception e) {
+            LOG.debug("Hive MetaStore client failed the health check", e);
+            return false;
+        }
+    }
+
+    private void evictIdleClients(long idleTimeoutNanos) {
+        long now = ticker.read();
+        for (Pool pool : pools.values()) {
+            pool.evict(now, idleTimeoutNanos);
+        }
+    }
+
+    private static void close(IMetaStoreClient client) {
+        try {
+            client.close();
+        } catch (RuntimeException e) {
+            LOG.debug("Unable to close Hive MetaStore client", e);
+        }
+    }
+
+    /*
+     * The clients of a server and a user.
+     */
+    private class Pool {
+        private final Deque<PooledClient> idle = new ArrayDeque<>();
+        private int active;
+
+        synchronized PooledClient borrow(int size) {
+            // the size may have been lowered since the clients were pooled
+            while (idle.size() + active > size && !idle.isEmpty()) {
+                discard(idle.pollLast(), false);
+            }
+            PooledClient pooledClient = idle.pollFirst();
+            if (pooledClient != null) {
+                active++;
+            }
+            return pooledClient;
+        }
+
+        synchronized boolean reserve(int size) {
+            if (idle.size() + active >= size) {
+                return false;
+            }
+            active++;
+            return true;
+        }
+
+        synchronized void cancelReservation() {
+            active--;
+        }
+
+        void release(PooledClient pooledClient, boolean isBroken) {
+            returnClient(pooledClient, isBroken);
+            logMetrics();
+        }
+
+        private synchronized void returnClient(PooledClient pooledClient, boolean isBroken) {
+            active--;
+            if (isBroken) {
+                invalidated.incrementAndGet();
+                HiveClientPool.close(pooledClient.client);
+                return;
+            }
+            pooledClient.releasedNanos = ticker.read();
+            idle.addFirst(pooledClient);
+        }
+
+        synchronized void discard(PooledClient pooledClient) {
+            discard(pooledClient, true);
+        }
+
+        private void discard(PooledClient pooledClient, boolean wasActive) {
+            if (wasActive) {
+                active--;
+            }
+            HiveClientPool.close(pooledClient.client);
+        }
+
+        synchronized void evict(long now, long idleTimeoutNanos) {
+            Iterator<PooledClient> iterator = idle.descendingIterator();
+            while (iterator.hasNext()) {
+                PooledClient pooledClient = iterator.next();
+                if (now - pooledClient.releasedNanos <= idleTimeoutNanos) {
+                    break;
+                }
+                iterator.remove();
+                evicted.incrementAndGet();
+                HiveClientPool.close(pooledClient.client);
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%d active, %d idle", active, idle.size());
+        }
+    }
+
+    /*
+     * A client of the pool.
+     */
+    private static class PooledClient {
+        private final Pool pool;
+        private final IMetaStoreClient client;
+        private volatile long releasedNanos;
+
+        PooledClient(Pool pool, IMetaStoreClient client) {
+            this.pool = pool;
+            this.client = client;
+        }
+
+        IMetaStoreClient open() {
+            return (IMetaStoreClient) Proxy.newProxyInstance(IMetaStoreClient.class.getClassLoader(),
+                    new Class<?>[]{IMetaStoreClient.class}, new Lease(this));
+        }
+    }
+
+    /*
+     * Gives a pooled client to one request, and returns the client to the
+     * pool when the request closes it. The lease can no longer be used once
+     * it is closed, even though the client is given to another request.
+     */
+    private static class Lease implements InvocationHandler {
+        private final PooledClient pooledClient;
+        private boolean isOpen = true;
+        private boolean isBroken;
+
+        Lease(PooledClient pooledClient) {
+            this.pooledClient = pooledClient;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(this, args);
+            }
+            if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                release();
+                return null;
+            }
+            synchronized (this) {
+                if (!isOpen) {
+                    throw new IllegalStateException("Hive MetaStore client is closed");
+                }
+            }
+            try {
+                return method.invoke(pooledClient.client, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof TTransportException) {
+                    synchronized (this) {
+                        isBroken = true;
+                    }
+                }
+                throw e.getCause();
+            }
+        }
+
+        private void release() {
+            boolean broken;
+            synchronized (this) {
+                if (!isOpen) {
+                    return;
+                }
+                isOpen = false;
+                broken = isBroken;
+            }
+            pooledClient.pool.release(pooledClient, broken);
+        }
+    }
+}
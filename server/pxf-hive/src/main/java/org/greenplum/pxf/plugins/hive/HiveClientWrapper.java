@@ -11,6 +11,7 @@ import org.apache.hadoop.hive.metastore.RetryingMetaStoreClient;
 import org.apache.hadoop.hive.metastore.TableType;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
 import org.apache.hadoop.hive.metastore.api.Table;
 import org.apache.hadoop.hive.serde.serdeConstants;
@@ -52,13 +53,22 @@ public class HiveClientWrapper {
     private static final String STR_TEXT_FILE_INPUT_FORMAT = "org.apache.hadoop.mapred.TextInputFormat";
     private static final String STR_ORC_FILE_INPUT_FORMAT = "org.apache.hadoop.hive.ql.io.orc.OrcInputFormat";
     private final HiveClientFactory hiveClientFactory;
+    private final HiveMetadataCache hiveMetadataCache;
+    private final HiveClientPool hiveClientPool;
 
     private HiveClientWrapper() {
-        this(HiveClientFactory.getInstance());
+        this(HiveClientFactory.getInstance(), HiveMetadataCache.getInstance(), HiveClientPool.getInstance());
     }
 
     HiveClientWrapper(HiveClientFactory hiveClientFactory) {
+        this(hiveClientFactory, HiveMetadataCache.getInstance(), HiveClientPool.getInstance());
+    }
+
+    HiveClientWrapper(HiveClientFactory hiveClientFactory, HiveMetadataCache hiveMetadataCache,
+                      HiveClientPool hiveClientPool) {
         this.hiveClientFactory = hiveClientFactory;
+        this.hiveMetadataCache = hiveMetadataCache;
+        this.hiveClientPool = hiveClientPool;
     }
 
     /**
@@ -73,6 +83,8 @@ public class HiveClientWrapper {
     /**
      * Initializes the IMetaStoreClient
      * Uses classpath configuration files to locate the MetaStore
+     * The client comes from the pool of the server when the pool is enabled,
+     * and must be closed once it is no longer needed.
      *
      * @return initialized client
      */
@@ -81,12 +93,18 @@ public class HiveClientWrapper {
         try {
             if (Utilities.isSecurityEnabled(configuration)) {
                 UserGroupInformation loginUser = SecureLogin.getInstance().getLoginUser(context, configuration);
-                LOG.debug("initialize HiveMetaStoreClient as login user '{}'", loginUser.getUserName());
-                // wrap in doAs for Kerberos to propagate kerberos tokens from login Subject
-                return loginUser.
-                        doAs((PrivilegedExceptionAction<IMetaStoreClient>) () -> hiveClientFactory.initHiveClient(hiveConf));
+                return hiveClientPool.getClient(configuration, loginUser.getUserName(), hiveConf, () -> {
+                    LOG.debug("initialize HiveMetaStoreClient as login user '{}'", loginUser.getUserName());
+                    // wrap in doAs for Kerberos to propagate kerberos tokens from login Subject
+                    return loginUser.
+                            doAs((PrivilegedExceptionAction<IMetaStoreClient>) () -> hiveClientFactory.initHiveClient(hiveConf));
+                });
             } else {
-                return hiveClientFactory.initHiveClient(hiveConf);
+                // the client is connected as the user of the request, that
+                // the metastore authorizes, so it is not shared with other users
+                String user = UserGroupInformation.getCurrentUser().getShortUserName();
+                return hiveClientPool.getClient(configuration, user, hiveConf,
+                        () -> hiveClientFactory.initHiveClient(hiveConf));
             }
         } catch (MetaException | InterruptedException | IOException e) {
             throw new RuntimeException("Failed connecting to Hive MetaStore service: " + e.getMessage(), e);
@@ -94,7 +112,42 @@ public class HiveClientWrapper {
     }
 
     public Table getHiveTable(IMetaStoreClient client, Metadata.Item itemName) throws Exception {
-        Table tbl = client.getTable(itemName.getPath(), itemName.getName());
+        return verifyTableType(itemName, client.getTable(itemName.getPath(), itemName.getName()));
+    }
+
+    /**
+     * Returns the Hive table, from the metadata cache when the cache is
+     * enabled for the server and the cached table is still valid.
+     *
+     * @param client        the metastore client
+     * @param itemName      the database and the name of the table
+     * @param configuration the configuration for the server
+     * @return the table, which must not be modified
+     * @throws Exception when the table cannot be retrieved or is a view
+     */
+    public Table getHiveTable(IMetaStoreClient client, Metadata.Item itemName, Configuration configuration) throws Exception {
+        return verifyTableType(itemName, hiveMetadataCache.getTable(client, configuration, itemName));
+    }
+
+    /**
+     * Returns the partitions of the Hive table, from the metadata cache when
+     * the cache is enabled for the server and the cached partitions are still
+     * valid. All the partitions are listed when the filter is null, otherwise
+     * the partitions that match the filter are listed.
+     *
+     * @param client        the metastore client
+     * @param itemName      the database and the name of the table
+     * @param filter        the filter on the partition keys, or null
+     * @param configuration the configuration for the server
+     * @return the partitions, which must not be modified
+     * @throws TException when the partitions cannot be retrieved
+     */
+    public List<Partition> listPartitions(IMetaStoreClient client, Metadata.Item itemName, String filter,
+                                          Configuration configuration) throws TException {
+        return hiveMetadataCache.getPartitions(client, configuration, itemName, filter);
+    }
+
+    private Table verifyTableType(Metadata.Item itemName, Table tbl) {
         String tblType = tbl.getTableType();
 
         LOG.debug("Item: {}.{}, type: {}", itemName.getPath(), itemName.getName(), tblType);
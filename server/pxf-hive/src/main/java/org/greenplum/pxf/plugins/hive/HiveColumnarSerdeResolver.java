@@ -24,6 +24,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.hive.common.type.HiveDecimal;
 import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.StructObject;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
@@ -62,9 +63,6 @@ import java.util.Properties;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static org.apache.hadoop.hive.serde2.ColumnProjectionUtils.READ_ALL_COLUMNS;
-import static org.apache.hadoop.hive.serde2.ColumnProjectionUtils.READ_COLUMN_IDS_CONF_STR;
-import static org.apache.hadoop.hive.serde2.ColumnProjectionUtils.READ_COLUMN_NAMES_CONF_STR;
 import static org.greenplum.pxf.api.io.DataType.VARCHAR;
 
 /**
@@ -148,29 +146,11 @@ public class HiveColumnarSerdeResolver extends HiveResolver {
     @Override
     void initSerde(RequestContext input) throws Exception {
         Properties serdeProperties = new Properties();
-        StringBuilder projectedColumnNames = new StringBuilder();
-        StringBuilder projectedColumnIds = new StringBuilder();
-
-        String delim = ",";
-        List<ColumnDescriptor> tupleDescription = input.getTupleDescription();
-        for (int i = 0; i < tupleDescription.size(); i++) {
-            ColumnDescriptor column = tupleDescription.get(i);
-            if (column.isProjected() && hiveIndexes.get(i) != null) {
-                if (projectedColumnNames.length() > 0) {
-                    projectedColumnNames.append(delim);
-                    projectedColumnIds.append(delim);
-                }
-                projectedColumnNames.append(column.columnName());
-                projectedColumnIds.append(hiveIndexes.get(i));
-            }
-        }
         serdeProperties.put(serdeConstants.LIST_COLUMNS, allColumnNames);
         serdeProperties.put(serdeConstants.LIST_COLUMN_TYPES, allColumnTypes);
 
         JobConf jobConf = new JobConf(configuration, HiveColumnarSerdeResolver.class);
-        jobConf.set(READ_ALL_COLUMNS, "false");
-        jobConf.set(READ_COLUMN_IDS_CONF_STR, projectedColumnIds.toString());
-        jobConf.set(READ_COLUMN_NAMES_CONF_STR, projectedColumnNames.toString());
+        setColumnProjection(jobConf, input);
 
         deserializer = HiveUtilities.createDeserializer(serdeType);
         deserializer.initialize(jobConf, serdeProperties);
@@ -196,10 +176,14 @@ public class HiveColumnarSerdeResolver extends HiveResolver {
             case STRUCT:
                 StructObjectInspector soi = (StructObjectInspector) objInspector;
                 List<? extends StructField> fields = soi.getAllStructFieldRefs();
-                List<?> list = soi.getStructFieldsDataAsList(obj);
-                if (list == null) {
+                // a ColumnarStruct deserializes a column only when it is
+                // accessed, so only the projected columns are accessed
+                boolean isLazyStruct = obj instanceof StructObject;
+                List<?> list = isLazyStruct ? null : soi.getStructFieldsDataAsList(obj);
+                if (!isLazyStruct && list == null) {
                     throw new BadRecordException("Illegal value NULL for Hive data type Struct");
                 }
+                int numberOfStructFields = isLazyStruct ? fields.size() : list.size();
 
                 Map<String, Integer> columnNameToStructIndexMap =
                         IntStream.range(0, fields.size())
@@ -216,16 +200,23 @@ public class HiveColumnarSerdeResolver extends HiveResolver {
 
                     if ((levelKey = partitionColumnNames.get(lowercaseColumnName)) != null) {
                         // Skip partitioned columns
-                        String type = levelKey[1];
-                        String val = levelKey[2];
-                        addPartitionColumn(type, val);
+                        if (columnDescriptor.isProjected()) {
+                            String type = levelKey[1];
+                            String val = levelKey[2];
+                            addPartitionColumn(type, val);
+                        } else {
+                            addNullColumn();
+                        }
                     } else if (!columnDescriptor.isProjected()) {
                         // Non-projected fields will be sent as null values.
                         // This case is invoked only in the top level of fields and
                         // not when interpreting fields of type struct.
                         traverseTuple(null, fields.get(i).getFieldObjectInspector());
-                    } else if (structIndex < list.size()){
-                        traverseTuple(list.get(structIndex), fields.get(i).getFieldObjectInspector());
+                    } else if (structIndex < numberOfStructFields) {
+                        Object field = isLazyStruct ?
+                                soi.getStructFieldData(obj, fields.get(structIndex)) :
+                                list.get(structIndex);
+                        traverseTuple(field, fields.get(i).getFieldObjectInspector());
                     } else {
                         traverseTuple(null, fields.get(i).getFieldObjectInspector());
                     }
@@ -236,6 +227,14 @@ public class HiveColumnarSerdeResolver extends HiveResolver {
         }
     }
 
+    private void addNullColumn() {
+        if (!firstColumn) {
+            builder.append(delimiter);
+        }
+        builder.append(nullChar);
+        firstColumn = false;
+    }
+
     private void addPartitionColumn(String type, String val) {
         if (!firstColumn) {
             builder.append(delimiter);
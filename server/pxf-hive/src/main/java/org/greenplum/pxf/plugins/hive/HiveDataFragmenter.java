@@ -20,7 +20,10 @@ package org.greenplum.pxf.plugins.hive;
  */
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
 import org.apache.hadoop.hive.common.JavaUtils;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.metastore.IMetaStoreClient;
@@ -29,12 +32,19 @@ import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
 import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.ql.io.orc.OrcInputFormat;
+import org.apache.hadoop.hive.ql.io.sarg.PredicateLeaf;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
 import org.apache.hadoop.mapred.FileInputFormat;
 import org.apache.hadoop.mapred.FileSplit;
 import org.apache.hadoop.mapred.InputFormat;
 import org.apache.hadoop.mapred.InputSplit;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.TextInputFormat;
+import org.apache.orc.ColumnStatistics;
+import org.apache.orc.StripeInformation;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.impl.RecordReaderImpl;
 import org.greenplum.pxf.api.filter.FilterParser;
 import org.greenplum.pxf.api.filter.Node;
 import org.greenplum.pxf.api.filter.Operator;
@@ -53,7 +63,10 @@ import org.greenplum.pxf.plugins.hive.utilities.ProfileFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
@@ -61,6 +74,11 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -82,7 +100,8 @@ import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
  */
 public class HiveDataFragmenter extends HdfsDataFragmenter {
     private static final Logger LOG = LoggerFactory.getLogger(HiveDataFragmenter.class);
-    private static final short ALL_PARTS = -1;
+
+    public static final String GET_SPLITS_NUM_THREADS_PROPERTY = "pxf.hive.get-splits.num-threads";
 
     public static final String HIVE_1_PART_DELIM = "!H1PD!";
     public static final String HIVE_PARTITIONS_DELIM = "!HPAD!";
@@ -102,6 +121,10 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
 
     private static final TreeTraverser TRAVERSER = new TreeTraverser();
 
+    // the same files that FileInputFormat skips
+    private static final PathFilter HIDDEN_FILE_FILTER = path ->
+            !path.getName().startsWith("_") && !path.getName().startsWith(".");
+
     private IMetaStoreClient client;
     private HiveClientWrapper hiveClientWrapper;
 
@@ -132,7 +155,12 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
     public List<Fragment> getFragments() throws Exception {
         Metadata.Item tblDesc = hiveClientWrapper.extractTableFromName(context.getDataSource());
 
-        fetchTableMetaData(tblDesc);
+        openClient();
+        try {
+            fetchTableMetaData(tblDesc);
+        } finally {
+            closeClient();
+        }
 
         return fragments;
     }
@@ -166,7 +194,7 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
      */
     private void fetchTableMetaData(Metadata.Item tblDesc) throws Exception {
 
-        Table tbl = hiveClientWrapper.getHiveTable(client, tblDesc);
+        Table tbl = hiveClientWrapper.getHiveTable(client, tblDesc, configuration);
 
         Metadata metadata = new Metadata(tblDesc);
         hiveClientWrapper.getSchema(tbl, metadata);
@@ -235,8 +263,8 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
             // API call to Hive MetaStore, will return a List of all the
             // partitions for this table, that matches the partition filters
             // Defined in filterStringForHive.
-            partitions = client.listPartitionsByFilter(tblDesc.getPath(),
-                    tblDesc.getName(), filterStringForHive, ALL_PARTS);
+            partitions = hiveClientWrapper.listPartitions(client, tblDesc,
+                    filterStringForHive, configuration);
 
             // No matched partitions for the filter, no fragments to return.
             if (partitions == null || partitions.isEmpty()) {
@@ -252,31 +280,31 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
         } else {
             // API call to Hive MetaStore, will return a List of all the
             // partitions for this table (no filtering)
-            partitions = client.listPartitions(tblDesc.getPath(),
-                    tblDesc.getName(), ALL_PARTS);
+            partitions = hiveClientWrapper.listPartitions(client, tblDesc,
+                    null, configuration);
         }
 
         StorageDescriptor descTable = tbl.getSd();
-        Properties props;
+        List<HiveTablePartition> tablePartitions = new ArrayList<>();
 
         if (partitions.isEmpty()) {
-            props = getSchema(tbl);
-            fetchMetaDataForSimpleTable(descTable, props, hasComplexTypes,
-                    hiveIndexes, allColumnNames.toString(), allColumnTypes.toString());
+            tablePartitions.add(new HiveTablePartition(descTable, getSchema(tbl), null, null, null));
         } else {
             List<FieldSchema> partitionKeys = tbl.getPartitionKeys();
 
             for (Partition partition : partitions) {
                 StorageDescriptor descPartition = partition.getSd();
-                props = MetaStoreUtils.getSchema(descPartition, descTable,
+                Properties props = MetaStoreUtils.getSchema(descPartition, descTable,
                         null,
                         tblDesc.getPath(), tblDesc.getName(),
                         partitionKeys);
-                fetchMetaDataForPartitionedTable(descPartition, props, partition,
-                        partitionKeys, tblDesc.getName(), hasComplexTypes,
-                        hiveIndexes, allColumnNames.toString(), allColumnTypes.toString());
+                tablePartitions.add(new HiveTablePartition(descPartition, props, partition,
+                        partitionKeys, tblDesc.getName()));
             }
         }
+
+        fetchMetaData(tablePartitions, hasComplexTypes, hiveIndexes,
+                allColumnNames.toString(), allColumnTypes.toString());
     }
 
     /**
@@ -327,52 +355,63 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
                 table.getPartitionKeys());
     }
 
-    private void fetchMetaDataForSimpleTable(StorageDescriptor stdsc,
-                                             Properties props,
-                                             boolean hasComplexTypes,
-                                             List<Integer> hiveIndexes,
-                                             String allColumnNames,
-                                             String allColumnTypes) throws Exception {
-        fetchMetaDataForSimpleTable(stdsc, props, null, hasComplexTypes,
-                hiveIndexes, allColumnNames, allColumnTypes);
-    }
-
-    private void fetchMetaDataForSimpleTable(StorageDescriptor stdsc,
-                                             Properties props,
-                                             String tableName,
-                                             boolean hasComplexTypes,
-                                             List<Integer> hiveIndexes,
-                                             String allColumnNames,
-                                             String allColumnTypes)
-            throws Exception {
-        fetchMetaData(new HiveTablePartition(stdsc, props, null, null,
-                tableName), hasComplexTypes, hiveIndexes, allColumnNames, allColumnTypes);
-    }
-
-    private void fetchMetaDataForPartitionedTable(StorageDescriptor stdsc,
-                                                  Properties props,
-                                                  Partition partition,
-                                                  List<FieldSchema> partitionKeys,
-                                                  String tableName,
-                                                  boolean hasComplexTypes,
-                                                  List<Integer> hiveIndexes,
-                                                  String allColumnNames,
-                                                  String allColumnTypes)
-            throws Exception {
-        fetchMetaData(new HiveTablePartition(stdsc, props, partition,
-                partitionKeys, tableName), hasComplexTypes, hiveIndexes,
-                allColumnNames, allColumnTypes);
-    }
-
-    /* Fills a table partition */
-    private void fetchMetaData(HiveTablePartition tablePartition,
+    /*
+     * Gets the splits of the table partitions in parallel, and adds their
+     * fragments in the order of the partitions.
+     */
+    private void fetchMetaData(List<HiveTablePartition> tablePartitions,
                                boolean hasComplexTypes,
                                List<Integer> hiveIndexes,
                                String allColumnNames,
                                String allColumnTypes)
             throws Exception {
+        int numThreads = Math.max(1, Math.min(tablePartitions.size(),
+                configuration.getInt(GET_SPLITS_NUM_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors())));
+        if (numThreads == 1) {
+            for (HiveTablePartition tablePartition : tablePartitions) {
+                fragments.addAll(fetchMetaData(tablePartition, hasComplexTypes, hiveIndexes,
+                        allColumnNames, allColumnTypes));
+            }
+            return;
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<List<Fragment>>> futures = new ArrayList<>(tablePartitions.size());
+            for (HiveTablePartition tablePartition : tablePartitions) {
+                futures.add(executorService.submit(() -> fetchMetaData(tablePartition,
+                        hasComplexTypes, hiveIndexes, allColumnNames, allColumnTypes)));
+            }
+            for (Future<List<Fragment>> future : futures) {
+                fragments.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while getting the splits of Hive partitions", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new IOException("Unable to get the splits of Hive partitions", cause);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /*
+     * Returns the fragments of a table partition. The partition gets a copy
+     * of the job configuration, as the input paths are set on it.
+     */
+    private List<Fragment> fetchMetaData(HiveTablePartition tablePartition,
+                                         boolean hasComplexTypes,
+                                         List<Integer> hiveIndexes,
+                                         String allColumnNames,
+                                         String allColumnTypes)
+            throws Exception {
+        JobConf partitionJobConf = new JobConf(jobConf);
         InputFormat<?, ?> fformat = makeInputFormat(
-                tablePartition.storageDesc.getInputFormat(), jobConf);
+                tablePartition.storageDesc.getInputFormat(), partitionJobConf);
         String profile = null;
         String userProfile = context.getProfile();
         if (userProfile != null) {
@@ -387,34 +426,226 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
             fragmenterForProfile = context.getFragmenter();
         }
 
-        FileInputFormat.setInputPaths(jobConf, new Path(
-                tablePartition.storageDesc.getLocation()));
+        Path location = new Path(tablePartition.storageDesc.getLocation());
+        if (fformat instanceof OrcInputFormat && isStripeAligned(fragmenterForProfile)) {
+            FileStatus[] files = listFiles(location, partitionJobConf);
+            if (files != null) {
+                List<Fragment> partitionFragments = getStripeAlignedFragments(
+                        location, files, partitionJobConf, hiveIndexes, profile);
+                if (!partitionFragments.isEmpty()) {
+                    byte[] userData = hiveClientWrapper.makeUserData(
+                            fragmenterForProfile,
+                            tablePartition,
+                            filterInFragmenter,
+                            hiveIndexes,
+                            allColumnNames,
+                            allColumnTypes);
+                    for (Fragment fragment : partitionFragments) {
+                        fragment.setUserData(userData);
+                    }
+                }
+                return partitionFragments;
+            }
+        }
+
+        FileInputFormat.setInputPaths(partitionJobConf, location);
 
         InputSplit[] splits;
         try {
-            splits = fformat.getSplits(jobConf, 1);
+            splits = fformat.getSplits(partitionJobConf, 1);
         } catch (org.apache.hadoop.mapred.InvalidInputException e) {
             LOG.debug("getSplits failed on " + e.getMessage());
-            return;
+            return Collections.emptyList();
+        }
+
+        List<Fragment> partitionFragments = new ArrayList<>(splits.length);
+        if (splits.length == 0) {
+            return partitionFragments;
         }
 
+        // the user data is the same for all the splits of the partition
+        byte[] userData = hiveClientWrapper.makeUserData(
+                fragmenterForProfile,
+                tablePartition,
+                filterInFragmenter,
+                hiveIndexes,
+                allColumnNames,
+                allColumnTypes);
+
         for (InputSplit split : splits) {
             FileSplit fsp = (FileSplit) split;
             String[] hosts = fsp.getLocations();
             String filepath = fsp.getPath().toString();
 
             byte[] locationInfo = HdfsUtilities.prepareFragmentMetadata(fsp);
-            byte[] userData = hiveClientWrapper.makeUserData(
-                    fragmenterForProfile,
-                    tablePartition,
-                    filterInFragmenter,
-                    hiveIndexes,
-                    allColumnNames,
-                    allColumnTypes);
             Fragment fragment = new Fragment(filepath, hosts, locationInfo,
                     userData, profile);
-            fragments.add(fragment);
+            partitionFragments.add(fragment);
+        }
+        return partitionFragments;
+    }
+
+    /*
+     * Returns whether the fragmenter of the profile returns fragments aligned
+     * to the stripes of ORC files.
+     */
+    private static boolean isStripeAligned(String fragmenterForProfile) throws ClassNotFoundException {
+        return fragmenterForProfile != null &&
+                HiveORCFragmenter.class.isAssignableFrom(Class.forName(fragmenterForProfile));
+    }
+
+    /*
+     * Returns the non-empty files of a partition, or null when the partition
+     * has directories, as the partitions of transactional tables have, which
+     * are left to the input format.
+     */
+    private static FileStatus[] listFiles(Path location, JobConf partitionJobConf) throws IOException {
+        FileStatus[] statuses;
+        try {
+            statuses = location.getFileSystem(partitionJobConf).listStatus(location, HIDDEN_FILE_FILTER);
+        } catch (FileNotFoundException e) {
+            LOG.debug("listStatus failed on " + e.getMessage());
+            return new FileStatus[0];
+        }
+        List<FileStatus> files = new ArrayList<>(statuses.length);
+        for (FileStatus status : statuses) {
+            if (status.isDirectory()) {
+                return null;
+            }
+            if (status.getLen() > 0) {
+                files.add(status);
+            }
+        }
+        return files.toArray(new FileStatus[0]);
+    }
+
+    /*
+     * Returns a fragment for each range of consecutive stripes of the ORC
+     * files that may have rows matching the filter, each range spanning at
+     * most the fragment size. The accessors read the stripes that start in
+     * the range of the fragment.
+     */
+    private List<Fragment> getStripeAlignedFragments(Path location,
+                                                     FileStatus[] files,
+                                                     JobConf partitionJobConf,
+                                                     List<Integer> hiveIndexes,
+                                                     String profile)
+            throws IOException {
+        final long then = System.nanoTime();
+        SearchArgument searchArgument = null;
+        try {
+            searchArgument = HiveORCAccessor.buildSearchArgument(context, configuration);
+        } catch (Exception e) {
+            LOG.warn(String.format("Unable to prune stripes of partition %s for filter %s",
+                    location, context.getFilterString()), e);
+        }
+        long fragmentSize = configuration.getLongBytes(HiveORCFragmenter.FRAGMENT_SIZE_PROPERTY, 0);
+
+        List<Fragment> partitionFragments = new ArrayList<>();
+        int totalStripes = 0, matchingStripes = 0;
+        for (FileStatus file : files) {
+            HiveORCFileTailCache.FileTail tail =
+                    HiveORCFileTailCache.getInstance().getFileTail(partitionJobConf, file);
+            List<StripeInformation> stripes = tail.getStripes();
+            List<ColumnStatistics[]> stripeStatistics = tail.getStripeStatistics();
+            int[] leafColumns = searchArgument == null || stripeStatistics.isEmpty() ? null :
+                    getLeafColumns(searchArgument, tail.getSchema(), hiveIndexes);
+            long maxLength = fragmentSize > 0 ? fragmentSize :
+                    file.getBlockSize() > 0 ? file.getBlockSize() : Long.MAX_VALUE;
+
+            // the start, length and number of rows of each run of stripes
+            List<long[]> runs = new ArrayList<>();
+            long start = -1, end = -1, numberOfRows = 0;
+            for (int i = 0; i < stripes.size(); i++) {
+                StripeInformation stripe = stripes.get(i);
+                long stripeStart = stripe.getOffset();
+                long stripeEnd = stripeStart + stripe.getLength();
+                boolean isMatching = stripe.getNumberOfRows() > 0 && (leafColumns == null ||
+                        isStripeMatching(searchArgument, leafColumns, stripeStatistics.get(i)));
+                if (start >= 0 && (!isMatching || stripeStart != end || stripeEnd - start > maxLength)) {
+                    runs.add(new long[]{start, end - start, numberOfRows});
+                    start = -1;
+                }
+                if (!isMatching) {
+                    continue;
+                }
+                if (start < 0) {
+                    start = stripeStart;
+                    numberOfRows = 0;
+                }
+                end = stripeEnd;
+                numberOfRows += stripe.getNumberOfRows();
+                matchingStripes++;
+            }
+            if (start >= 0) {
+                runs.add(new long[]{start, end - start, numberOfRows});
+            }
+            totalStripes += stripes.size();
+            if (runs.isEmpty()) {
+                continue;
+            }
+
+            // the block locations of the file are fetched once for all its runs
+            BlockLocation[] locations = HdfsUtilities.getBlockLocations(
+                    file.getPath().getFileSystem(partitionJobConf), file);
+            for (long[] run : runs) {
+                String[] hosts = HdfsUtilities.getHosts(locations, run[0], run[1]);
+                byte[] locationInfo = HdfsUtilities.prepareFragmentMetadata(run[0], run[1], hosts, run[2]);
+                partitionFragments.add(new Fragment(file.getPath().toString(), hosts, locationInfo, null, profile));
+            }
+        }
+        LOG.debug("{} of {} stripes in {} files of {} match the filter, {} fragments in {} ms",
+                matchingStripes, totalStripes, files.length, location, partitionFragments.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - then));
+        return partitionFragments;
+    }
+
+    /*
+     * Returns the ORC column id of the column of each leaf of the search
+     * argument, or -1 when the column is not in the file, as partition
+     * columns are not.
+     */
+    private int[] getLeafColumns(SearchArgument searchArgument, TypeDescription schema, List<Integer> hiveIndexes) {
+        Map<String, Integer> columnIds = new HashMap<>();
+        List<TypeDescription> fields = schema.getChildren();
+        List<ColumnDescriptor> tupleDescription = context.getTupleDescription();
+        for (int i = 0; fields != null && i < tupleDescription.size(); i++) {
+            Integer hiveIndex = i < hiveIndexes.size() ? hiveIndexes.get(i) : null;
+            if (hiveIndex != null && hiveIndex < fields.size()) {
+                columnIds.put(tupleDescription.get(i).columnName(), fields.get(hiveIndex).getId());
+            }
+        }
+        List<PredicateLeaf> leaves = searchArgument.getLeaves();
+        int[] leafColumns = new int[leaves.size()];
+        for (int i = 0; i < leaves.size(); i++) {
+            Integer columnId = columnIds.get(leaves.get(i).getColumnName());
+            leafColumns[i] = columnId == null ? -1 : columnId;
+        }
+        return leafColumns;
+    }
+
+    /*
+     * Returns whether the statistics of a stripe show that some of its rows
+     * may match the search argument. A leaf whose column has no statistics,
+     * or whose statistics cannot be compared with the literals of the leaf,
+     * may match any row.
+     */
+    private static boolean isStripeMatching(SearchArgument searchArgument, int[] leafColumns,
+                                            ColumnStatistics[] statistics) {
+        List<PredicateLeaf> leaves = searchArgument.getLeaves();
+        SearchArgument.TruthValue[] truthValues = new SearchArgument.TruthValue[leaves.size()];
+        for (int i = 0; i < leaves.size(); i++) {
+            truthValues[i] = SearchArgument.TruthValue.YES_NO_NULL;
+            int column = leafColumns[i];
+            if (column >= 0 && column < statistics.length && statistics[column] != null) {
+                try {
+                    truthValues[i] = RecordReaderImpl.evaluatePredicate(statistics[column], leaves.get(i), null);
+                } catch (RuntimeException e) {
+                    LOG.debug("Unable to evaluate {} with the stripe statistics", leaves.get(i), e);
+                }
+            }
         }
+        return searchArgument.evaluate(truthValues).isNeeded();
     }
 
     /**
@@ -423,7 +654,13 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
     @Override
     public FragmentStats getFragmentStats() throws Exception {
         Metadata.Item tblDesc = hiveClientWrapper.extractTableFromName(context.getDataSource());
-        Table tbl = hiveClientWrapper.getHiveTable(client, tblDesc);
+        Table tbl;
+        openClient();
+        try {
+            tbl = hiveClientWrapper.getHiveTable(client, tblDesc, configuration);
+        } finally {
+            closeClient();
+        }
         Metadata metadata = new Metadata(tblDesc);
         hiveClientWrapper.getSchema(tbl, metadata);
 
@@ -433,4 +670,20 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
         return new FragmentStats(split_count, firstFragmentSize, totalSize);
     }
 
+    private void openClient() {
+        if (client == null) {
+            client = hiveClientWrapper.initHiveClient(context, configuration);
+        }
+    }
+
+    /*
+     * Closes the metastore client, which returns it to the pool of the server.
+     */
+    private void closeClient() {
+        if (client != null) {
+            client.close();
+            client = null;
+        }
+    }
+
 }
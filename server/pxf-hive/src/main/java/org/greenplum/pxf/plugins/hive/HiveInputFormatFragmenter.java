@@ -22,6 +22,7 @@ package org.greenplum.pxf.plugins.hive;
 
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.Table;
+import org.greenplum.pxf.api.model.ConfigurationFactory;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.plugins.hive.utilities.HiveUtilities;
 import org.slf4j.Logger;
@@ -65,6 +66,14 @@ public class HiveInputFormatFragmenter extends HiveDataFragmenter {
         ORC_FILE_INPUT_FORMAT
     }
 
+    public HiveInputFormatFragmenter() {
+        super();
+    }
+
+    HiveInputFormatFragmenter(ConfigurationFactory configurationFactory, HiveClientWrapper hiveClientWrapper) {
+        super(configurationFactory, hiveClientWrapper);
+    }
+
     /**
      * Checks that hive fields and partitions match the Greenplum schema.
      * Throws an exception if:
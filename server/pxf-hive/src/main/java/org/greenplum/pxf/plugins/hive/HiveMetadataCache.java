@@ -0,0 +1,326 @@
+package org.greenplum.pxf.plugins.hive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.NotificationEvent;
+import org.apache.hadoop.hive.metastore.api.NotificationEventResponse;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.greenplum.pxf.api.model.ConfigurationFactory;
+import org.greenplum.pxf.api.model.Metadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the tables and the partitions that the fragmenter and the metadata
+ * fetcher get from the Hive metastore, so that repeated queries on a table
+ * with many partitions do not list all of its partitions again.
+ * <p>
+ * Entries are keyed by the server, the user, the table and the partition
+ * filter, since the metastore authorizes the user of the request. An
+ * entry is used as it is while it is younger than the TTL set with
+ * {@link #CACHE_TTL_PROPERTY}; a cache with a TTL of 0, the default, is not
+ * used at all. An older entry is validated with the metastore before it is
+ * used again:
+ * <ul>
+ * <li>when the metastore keeps a notification log (the
+ * DbNotificationListener is configured) and
+ * {@link #NOTIFICATION_EVENTS_PROPERTY} is set, the entry is valid if no
+ * event was logged for the table since the entry was loaded;</li>
+ * <li>otherwise, the entry is valid if the {@code transient_lastDdlTime} of
+ * the table and the names of its partitions have not changed, which costs
+ * one call for the table and one for the partition names instead of
+ * listing the partitions.</li>
+ * </ul>
+ * Every entry is reloaded after an hour, and the memory used by the cache is
+ * bounded by the serialized size of the cached tables and partitions.
+ * <p>
+ * The cached objects are shared by all the queries and must not be modified.
+ */
+public class HiveMetadataCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HiveMetadataCache.class);
+
+    public static final String CACHE_TTL_PROPERTY = "pxf.hive.metadata-cache.ttl";
+    public static final String NOTIFICATION_EVENTS_PROPERTY = "pxf.hive.metadata-cache.notification-events.enabled";
+
+    static final long MAX_CACHED_BYTES = 256L * 1024 * 1024;
+    static final long MAX_ENTRY_AGE_HOURS = 1;
+    static final int MAX_NOTIFICATION_EVENTS = 1000;
+
+    private static final short ALL_PARTS = -1;
+
+    /**
+     * Singleton instance of the HiveMetadataCache
+     */
+    private static final HiveMetadataCache instance = new HiveMetadataCache();
+
+    private final Ticker ticker;
+    private final Cache<String, Entry<?>> cache;
+
+    /**
+     * Gets metadata from the metastore.
+     */
+    @FunctionalInterface
+    interface Loader<T> {
+        T load() throws TException;
+    }
+
+    private HiveMetadataCache() {
+        this(Ticker.systemTicker(), MAX_CACHED_BYTES);
+    }
+
+    HiveMetadataCache(Ticker ticker, long maxCachedBytes) {
+        this.ticker = ticker;
+        this.cache = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .maximumWeight(maxCachedBytes)
+                .weigher((Weigher<String, Entry<?>>) (key, entry) -> entry.weight)
+                .expireAfterWrite(MAX_ENTRY_AGE_HOURS, TimeUnit.HOURS)
+                .build();
+    }
+
+    /**
+     * @return a singleton instance of the metadata cache.
+     */
+    public static HiveMetadataCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the table, from the cache when the cached table is still valid.
+     *
+     * @param client        the metastore client
+     * @param configuration the configuration for the server
+     * @param item          the database and the name of the table
+     * @return the table
+     * @throws TException when the metastore call fails
+     */
+    public Table getTable(IMetaStoreClient client, Configuration configuration, Metadata.Item item)
+            throws TException {
+        return get(client, configuration, item, getKey(configuration, item, "table"), false,
+                () -> client.getTable(item.getPath(), item.getName()));
+    }
+
+    /**
+     * Returns the partitions of the table that match the filter, from the
+     * cache when the cached partitions are still valid. A null filter lists
+     * all the partitions with listPartitions, any other filter is given to
+     * listPartitionsByFilter.
+     *
+     * @param client        the metastore client
+     * @param configuration the configuration for the server
+     * @param item          the database and the name of the table
+     * @param filter        the filter on the partition keys, or null
+     * @return the partitions
+     * @throws TException when the metastore call fails
+     */
+    public List<Partition> getPartitions(IMetaStoreClient client, Configuration configuration,
+                                         Metadata.Item item, String filter) throws TException {
+        String kind = filter == null ? "partitions" : "partitions:" + filter;
+        return get(client, configuration, item, getKey(configuration, item, kind), true, () -> {
+            List<Partition> partitions = filter == null ?
+                    client.listPartitions(item.getPath(), item.getName(), ALL_PARTS) :
+                    client.listPartitionsByFilter(item.getPath(), item.getName(), filter, ALL_PARTS);
+            return partitions == null ? null : Collections.unmodifiableList(partitions);
+        });
+    }
+
+    /**
+     * Removes all the cached metadata.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    long size() {
+        return cache.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(IMetaStoreClient client, Configuration configuration, Metadata.Item item,
+                      String key, boolean isPartitionList, Loader<T> loader) throws TException {
+        long ttlNanos = TimeUnit.SECONDS.toNanos(configuration.getLong(CACHE_TTL_PROPERTY, 0));
+        if (ttlNanos <= 0) {
+            return loader.load();
+        }
+        boolean useEvents = configuration.getBoolean(NOTIFICATION_EVENTS_PROPERTY, false);
+
+        Entry<T> entry = (Entry<T>) cache.getIfPresent(key);
+        if (entry != null) {
+            long now = ticker.read();
+            if (now - entry.validatedNanos <= ttlNanos) {
+                LOG.debug("Using cached {}", key);
+                return entry.value;
+            }
+            if (isUnchanged(client, item, entry, useEvents, isPartitionList)) {
+                LOG.debug("Using cached {}, validated with the metastore", key);
+                entry.validatedNanos = now;
+                return entry.value;
+            }
+            LOG.debug("Cached {} is stale", key);
+        }
+
+        // record the state of the metastore before loading, so that changes
+        // made while loading invalidate the entry
+        long eventId = useEvents ? getCurrentEventId(client) : 0;
+        String ddlTime = null;
+        Integer partitionNames = null;
+        if (isPartitionList && eventId <= 0) {
+            ddlTime = getDdlTime(client.getTable(item.getPath(), item.getName()));
+            partitionNames = getPartitionNamesHash(client, item);
+        }
+
+        T value = loader.load();
+        if (value == null) {
+            return null;
+        }
+        if (!isPartitionList && eventId <= 0) {
+            ddlTime = getDdlTime((Table) value);
+        }
+        cache.put(key, new Entry<>(value, getWeight(value), ticker.read(), eventId, ddlTime, partitionNames));
+        return value;
+    }
+
+    /*
+     * Returns whether the metadata of the table has not changed since the
+     * entry was loaded, as far as the metastore can tell.
+     */
+    private boolean isUnchanged(IMetaStoreClient client, Metadata.Item item, Entry<?> entry,
+                                boolean useEvents, boolean isPartitionList) {
+        try {
+            if (useEvents && entry.eventId > 0) {
+                long currentEventId = getCurrentEventId(client);
+                if (currentEventId == entry.eventId) {
+                    return true;
+                }
+                if (currentEventId <= 0 || currentEventId - entry.eventId > MAX_NOTIFICATION_EVENTS) {
+                    return false;
+                }
+                NotificationEventResponse response = client.getNextNotification(entry.eventId,
+                        MAX_NOTIFICATION_EVENTS, event -> isEventForTable(event, item));
+                if (response != null && response.getEventsSize() > 0) {
+                    return false;
+                }
+                entry.eventId = currentEventId;
+                return true;
+            }
+            if (entry.ddlTime == null) {
+                return false;
+            }
+            if (!isPartitionList) {
+                // getting the table again is all it takes to reload it
+                return false;
+            }
+            return entry.ddlTime.equals(getDdlTime(client.getTable(item.getPath(), item.getName()))) &&
+                    Objects.equals(entry.partitionNames, getPartitionNamesHash(client, item));
+        } catch (TException | RuntimeException e) {
+            LOG.debug("Unable to validate the cached metadata of {}, reloading it", item, e);
+            return false;
+        }
+    }
+
+    private static boolean isEventForTable(NotificationEvent event, Metadata.Item item) {
+        return event.getDbName() != null && event.getDbName().equalsIgnoreCase(item.getPath()) &&
+                (event.getTableName() == null || event.getTableName().equalsIgnoreCase(item.getName()));
+    }
+
+    private long getCurrentEventId(IMetaStoreClient client) {
+        try {
+            return client.getCurrentNotificationEventId().getEventId();
+        } catch (TException | RuntimeException e) {
+            LOG.debug("Unable to get the current notification event id from the metastore", e);
+            return 0;
+        }
+    }
+
+    private static String getDdlTime(Table table) {
+        return table.getParameters() == null ? null :
+                table.getParameters().get(hive_metastoreConstants.DDL_TIME);
+    }
+
+    private static Integer getPartitionNamesHash(IMetaStoreClient client, Metadata.Item item) throws TException {
+        List<String> names = client.listPartitionNames(item.getPath(), item.getName(), ALL_PARTS);
+        return names == null ? 0 : names.hashCode();
+    }
+
+    private static String getKey(Configuration configuration, Metadata.Item item, String kind) {
+        // the metadata is cached per user, since the metastore authorizes
+        // the user of the request
+        return String.format("%s:%s:%s.%s:%s",
+                configuration.get(ConfigurationFactory.PXF_CONFIG_SERVER_DIRECTORY_PROPERTY),
+                configuration.get(ConfigurationFactory.PXF_SESSION_USER_PROPERTY),
+                item.getPath().toLowerCase(), item.getName().toLowerCase(), kind);
+    }
+
+    /*
+     * Weighs the metadata by its serialized size.
+     */
+    private static int getWeight(Object value) {
+        TSerializer serializer = new TSerializer(new TCompactProtocol.Factory());
+        long weight = 0;
+        try {
+            if (value instanceof List) {
+                for (Object element : (List<?>) value) {
+                    weight += serializer.serialize((TBase<?, ?>) element).length;
+                }
+            } else {
+                weight = serializer.serialize((TBase<?, ?>) value).length;
+            }
+        } catch (TException e) {
+            weight = MAX_CACHED_BYTES;
+        }
+        return (int) Math.min(Math.max(weight, 1), Integer.MAX_VALUE);
+    }
+
+    private static class Entry<T> {
+        final T value;
+        final int weight;
+        final String ddlTime;
+        final Integer partitionNames;
+        volatile long validatedNanos;
+        volatile long eventId;
+
+        Entry(T value, int weight, long validatedNanos, long eventId, String ddlTime, Integer partitionNames) {
+            this.value = value;
+            this.weight = weight;
+            this.validatedNanos = validatedNanos;
+            this.eventId = eventId;
+            this.ddlTime = ddlTime;
+            this.partitionNames = partitionNames;
+        }
+    }
+}
@@ -83,6 +83,19 @@ public class HiveMetadataFetcher extends BasePlugin implements MetadataFetcher {
      */
     @Override
     public List<Metadata> getMetadata(String pattern) throws Exception {
+        if (client == null) {
+            client = hiveClientWrapper.initHiveClient(context, configuration);
+        }
+        try {
+            return fetchMetadata(pattern);
+        } finally {
+            // returns the client to the pool
+            client.close();
+            client = null;
+        }
+    }
+
+    private List<Metadata> fetchMetadata(String pattern) throws Exception {
 
         boolean ignoreErrors = false;
         List<Metadata.Item> tblsDesc = hiveClientWrapper.extractTablesFromPattern(client, pattern);
@@ -101,11 +114,11 @@ public class HiveMetadataFetcher extends BasePlugin implements MetadataFetcher {
         for (Metadata.Item tblDesc : tblsDesc) {
             try {
                 Metadata metadata = new Metadata(tblDesc);
-                Table tbl = hiveClientWrapper.getHiveTable(client, tblDesc);
+                Table tbl = hiveClientWrapper.getHiveTable(client, tblDesc, configuration);
                 hiveClientWrapper.getSchema(tbl, metadata);
                 boolean hasComplexTypes = hiveClientWrapper.hasComplexTypes(metadata);
                 metadataList.add(metadata);
-                List<Partition> tablePartitions = client.listPartitionsByFilter(tblDesc.getPath(), tblDesc.getName(), "", (short) -1);
+                List<Partition> tablePartitions = hiveClientWrapper.listPartitions(client, tblDesc, "", configuration);
                 Set<OutputFormat> formats = new HashSet<>();
                 //If table has partitions - find out all formats
                 for (Partition tablePartition : tablePartitions) {
@@ -23,6 +23,7 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Output;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hive.ql.io.orc.OrcInputFormat;
 import org.apache.hadoop.hive.ql.io.orc.Reader;
 import org.apache.hadoop.hive.ql.io.sarg.ConvertAstToSearchArg;
@@ -40,6 +41,7 @@ import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.api.utilities.EnumAggregationType;
 import org.greenplum.pxf.api.utilities.Utilities;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 
 import java.util.ArrayList;
 import java.util.EnumSet;
@@ -137,13 +139,38 @@ public class HiveORCAccessor extends HiveAccessor implements StatsAccessor {
     }
 
     /**
-     * Uses {@link HivePartitionFilterBuilder} to translate a filter string into a
-     * Hive {@link SearchArgument} object. The result is added as a filter to
-     * JobConf object
+     * Adds the {@link SearchArgument} of the filter to JobConf object
      */
     private void addFilters() throws Exception {
+        SearchArgument searchArgument = buildSearchArgument();
+        if (searchArgument != null) {
+            jobConf.set(ConvertAstToSearchArg.SARG_PUSHDOWN, toKryo(searchArgument));
+        }
+    }
+
+    /**
+     * Uses {@link HiveORCSearchArgumentBuilder} to translate a filter string
+     * into a Hive {@link SearchArgument} object.
+     *
+     * @return the search argument, or null when there is no filter
+     * @throws Exception if the filter string cannot be parsed
+     */
+    SearchArgument buildSearchArgument() throws Exception {
+        return buildSearchArgument(context, configuration);
+    }
+
+    /**
+     * Translates the filter of the request into a Hive {@link SearchArgument}
+     * object, for the accessors and for the fragmenter.
+     *
+     * @param context       the request context
+     * @param configuration the configuration for the server
+     * @return the search argument, or null when there is no filter
+     * @throws Exception if the filter string cannot be parsed
+     */
+    static SearchArgument buildSearchArgument(RequestContext context, Configuration configuration) throws Exception {
         if (!context.hasFilter()) {
-            return;
+            return null;
         }
 
         /* Predicate push-down configuration */
@@ -158,8 +185,7 @@ public class HiveORCAccessor extends HiveAccessor implements StatsAccessor {
         TRAVERSER.traverse(root, PRUNER, searchArgumentBuilder);
 
         SearchArgument.Builder filterBuilder = searchArgumentBuilder.getFilterBuilder();
-        SearchArgument searchArgument = filterBuilder.build();
-        jobConf.set(ConvertAstToSearchArg.SARG_PUSHDOWN, toKryo(searchArgument));
+        return filterBuilder.build();
     }
 
     /**
@@ -170,12 +196,17 @@ public class HiveORCAccessor extends HiveAccessor implements StatsAccessor {
         if (!this.useStats) {
             throw new IllegalStateException("Accessor is not using statistics in current context.");
         }
-        /*
-         * We are using file-level stats therefore if file has multiple splits,
-         * it's enough to return count for a first split in file.
-         * In case file has multiple splits - we don't want to duplicate counts.
-         */
-        if (context.getFragmentIndex() == 0) {
+        long numberOfRows = HdfsUtilities.parseNumberOfRows(context);
+        if (numberOfRows >= 0) {
+            // a fragment aligned to stripes counts the rows of its stripes
+            this.count = numberOfRows;
+            rowToEmitCount = readNextObject();
+        } else if (context.getFragmentIndex() == 0) {
+            /*
+             * We are using file-level stats therefore if file has multiple splits,
+             * it's enough to return count for a first split in file.
+             * In case file has multiple splits - we don't want to duplicate counts.
+             */
             this.count = this.orcReader.getNumberOfRows();
             rowToEmitCount = readNextObject();
         }
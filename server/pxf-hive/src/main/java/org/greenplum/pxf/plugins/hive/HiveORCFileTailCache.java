@@ -0,0 +1,178 @@
+package org.greenplum.pxf.plugins.hive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.orc.ColumnStatistics;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.StripeInformation;
+import org.apache.orc.StripeStatistics;
+import org.apache.orc.TypeDescription;
+import org.greenplum.pxf.api.model.ConfigurationFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the tails of ORC files, the schema, the stripes and the statistics
+ * of the stripes, so that the fragmenter reads the tail of a file from the
+ * file system only once for all the queries on the file.
+ * <p>
+ * Entries are keyed by the server, the user, the path, the length and the
+ * modification time of the file, so a rewritten file is never served a
+ * stale tail. The memory used by the cache is bounded by the number of
+ * cached column statistics.
+ */
+public class HiveORCFileTailCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HiveORCFileTailCache.class);
+
+    public static final String FILE_TAIL_CACHE_ENABLED_PROPERTY = "pxf.hive.orc.file-tail-cache.enabled";
+
+    static final long MAX_CACHED_STATISTICS = 1024L * 1024;
+    static final long MAX_ENTRY_IDLE_HOURS = 1;
+
+    /**
+     * Singleton instance of the HiveORCFileTailCache
+     */
+    private static final HiveORCFileTailCache instance = new HiveORCFileTailCache(MAX_CACHED_STATISTICS);
+
+    private final Cache<String, FileTail> cache;
+
+    HiveORCFileTailCache(long maxCachedStatistics) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxCachedStatistics)
+                .weigher((Weigher<String, FileTail>) (key, tail) -> tail.weight)
+                .expireAfterAccess(MAX_ENTRY_IDLE_HOURS, TimeUnit.HOURS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return a singleton instance of the file tail cache.
+     */
+    public static HiveORCFileTailCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the tail of the file, from the cache, or read from the file
+     * system and cached when it is not cached yet.
+     *
+     * @param configuration the configuration for the server
+     * @param file          the status of the file
+     * @return the tail of the file
+     * @throws IOException when the tail cannot be read
+     */
+    public FileTail getFileTail(Configuration configuration, FileStatus file) throws IOException {
+        if (!configuration.getBoolean(FILE_TAIL_CACHE_ENABLED_PROPERTY, true)) {
+            return readFileTail(configuration, file);
+        }
+
+        String key = String.format("%s:%s:%s:%d:%d",
+                configuration.get(ConfigurationFactory.PXF_CONFIG_SERVER_DIRECTORY_PROPERTY),
+                configuration.get(ConfigurationFactory.PXF_SESSION_USER_PROPERTY),
+                file.getPath(), file.getLen(), file.getModificationTime());
+        try {
+            return cache.get(key, () -> readFileTail(configuration, file));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(String.format("Unable to read the tail of %s", file.getPath()), cause);
+        }
+    }
+
+    /**
+     * Removes all the cached tails.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    long size() {
+        return cache.size();
+    }
+
+    CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static FileTail readFileTail(Configuration configuration, FileStatus file) throws IOException {
+        Reader reader = OrcFile.createReader(file.getPath(), OrcFile.readerOptions(configuration)
+                .filesystem(file.getPath().getFileSystem(configuration))
+                .maxLength(file.getLen()));
+        List<ColumnStatistics[]> stripeStatistics = new ArrayList<>();
+        for (StripeStatistics statistics : reader.getStripeStatistics()) {
+            stripeStatistics.add(statistics.getColumnStatistics());
+        }
+        LOG.debug("Read tail of {} with {} stripes", file.getPath(), reader.getStripes().size());
+        return new FileTail(reader.getSchema(), reader.getStripes(), stripeStatistics);
+    }
+
+    /**
+     * The schema, the stripes and the statistics of the stripes of an ORC
+     * file. Files written by old versions of Hive have no stripe statistics.
+     */
+    public static class FileTail {
+        private final TypeDescription schema;
+        private final List<StripeInformation> stripes;
+        private final List<ColumnStatistics[]> stripeStatistics;
+        private final int weight;
+
+        FileTail(TypeDescription schema, List<StripeInformation> stripes, List<ColumnStatistics[]> stripeStatistics) {
+            this.schema = schema;
+            this.stripes = Collections.unmodifiableList(new ArrayList<>(stripes));
+            this.stripeStatistics = stripeStatistics.size() == stripes.size() ?
+                    Collections.unmodifiableList(stripeStatistics) : Collections.emptyList();
+            this.weight = (int) Math.min(Integer.MAX_VALUE,
+                    1 + (long) this.stripeStatistics.size() * (schema.getMaximumId() + 1));
+        }
+
+        public TypeDescription getSchema() {
+            return schema;
+        }
+
+        public List<StripeInformation> getStripes() {
+            return stripes;
+        }
+
+        /**
+         * @return the statistics of the columns of each stripe, indexed by
+         * column id, or an empty list when the file has no stripe statistics
+         */
+        public List<ColumnStatistics[]> getStripeStatistics() {
+            return stripeStatistics;
+        }
+    }
+}
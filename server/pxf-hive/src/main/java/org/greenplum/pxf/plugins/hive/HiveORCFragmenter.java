@@ -0,0 +1,53 @@
+package org.greenplum.pxf.plugins.hive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.model.BaseConfigurationFactory;
+import org.greenplum.pxf.api.model.ConfigurationFactory;
+
+/**
+ * Specialized Hive fragmenter for ORC files tables, that returns fragments
+ * aligned to the stripes of the files instead of the HDFS blocks. Use
+ * together with {@link HiveORCAccessor}/{@link HiveORCSerdeResolver} or
+ * {@link HiveORCVectorizedAccessor}/{@link HiveORCVectorizedResolver}. <br>
+ * The tails of the files are read through the {@link HiveORCFileTailCache}.
+ * Stripes whose statistics show that no row can match the pushed-down filter
+ * are dropped, and consecutive matching stripes are coalesced into a
+ * fragment of up to {@value #FRAGMENT_SIZE_PROPERTY} bytes (defaults to the
+ * block size of the file). Each fragment carries the number of rows of its
+ * stripes, see
+ * {@link org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities#prepareFragmentMetadata(long, long, String[], long)}.
+ * <br>
+ * The partitions that are not stored as ORC files, and the partitions with
+ * directories, as the partitions of transactional tables, get the splits of
+ * their input format.
+ */
+public class HiveORCFragmenter extends HiveInputFormatFragmenter {
+
+    public static final String FRAGMENT_SIZE_PROPERTY = "pxf.hive.orc.fragment-size";
+
+    public HiveORCFragmenter() {
+        this(BaseConfigurationFactory.getInstance(), HiveClientWrapper.getInstance());
+    }
+
+    HiveORCFragmenter(ConfigurationFactory configurationFactory, HiveClientWrapper hiveClientWrapper) {
+        super(configurationFactory, hiveClientWrapper);
+    }
+}
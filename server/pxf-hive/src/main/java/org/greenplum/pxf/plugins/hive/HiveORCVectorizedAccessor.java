@@ -20,8 +20,10 @@ package org.greenplum.pxf.plugins.hive;
  */
 
 import java.io.IOException;
+import java.util.List;
 
 import org.apache.hadoop.hive.ql.io.orc.Reader;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
 import org.apache.hadoop.mapred.FileSplit;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
@@ -29,11 +31,14 @@ import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
 import org.apache.hadoop.hive.ql.io.orc.RecordReader;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.orc.TypeDescription;
 
 /**
  * Accessor class which reads data in batches.
  * One batch is 1024 rows of all projected columns
- *
+ * <p>
+ * The filter is pushed down to the ORC reader as a {@link SearchArgument}, the
+ * stripes and row groups whose statistics do not match it are skipped.
  */
 public class HiveORCVectorizedAccessor extends HiveORCAccessor {
 
@@ -47,6 +52,7 @@ public class HiveORCVectorizedAccessor extends HiveORCAccessor {
         addColumns(options);
         addFragments(options);
         orcReader = getOrcReader();
+        addFilters(options);
         vrr = orcReader.rowsOptions(options);
         batch = orcReader.getSchema().createRowBatch();
         return vrr.hasNext();
@@ -62,6 +68,43 @@ public class HiveORCVectorizedAccessor extends HiveORCAccessor {
         options.range(fileSplit.getStart(), fileSplit.getLength());
     }
 
+    /**
+     * Adds the search argument of the filter to the reader options, so the
+     * reader skips the stripes and row groups that cannot match it.
+     * @param options reader options to modify
+     * @throws Exception if the filter cannot be parsed
+     */
+    private void addFilters(Reader.Options options) throws Exception {
+        SearchArgument searchArgument = buildSearchArgument();
+        if (searchArgument != null) {
+            options.searchArgument(searchArgument, getSargColumnNames(orcReader.getSchema()));
+        }
+    }
+
+    /**
+     * The leaves of the search argument refer to the columns by the names of
+     * the table, which can differ from the names in the ORC file (e.g. _col0).
+     * This method maps the ORC column ids of the top level fields to the names
+     * of the table columns, the same way Hive does for its ORC readers.
+     * @param schema the schema of the ORC file
+     * @return the column names, indexed by ORC column id
+     */
+    String[] getSargColumnNames(TypeDescription schema) {
+        String[] columnNames = new String[schema.getMaximumId() + 1];
+        List<TypeDescription> fields = schema.getChildren();
+        if (fields == null) {
+            return columnNames;
+        }
+        List<ColumnDescriptor> tupleDescription = context.getTupleDescription();
+        for (int i = 0; i < tupleDescription.size(); i++) {
+            Integer hiveIndex = i < hiveIndexes.size() ? hiveIndexes.get(i) : null;
+            if (hiveIndex != null && hiveIndex < fields.size()) {
+                columnNames[fields.get(hiveIndex).getId()] = tupleDescription.get(i).columnName();
+            }
+        }
+        return columnNames;
+    }
+
     /**
      * Reads next batch for current fragment.
      * @return next batch in OneRow format, key is a batch number, data is a batch
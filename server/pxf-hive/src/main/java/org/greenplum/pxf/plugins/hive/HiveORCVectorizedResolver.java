@@ -50,24 +50,30 @@ import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.io.Text;
+import org.greenplum.pxf.api.BadRecordException;
 import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.OneRow;
-import org.greenplum.pxf.api.ReadVectorizedResolver;
+import org.greenplum.pxf.api.ReadVectorizedSerializer;
 import org.greenplum.pxf.api.UnsupportedTypeException;
+import org.greenplum.pxf.api.io.BatchWritable;
 import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
 
 /**
- * Class which implements resolving a batch of records at once
+ * Class which implements resolving a batch of records at once. The batches
+ * are serialized straight from the column vectors into the output format,
+ * without creating an object per value.
  */
-public class HiveORCVectorizedResolver extends HiveResolver implements ReadVectorizedResolver {
+public class HiveORCVectorizedResolver extends HiveResolver implements ReadVectorizedSerializer {
 
     private static final Log LOG = LogFactory.getLog(HiveORCVectorizedResolver.class);
 
     private List<List<OneField>> resolvedBatch;
     private StructObjectInspector soi;
+    private PrimitiveCategory[] primitiveCategories;
+    private DataType[] columnTypes;
 
     @Override
     public void initialize(RequestContext requestContext) {
@@ -116,6 +122,152 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
         return resolvedBatch;
     }
 
+    @Override
+    public void serializeBatch(OneRow batch, BatchWritable output) throws BadRecordException {
+
+        VectorizedRowBatch vectorizedBatch = (VectorizedRowBatch) batch.getData();
+        if (primitiveCategories == null) {
+            initColumnTypes(vectorizedBatch.numCols);
+        }
+
+        int columnsNumber = context.getColumns();
+        ColumnVector[] columnVectors = new ColumnVector[columnsNumber];
+        for (int columnIndex = 0; columnIndex < columnsNumber; columnIndex++) {
+            if (columnIndex < vectorizedBatch.numCols) {
+                columnVectors[columnIndex] = vectorizedBatch.cols[columnIndex];
+                output.checkType(columnIndex, columnTypes[columnIndex]);
+            }
+        }
+
+        for (int i = 0; i < vectorizedBatch.size; i++) {
+            int rowIndex = vectorizedBatch.selectedInUse ? vectorizedBatch.selected[i] : i;
+            output.startRecord();
+            for (int columnIndex = 0; columnIndex < columnsNumber; columnIndex++) {
+                ColumnVector columnVector = columnVectors[columnIndex];
+                if (columnVector == null) {
+                    output.setNull(columnIndex);
+                    continue;
+                }
+                int rowId = columnVector.isRepeating ? 0 : rowIndex;
+                if (!columnVector.noNulls && columnVector.isNull[rowId]) {
+                    output.setNull(columnIndex);
+                } else {
+                    serializeValue(columnIndex, columnVector, rowId, output);
+                }
+            }
+            output.endRecord();
+        }
+    }
+
+    /**
+     * Finds the primitive category and the Greenplum type of the columns
+     *
+     * @param numCols number of columns in the batch
+     */
+    private void initColumnTypes(int numCols) {
+        List<? extends StructField> allStructFieldRefs = soi.getAllStructFieldRefs();
+        primitiveCategories = new PrimitiveCategory[numCols];
+        columnTypes = new DataType[numCols];
+        for (int columnIndex = 0; columnIndex < numCols; columnIndex++) {
+            ObjectInspector oi = allStructFieldRefs.get(columnIndex).getFieldObjectInspector();
+            if (oi.getCategory() != Category.PRIMITIVE) {
+                throw new UnsupportedTypeException("Unable to resolve column index:" + columnIndex
+                        + ". Only primitive types are supported.");
+            }
+            primitiveCategories[columnIndex] = ((PrimitiveObjectInspector) oi).getPrimitiveCategory();
+            columnTypes[columnIndex] = getDataType(primitiveCategories[columnIndex], oi);
+        }
+    }
+
+    private DataType getDataType(PrimitiveCategory primitiveCategory, ObjectInspector oi) {
+        switch (primitiveCategory) {
+            case BOOLEAN:
+                return BOOLEAN;
+            case BYTE:
+            case SHORT:
+                return SMALLINT;
+            case INT:
+                return INTEGER;
+            case LONG:
+                return BIGINT;
+            case FLOAT:
+                return REAL;
+            case DOUBLE:
+                return FLOAT8;
+            case DECIMAL:
+                return NUMERIC;
+            case VARCHAR:
+                return VARCHAR;
+            case CHAR:
+                return BPCHAR;
+            case STRING:
+                return TEXT;
+            case BINARY:
+                return BYTEA;
+            case DATE:
+                return DATE;
+            default:
+                throw new UnsupportedTypeException(oi.getTypeName()
+                        + " conversion is not supported by "
+                        + getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Writes the value of a column that is not null into the output
+     *
+     * @param columnIndex  index of the column
+     * @param columnVector the vector of the column
+     * @param rowId        index of the value in the vector
+     * @param output       the serialized batch
+     */
+    private void serializeValue(int columnIndex, ColumnVector columnVector, int rowId, BatchWritable output) {
+        switch (primitiveCategories[columnIndex]) {
+            case BOOLEAN:
+                output.setBoolean(columnIndex, ((LongColumnVector) columnVector).vector[rowId] == 1);
+                break;
+            case BYTE:
+            case SHORT:
+                output.setShort(columnIndex, (short) ((LongColumnVector) columnVector).vector[rowId]);
+                break;
+            case INT:
+                output.setInt(columnIndex, (int) ((LongColumnVector) columnVector).vector[rowId]);
+                break;
+            case LONG:
+                output.setLong(columnIndex, ((LongColumnVector) columnVector).vector[rowId]);
+                break;
+            case FLOAT:
+                output.setFloat(columnIndex, (float) ((DoubleColumnVector) columnVector).vector[rowId]);
+                break;
+            case DOUBLE:
+                output.setDouble(columnIndex, ((DoubleColumnVector) columnVector).vector[rowId]);
+                break;
+            case DECIMAL:
+                output.setString(columnIndex, ((DecimalColumnVector) columnVector).vector[rowId].toString());
+                break;
+            case VARCHAR:
+            case CHAR:
+            case STRING: {
+                BytesColumnVector bcv = (BytesColumnVector) columnVector;
+                output.setText(columnIndex, bcv.vector[rowId], bcv.start[rowId], bcv.length[rowId]);
+                break;
+            }
+            case BINARY: {
+                BytesColumnVector bcv = (BytesColumnVector) columnVector;
+                output.setBytes(columnIndex, bcv.vector[rowId], bcv.start[rowId], bcv.length[rowId]);
+                break;
+            }
+            case DATE:
+                output.setString(columnIndex,
+                        new Date(DateWritable.daysToMillis((int) ((LongColumnVector) columnVector).vector[rowId])).toString());
+                break;
+            default:
+                throw new UnsupportedTypeException(primitiveCategories[columnIndex]
+                        + " conversion is not supported by "
+                        + getClass().getSimpleName());
+        }
+    }
+
     /**
      * Resolves a column of a primitive type out of given batch
      *
@@ -147,7 +299,7 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (lcv != null) {
                         int rowId = lcv.isRepeating ? 0 : rowIndex;
-                        if (!lcv.isNull[rowId]) {
+                        if (lcv.noNulls || !lcv.isNull[rowId]) {
                             fieldValue = lcv.vector[rowId] == 1;
                         }
                     }
@@ -162,7 +314,7 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (lcv != null) {
                         int rowId = lcv.isRepeating ? 0 : rowIndex;
-                        if (!lcv.isNull[rowId]) {
+                        if (lcv.noNulls || !lcv.isNull[rowId]) {
                             fieldValue = (short) lcv.vector[rowId];
                         }
                     }
@@ -177,7 +329,7 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (lcv != null) {
                         int rowId = lcv.isRepeating ? 0 : rowIndex;
-                        if (!lcv.isNull[rowId]) {
+                        if (lcv.noNulls || !lcv.isNull[rowId]) {
                             fieldValue = (int) lcv.vector[rowId];
                         }
                     }
@@ -192,7 +344,7 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (lcv != null) {
                         int rowId = lcv.isRepeating ? 0 : rowIndex;
-                        if (!lcv.isNull[rowId]) {
+                        if (lcv.noNulls || !lcv.isNull[rowId]) {
                             fieldValue = lcv.vector[rowId];
                         }
                     }
@@ -207,7 +359,7 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (dcv != null) {
                         int rowId = dcv.isRepeating ? 0 : rowIndex;
-                        if (!dcv.isNull[rowId]) {
+                        if (dcv.noNulls || !dcv.isNull[rowId]) {
                             fieldValue = (float) dcv.vector[rowId];
                         }
                     }
@@ -222,7 +374,7 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (dcv != null) {
                         int rowId = dcv.isRepeating ? 0 : rowIndex;
-                        if (!dcv.isNull[rowId]) {
+                        if (dcv.noNulls || !dcv.isNull[rowId]) {
                             fieldValue = dcv.vector[rowId];
                         }
                     }
@@ -237,7 +389,7 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (dcv != null) {
                         int rowId = dcv.isRepeating ? 0 : rowIndex;
-                        if (!dcv.isNull[rowId]) {
+                        if (dcv.noNulls || !dcv.isNull[rowId]) {
                             fieldValue = dcv.vector[rowId];
                         }
                     }
@@ -252,9 +404,9 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (columnVector != null) {
                         int rowId = bcv.isRepeating ? 0 : rowIndex;
-                        if (!bcv.isNull[rowId]) {
+                        if (bcv.noNulls || !bcv.isNull[rowId]) {
                             Text textValue = new Text();
-                            textValue.set(bcv.vector[rowIndex], bcv.start[rowIndex], bcv.length[rowIndex]);
+                            textValue.set(bcv.vector[rowId], bcv.start[rowId], bcv.length[rowId]);
                             fieldValue = textValue;
                         }
                     }
@@ -269,9 +421,9 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (columnVector != null) {
                         int rowId = bcv.isRepeating ? 0 : rowIndex;
-                        if (!bcv.isNull[rowId]) {
+                        if (bcv.noNulls || !bcv.isNull[rowId]) {
                             Text textValue = new Text();
-                            textValue.set(bcv.vector[rowIndex], bcv.start[rowIndex], bcv.length[rowIndex]);
+                            textValue.set(bcv.vector[rowId], bcv.start[rowId], bcv.length[rowId]);
                             fieldValue = textValue;
                         }
                     }
@@ -286,9 +438,9 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (columnVector != null) {
                         int rowId = bcv.isRepeating ? 0 : rowIndex;
-                        if (!bcv.isNull[rowId]) {
+                        if (bcv.noNulls || !bcv.isNull[rowId]) {
                             Text textValue = new Text();
-                            textValue.set(bcv.vector[rowIndex], bcv.start[rowIndex], bcv.length[rowIndex]);
+                            textValue.set(bcv.vector[rowId], bcv.start[rowId], bcv.length[rowId]);
                             fieldValue = textValue;
                         }
                     }
@@ -303,7 +455,7 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (columnVector != null) {
                         int rowId = bcv.isRepeating ? 0 : rowIndex;
-                        if (!bcv.isNull[rowId]) {
+                        if (bcv.noNulls || !bcv.isNull[rowId]) {
                             fieldValue = new byte[bcv.length[rowId]];
                             System.arraycopy(bcv.vector[rowId], bcv.start[rowId], fieldValue, 0, bcv.length[rowId]);
                         }
@@ -319,8 +471,8 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (lcv != null) {
                         int rowId = lcv.isRepeating ? 0 : rowIndex;
-                        if (!lcv.isNull[rowId]) {
-                            fieldValue = new Date(DateWritable.daysToMillis((int) lcv.vector[rowIndex]));
+                        if (lcv.noNulls || !lcv.isNull[rowId]) {
+                            fieldValue = new Date(DateWritable.daysToMillis((int) lcv.vector[rowId]));
                         }
                     }
                     addValueToColumn(columnIndex, rowIndex, new OneField(fieldType.getOID(), fieldValue));
@@ -334,8 +486,8 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
                     fieldValue = null;
                     if (lcv != null) {
                         int rowId = lcv.isRepeating ? 0 : rowIndex;
-                        if (!lcv.isNull[rowId]) {
-                            fieldValue = (short) lcv.vector[rowIndex];
+                        if (lcv.noNulls || !lcv.isNull[rowId]) {
+                            fieldValue = (short) lcv.vector[rowId];
                         }
                     }
                     addValueToColumn(columnIndex, rowIndex, new OneField(fieldType.getOID(), fieldValue));
@@ -26,6 +26,7 @@ import org.apache.hadoop.hive.common.type.HiveDecimal;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.serde.serdeConstants;
 import org.apache.hadoop.hive.serde2.Deserializer;
+import org.apache.hadoop.hive.serde2.StructObject;
 import org.apache.hadoop.hive.serde2.io.ByteWritable;
 import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
@@ -78,6 +79,10 @@ import java.util.Properties;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static org.apache.hadoop.hive.serde2.ColumnProjectionUtils.READ_ALL_COLUMNS;
+import static org.apache.hadoop.hive.serde2.ColumnProjectionUtils.READ_COLUMN_IDS_CONF_STR;
+import static org.apache.hadoop.hive.serde2.ColumnProjectionUtils.READ_COLUMN_NAMES_CONF_STR;
+
 /**
  * Class HiveResolver handles deserialization of records that were serialized
  * using Hadoop's Hive serialization framework.
@@ -162,7 +167,8 @@ public class HiveResolver extends HivePlugin implements Resolver {
 
     /*
      * Gets and init the deserializer for the records of this Hive data
-     * fragment.
+     * fragment. The deserializer is given the projected columns, so that the
+     * SerDes that support it do not deserialize the other columns.
      */
     void initSerde(RequestContext requestContext) throws Exception {
         Properties serdeProperties;
@@ -176,7 +182,38 @@ public class HiveResolver extends HivePlugin implements Resolver {
         } else {
             throw new IllegalArgumentException("propsString is mandatory to initialize serde.");
         }
-        deserializer.initialize(new JobConf(configuration, HiveResolver.class), serdeProperties);
+        JobConf jobConf = new JobConf(configuration, HiveResolver.class);
+        setColumnProjection(jobConf, requestContext);
+        deserializer.initialize(jobConf, serdeProperties);
+    }
+
+    /*
+     * Sets the Hive columns of the projected Greenplum columns as the columns
+     * to read, using the column projection properties of Hive.
+     */
+    void setColumnProjection(JobConf jobConf, RequestContext requestContext) {
+        if (hiveIndexes == null) {
+            return;
+        }
+        StringBuilder projectedColumnNames = new StringBuilder();
+        StringBuilder projectedColumnIds = new StringBuilder();
+
+        String delim = ",";
+        List<ColumnDescriptor> tupleDescription = requestContext.getTupleDescription();
+        for (int i = 0; i < tupleDescription.size(); i++) {
+            ColumnDescriptor column = tupleDescription.get(i);
+            if (column.isProjected() && hiveIndexes.get(i) != null) {
+                if (projectedColumnNames.length() > 0) {
+                    projectedColumnNames.append(delim);
+                    projectedColumnIds.append(delim);
+                }
+                projectedColumnNames.append(column.columnName());
+                projectedColumnIds.append(hiveIndexes.get(i));
+            }
+        }
+        jobConf.set(READ_ALL_COLUMNS, "false");
+        jobConf.set(READ_COLUMN_IDS_CONF_STR, projectedColumnIds.toString());
+        jobConf.set(READ_COLUMN_NAMES_CONF_STR, projectedColumnNames.toString());
     }
 
     /*
@@ -199,6 +236,16 @@ public class HiveResolver extends HivePlugin implements Resolver {
             Object convertedValue;
             boolean isDefaultPartition;
 
+            ColumnDescriptor columnDescriptor = getColumnDescriptor(columnName);
+            if (columnDescriptor == null) {
+                continue;
+            }
+            if (!columnDescriptor.isProjected()) {
+                // the value of a partition that was not requested is not converted
+                partitionColumnNames.put(columnName, new OneField(columnDescriptor.columnTypeCode(), null));
+                continue;
+            }
+
             // check if value is default partition
             isDefaultPartition = isDefaultPartition(type, val);
             // ignore the type's parameters
@@ -272,17 +319,17 @@ public class HiveResolver extends HivePlugin implements Resolver {
                             "Unsupported partition type: " + type);
             }
 
-            if (columnDescriptorContainsColumn(columnName)) {
-                partitionColumnNames.put(columnName, new OneField(convertedType.getOID(), convertedValue));
-            }
+            partitionColumnNames.put(columnName, new OneField(convertedType.getOID(), convertedValue));
         }
         numberOfPartitions = partitionColumnNames.size();
     }
 
-    private boolean columnDescriptorContainsColumn(String columnName) {
+    private ColumnDescriptor getColumnDescriptor(String columnName) {
         return context.getTupleDescription()
                 .stream()
-                .anyMatch(cd -> columnName.equals(cd.columnName()));
+                .filter(cd -> columnName.equals(cd.columnName()))
+                .findFirst()
+                .orElse(null);
     }
 
     /*
@@ -465,11 +512,7 @@ public class HiveResolver extends HivePlugin implements Resolver {
             throws BadRecordException, IOException {
         // "fields" represents the projected schema
         List<? extends StructField> fields = soi.getAllStructFieldRefs();
-        // structFields contains a list of all values, null for non-projected fields
-        // the number of structFields matches the number of columns on the original hive table
-        // also the order of the structFields matches the hive table schema
-        List<Object> structFields = soi.getStructFieldsDataAsList(struct);
-        if (structFields == null) {
+        if (struct == null) {
             throw new BadRecordException("Illegal value NULL for Hive data type Struct");
         }
 
@@ -478,6 +521,7 @@ public class HiveResolver extends HivePlugin implements Resolver {
         OneField partitionField;
 
         if (toFlatten) {
+            List<Object> structFields = getStructFieldsDataAsList(struct, soi);
             for (int i = 0; i < structFields.size(); i++) {
                 complexRecord.add(new OneField(DataType.TEXT.getOID(), String.format("\"%s\"", fields.get(i).getFieldName())));
                 traverseTuple(structFields.get(i), fields.get(i).getFieldObjectInspector(), complexRecord, true);
@@ -485,6 +529,18 @@ public class HiveResolver extends HivePlugin implements Resolver {
                 complexRecord.clear();
             }
         } else {
+            // The records of the lazy SerDes (LazySimpleSerDe, ColumnarSerDe)
+            // deserialize a field only when it is accessed, and their fields
+            // match the hive table schema, so only the projected fields are
+            // accessed, by their index on hive. For other records,
+            // structFields contains a list of all values, null for
+            // non-projected fields, the number of structFields matches the
+            // number of columns on the original hive table and the order of
+            // the structFields matches the hive table schema
+            boolean isLazyStruct = struct instanceof StructObject;
+            List<Object> structFields = isLazyStruct ? null : getStructFieldsDataAsList(struct, soi);
+            int numberOfStructFields = isLazyStruct ? fields.size() : structFields.size();
+
             Map<String, Integer> columnNameToStructIndexMap =
                     IntStream.range(0, fields.size())
                             .boxed()
@@ -512,7 +568,7 @@ public class HiveResolver extends HivePlugin implements Resolver {
                 if ((partitionField = partitionColumnNames.get(lowercaseColumnName)) != null) {
                     // Skip partitioned columns
                     complexRecord.add(partitionField);
-                } else if (i == null || structIndex >= structFields.size()) {
+                } else if (i == null || structIndex >= numberOfStructFields) {
                     // This is a column not present in the file, but defined in greenplum.
                     LOG.warn("Column {} is not present in the source file, but it is defined in the table", columnDescriptor.columnName());
                     addOneFieldToRecord(complexRecord, columnDescriptor.getDataType(), null);
@@ -522,7 +578,10 @@ public class HiveResolver extends HivePlugin implements Resolver {
                     // not when interpreting fields of type struct.
                     traverseTuple(null, fields.get(i).getFieldObjectInspector(), complexRecord, false);
                 } else {
-                    traverseTuple(structFields.get(structIndex), fields.get(i).getFieldObjectInspector(), complexRecord, false);
+                    Object field = isLazyStruct ?
+                            soi.getStructFieldData(struct, fields.get(structIndex)) :
+                            structFields.get(structIndex);
+                    traverseTuple(field, fields.get(i).getFieldObjectInspector(), complexRecord, false);
                 }
             }
         }
@@ -530,6 +589,15 @@ public class HiveResolver extends HivePlugin implements Resolver {
         return toFlatten ? structRecord : complexRecord;
     }
 
+    private List<Object> getStructFieldsDataAsList(Object struct, StructObjectInspector soi)
+            throws BadRecordException {
+        List<Object> structFields = soi.getStructFieldsDataAsList(struct);
+        if (structFields == null) {
+            throw new BadRecordException("Illegal value NULL for Hive data type Struct");
+        }
+        return structFields;
+    }
+
     private List<OneField> traverseMap(Object obj, MapObjectInspector moi)
             throws BadRecordException, IOException {
         List<OneField> complexRecord = new LinkedList<>();
@@ -20,6 +20,9 @@ package org.greenplum.pxf.plugins.hive.utilities;
  */
 
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -39,6 +42,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -52,6 +56,18 @@ public class HiveUtilities {
 
     private static final Logger LOG = LoggerFactory.getLogger(HiveUtilities.class);
 
+    static final long MAX_CACHED_USER_DATA_CHARS = 16L * 1024 * 1024;
+
+    /**
+     * Parsed user data by the raw user data. All the fragments of a partition
+     * carry the same user data, so the accessor and the resolver of every
+     * fragment of the partition parse it once.
+     */
+    private static final Cache<String, HiveUserData> USER_DATA_CACHE = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_CACHED_USER_DATA_CHARS)
+            .weigher((Weigher<String, HiveUserData>) (userData, hiveUserData) -> userData.length())
+            .build();
+
     /**
      * Checks if hive type is supported, and if so return its matching GPDB
      * type. Unsupported types will result in an exception. <br>
@@ -204,7 +220,9 @@ public class HiveUtilities {
     }
 
     /**
-     * The method parses raw user data into HiveUserData class
+     * The method parses raw user data into HiveUserData class. The user data
+     * parsed before is not parsed again, and the returned instance is shared
+     * by the fragments with the same user data.
      *
      * @param context input data
      * @return instance of HiveUserData class
@@ -212,6 +230,15 @@ public class HiveUtilities {
      */
     public static HiveUserData parseHiveUserData(RequestContext context) throws IllegalArgumentException {
         String userData = new String(context.getFragmentUserData());
+        HiveUserData hiveUserData = USER_DATA_CACHE.getIfPresent(userData);
+        if (hiveUserData == null) {
+            hiveUserData = parseHiveUserData(userData);
+            USER_DATA_CACHE.put(userData, hiveUserData);
+        }
+        return hiveUserData;
+    }
+
+    private static HiveUserData parseHiveUserData(String userData) throws IllegalArgumentException {
         String[] toks = userData.split(HiveUserData.HIVE_UD_DELIM, HiveUserData.getNumOfTokens());
 
         if (toks.length != (HiveUserData.getNumOfTokens())) {
@@ -223,9 +250,9 @@ public class HiveUtilities {
         List<Integer> indexes = null;
 
         if (indexesStr != null && !"null".equals(indexesStr)) {
-            indexes = Stream.of(indexesStr.split(","))
+            indexes = Collections.unmodifiableList(Stream.of(indexesStr.split(","))
                     .map(s -> "null".equals(s) ? null : Integer.parseInt(s))
-                    .collect(Collectors.toList());
+                    .collect(Collectors.toList()));
         }
 
         return new HiveUserData(
@@ -0,0 +1,175 @@
+package org.greenplum.pxf.plugins.hive;
+
+import com.google.common.base.Ticker;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HiveClientPoolTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private FakeTicker ticker;
+    private HiveClientPool pool;
+    private Configuration configuration;
+    private HiveConf hiveConf;
+    private List<IMetaStoreClient> clients;
+
+    @Before
+    public void setup() {
+        ticker = new FakeTicker();
+        pool = new HiveClientPool(ticker);
+        configuration = new Configuration();
+        configuration.set("pxf.config.server.directory", "/pxf/servers/default");
+        configuration.setInt(HiveClientPool.POOL_SIZE_PROPERTY, 2);
+        hiveConf = new HiveConf();
+        clients = new ArrayList<>();
+    }
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        configuration.unset(HiveClientPool.POOL_SIZE_PROPERTY);
+        IMetaStoreClient client = pool.getClient(configuration, null, hiveConf, this::create);
+        assertSame(clients.get(0), client);
+        client.close();
+        pool.getClient(configuration, null, hiveConf, this::create);
+
+        assertEquals(2, clients.size());
+        verify(clients.get(0)).close();
+    }
+
+    @Test
+    public void clientIsReused() throws Exception {
+        IMetaStoreClient client = pool.getClient(configuration, "alice", hiveConf, this::create);
+        client.getDatabases("default");
+        client.close();
+        client = pool.getClient(configuration, "alice", hiveConf, this::create);
+        client.getTable("default", "sales");
+
+        assertEquals(1, clients.size());
+        verify(clients.get(0), never()).close();
+        verify(clients.get(0)).getTable("default", "sales");
+        assertEquals(Long.valueOf(1), pool.getMetrics().get("active"));
+        assertEquals(Long.valueOf(1), pool.getMetrics().get("reused"));
+    }
+
+    @Test
+    public void clientsArePooledPerUser() throws Exception {
+        pool.getClient(configuration, "alice", hiveConf, this::create).close();
+        pool.getClient(configuration, "bob", hiveConf, this::create).close();
+
+        assertEquals(2, clients.size());
+        assertEquals(Long.valueOf(2), pool.getMetrics().get("idle"));
+    }
+
+    @Test
+    public void poolIsBounded() throws Exception {
+        IMetaStoreClient first = pool.getClient(configuration, null, hiveConf, this::create);
+        IMetaStoreClient second = pool.getClient(configuration, null, hiveConf, this::create);
+        IMetaStoreClient third = pool.getClient(configuration, null, hiveConf, this::create);
+        assertSame(clients.get(2), third);
+
+        first.close();
+        second.close();
+        third.close();
+
+        verify(clients.get(0), never()).close();
+        verify(clients.get(1), never()).close();
+        verify(clients.get(2)).close();
+        assertEquals(Long.valueOf(2), pool.getMetrics().get("idle"));
+        assertEquals(Long.valueOf(1), pool.getMetrics().get("overflowed"));
+    }
+
+    @Test
+    public void closedClientCannotBeUsed() throws Exception {
+        IMetaStoreClient client = pool.getClient(configuration, null, hiveConf, this::create);
+        client.close();
+        // closing twice does not return the client twice
+        client.close();
+        assertEquals(Long.valueOf(1), pool.getMetrics().get("idle"));
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Hive MetaStore client is closed");
+        client.getTable("default", "sales");
+    }
+
+    @Test
+    public void brokenClientIsNotReturned() throws Exception {
+        IMetaStoreClient client = pool.getClient(configuration, null, hiveConf, this::create);
+        when(clients.get(0).getTable("default", "sales")).thenThrow(new TTransportException("connection reset"));
+        try {
+            client.getTable("default", "sales");
+            fail("expected an exception");
+        } catch (TTransportException e) {
+            assertEquals("connection reset", e.getMessage());
+        }
+        client.close();
+
+        verify(clients.get(0)).close();
+        assertEquals(Long.valueOf(0), pool.getMetrics().get("idle"));
+        assertEquals(Long.valueOf(1), pool.getMetrics().get("invalidated"));
+    }
+
+    @Test
+    public void unhealthyClientIsReplaced() throws Exception {
+        pool.getClient(configuration, null, hiveConf, this::create).close();
+        ticker.advance(HiveClientPool.VALIDATION_INTERVAL_NANOS + 1);
+        when(clients.get(0).getDatabases("default")).thenThrow(new MetaException("metastore is down"));
+        pool.getClient(configuration, null, hiveConf, this::create);
+
+        assertEquals(2, clients.size());
+        verify(clients.get(0)).close();
+    }
+
+    @Test
+    public void idleClientIsEvicted() throws Exception {
+        pool.getClient(configuration, null, hiveConf, this::create).close();
+        ticker.advance(TimeUnit.SECONDS.toNanos(HiveClientPool.DEFAULT_IDLE_TIMEOUT_SECONDS + 1));
+        pool.getClient(configuration, "alice", hiveConf, this::create);
+
+        verify(clients.get(0)).close();
+        assertEquals(Long.valueOf(1), pool.getMetrics().get("evicted"));
+        assertEquals(Long.valueOf(0), pool.getMetrics().get("idle"));
+    }
+
+    private IMetaStoreClient create() {
+        IMetaStoreClient client = mock(IMetaStoreClient.class);
+        when(client.isCompatibleWith(any(HiveConf.class))).thenReturn(true);
+        clients.add(client);
+        return client;
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long delta) {
+            nanos += delta;
+        }
+    }
+}
@@ -1,20 +1,29 @@
 package org.greenplum.pxf.plugins.hive;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.metastore.IMetaStoreClient;
 import org.apache.hadoop.hive.metastore.api.SerDeInfo;
 import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
 import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.security.UserGroupInformation;
 import org.greenplum.pxf.api.model.Metadata;
+import org.greenplum.pxf.api.model.RequestContext;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.security.PrivilegedExceptionAction;
 import java.util.Collections;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class HiveClientWrapperTest {
 
@@ -30,6 +39,23 @@ public class HiveClientWrapperTest {
         hiveClientWrapper = new HiveClientWrapper(factory);
     }
 
+    @Test
+    public void pooledClientsAreNotSharedBetweenUsers() throws Exception {
+        HiveClientPool pool = mock(HiveClientPool.class);
+        HiveClientWrapper wrapper = new HiveClientWrapper(mock(HiveClientWrapper.HiveClientFactory.class),
+                mock(HiveMetadataCache.class), pool);
+        Configuration configuration = new Configuration();
+        RequestContext context = new RequestContext();
+
+        for (String user : new String[]{"alice", "bob"}) {
+            UserGroupInformation.createRemoteUser(user).doAs((PrivilegedExceptionAction<IMetaStoreClient>) () ->
+                    wrapper.initHiveClient(context, configuration));
+            // without security, the clients are connected as the user of the request
+            verify(pool).getClient(same(configuration), eq(user), any(HiveConf.class),
+                    any(HiveClientPool.ClientFactory.class));
+        }
+    }
+
     @Test
     public void parseTableQualifiedNameNoDbName() {
         String name = "orphan";
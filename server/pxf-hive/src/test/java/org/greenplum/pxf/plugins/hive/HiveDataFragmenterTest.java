@@ -20,14 +20,39 @@ package org.greenplum.pxf.plugins.hive;
  */
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.SerDeInfo;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.ConfigurationFactory;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.Metadata;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class HiveDataFragmenterTest {
@@ -35,6 +60,9 @@ public class HiveDataFragmenterTest {
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private RequestContext context;
     private Configuration configuration;
     private ConfigurationFactory configurationFactory;
@@ -69,4 +97,66 @@ public class HiveDataFragmenterTest {
         HiveDataFragmenter fragmenter = new HiveDataFragmenter(configurationFactory, hiveClientWrapper);
         fragmenter.initialize(context);
     }
+
+    @Test
+    public void splitsOfPartitionsInParallel() throws Exception {
+        configuration.setInt(HiveDataFragmenter.GET_SPLITS_NUM_THREADS_PROPERTY, 2);
+        context.setDataSource("default.sales");
+        context.setFragmenter(HiveDataFragmenter.class.getName());
+        context.setTupleDescription(Collections.singletonList(
+                new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null)));
+
+        Metadata.Item item = new Metadata.Item("default", "sales");
+        IMetaStoreClient client = mock(IMetaStoreClient.class);
+        Table table = new Table();
+        table.setDbName("default");
+        table.setTableName("sales");
+        table.setSd(makeStorageDescriptor(folder.getRoot()));
+        table.setPartitionKeys(Collections.singletonList(new FieldSchema("region", "string", null)));
+        table.setParameters(new HashMap<>());
+
+        List<Partition> partitions = new ArrayList<>();
+        for (String region : new String[]{"eu", "us", "asia"}) {
+            File directory = folder.newFolder("region=" + region);
+            Files.write(new File(directory, "part-0").toPath(), "1\n".getBytes(StandardCharsets.UTF_8));
+            Files.write(new File(directory, "part-1").toPath(), "2\n".getBytes(StandardCharsets.UTF_8));
+            Partition partition = new Partition();
+            partition.setValues(Collections.singletonList(region));
+            partition.setSd(makeStorageDescriptor(directory));
+            partitions.add(partition);
+        }
+
+        when(hiveClientWrapper.initHiveClient(context, configuration)).thenReturn(client);
+        when(hiveClientWrapper.extractTableFromName("default.sales")).thenReturn(item);
+        when(hiveClientWrapper.getHiveTable(client, item, configuration)).thenReturn(table);
+        when(hiveClientWrapper.listPartitions(client, item, null, configuration)).thenReturn(partitions);
+        when(hiveClientWrapper.makeUserData(any(), any(), anyBoolean(), any(), any(), any()))
+                .thenReturn(new byte[]{1});
+
+        HiveDataFragmenter fragmenter = new HiveDataFragmenter(configurationFactory, hiveClientWrapper);
+        fragmenter.initialize(context);
+        List<Fragment> fragments = fragmenter.getFragments();
+
+        // the fragments are in the order of the partitions
+        assertEquals(6, fragments.size());
+        String[] regions = {"eu", "eu", "us", "us", "asia", "asia"};
+        for (int i = 0; i < fragments.size(); i++) {
+            assertTrue(fragments.get(i).getSourceName().contains("/region=" + regions[i] + "/"));
+        }
+        // the user data is made once per partition
+        verify(hiveClientWrapper, times(3)).makeUserData(any(), any(), anyBoolean(), any(), any(), any());
+        verify(client).close();
+    }
+
+    private StorageDescriptor makeStorageDescriptor(File location) {
+        StorageDescriptor sd = new StorageDescriptor();
+        sd.setCols(Collections.singletonList(new FieldSchema("id", "int", null)));
+        sd.setLocation(location.toURI().toString());
+        sd.setInputFormat("org.apache.hadoop.mapred.TextInputFormat");
+        sd.setOutputFormat("org.apache.hadoop.hive.ql.io.HiveIgnoreKeyTextOutputFormat");
+        sd.setSerdeInfo(new SerDeInfo(null, "org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe", new HashMap<>()));
+        sd.setBucketCols(Collections.emptyList());
+        sd.setParameters(new HashMap<>());
+        return sd;
+    }
 }
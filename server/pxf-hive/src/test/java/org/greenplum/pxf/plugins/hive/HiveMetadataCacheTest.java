@@ -0,0 +1,223 @@
+package org.greenplum.pxf.plugins.hive;
+
+import com.google.common.base.Ticker;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.CurrentNotificationEventId;
+import org.apache.hadoop.hive.metastore.api.NotificationEvent;
+import org.apache.hadoop.hive.metastore.api.NotificationEventResponse;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+import org.greenplum.pxf.api.model.Metadata;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HiveMetadataCacheTest {
+
+    private static final Metadata.Item ITEM = new Metadata.Item("default", "sales");
+
+    private FakeTicker ticker;
+    private HiveMetadataCache cache;
+    private Configuration configuration;
+    private IMetaStoreClient client;
+    private Table table;
+    private List<Partition> partitions;
+
+    @Before
+    public void setup() throws Exception {
+        ticker = new FakeTicker();
+        cache = new HiveMetadataCache(ticker, HiveMetadataCache.MAX_CACHED_BYTES);
+        configuration = new Configuration();
+        configuration.set("pxf.config.server.directory", "/pxf/servers/default");
+        configuration.set("pxf.session.user", "alice");
+        configuration.set(HiveMetadataCache.CACHE_TTL_PROPERTY, "60");
+        client = mock(IMetaStoreClient.class);
+
+        table = new Table();
+        table.setDbName("default");
+        table.setTableName("sales");
+        table.setParameters(new HashMap<>());
+        table.getParameters().put(hive_metastoreConstants.DDL_TIME, "1000");
+        partitions = new ArrayList<>(Collections.singletonList(new Partition()));
+
+        when(client.getTable("default", "sales")).thenReturn(table);
+        when(client.listPartitions("default", "sales", (short) -1)).thenReturn(partitions);
+        when(client.listPartitionsByFilter("default", "sales", "region = 'eu'", (short) -1)).thenReturn(partitions);
+        when(client.listPartitionNames("default", "sales", (short) -1)).thenReturn(Arrays.asList("region=eu", "region=us"));
+    }
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        configuration.unset(HiveMetadataCache.CACHE_TTL_PROPERTY);
+        cache.getTable(client, configuration, ITEM);
+        cache.getTable(client, configuration, ITEM);
+        cache.getPartitions(client, configuration, ITEM, null);
+        cache.getPartitions(client, configuration, ITEM, null);
+
+        verify(client, times(2)).getTable("default", "sales");
+        verify(client, times(2)).listPartitions("default", "sales", (short) -1);
+        verify(client, never()).listPartitionNames("default", "sales", (short) -1);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void cachedWithinTtl() throws Exception {
+        assertSame(table, cache.getTable(client, configuration, ITEM));
+        ticker.advance(TimeUnit.SECONDS.toNanos(30));
+        assertSame(table, cache.getTable(client, configuration, ITEM));
+
+        verify(client, times(1)).getTable("default", "sales");
+    }
+
+    @Test
+    public void cachedPerUser() throws Exception {
+        cache.getTable(client, configuration, ITEM);
+        cache.getPartitions(client, configuration, ITEM, null);
+        configuration.set("pxf.session.user", "bob");
+        cache.getTable(client, configuration, ITEM);
+        cache.getPartitions(client, configuration, ITEM, null);
+
+        // the metastore authorizes each user
+        verify(client, times(2)).getTable("default", "sales");
+        verify(client, times(2)).listPartitions("default", "sales", (short) -1);
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void tableReloadedAfterTtl() throws Exception {
+        cache.getTable(client, configuration, ITEM);
+        ticker.advance(TimeUnit.SECONDS.toNanos(61));
+        cache.getTable(client, configuration, ITEM);
+
+        verify(client, times(2)).getTable("default", "sales");
+    }
+
+    @Test
+    public void partitionsKeyedByFilter() throws Exception {
+        cache.getPartitions(client, configuration, ITEM, null);
+        cache.getPartitions(client, configuration, ITEM, "region = 'eu'");
+        cache.getPartitions(client, configuration, ITEM, null);
+        cache.getPartitions(client, configuration, ITEM, "region = 'eu'");
+
+        verify(client, times(1)).listPartitions("default", "sales", (short) -1);
+        verify(client, times(1)).listPartitionsByFilter("default", "sales", "region = 'eu'", (short) -1);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void partitionsValidatedWithDdlTimeAfterTtl() throws Exception {
+        List<Partition> first = cache.getPartitions(client, configuration, ITEM, null);
+        ticker.advance(TimeUnit.SECONDS.toNanos(61));
+
+        assertSame(first, cache.getPartitions(client, configuration, ITEM, null));
+        verify(client, times(1)).listPartitions("default", "sales", (short) -1);
+
+        // the entry is validated again only after another TTL
+        assertSame(first, cache.getPartitions(client, configuration, ITEM, null));
+        verify(client, times(2)).listPartitionNames("default", "sales", (short) -1);
+    }
+
+    @Test
+    public void partitionsReloadedWhenDdlTimeChanges() throws Exception {
+        cache.getPartitions(client, configuration, ITEM, null);
+        ticker.advance(TimeUnit.SECONDS.toNanos(61));
+        table.getParameters().put(hive_metastoreConstants.DDL_TIME, "2000");
+        cache.getPartitions(client, configuration, ITEM, null);
+
+        verify(client, times(2)).listPartitions("default", "sales", (short) -1);
+    }
+
+    @Test
+    public void partitionsReloadedWhenPartitionAdded() throws Exception {
+        cache.getPartitions(client, configuration, ITEM, null);
+        ticker.advance(TimeUnit.SECONDS.toNanos(61));
+        when(client.listPartitionNames("default", "sales", (short) -1))
+                .thenReturn(Arrays.asList("region=eu", "region=us", "region=asia"));
+        cache.getPartitions(client, configuration, ITEM, null);
+
+        verify(client, times(2)).listPartitions("default", "sales", (short) -1);
+    }
+
+    @Test
+    public void validatedWithNotificationEvents() throws Exception {
+        configuration.setBoolean(HiveMetadataCache.NOTIFICATION_EVENTS_PROPERTY, true);
+        when(client.getCurrentNotificationEventId()).thenReturn(new CurrentNotificationEventId(10));
+
+        cache.getTable(client, configuration, ITEM);
+        cache.getPartitions(client, configuration, ITEM, null);
+        ticker.advance(TimeUnit.SECONDS.toNanos(61));
+
+        // no event since the entries were loaded
+        cache.getTable(client, configuration, ITEM);
+        cache.getPartitions(client, configuration, ITEM, null);
+        verify(client, times(1)).getTable("default", "sales");
+        verify(client, times(1)).listPartitions("default", "sales", (short) -1);
+        verify(client, never()).listPartitionNames("default", "sales", (short) -1);
+
+        // an event for another table
+        ticker.advance(TimeUnit.SECONDS.toNanos(61));
+        when(client.getCurrentNotificationEventId()).thenReturn(new CurrentNotificationEventId(11));
+        when(client.getNextNotification(anyLong(), anyInt(), any())).thenReturn(new NotificationEventResponse());
+        cache.getTable(client, configuration, ITEM);
+        verify(client, times(1)).getTable("default", "sales");
+
+        // an event for the table
+        ticker.advance(TimeUnit.SECONDS.toNanos(61));
+        when(client.getCurrentNotificationEventId()).thenReturn(new CurrentNotificationEventId(12));
+        NotificationEventResponse response = new NotificationEventResponse();
+        response.addToEvents(new NotificationEvent(12, 0, "ADD_PARTITION", ""));
+        when(client.getNextNotification(anyLong(), anyInt(), any())).thenReturn(response);
+        cache.getPartitions(client, configuration, ITEM, null);
+        verify(client, times(2)).listPartitions("default", "sales", (short) -1);
+    }
+
+    @Test
+    public void boundedByWeight() throws Exception {
+        cache = new HiveMetadataCache(ticker, 1);
+        cache.getTable(client, configuration, ITEM);
+        cache.getTable(client, configuration, ITEM);
+
+        verify(client, times(2)).getTable("default", "sales");
+    }
+
+    @Test
+    public void invalidateAll() throws Exception {
+        cache.getTable(client, configuration, ITEM);
+        cache.invalidateAll();
+        cache.getTable(client, configuration, ITEM);
+
+        verify(client, times(2)).getTable("default", "sales");
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long delta) {
+            nanos += delta;
+        }
+    }
+}
@@ -22,22 +22,46 @@ package org.greenplum.pxf.plugins.hive;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Output;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
 import org.apache.hadoop.hive.ql.io.sarg.PredicateLeaf;
 import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
 import org.apache.hadoop.hive.ql.io.sarg.SearchArgumentFactory;
+import org.apache.orc.OrcFile;
+import org.apache.orc.StripeInformation;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.api.utilities.EnumAggregationType;
 import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.apache.hadoop.hive.ql.io.sarg.ConvertAstToSearchArg.SARG_PUSHDOWN;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class HiveORCAccessorTest {
 
+    private static final int ROWS_PER_STRIPE = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private RequestContext context;
     private HiveORCAccessor accessor;
 
@@ -116,6 +140,93 @@ public class HiveORCAccessorTest {
         accessor.emitAggObject();
     }
 
+    @Test
+    public void readStripeAlignedFragment() throws Exception {
+        List<StripeInformation> stripes = prepareStripeAlignedFragment();
+
+        accessor = new HiveORCAccessor();
+        accessor.initialize(context);
+        accessor.openForRead();
+        List<OneRow> rows = new ArrayList<>();
+        OneRow row;
+        while ((row = accessor.readNextObject()) != null) {
+            rows.add(row);
+        }
+        accessor.closeForRead();
+
+        // only the rows of the second and the third stripes are read
+        assertEquals(3, stripes.size());
+        assertEquals(2 * ROWS_PER_STRIPE, rows.size());
+        assertTrue(rows.get(0).getData().toString().startsWith("{100,"));
+    }
+
+    @Test
+    public void countStripeAlignedFragment() throws Exception {
+        prepareStripeAlignedFragment();
+        context.setAggType(EnumAggregationType.COUNT);
+        // the count of the file is only emitted by the first fragment
+        context.setFragmentIndex(1);
+
+        accessor = new HiveORCAccessor();
+        accessor.initialize(context);
+        accessor.openForRead();
+        accessor.retrieveStats();
+        int count = 0;
+        while (accessor.emitAggObject() != null) {
+            count++;
+        }
+        accessor.closeForRead();
+
+        assertEquals(2 * ROWS_PER_STRIPE, count);
+    }
+
+    /*
+     * Writes a file with three stripes and makes the context point to a
+     * fragment made of the second and the third stripes.
+     */
+    private List<StripeInformation> prepareStripeAlignedFragment() throws Exception {
+        File file = new File(folder.getRoot(), "000000_0");
+        writeOrcFile(file, 3);
+        List<StripeInformation> stripes = OrcFile.createReader(new Path(file.toURI()),
+                OrcFile.readerOptions(new Configuration())).getStripes();
+        long start = stripes.get(1).getOffset();
+        long length = stripes.get(2).getOffset() + stripes.get(2).getLength() - start;
+
+        HiveUserData userData = new HiveUserData("", "", null, HiveDataFragmenter.HIVE_NO_PART_TBL, true, "1", "", 0, Arrays.asList(0, 1), "id,name", "int,string");
+        context.setDataSource(file.getAbsolutePath());
+        context.setFragmentMetadata(HdfsUtilities.prepareFragmentMetadata(start, length, new String[]{"localhost"}, 2 * ROWS_PER_STRIPE));
+        context.setFragmentUserData(userData.toString().getBytes());
+        context.setTupleDescription(Arrays.asList(
+                new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null),
+                new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null)));
+        return stripes;
+    }
+
+    /*
+     * Writes a file with a stripe per ROWS_PER_STRIPE rows, the ids of the
+     * rows are increasing.
+     */
+    private void writeOrcFile(File file, int numberOfStripes) throws Exception {
+        TypeDescription schema = TypeDescription.fromString("struct<id:int,name:string>");
+        Writer writer = OrcFile.createWriter(new Path(file.toURI()),
+                OrcFile.writerOptions(new Configuration()).setSchema(schema));
+        VectorizedRowBatch batch = schema.createRowBatch();
+        LongColumnVector id = (LongColumnVector) batch.cols[0];
+        BytesColumnVector name = (BytesColumnVector) batch.cols[1];
+        for (int stripe = 0; stripe < numberOfStripes; stripe++) {
+            for (int i = 0; i < ROWS_PER_STRIPE; i++) {
+                int row = batch.size++;
+                id.vector[row] = stripe * ROWS_PER_STRIPE + i;
+                name.setVal(row, ("name" + i).getBytes(StandardCharsets.UTF_8));
+            }
+            writer.addRowBatch(batch);
+            batch.reset();
+            // ends the stripe
+            writer.writeIntermediateFooter();
+        }
+        writer.close();
+    }
+
     private String toKryo(SearchArgument sarg) {
         Output out = new Output(4 * 1024, 10 * 1024 * 1024);
         new Kryo().writeObject(out, sarg);
@@ -0,0 +1,199 @@
+package org.greenplum.pxf.plugins.hive;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.SerDeInfo;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.StripeInformation;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.ConfigurationFactory;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.Metadata;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.api.utilities.FragmentMetadata;
+import org.greenplum.pxf.api.utilities.Utilities;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HiveORCFragmenterTest {
+
+    private static final int ROWS_PER_STRIPE = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RequestContext context;
+    private Configuration configuration;
+    private ConfigurationFactory configurationFactory;
+    private HiveClientWrapper hiveClientWrapper;
+    private File file;
+    private List<StripeInformation> stripes;
+
+    @Before
+    public void setup() throws Exception {
+        hiveClientWrapper = mock(HiveClientWrapper.class);
+        configurationFactory = mock(ConfigurationFactory.class);
+
+        context = new RequestContext();
+        context.setConfig("default");
+        context.setServerName("default");
+        context.setUser("dummy");
+        context.setDataSource("default.sales");
+        context.setFragmenter(HiveORCFragmenter.class.getName());
+        context.setTupleDescription(Arrays.asList(
+                new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null),
+                new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null)));
+
+        configuration = new Configuration();
+        configuration.set("fs.defaultFS", "hdfs:///");
+
+        when(configurationFactory
+                .initConfiguration("default", "default", "dummy", context.getAdditionalConfigProps()))
+                .thenReturn(configuration);
+
+        File directory = folder.newFolder("sales");
+        file = new File(directory, "000000_0");
+        writeOrcFile(file, 3);
+        stripes = OrcFile.createReader(new Path(file.toURI()), OrcFile.readerOptions(configuration)).getStripes();
+
+        Metadata.Item item = new Metadata.Item("default", "sales");
+        IMetaStoreClient client = mock(IMetaStoreClient.class);
+        Table table = new Table();
+        table.setDbName("default");
+        table.setTableName("sales");
+        table.setSd(makeStorageDescriptor(directory));
+        table.setPartitionKeys(Collections.emptyList());
+        table.setParameters(new HashMap<>());
+
+        when(hiveClientWrapper.initHiveClient(context, configuration)).thenReturn(client);
+        when(hiveClientWrapper.extractTableFromName("default.sales")).thenReturn(item);
+        when(hiveClientWrapper.getHiveTable(client, item, configuration)).thenReturn(table);
+        when(hiveClientWrapper.listPartitions(client, item, null, configuration)).thenReturn(Collections.emptyList());
+        when(hiveClientWrapper.makeUserData(any(), any(), anyBoolean(), any(), any(), any()))
+                .thenReturn(new byte[]{1});
+    }
+
+    @Test
+    public void stripesCoalescedUpToFragmentSize() throws Exception {
+        assertEquals(3, stripes.size());
+        List<Fragment> fragments = getFragments();
+
+        // the file is smaller than a block
+        assertEquals(1, fragments.size());
+        assertFragment(fragments.get(0), stripes.get(0).getOffset(), stripes.get(2), 3 * ROWS_PER_STRIPE);
+        assertEquals(1, fragments.get(0).getUserData()[0]);
+    }
+
+    @Test
+    public void fragmentPerStripe() throws Exception {
+        configuration.setLong(HiveORCFragmenter.FRAGMENT_SIZE_PROPERTY, 1);
+        List<Fragment> fragments = getFragments();
+
+        assertEquals(3, fragments.size());
+        for (int i = 0; i < fragments.size(); i++) {
+            assertFragment(fragments.get(i), stripes.get(i).getOffset(), stripes.get(i), ROWS_PER_STRIPE);
+            // the hosts of each stripe come from the block locations of the file
+            assertArrayEquals(new String[]{"localhost"}, fragments.get(i).getReplicas());
+        }
+    }
+
+    @Test
+    public void stripesNotMatchingFilterAreDropped() throws Exception {
+        // id >= 150
+        context.setFilterString("a0c23s3d150o4");
+        List<Fragment> fragments = getFragments();
+
+        // the first stripe has ids 0 to 99, the other stripes are coalesced
+        assertEquals(1, fragments.size());
+        assertFragment(fragments.get(0), stripes.get(1).getOffset(), stripes.get(2), 2 * ROWS_PER_STRIPE);
+    }
+
+    @Test
+    public void noStripeMatchesFilter() throws Exception {
+        // id < 0
+        context.setFilterString("a0c23s1d0o1");
+        assertEquals(0, getFragments().size());
+    }
+
+    private List<Fragment> getFragments() throws Exception {
+        HiveORCFragmenter fragmenter = new HiveORCFragmenter(configurationFactory, hiveClientWrapper);
+        fragmenter.initialize(context);
+        return fragmenter.getFragments();
+    }
+
+    private void assertFragment(Fragment fragment, long start, StripeInformation lastStripe, long numberOfRows) {
+        assertTrue(fragment.getSourceName().endsWith("/sales/000000_0"));
+        context.setFragmentMetadata(fragment.getMetadata());
+        FragmentMetadata metadata = Utilities.parseFragmentMetadata(context);
+        assertEquals(start, metadata.getStart());
+        assertEquals(lastStripe.getOffset() + lastStripe.getLength() - start, metadata.getEnd());
+        assertEquals(numberOfRows, HdfsUtilities.parseNumberOfRows(context));
+        assertNull(fragment.getProfile());
+    }
+
+    /*
+     * Writes a file with a stripe per ROWS_PER_STRIPE rows, the ids of the
+     * rows are increasing.
+     */
+    private void writeOrcFile(File file, int numberOfStripes) throws Exception {
+        TypeDescription schema = TypeDescription.fromString("struct<id:int,name:string>");
+        Writer writer = OrcFile.createWriter(new Path(file.toURI()),
+                OrcFile.writerOptions(configuration).setSchema(schema));
+        VectorizedRowBatch batch = schema.createRowBatch();
+        LongColumnVector id = (LongColumnVector) batch.cols[0];
+        BytesColumnVector name = (BytesColumnVector) batch.cols[1];
+        for (int stripe = 0; stripe < numberOfStripes; stripe++) {
+            for (int i = 0; i < ROWS_PER_STRIPE; i++) {
+                int row = batch.size++;
+                id.vector[row] = stripe * ROWS_PER_STRIPE + i;
+                name.setVal(row, ("name" + i).getBytes(StandardCharsets.UTF_8));
+            }
+            writer.addRowBatch(batch);
+            batch.reset();
+            // ends the stripe
+            writer.writeIntermediateFooter();
+        }
+        writer.close();
+    }
+
+    private StorageDescriptor makeStorageDescriptor(File location) {
+        StorageDescriptor sd = new StorageDescriptor();
+        sd.setCols(Arrays.asList(new FieldSchema("id", "int", null), new FieldSchema("name", "string", null)));
+        sd.setLocation(location.toURI().toString());
+        sd.setInputFormat("org.apache.hadoop.hive.ql.io.orc.OrcInputFormat");
+        sd.setOutputFormat("org.apache.hadoop.hive.ql.io.orc.OrcOutputFormat");
+        sd.setSerdeInfo(new SerDeInfo(null, "org.apache.hadoop.hive.ql.io.orc.OrcSerde", new HashMap<>()));
+        sd.setBucketCols(Collections.emptyList());
+        sd.setParameters(new HashMap<>());
+        return sd;
+    }
+}
@@ -0,0 +1,89 @@
+package org.greenplum.pxf.plugins.hive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.hive.ql.io.sarg.PredicateLeaf;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgumentFactory;
+import org.apache.orc.TypeDescription;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HiveORCVectorizedAccessorTest {
+
+    private RequestContext context;
+    private HiveORCVectorizedAccessor accessor;
+
+    @Before
+    public void setup() {
+        HiveUserData userData = new HiveUserData("", "", null, HiveDataFragmenter.HIVE_NO_PART_TBL, true, "1", "", 0, Arrays.asList(0, 1), "col1,FOO", "string, string");
+        context = new RequestContext();
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.setDataSource("foo");
+        context.setFragmentMetadata(HdfsUtilities.prepareFragmentMetadata(0, 0, new String[]{"localhost"}));
+        context.setFragmentUserData(userData.toString().getBytes());
+        context.getTupleDescription().add(new ColumnDescriptor("col1", 1, 1, "TEXT", null));
+        context.getTupleDescription().add(new ColumnDescriptor("FOO", 1, 1, "TEXT", null));
+        context.setAccessor(HiveORCVectorizedAccessor.class.getName());
+
+        accessor = new HiveORCVectorizedAccessor();
+        accessor.initialize(context);
+    }
+
+    @Test
+    public void testNoSearchArgumentWithoutFilter() throws Exception {
+        assertNull(accessor.buildSearchArgument());
+    }
+
+    @Test
+    public void testSearchArgument() throws Exception {
+        SearchArgument expected = SearchArgumentFactory.newBuilder().startAnd().isNull("FOO", PredicateLeaf.Type.STRING).end().build();
+
+        context.setFilterString("a1o8");
+
+        assertEquals(expected.toString(), accessor.buildSearchArgument().toString());
+    }
+
+    @Test
+    public void testSargColumnNamesUseTableNames() {
+        // files written by Hive may name the columns _col0, _col1...
+        TypeDescription schema = TypeDescription.fromString("struct<_col0:string,_col1:string>");
+
+        assertArrayEquals(new String[]{null, "col1", "FOO"}, accessor.getSargColumnNames(schema));
+    }
+
+    @Test
+    public void testSargColumnNamesWithNestedColumn() {
+        TypeDescription schema = TypeDescription.fromString("struct<a:struct<x:int,y:int>,b:string>");
+
+        // ids: 0 root, 1 a, 2 a.x, 3 a.y, 4 b
+        assertArrayEquals(new String[]{null, "col1", null, null, "FOO"}, accessor.getSargColumnNames(schema));
+    }
+}
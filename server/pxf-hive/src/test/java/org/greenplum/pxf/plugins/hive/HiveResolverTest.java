@@ -0,0 +1,82 @@
+package org.greenplum.pxf.plugins.hive;
+
+import org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe;
+import org.apache.hadoop.io.Text;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HiveResolverTest {
+
+    private static final String PROPERTIES = "columns=a,b,c\ncolumns.types=int:string:string\nfield.delim=,\n";
+    private static final String PARTITION_KEYS = "region" + HiveDataFragmenter.HIVE_1_PART_DELIM + "string" +
+            HiveDataFragmenter.HIVE_1_PART_DELIM + "eu";
+
+    private RequestContext context;
+
+    @Before
+    public void setup() {
+        HiveUserData userData = new HiveUserData("", LazySimpleSerDe.class.getName(), PROPERTIES, PARTITION_KEYS,
+                true, "44", "int:string:string", 0, Arrays.asList(0, 1, 2, null), "a,b,c", "int,string,string");
+        context = new RequestContext();
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.setDataSource("foo");
+        context.setFragmentUserData(userData.toString().getBytes());
+        context.getTupleDescription().add(new ColumnDescriptor("a", DataType.INTEGER.getOID(), 0, "int4", null));
+        context.getTupleDescription().add(new ColumnDescriptor("b", DataType.TEXT.getOID(), 1, "text", null));
+        context.getTupleDescription().add(new ColumnDescriptor("c", DataType.TEXT.getOID(), 2, "text", null));
+        context.getTupleDescription().add(new ColumnDescriptor("region", DataType.TEXT.getOID(), 3, "text", null));
+    }
+
+    @Test
+    public void allColumns() throws Exception {
+        List<OneField> fields = getFields("1,hello,world");
+
+        assertEquals(4, fields.size());
+        assertEquals(1, fields.get(0).val);
+        assertEquals("hello", fields.get(1).val);
+        assertEquals("world", fields.get(2).val);
+        assertEquals("eu", fields.get(3).val);
+    }
+
+    @Test
+    public void projectedColumns() throws Exception {
+        context.getColumn(1).setProjected(false);
+        context.getColumn(3).setProjected(false);
+        List<OneField> fields = getFields("1,hello,world");
+
+        assertEquals(4, fields.size());
+        assertEquals(1, fields.get(0).val);
+        assertNull(fields.get(1).val);
+        assertEquals("world", fields.get(2).val);
+        assertNull(fields.get(3).val);
+        assertEquals(DataType.TEXT.getOID(), fields.get(3).type);
+    }
+
+    @Test
+    public void missingColumns() throws Exception {
+        List<OneField> fields = getFields("1");
+
+        assertEquals(1, fields.get(0).val);
+        assertNull(fields.get(1).val);
+        assertNull(fields.get(2).val);
+        assertEquals("eu", fields.get(3).val);
+    }
+
+    private List<OneField> getFields(String line) throws Exception {
+        HiveResolver resolver = new HiveResolver();
+        resolver.initialize(context);
+        return resolver.getFields(new OneRow(null, new Text(line)));
+    }
+}
@@ -23,6 +23,7 @@ package org.greenplum.pxf.plugins.hive.utilities;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.util.Arrays;
@@ -33,6 +34,8 @@ import org.greenplum.pxf.api.io.DataType;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.junit.Test;
 import org.greenplum.pxf.api.model.Metadata;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.plugins.hive.HiveUserData;
 import org.greenplum.pxf.api.UnsupportedTypeException;
 
 public class HiveUtilitiesTest {
@@ -331,4 +334,21 @@ public class HiveUtilitiesTest {
             assertNull(result.getModifiers());
         }
     }
+
+    @Test
+    public void parseHiveUserData() {
+        String userData = new HiveUserData("inputFormat", "serde", "props", "part!H1PD!string!H1PD!1",
+                true, "1", "int,string", 0, Arrays.asList(0, null, 1), "a,b,c", "int,string,int").toString();
+        RequestContext context = new RequestContext();
+        context.setFragmentUserData(userData.getBytes());
+
+        HiveUserData hiveUserData = HiveUtilities.parseHiveUserData(context);
+        assertEquals("serde", hiveUserData.getSerdeClassName());
+        assertEquals(Arrays.asList(0, null, 1), hiveUserData.getHiveIndexes());
+
+        // another fragment with the same user data gets the parsed user data
+        context = new RequestContext();
+        context.setFragmentUserData(userData.getBytes());
+        assertSame(hiveUserData, HiveUtilities.parseHiveUserData(context));
+    }
 }
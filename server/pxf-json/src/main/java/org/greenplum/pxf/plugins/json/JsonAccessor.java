@@ -26,10 +26,10 @@ import java.io.IOException;
 import org.apache.hadoop.mapred.FileSplit;
 import org.apache.hadoop.mapred.InputSplit;
 import org.apache.hadoop.mapred.JobConf;
-import org.apache.hadoop.mapred.LineRecordReader;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.plugins.hdfs.HdfsSplittableDataAccessor;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 
 /**
  * This JSON accessor for PXF will read JSON data and pass it to a {@link JsonResolver}.
@@ -84,7 +84,7 @@ public class JsonAccessor extends HdfsSplittableDataAccessor {
             conf.setInt(JsonRecordReader.RECORD_MAX_LENGTH, maxRecordLength);
             return new JsonRecordReader(conf, (FileSplit) split);
         } else {
-            return new LineRecordReader(conf, (FileSplit) split);
+            return HdfsUtilities.createLineRecordReader(conf, (FileSplit) split);
         }
     }
 
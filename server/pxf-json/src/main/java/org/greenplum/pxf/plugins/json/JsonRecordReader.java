@@ -34,6 +34,7 @@ import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.apache.hadoop.mapred.FileSplit;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.RecordReader;
+import org.greenplum.pxf.plugins.hdfs.ReadAheadInputStream;
 import org.greenplum.pxf.plugins.json.parser.PartitionedJsonParser;
 
 /**
@@ -81,14 +82,16 @@ public class JsonRecordReader implements RecordReader<LongWritable, Text> {
         // openForWrite the file and seek to the start of the split
         FileSystem fs = file.getFileSystem(conf);
         FSDataInputStream fileIn = fs.open(split.getPath());
+        if (codec == null && start != 0) {
+            // seek before wrapping the stream, so that reading ahead starts at the split
+            fileIn.seek(start);
+        }
+        fileIn = ReadAheadInputStream.wrap(fileIn, conf);
         if (codec != null) {
             is = codec.createInputStream(fileIn);
             start = 0;
             end = Long.MAX_VALUE;
         } else {
-            if (start != 0) {
-                fileIn.seek(start);
-            }
             is = fileIn;
         }
         parser = new PartitionedJsonParser(is);
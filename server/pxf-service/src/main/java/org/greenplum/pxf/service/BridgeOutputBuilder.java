@@ -26,10 +26,15 @@ import org.apache.commons.lang.StringUtils;
 import org.greenplum.pxf.api.BadRecordException;
 import org.greenplum.pxf.api.GreenplumDateTime;
 import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.ReadVectorizedSerializer;
+import org.greenplum.pxf.api.io.BatchWritable;
 import org.greenplum.pxf.api.io.BufferWritable;
 import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.io.GPDBBatchWritable;
 import org.greenplum.pxf.api.io.GPDBWritable;
 import org.greenplum.pxf.api.io.Text;
+import org.greenplum.pxf.api.io.TextBatchWritable;
 import org.greenplum.pxf.api.io.Writable;
 import org.greenplum.pxf.api.model.GreenplumCSV;
 import org.greenplum.pxf.api.model.OutputFormat;
@@ -65,6 +70,7 @@ public class BridgeOutputBuilder {
     private LinkedList<Writable> outputList;
     private Writable partialLine = null;
     private GPDBWritable errorRecord = null;
+    private BatchWritable batchOutput = null;
     private int[] schema;
     private String[] colNames;
     private boolean samplingEnabled;
@@ -162,6 +168,32 @@ public class BridgeOutputBuilder {
         return outputList;
     }
 
+    /**
+     * Serializes a batch of records straight into the output format. The
+     * records are not resolved into {@link OneField} objects, the serializer
+     * writes the values of the batch into a buffer that is reused by the next
+     * batch.
+     *
+     * @param serializer the resolver that serializes the batch
+     * @param batch      the batch of records
+     * @return list with the serialized batch, empty when the batch has no records
+     * @throws BadRecordException if the batch does not match the schema
+     */
+    public LinkedList<Writable> makeSerializedOutput(ReadVectorizedSerializer serializer, OneRow batch)
+            throws BadRecordException {
+        if (batchOutput == null) {
+            batchOutput = makeBatchOutput();
+        }
+
+        outputList.clear();
+        batchOutput.reset();
+        serializer.serializeBatch(batch, batchOutput);
+        if (!batchOutput.isEmpty()) {
+            outputList.add(batchOutput);
+        }
+        return outputList;
+    }
+
     /**
      * Returns whether or not this is a partial line.
      *
@@ -192,6 +224,23 @@ public class BridgeOutputBuilder {
         return (GPDBWritable) output;
     }
 
+    /**
+     * Creates the buffer of the serialized batches for the output format.
+     *
+     * @return empty BatchWritable for the columns
+     */
+    BatchWritable makeBatchOutput() {
+        int[] batchSchema = new int[context.getColumns()];
+        for (int i = 0; i < batchSchema.length; i++) {
+            batchSchema[i] = context.getColumn(i).columnTypeCode();
+        }
+
+        if (context.getOutputFormat() == OutputFormat.GPDBWritable) {
+            return new GPDBBatchWritable(batchSchema);
+        }
+        return new TextBatchWritable(batchSchema, greenplumCSV);
+    }
+
     /**
      * Fills the output record based on the fields in recFields.
      *
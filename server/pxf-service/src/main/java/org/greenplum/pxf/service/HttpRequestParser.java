@@ -177,6 +177,11 @@ public class HttpRequestParser implements RequestParser<HttpHeaders> {
         String encodedFragmentUserData = params.removeOptionalProperty("FRAGMENT-USER-DATA");
         context.setUserData(Utilities.parseBase64(encodedFragmentUserData, "Fragment user data"));
 
+        String userDataDictionary = params.removeOptionalProperty("FRAGMENT-USER-DATA-DICTIONARY");
+        if (StringUtils.isNotBlank(userDataDictionary)) {
+            context.setUserDataDictionary(parseBooleanValue(userDataDictionary));
+        }
+
         // Store alignment for global use as a system property
         System.setProperty("greenplum.alignment", params.removeProperty("ALIGNMENT"));
 
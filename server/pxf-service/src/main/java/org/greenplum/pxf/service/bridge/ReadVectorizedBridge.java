@@ -22,6 +22,7 @@ package org.greenplum.pxf.service.bridge;
 import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.ReadVectorizedResolver;
+import org.greenplum.pxf.api.ReadVectorizedSerializer;
 import org.greenplum.pxf.api.io.Writable;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.utilities.AccessorFactory;
@@ -31,6 +32,11 @@ import java.util.Deque;
 import java.util.List;
 
 
+/**
+ * Bridge that reads batches of records. When the resolver implements
+ * {@link ReadVectorizedSerializer} the batches are serialized straight into
+ * the output format, otherwise they are resolved into lists of fields first.
+ */
 public class ReadVectorizedBridge extends ReadBridge {
 
     public ReadVectorizedBridge(RequestContext context) {
@@ -43,6 +49,9 @@ public class ReadVectorizedBridge extends ReadBridge {
 
     @Override
     protected Deque<Writable> makeOutput(OneRow oneRow) throws Exception {
+        if (resolver instanceof ReadVectorizedSerializer) {
+            return outputBuilder.makeSerializedOutput((ReadVectorizedSerializer) resolver, oneRow);
+        }
         List<List<OneField>> resolvedBatch = ((ReadVectorizedResolver) resolver).
                 getFieldsForBatch(oneRow);
         return outputBuilder.makeVectorizedOutput(resolvedBatch);
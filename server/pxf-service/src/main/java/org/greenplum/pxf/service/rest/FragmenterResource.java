@@ -143,7 +143,8 @@ public class FragmenterResource extends BaseResource {
             fragments = getFragments(context);
         }
 
-        FragmentsResponse fragmentsResponse = FragmentsResponseFormatter.formatResponse(fragments, path);
+        FragmentsResponse fragmentsResponse = FragmentsResponseFormatter.formatResponse(fragments, path,
+                context.isUserDataDictionary());
         return Response.ok(fragmentsResponse, MediaType.APPLICATION_JSON_TYPE).build();
     }
 
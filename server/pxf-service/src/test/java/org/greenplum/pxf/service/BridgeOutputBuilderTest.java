@@ -23,6 +23,9 @@ package org.greenplum.pxf.service;
 import org.greenplum.pxf.api.BadRecordException;
 import org.greenplum.pxf.api.GreenplumDateTime;
 import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.ReadVectorizedSerializer;
+import org.greenplum.pxf.api.io.BatchWritable;
 import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.OutputFormat;
 import org.greenplum.pxf.api.model.RequestContext;
@@ -159,6 +162,42 @@ public class BridgeOutputBuilderTest {
                 new String(dos.getOutput(), "UTF8"));
     }
 
+    @Test
+    public void testMakeSerializedOutput() throws Exception {
+        RequestContext context = new RequestContext();
+        addColumn(context, 0, DataType.INTEGER, "col0");
+        addColumn(context, 1, DataType.TEXT, "col1");
+        BridgeOutputBuilder builder = makeBuilder(context);
+
+        ReadVectorizedSerializer serializer = new ReadVectorizedSerializer() {
+            @Override
+            public void serializeBatch(OneRow batch, BatchWritable output) {
+                String[] values = (String[]) batch.getData();
+                for (int i = 0; i < values.length; i++) {
+                    byte[] bytes = values[i].getBytes();
+                    output.startRecord();
+                    output.setInt(0, i);
+                    output.setText(1, bytes, 0, bytes.length);
+                    output.endRecord();
+                }
+            }
+
+            @Override
+            public List<List<OneField>> getFieldsForBatch(OneRow batch) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        List<Writable> outputQueue = builder.makeSerializedOutput(serializer, new OneRow(new String[]{"a", "b,c"}));
+
+        assertEquals(1, outputQueue.size());
+        outputQueue.get(0).write(dos);
+        assertEquals("0,a\n1,\"b,c\"\n", new String(dos.getOutput(), "UTF8"));
+
+        // a batch without records has no output
+        assertEquals(0, builder.makeSerializedOutput(serializer, new OneRow(new String[0])).size());
+    }
+
     @Test
     public void testFillOneGPDBWritableField() throws Exception {
         RequestContext context = new RequestContext();
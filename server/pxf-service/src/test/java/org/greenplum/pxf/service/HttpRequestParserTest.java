@@ -278,6 +278,16 @@ public class HttpRequestParserTest {
         assertTrue(context.isThreadSafe());
     }
 
+    @Test
+    public void userDataDictionary() {
+        RequestContext context = parser.parseRequest(mockRequestHeaders, RequestType.FRAGMENTER);
+        assertFalse(context.isUserDataDictionary());
+
+        parameters.putSingle("X-GP-FRAGMENT-USER-DATA-DICTIONARY", "true");
+        context = parser.parseRequest(mockRequestHeaders, RequestType.FRAGMENTER);
+        assertTrue(context.isUserDataDictionary());
+    }
+
     @Test
     public void getFragmentMetadata() {
         RequestContext context = parser.parseRequest(mockRequestHeaders, RequestType.FRAGMENTER);